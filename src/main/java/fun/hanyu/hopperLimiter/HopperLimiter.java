@@ -3,30 +3,86 @@ package fun.hanyu.hopperLimiter;
 import fun.hanyu.hopperLimiter.command.LimiterCommand;
 import fun.hanyu.hopperLimiter.command.TabCompleterManager;
 import fun.hanyu.hopperLimiter.config.Config;
+import fun.hanyu.hopperLimiter.config.LimitTable;
+import fun.hanyu.hopperLimiter.config.PlayerLimitCache;
 import fun.hanyu.hopperLimiter.config.WorldLimitManager;
 import fun.hanyu.hopperLimiter.listener.BlockPlacementListener;
 import fun.hanyu.hopperLimiter.listener.BlockBreakListener;
+import fun.hanyu.hopperLimiter.listener.ChunkListener;
+import fun.hanyu.hopperLimiter.listener.EnvironmentListener;
+import fun.hanyu.hopperLimiter.listener.ExplosionListener;
+import fun.hanyu.hopperLimiter.listener.FireListener;
+import fun.hanyu.hopperLimiter.listener.HopperTransferListener;
+import fun.hanyu.hopperLimiter.listener.PlayerSessionListener;
+import fun.hanyu.hopperLimiter.listener.ProfilerListener;
+import fun.hanyu.hopperLimiter.profiler.ActivityProfiler;
+import fun.hanyu.hopperLimiter.scheduler.TickScheduler;
 import fun.hanyu.hopperLimiter.sound.SoundManager;
 import fun.hanyu.hopperLimiter.storage.StorageManager;
+import fun.hanyu.hopperLimiter.throttle.TransferThrottle;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.Chunk;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public final class HopperLimiter extends JavaPlugin {
     private Config configManager;
     private WorldLimitManager worldLimitManager;
+    private PlayerLimitCache playerLimitCache;
     private SoundManager soundManager;
     private StorageManager storageManager;
+    private TickScheduler tickScheduler;
+    private TransferThrottle transferThrottle;
+    private ActivityProfiler activityProfiler;
 
     @Override
     public void onEnable() {
         // Initialize config
         this.configManager = new Config(this);
         this.worldLimitManager = new WorldLimitManager(this);
+        ContainerTypes.register(worldLimitManager.getLimits().getMaterials());
+        this.playerLimitCache = new PlayerLimitCache(this);
+        playerLimitCache.start(configManager.getPermissionRefreshSeconds());
         this.soundManager = new SoundManager(this);
+        this.tickScheduler = new TickScheduler(this,
+                configManager.getSchedulerTickBudgetMillis(),
+                configManager.getSchedulerLagThresholdMillis(),
+                configManager.getSchedulerWorkerThreads(),
+                configManager.getSchedulerQueueCapacity());
+        tickScheduler.start();
         this.storageManager = new StorageManager(this);
+        this.transferThrottle = new TransferThrottle(this);
+        transferThrottle.start();
+        this.activityProfiler = new ActivityProfiler(this);
+        activityProfiler.start();
 
         // Register events
         getServer().getPluginManager().registerEvents(new BlockPlacementListener(this), this);
         getServer().getPluginManager().registerEvents(new BlockBreakListener(this), this);
+        getServer().getPluginManager().registerEvents(new ExplosionListener(this), this);
+        getServer().getPluginManager().registerEvents(new EnvironmentListener(this), this);
+        if (FireListener.isNeeded()) {
+            getServer().getPluginManager().registerEvents(new FireListener(this), this);
+        }
+        getServer().getPluginManager().registerEvents(new PlayerSessionListener(this), this);
+        getServer().getPluginManager().registerEvents(new ChunkListener(this), this);
+        getServer().getPluginManager().registerEvents(new HopperTransferListener(this), this);
+        getServer().getPluginManager().registerEvents(new ProfilerListener(this), this);
+
+        // Players already online after a reload
+        for (Player player : getServer().getOnlinePlayers()) {
+            storageManager.onPlayerJoin(player.getUniqueId(), player.getName());
+            playerLimitCache.refresh(player);
+        }
+
+        // Chunks loaded before the listener was registered
+        for (World world : getServer().getWorlds()) {
+            for (Chunk chunk : world.getLoadedChunks()) {
+                storageManager.onChunkLoad(chunk);
+            }
+        }
 
         // Register commands
         LimiterCommand limiterCommand = new LimiterCommand(this);
@@ -36,14 +92,19 @@ public final class HopperLimiter extends JavaPlugin {
 
         // Log startup
         getLogger().info("HopperLimiter has been enabled!");
-        getLogger().info("Hopper Limit: " + configManager.getHopperLimit());
-        getLogger().info("Chest Limit: " + configManager.getChestLimit());
-        getLogger().info("Barrel Limit: " + configManager.getBarrelLimit());
+        LimitTable limits = worldLimitManager.getLimits();
+        for (Material material : limits.getMaterials()) {
+            getLogger().info(ContainerTypes.displayName(material) + " Limit: " + limits.getDefaultLimit(material));
+        }
         getLogger().info("Storage Manager initialized - data folder: " + getDataFolder().getAbsolutePath());
     }
 
     @Override
     public void onDisable() {
+        // Finish queued background reads while the database is still open
+        if (tickScheduler != null) {
+            tickScheduler.shutdown();
+        }
         // Save all data and close database connection
         if (storageManager != null) {
             storageManager.saveData();
@@ -60,6 +121,10 @@ public final class HopperLimiter extends JavaPlugin {
         return worldLimitManager;
     }
 
+    public PlayerLimitCache getPlayerLimitCache() {
+        return playerLimitCache;
+    }
+
     public SoundManager getSoundManager() {
         return soundManager;
     }
@@ -67,4 +132,16 @@ public final class HopperLimiter extends JavaPlugin {
     public StorageManager getStorageManager() {
         return storageManager;
     }
+
+    public TickScheduler getTickScheduler() {
+        return tickScheduler;
+    }
+
+    public TransferThrottle getTransferThrottle() {
+        return transferThrottle;
+    }
+
+    public ActivityProfiler getActivityProfiler() {
+        return activityProfiler;
+    }
 }
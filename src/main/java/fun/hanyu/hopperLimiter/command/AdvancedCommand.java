@@ -2,21 +2,46 @@ package fun.hanyu.hopperLimiter.command;
 
 import fun.hanyu.hopperLimiter.HopperLimiter;
 import fun.hanyu.hopperLimiter.config.Config;
+import fun.hanyu.hopperLimiter.config.LimitTable;
 import fun.hanyu.hopperLimiter.config.WorldLimitManager;
 import fun.hanyu.hopperLimiter.message.Message;
+import fun.hanyu.hopperLimiter.profiler.ActivityProfiler;
+import fun.hanyu.hopperLimiter.scheduler.TickScheduler;
 import fun.hanyu.hopperLimiter.storage.StorageManager;
+import fun.hanyu.hopperLimiter.storage.ChunkCountMigrationTask;
+import fun.hanyu.hopperLimiter.storage.EventSink;
+import fun.hanyu.hopperLimiter.storage.FlushMetrics;
+import fun.hanyu.hopperLimiter.storage.HistoryArchive;
+import fun.hanyu.hopperLimiter.storage.HistoryRetentionTask;
+import fun.hanyu.hopperLimiter.storage.WorldAudit;
+import fun.hanyu.hopperLimiter.throttle.TransferThrottle;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import fun.hanyu.hopperLimiter.util.TileEntityCounter;
 import fun.hanyu.hopperLimiter.visualization.ChunkVisualizationManager;
 import org.bukkit.ChatColor;
+import org.bukkit.Material;
+import org.bukkit.World;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
  * Advanced command handler for set, get, and statistics commands
  */
 public class AdvancedCommand {
+    private static final int ARCHIVE_LINES = 10;
+    private static final DateTimeFormatter ARCHIVE_DATE = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
     private final HopperLimiter plugin;
     private final Config config;
     private final WorldLimitManager worldLimitManager;
@@ -39,7 +64,7 @@ public class AdvancedCommand {
         }
 
         if (args.length < 3) {
-            Message.sendError((Player) sender, "Usage: /hoplimit set <hopper|chest|barrel> <limit>");
+            Message.sendError((Player) sender, "Usage: /hoplimit set <block> <limit>");
             return;
         }
 
@@ -47,8 +72,9 @@ public class AdvancedCommand {
         String limitStr = args[2];
 
         // Validate block type
-        if (!isValidBlockType(blockType)) {
-            Message.sendError((Player) sender, "Invalid block type! Use: hopper, chest, or barrel");
+        Material material = parseLimitedBlock(blockType);
+        if (material == null) {
+            Message.sendError((Player) sender, "Invalid block type! Use one of: " + String.join(", ", getLimitedBlockNames()));
             return;
         }
 
@@ -65,8 +91,8 @@ public class AdvancedCommand {
             return;
         }
 
-        // Update config in memory (not persisted to file)
-        config.setLimit(blockType, limit);
+        // Publish new limits in memory (not persisted to file)
+        worldLimitManager.setDefaultLimit(material, limit);
 
         Player player = (Player) sender;
         Message.sendSuccess(player, "Set " + blockType + " limit to " + limit);
@@ -83,20 +109,21 @@ public class AdvancedCommand {
         }
 
         if (args.length < 2) {
-            Message.sendError((Player) sender, "Usage: /hoplimit get <hopper|chest|barrel>");
+            Message.sendError((Player) sender, "Usage: /hoplimit get <block>");
             return;
         }
 
         String blockType = args[1].toLowerCase();
 
         // Validate block type
-        if (!isValidBlockType(blockType)) {
-            Message.sendError((Player) sender, "Invalid block type! Use: hopper, chest, or barrel");
+        Material material = parseLimitedBlock(blockType);
+        if (material == null) {
+            Message.sendError((Player) sender, "Invalid block type! Use one of: " + String.join(", ", getLimitedBlockNames()));
             return;
         }
 
         Player player = (Player) sender;
-        int limit = config.getLimit(blockType);
+        int limit = worldLimitManager.getLimits().getDefaultLimit(material);
         Message.sendInfo(player, blockType + " limit is currently set to " + ChatColor.YELLOW + limit);
     }
 
@@ -130,8 +157,10 @@ public class AdvancedCommand {
         }
 
         Player player = (Player) sender;
-        StorageManager.GlobalStatistics globalStats = storageManager.getGlobalStatistics();
+        queryAsync(player, storageManager::getGlobalStatistics, globalStats -> sendGlobalStats(player, globalStats));
+    }
 
+    private void sendGlobalStats(Player player, StorageManager.GlobalStatistics globalStats) {
         player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Global Statistics" + ChatColor.DARK_AQUA + " ===");
         player.sendMessage(ChatColor.AQUA + "Total Placements: " + ChatColor.YELLOW + globalStats.getTotalPlacements());
         player.sendMessage(ChatColor.AQUA + "Total Players: " + ChatColor.YELLOW + globalStats.getTotalPlayers());
@@ -157,21 +186,7 @@ public class AdvancedCommand {
             return;
         }
 
-        Player player = (Player) sender;
-        String targetPlayer = args[1];
-        StorageManager.PlayerStatistics stats = storageManager.getPlayerStatistics(targetPlayer);
-
-        if (stats == null) {
-            Message.sendError(player, "No statistics found for player: " + targetPlayer);
-            return;
-        }
-
-        player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Player Statistics: " +
-                ChatColor.YELLOW + targetPlayer + ChatColor.DARK_AQUA + " ===");
-        player.sendMessage(ChatColor.AQUA + "Hoppers: " + ChatColor.YELLOW + stats.getHopperCount());
-        player.sendMessage(ChatColor.AQUA + "Chests: " + ChatColor.YELLOW + stats.getChestCount());
-        player.sendMessage(ChatColor.AQUA + "Barrels: " + ChatColor.YELLOW + stats.getBarrelCount());
-        player.sendMessage(ChatColor.AQUA + "Last Placement: " + ChatColor.YELLOW + stats.getLastPlacement());
+        showPlayerStats((Player) sender, args[1]);
     }
 
     /**
@@ -190,13 +205,176 @@ public class AdvancedCommand {
 
         Player player = (Player) sender;
         String worldName = args[1];
-        WorldLimitManager.WorldLimits limits = worldLimitManager.getWorldLimits(worldName, config);
 
         player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "World Limits: " +
                 ChatColor.YELLOW + worldName + ChatColor.DARK_AQUA + " ===");
-        player.sendMessage(ChatColor.AQUA + "Hopper: " + ChatColor.YELLOW + limits.getHopperLimit());
-        player.sendMessage(ChatColor.AQUA + "Chest: " + ChatColor.YELLOW + limits.getChestLimit());
-        player.sendMessage(ChatColor.AQUA + "Barrel: " + ChatColor.YELLOW + limits.getBarrelLimit());
+        LimitTable limits = worldLimitManager.getLimits();
+        for (Material material : limits.getMaterials()) {
+            player.sendMessage(ChatColor.AQUA + ContainerTypes.displayName(material) + ": " +
+                    ChatColor.YELLOW + limits.getLimit(worldName, material));
+        }
+    }
+
+    /**
+     * Handle storage metrics: /hoplimit storage
+     */
+    public void handleStorage(Player player) {
+        if (!player.hasPermission("hoplimit.admin")) {
+            Message.sendError(player, "You do not have permission!");
+            return;
+        }
+
+        EventSink queue = storageManager.getEventSink();
+        FlushMetrics metrics = queue.getMetrics();
+
+        player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Storage Queue" + ChatColor.DARK_AQUA + " ===");
+        player.sendMessage(ChatColor.AQUA + "Backend: " + ChatColor.YELLOW + storageManager.getBackend().getName());
+        player.sendMessage(ChatColor.AQUA + "Queue Depth: " + ChatColor.YELLOW + queue.getQueueDepth() +
+                ChatColor.GRAY + "/" + ChatColor.YELLOW + queue.getCapacity());
+        player.sendMessage(ChatColor.AQUA + "Flush Size: " + ChatColor.YELLOW + queue.getFlushSize() +
+                ChatColor.AQUA + "  Interval: " + ChatColor.YELLOW + queue.getFlushIntervalMillis() + "ms");
+        player.sendMessage(ChatColor.AQUA + "Write Path: " + ChatColor.YELLOW + queue.getDescription());
+        player.sendMessage(ChatColor.AQUA + "Batches Flushed: " + ChatColor.YELLOW + metrics.getFlushedBatches() +
+                ChatColor.AQUA + "  Events Written: " + ChatColor.YELLOW + metrics.getWrittenEvents());
+        player.sendMessage(ChatColor.AQUA + "Dropped: " + ChatColor.YELLOW + metrics.getDroppedEvents() +
+                ChatColor.AQUA + "  Failed: " + ChatColor.YELLOW + metrics.getFailedEvents());
+        player.sendMessage(ChatColor.AQUA + "Flush Latency: " + ChatColor.YELLOW +
+                String.format("last %.2fms, avg %.2fms, max %.2fms",
+                        metrics.getLastFlushMillis(), metrics.getAverageFlushMillis(), metrics.getMaxFlushMillis()));
+
+        HistoryRetentionTask retention = storageManager.getRetentionTask();
+        player.sendMessage(ChatColor.AQUA + "Retention: " + ChatColor.YELLOW + (retention == null ? "disabled" :
+                retention.getHotDays() + " days hot, " + retention.getArchivedRows() + " rows archived"));
+
+        ChunkCountMigrationTask migration = storageManager.getMigrationTask();
+        String chunkCounts = storageManager.getChunkCountStore() == null ? "database" : "chunk data";
+        if (migration != null && migration.getRemaining() > 0) {
+            chunkCounts += " (migrating, " + migration.getRemaining() + " chunks left)";
+        }
+        player.sendMessage(ChatColor.AQUA + "Chunk Counts: " + ChatColor.YELLOW + chunkCounts);
+
+        TickScheduler scheduler = plugin.getTickScheduler();
+        player.sendMessage(ChatColor.AQUA + "Tick Budget: " + ChatColor.YELLOW +
+                String.format("%.2fms of %.2fms (%d%%), %d slices, %d tasks queued",
+                        scheduler.getLastUsedNanos() / 1_000_000.0,
+                        scheduler.getBudgetNanos() * scheduler.getScale() / 1_000_000.0,
+                        Math.round(scheduler.getScale() * 100), scheduler.getSliceCount(), scheduler.getQueuedTasks()));
+
+        TransferThrottle throttle = plugin.getTransferThrottle();
+        player.sendMessage(ChatColor.AQUA + "Transfer Throttle: " + ChatColor.YELLOW + (config.isThrottleEnabled() ?
+                throttle.getBucketCount() + " chunks, " + throttle.getDeniedTransfers() + " transfers cancelled" : "disabled"));
+    }
+
+    /**
+     * Handle archived history: /hoplimit archive <player <name> | chunk>
+     */
+    public void handleArchive(Player player, String[] args) {
+        if (!player.hasPermission("hoplimit.admin")) {
+            Message.sendError(player, "You do not have permission!");
+            return;
+        }
+
+        if (args.length >= 3 && args[1].equalsIgnoreCase("player")) {
+            String target = args[2];
+            queryAsync(player, () -> storageManager.getArchivedPlayerRecords(target),
+                    records -> sendArchivedRecords(player, "Player " + target, records));
+        } else if (args.length >= 2 && args[1].equalsIgnoreCase("chunk")) {
+            org.bukkit.Chunk chunk = player.getLocation().getChunk();
+            String world = chunk.getWorld().getName();
+            int chunkX = chunk.getX();
+            int chunkZ = chunk.getZ();
+            queryAsync(player, () -> storageManager.getArchivedChunkRecords(world, chunkX, chunkZ),
+                    records -> sendArchivedRecords(player, "Chunk (" + chunkX + ", " + chunkZ + ")", records));
+        } else {
+            Message.sendError(player, "Usage: /hoplimit archive <player <name> | chunk>");
+        }
+    }
+
+    /**
+     * Handle /hoplimit audit <world> | pause | resume | stop | status
+     */
+    public void handleAudit(Player player, String[] args) {
+        if (!player.hasPermission("hoplimit.admin")) {
+            Message.sendError(player, "You do not have permission!");
+            return;
+        }
+        if (args.length < 2) {
+            Message.sendError(player, "Usage: /hoplimit audit <world | pause | resume | stop | status>");
+            return;
+        }
+
+        WorldAudit audit = storageManager.getAudit();
+        String action = args[1].toLowerCase();
+        switch (action) {
+            case "pause":
+            case "resume":
+            case "stop":
+                if (audit == null || audit.isDone()) {
+                    Message.sendError(player, "No audit is running!");
+                    return;
+                }
+                if (action.equals("pause")) {
+                    audit.pause();
+                } else if (action.equals("resume")) {
+                    audit.resume();
+                } else {
+                    audit.stop();
+                    return;
+                }
+                Message.sendInfo(player, "Audit of " + audit.getWorld().getName() + " is " +
+                        audit.getState().name().toLowerCase());
+                return;
+            case "status":
+                if (audit == null) {
+                    Message.sendInfo(player, "No audit has been started.");
+                    return;
+                }
+                player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Audit of " +
+                        audit.getWorld().getName() + ChatColor.DARK_AQUA + " ===");
+                player.sendMessage(ChatColor.AQUA + "State: " + ChatColor.YELLOW + audit.getState().name().toLowerCase() +
+                        ChatColor.AQUA + "  Queued: " + ChatColor.YELLOW + audit.getQueuedChunks() +
+                        ChatColor.AQUA + "  Scanning: " + ChatColor.YELLOW + audit.getInFlight());
+                player.sendMessage(ChatColor.AQUA + "Progress: " + ChatColor.YELLOW + audit.getProgress());
+                return;
+            default:
+                break;
+        }
+
+        World world = plugin.getServer().getWorld(args[1]);
+        if (world == null) {
+            Message.sendError(player, "World not found: " + args[1]);
+            return;
+        }
+        if (storageManager.startAudit(world, player) == null) {
+            Message.sendError(player, "An audit of " + audit.getWorld().getName() + " is already running!");
+            return;
+        }
+        Message.sendInfo(player, "Auditing " + world.getName() + "; see /hoplimit audit status for progress.");
+    }
+
+    private void sendArchivedRecords(Player player, String title, List<HistoryArchive.ArchivedRecord> records) {
+        player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Archived History: " +
+                ChatColor.YELLOW + title + ChatColor.DARK_AQUA + " ===");
+        if (records.isEmpty()) {
+            player.sendMessage(ChatColor.GRAY + "No archived records found.");
+            return;
+        }
+
+        for (HistoryArchive.ArchivedRecord record : records.subList(0, Math.min(ARCHIVE_LINES, records.size()))) {
+            player.sendMessage(ChatColor.GRAY + formatArchiveDate(record.getTimestamp()) + " " +
+                    ChatColor.YELLOW + record.getBlockType() + ChatColor.AQUA + " by " + ChatColor.YELLOW +
+                    record.getPlayerName() + ChatColor.AQUA + " at " + ChatColor.YELLOW + record.getWorld() +
+                    " (" + record.getChunkX() + ", " + record.getChunkZ() + ")" + ChatColor.AQUA + ", removed " +
+                    ChatColor.YELLOW + formatArchiveDate(record.getRemovedAt()) +
+                    (record.getRemovedBy() != null ? ChatColor.AQUA + " by " + ChatColor.YELLOW + record.getRemovedBy() : ""));
+        }
+        if (records.size() > ARCHIVE_LINES) {
+            player.sendMessage(ChatColor.GRAY + "... and " + (records.size() - ARCHIVE_LINES) + " more");
+        }
+    }
+
+    private static String formatArchiveDate(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(ARCHIVE_DATE);
     }
 
     // ==================== Private Helper Methods ====================
@@ -206,24 +384,26 @@ public class AdvancedCommand {
         int chunkX = chunk.getX();
         int chunkZ = chunk.getZ();
 
-        int hopperCount = countBlocksInChunk(chunk, org.bukkit.Material.HOPPER);
-        int chestCount = countBlocksInChunk(chunk, org.bukkit.Material.CHEST);
-        int barrelCount = countBlocksInChunk(chunk, org.bukkit.Material.BARREL);
-
+        // One pass over the chunk's tile entities
+        int[] counts = TileEntityCounter.count(chunk);
         String world = chunk.getWorld().getName();
-        int hopperLimit = worldLimitManager.getHopperLimit(world, config);
-        int chestLimit = worldLimitManager.getChestLimit(world, config);
-        int barrelLimit = worldLimitManager.getBarrelLimit(world, config);
+        LimitTable limits = worldLimitManager.getLimits();
 
         Message.sendStatsHeader(player, chunkX, chunkZ);
-        Message.sendBlockCount(player, "Hopper", hopperCount, hopperLimit);
-        Message.sendBlockCount(player, "Chest", chestCount, chestLimit);
-        Message.sendBlockCount(player, "Barrel", barrelCount, barrelLimit);
+        Message.sendBlockCounts(player, counts, type ->
+                limits.getLimit(world, ContainerTypes.material(type)));
+        if (limits.getCostBudget() > 0) {
+            Message.sendBlockCount(player, "Cost budget",
+                    storageManager.getChunkCost(world, chunkX, chunkZ), limits.getCostBudget());
+        }
     }
 
     private void showPlayerStats(Player player, String targetPlayerName) {
-        StorageManager.PlayerStatistics stats = storageManager.getPlayerStatistics(targetPlayerName);
+        queryAsync(player, () -> storageManager.getPlayerStatistics(targetPlayerName),
+                stats -> sendPlayerStats(player, targetPlayerName, stats));
+    }
 
+    private void sendPlayerStats(Player player, String targetPlayerName, StorageManager.PlayerStatistics stats) {
         if (stats == null) {
             Message.sendError(player, "No statistics found for player: " + targetPlayerName);
             return;
@@ -231,35 +411,46 @@ public class AdvancedCommand {
 
         player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Player Statistics: " +
                 ChatColor.YELLOW + targetPlayerName + ChatColor.DARK_AQUA + " ===");
-        player.sendMessage(ChatColor.AQUA + "Hoppers: " + ChatColor.YELLOW + stats.getHopperCount());
-        player.sendMessage(ChatColor.AQUA + "Chests: " + ChatColor.YELLOW + stats.getChestCount());
-        player.sendMessage(ChatColor.AQUA + "Barrels: " + ChatColor.YELLOW + stats.getBarrelCount());
+        for (Map.Entry<String, Integer> entry : stats.getBlockCounts().entrySet()) {
+            player.sendMessage(ChatColor.AQUA + entry.getKey() + ": " + ChatColor.YELLOW + entry.getValue());
+        }
         player.sendMessage(ChatColor.AQUA + "Last Placement: " + ChatColor.YELLOW + stats.getLastPlacement());
     }
 
-    private int countBlocksInChunk(org.bukkit.Chunk chunk, org.bukkit.Material material) {
-        int count = 0;
-        for (int x = 0; x < 16; x++) {
-            for (int z = 0; z < 16; z++) {
-                for (int y = chunk.getWorld().getMinHeight(); y < chunk.getWorld().getMaxHeight(); y++) {
-                    if (chunk.getBlock(x, y, z).getType() == material) {
-                        count++;
-                    }
-                }
+    /**
+     * Run a storage query off the main thread and handle the result back on it
+     */
+    private <T> void queryAsync(Player player, Supplier<T> query, Consumer<T> callback) {
+        plugin.getTickScheduler().execute(() -> {
+            T result;
+            try {
+                result = query.get();
+            } catch (Exception e) {
+                plugin.getLogger().warning("Storage query failed: " + e.getMessage());
+                plugin.getServer().getScheduler().runTask(plugin, () ->
+                        Message.sendError(player, "The query failed, see the server log for details."));
+                return;
             }
-        }
-        return count;
+            plugin.getServer().getScheduler().runTask(plugin, () -> callback.accept(result));
+        });
     }
 
-    private boolean isValidBlockType(String blockType) {
-        switch (blockType.toLowerCase()) {
-            case "hopper":
-            case "chest":
-            case "barrel":
-                return true;
-            default:
-                return false;
+    /**
+     * Resolve a block type argument to a counted material, or null if it is not one
+     */
+    private Material parseLimitedBlock(String blockType) {
+        Material material = ContainerTypes.parseMaterial(blockType);
+        return material != null && ContainerTypes.isTracked(material) ? material : null;
+    }
+
+    private List<String> getLimitedBlockNames() {
+        List<String> names = new ArrayList<>();
+        for (Material material : worldLimitManager.getLimits().getMaterials()) {
+            if (ContainerTypes.isTracked(material)) {
+                names.add(ContainerTypes.configKey(material));
+            }
         }
+        return names;
     }
 
     /**
@@ -305,20 +496,25 @@ public class AdvancedCommand {
         }
 
         ChunkVisualizationManager vizManager = new ChunkVisualizationManager(plugin);
-        List<ChunkVisualizationManager.ChunkHotspot> hotspots = vizManager.getHotspots(player.getWorld().getName(), limit);
+        String world = player.getWorld().getName();
+        int maxHotspots = limit;
+        queryAsync(player, () -> vizManager.getHotspots(world, maxHotspots), hotspots -> sendHotspots(player, world, hotspots));
+    }
 
+    private void sendHotspots(Player player, String world, List<ChunkVisualizationManager.ChunkHotspot> hotspots) {
         player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Top Chunk Hotspots " +
                 ChatColor.DARK_AQUA + "===");
-        player.sendMessage(ChatColor.AQUA + "World: " + ChatColor.YELLOW + player.getWorld().getName());
+        player.sendMessage(ChatColor.AQUA + "World: " + ChatColor.YELLOW + world);
 
         if (hotspots.isEmpty()) {
             player.sendMessage(ChatColor.YELLOW + "No hotspots found!");
             return;
         }
 
+        int hopperLimit = worldLimitManager.getLimits().getDefaultLimit(Material.HOPPER);
         int rank = 1;
         for (ChunkVisualizationManager.ChunkHotspot hotspot : hotspots) {
-            int percentage = (hotspot.count * 100) / config.getHopperLimit(); // Rough estimate
+            int percentage = (hotspot.count * 100) / Math.max(1, hopperLimit); // Rough estimate
             String color;
             if (percentage >= 90) {
                 color = ChatColor.RED.toString();
@@ -332,4 +528,90 @@ public class AdvancedCommand {
             rank++;
         }
     }
+
+    /**
+     * Handle profile command: /hoplimit profile [seconds]
+     * With profiler.enabled the rolling counts are reported at once, otherwise
+     * the profiler records for the given seconds first.
+     */
+    public void handleProfile(Player player, String[] args) {
+        if (!player.hasPermission("hoplimit.admin")) {
+            Message.sendError(player, "You do not have permission!");
+            return;
+        }
+
+        ActivityProfiler profiler = plugin.getActivityProfiler();
+        int seconds = 10;
+        if (args.length >= 2) {
+            try {
+                seconds = Math.max(1, Math.min(Integer.parseInt(args[1]), profiler.getWindowSeconds()));
+            } catch (NumberFormatException e) {
+                Message.sendError(player, "Invalid number of seconds! Using default (10)");
+            }
+        }
+
+        int span = seconds;
+        if (config.isProfilerEnabled()) {
+            sendProfile(player, span, profiler.getTopChunks(span, 10));
+            return;
+        }
+        // The capture counts from the first whole second after it starts, so wait one more second
+        ActivityProfiler.Capture capture = profiler.startCapture();
+        Message.sendInfo(player, "Profiling hopper activity for " + span + " seconds...");
+        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+            List<ActivityProfiler.ChunkRate> top = profiler.stopCapture(capture, 10);
+            if (player.isOnline()) {
+                sendProfile(player, span, top);
+            }
+        }, (span + 1) * 20L);
+    }
+
+    private void sendProfile(Player player, int seconds, List<ActivityProfiler.ChunkRate> top) {
+        // Owners come from placement history, so look them up off the main thread
+        queryAsync(player, () -> {
+            List<String> owners = new ArrayList<>();
+            for (ActivityProfiler.ChunkRate rate : top) {
+                owners.add(getChunkOwners(rate.getWorld(), rate.getChunkX(), rate.getChunkZ()));
+            }
+            return owners;
+        }, owners -> {
+            player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Busiest Chunks (last " + seconds + "s) " +
+                    ChatColor.DARK_AQUA + "===");
+            if (top.isEmpty()) {
+                player.sendMessage(ChatColor.YELLOW + "No hopper activity recorded!");
+                return;
+            }
+            for (int i = 0; i < top.size(); i++) {
+                ActivityProfiler.ChunkRate rate = top.get(i);
+                player.sendMessage(ChatColor.AQUA + "#" + (i + 1) + " " + ChatColor.YELLOW + rate.getWorld() +
+                        " (" + rate.getChunkX() + ", " + rate.getChunkZ() + ")" + ChatColor.AQUA + ": " +
+                        ChatColor.YELLOW + String.format("%.1f", rate.getTransfersPerSecond()) + ChatColor.AQUA + " transfers/s, " +
+                        ChatColor.YELLOW + String.format("%.1f", rate.getPickupsPerSecond()) + ChatColor.AQUA + " pickups/s");
+                player.sendMessage(ChatColor.GRAY + "    Placed by: " + owners.get(i));
+            }
+        });
+    }
+
+    /**
+     * Get the players who placed the most containers in a chunk, most first
+     */
+    private String getChunkOwners(String world, int chunkX, int chunkZ) {
+        Map<String, Integer> placements = new HashMap<>();
+        for (StorageManager.BlockPlacementRecord record : storageManager.getChunkRecords(world, chunkX, chunkZ)) {
+            placements.merge(record.getPlayerName(), 1, Integer::sum);
+        }
+        if (placements.isEmpty()) {
+            return "unknown";
+        }
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(placements.entrySet());
+        entries.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        StringBuilder owners = new StringBuilder();
+        for (int i = 0; i < Math.min(3, entries.size()); i++) {
+            if (i > 0) {
+                owners.append(", ");
+            }
+            owners.append(entries.get(i).getKey()).append(" (").append(entries.get(i).getValue()).append(")");
+        }
+        return owners.toString();
+    }
 }
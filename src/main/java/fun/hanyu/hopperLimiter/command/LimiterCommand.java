@@ -2,8 +2,11 @@ package fun.hanyu.hopperLimiter.command;
 
 import fun.hanyu.hopperLimiter.HopperLimiter;
 import fun.hanyu.hopperLimiter.config.Config;
+import fun.hanyu.hopperLimiter.config.LimitTable;
 import fun.hanyu.hopperLimiter.config.WorldLimitManager;
 import fun.hanyu.hopperLimiter.message.Message;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import fun.hanyu.hopperLimiter.util.TileEntityCounter;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.command.Command;
@@ -11,6 +14,9 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 /**
  * Command handler for /hoplimit command
  */
@@ -19,12 +25,14 @@ public class LimiterCommand implements CommandExecutor {
     private final Config config;
     private final WorldLimitManager worldLimitManager;
     private final AdvancedCommand advancedCommand;
+    private final RegionCommand regionCommand;
 
     public LimiterCommand(HopperLimiter plugin) {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
         this.worldLimitManager = plugin.getWorldLimitManager();
         this.advancedCommand = new AdvancedCommand(plugin);
+        this.regionCommand = new RegionCommand(plugin);
     }
 
     @Override
@@ -88,6 +96,21 @@ public class LimiterCommand implements CommandExecutor {
             case "hotspots":
                 advancedCommand.handleHotspots(player, args);
                 return true;
+            case "profile":
+                advancedCommand.handleProfile(player, args);
+                return true;
+            case "storage":
+                advancedCommand.handleStorage(player);
+                return true;
+            case "archive":
+                advancedCommand.handleArchive(player, args);
+                return true;
+            case "audit":
+                advancedCommand.handleAudit(player, args);
+                return true;
+            case "region":
+                regionCommand.handle(player, args);
+                return true;
             default:
                 Message.sendError(player, "Unknown subcommand! Use /hoplimit help for help.");
                 return true;
@@ -109,10 +132,19 @@ public class LimiterCommand implements CommandExecutor {
         Message.sendHelpLine(player, "/hoplimit world <name>", "Show world limits");
         Message.sendHelpLine(player, "/hoplimit map [radius]", "Display chunk visualization");
         Message.sendHelpLine(player, "/hoplimit hotspots [limit]", "Show top chunk hotspots");
+        Message.sendHelpLine(player, "/hoplimit profile [seconds]", "Show chunks with the busiest hoppers");
+        Message.sendHelpLine(player, "/hoplimit storage", "Show storage queue metrics");
+        Message.sendHelpLine(player, "/hoplimit archive <player <name>|chunk>", "Search archived history");
+        Message.sendHelpLine(player, "/hoplimit audit <world|pause|resume|stop|status>", "Recount containers in loaded chunks");
+        Message.sendHelpLine(player, "/hoplimit region <pos1|pos2|point|create|limit|...>", "Define limits for an area");
         Message.sendHelpLine(player, "/hoplimit reload", "Reload configuration");
         Message.sendHelpLine(player, "/hoplimit version", "Show plugin version");
     }
 
+    public RegionCommand getRegionCommand() {
+        return regionCommand;
+    }
+
     /**
      * Show chunk statistics
      */
@@ -122,25 +154,29 @@ public class LimiterCommand implements CommandExecutor {
         int chunkZ = chunk.getZ();
         String worldName = chunk.getWorld().getName();
 
-        int hopperCount = countBlocksInChunk(chunk, Material.HOPPER);
-        int chestCount = countBlocksInChunk(chunk, Material.CHEST);
-        int barrelCount = countBlocksInChunk(chunk, Material.BARREL);
-
-        int hopperLimit = worldLimitManager.getHopperLimit(worldName, config);
-        int chestLimit = worldLimitManager.getChestLimit(worldName, config);
-        int barrelLimit = worldLimitManager.getBarrelLimit(worldName, config);
+        // One pass over the chunk's tile entities
+        int[] counts = TileEntityCounter.count(chunk);
+        LimitTable limits = worldLimitManager.getLimits();
 
         Message.sendStatsHeader(player, chunkX, chunkZ);
-        Message.sendBlockCount(player, "Hopper", hopperCount, hopperLimit);
-        Message.sendBlockCount(player, "Chest", chestCount, chestLimit);
-        Message.sendBlockCount(player, "Barrel", barrelCount, barrelLimit);
+        Message.sendBlockCounts(player, counts, type ->
+                limits.getLimit(worldName, ContainerTypes.material(type)));
+        if (limits.getCostBudget() > 0) {
+            Message.sendBlockCount(player, "Cost budget",
+                    plugin.getStorageManager().getChunkCost(worldName, chunkX, chunkZ), limits.getCostBudget());
+        }
     }
 
     /**
      * Show current limits
      */
     private void showLimits(Player player) {
-        Message.sendCurrentLimits(player, config.getHopperLimit(), config.getChestLimit(), config.getBarrelLimit());
+        LimitTable table = worldLimitManager.getLimits();
+        Map<String, Integer> limits = new LinkedHashMap<>();
+        for (Material material : table.getMaterials()) {
+            limits.put(ContainerTypes.displayName(material), table.getDefaultLimit(material));
+        }
+        Message.sendCurrentLimits(player, limits);
     }
 
     /**
@@ -149,6 +185,8 @@ public class LimiterCommand implements CommandExecutor {
     private void reloadConfig(Player player) {
         config.reloadConfig();
         worldLimitManager.reload();
+        plugin.getPlayerLimitCache().refreshAll();
+        plugin.getStorageManager().applyCostWeights(worldLimitManager.getLimits());
         plugin.getStorageManager().saveData();
         Message.sendConfigReloaded(player);
         plugin.getLogger().info("Configuration reloaded by " + player.getName());
@@ -160,21 +198,4 @@ public class LimiterCommand implements CommandExecutor {
     private void showVersion(Player player) {
         Message.sendInfo(player, "HopperLimiter version " + plugin.getDescription().getVersion());
     }
-
-    /**
-     * Count blocks of a specific type in the chunk
-     */
-    private int countBlocksInChunk(Chunk chunk, Material material) {
-        int count = 0;
-        for (int x = 0; x < 16; x++) {
-            for (int z = 0; z < 16; z++) {
-                for (int y = chunk.getWorld().getMinHeight(); y < chunk.getWorld().getMaxHeight(); y++) {
-                    if (chunk.getBlock(x, y, z).getType() == material) {
-                        count++;
-                    }
-                }
-            }
-        }
-        return count;
-    }
 }
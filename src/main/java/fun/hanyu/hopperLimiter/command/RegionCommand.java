@@ -0,0 +1,331 @@
+package fun.hanyu.hopperLimiter.command;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.config.LimitTable;
+import fun.hanyu.hopperLimiter.config.Region;
+import fun.hanyu.hopperLimiter.config.WorldLimitManager;
+import fun.hanyu.hopperLimiter.message.Message;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Command handler for /hoplimit region
+ * Admins select a cuboid with pos1/pos2 or a polygon with point, then create a
+ * region from the selection and give it limits.
+ */
+public class RegionCommand {
+    private static final Pattern REGION_NAME = Pattern.compile("[a-z0-9_-]{1,32}");
+
+    private final HopperLimiter plugin;
+    private final WorldLimitManager worldLimitManager;
+    private final Map<UUID, Selection> selections = new HashMap<>();
+
+    public RegionCommand(HopperLimiter plugin) {
+        this.plugin = plugin;
+        this.worldLimitManager = plugin.getWorldLimitManager();
+    }
+
+    /**
+     * Handle region command: /hoplimit region <action> ...
+     */
+    public void handle(Player player, String[] args) {
+        if (!player.hasPermission("hoplimit.admin")) {
+            Message.sendError(player, "You do not have permission!");
+            return;
+        }
+        if (args.length < 2) {
+            sendUsage(player);
+            return;
+        }
+
+        switch (args[1].toLowerCase()) {
+            case "pos1":
+            case "pos2":
+                selectCorner(player, args[1].equalsIgnoreCase("pos1"));
+                return;
+            case "point":
+                addPoint(player);
+                return;
+            case "clear":
+                selections.remove(player.getUniqueId());
+                Message.sendInfo(player, "Selection cleared.");
+                return;
+            case "create":
+                create(player, args);
+                return;
+            case "delete":
+                delete(player, args);
+                return;
+            case "limit":
+                setLimit(player, args);
+                return;
+            case "priority":
+                setPriority(player, args);
+                return;
+            case "list":
+                list(player);
+                return;
+            case "info":
+                info(player, args);
+                return;
+            default:
+                sendUsage(player);
+        }
+    }
+
+    /**
+     * Get the names of all regions (for tab completion)
+     */
+    public List<String> getRegionNames() {
+        List<String> names = new ArrayList<>();
+        for (Region region : worldLimitManager.getLimits().getRegions()) {
+            names.add(region.getName());
+        }
+        return names;
+    }
+
+    private void sendUsage(Player player) {
+        Message.sendError(player, "Usage: /hoplimit region <pos1 | pos2 | point | clear | create | delete | limit | priority | list | info>");
+    }
+
+    private void selectCorner(Player player, boolean first) {
+        Selection selection = selectionOf(player);
+        Location location = player.getLocation();
+        int[] corner = {location.getBlockX(), location.getBlockY(), location.getBlockZ()};
+        if (first) {
+            selection.pos1 = corner;
+        } else {
+            selection.pos2 = corner;
+        }
+        Message.sendInfo(player, (first ? "First" : "Second") + " corner set to " +
+                corner[0] + ", " + corner[1] + ", " + corner[2]);
+    }
+
+    private void addPoint(Player player) {
+        Selection selection = selectionOf(player);
+        Location location = player.getLocation();
+        selection.points.add(new int[]{location.getBlockX(), location.getBlockZ()});
+        Message.sendInfo(player, "Added point " + selection.points.size() + " at " +
+                location.getBlockX() + ", " + location.getBlockZ());
+    }
+
+    private void create(Player player, String[] args) {
+        if (args.length < 3) {
+            Message.sendError(player, "Usage: /hoplimit region create <name> [priority]");
+            return;
+        }
+        String name = args[2].toLowerCase();
+        if (!REGION_NAME.matcher(name).matches()) {
+            Message.sendError(player, "Region names may use a-z, 0-9, _ and - (up to 32 characters)!");
+            return;
+        }
+        if (worldLimitManager.getLimits().getRegion(name) != null) {
+            Message.sendError(player, "A region named " + name + " already exists!");
+            return;
+        }
+        Integer priority = args.length >= 4 ? parseNumber(player, args[3]) : Integer.valueOf(0);
+        if (priority == null) {
+            return;
+        }
+
+        // The region belongs to the world the selection was made in
+        Selection selection = selections.get(player.getUniqueId());
+        String world = selection != null ? selection.world : null;
+        Region region;
+        if (selection != null && selection.points.size() >= 3) {
+            int[] xs = new int[selection.points.size()];
+            int[] zs = new int[selection.points.size()];
+            for (int i = 0; i < xs.length; i++) {
+                xs[i] = selection.points.get(i)[0];
+                zs[i] = selection.points.get(i)[1];
+            }
+            region = Region.polygon(name, world, priority, xs, zs, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        } else if (selection != null && selection.pos1 != null && selection.pos2 != null) {
+            region = Region.cuboid(name, world, priority, selection.pos1[0], selection.pos1[1], selection.pos1[2],
+                    selection.pos2[0], selection.pos2[1], selection.pos2[2]);
+        } else {
+            Message.sendError(player, "Select two corners with pos1 and pos2, or three or more points with point!");
+            return;
+        }
+
+        worldLimitManager.putRegion(region);
+        selections.remove(player.getUniqueId());
+        Message.sendSuccess(player, "Created region " + name + "; set its limits with /hoplimit region limit " + name + " <block> <limit>");
+        plugin.getLogger().info("Region " + name + " created by " + player.getName());
+    }
+
+    private void delete(Player player, String[] args) {
+        if (args.length < 3) {
+            Message.sendError(player, "Usage: /hoplimit region delete <name>");
+            return;
+        }
+        String name = args[2].toLowerCase();
+        if (!worldLimitManager.removeRegion(name)) {
+            Message.sendError(player, "Region not found: " + name);
+            return;
+        }
+        Message.sendSuccess(player, "Deleted region " + name);
+        plugin.getLogger().info("Region " + name + " deleted by " + player.getName());
+    }
+
+    private void setLimit(Player player, String[] args) {
+        if (args.length < 5) {
+            Message.sendError(player, "Usage: /hoplimit region limit <name> <block> <limit | default>");
+            return;
+        }
+        Region region = findRegion(player, args[2]);
+        if (region == null) {
+            return;
+        }
+        Material material = ContainerTypes.parseMaterial(args[3]);
+        if (material == null || !ContainerTypes.isTracked(material)) {
+            Message.sendError(player, "Invalid block type: " + args[3]);
+            return;
+        }
+
+        int limit = -1;
+        if (!args[4].equalsIgnoreCase("default")) {
+            Integer parsed = parseNumber(player, args[4]);
+            if (parsed == null) {
+                return;
+            }
+            if (parsed < 0) {
+                Message.sendError(player, "Limit must not be negative!");
+                return;
+            }
+            limit = parsed;
+        }
+
+        worldLimitManager.putRegion(region.withLimit(material, limit));
+        String blockName = ContainerTypes.configKey(material);
+        Message.sendSuccess(player, limit < 0 ? "Region " + region.getName() + " no longer sets a " + blockName + " limit"
+                : "Set " + blockName + " limit in region " + region.getName() + " to " + limit);
+    }
+
+    private void setPriority(Player player, String[] args) {
+        if (args.length < 4) {
+            Message.sendError(player, "Usage: /hoplimit region priority <name> <priority>");
+            return;
+        }
+        Region region = findRegion(player, args[2]);
+        Integer priority = region == null ? null : parseNumber(player, args[3]);
+        if (priority == null) {
+            return;
+        }
+        worldLimitManager.putRegion(region.withPriority(priority));
+        Message.sendSuccess(player, "Set priority of region " + region.getName() + " to " + priority);
+    }
+
+    private void list(Player player) {
+        player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Regions" + ChatColor.DARK_AQUA + " ===");
+        LimitTable limits = worldLimitManager.getLimits();
+        if (limits.getRegions().isEmpty()) {
+            player.sendMessage(ChatColor.GRAY + "No regions defined.");
+            return;
+        }
+        for (Region region : limits.getRegions()) {
+            player.sendMessage(ChatColor.YELLOW + region.getName() + ChatColor.AQUA + " in " + ChatColor.YELLOW +
+                    region.getWorld() + ChatColor.AQUA + ", priority " + ChatColor.YELLOW + region.getPriority());
+        }
+    }
+
+    private void info(Player player, String[] args) {
+        if (args.length >= 3) {
+            Region region = findRegion(player, args[2]);
+            if (region != null) {
+                sendRegion(player, region, worldLimitManager.getLimits());
+            }
+            return;
+        }
+
+        // Regions at the player's position
+        LimitTable limits = worldLimitManager.getLimits();
+        Location location = player.getLocation();
+        List<Region> regions = limits.getRegionsAt(player.getWorld().getName(),
+                location.getBlockX(), location.getBlockY(), location.getBlockZ());
+        if (regions.isEmpty()) {
+            Message.sendInfo(player, "You are not in any region.");
+            return;
+        }
+        for (Region region : regions) {
+            sendRegion(player, region, limits);
+        }
+    }
+
+    private void sendRegion(Player player, Region region, LimitTable limits) {
+        player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Region: " +
+                ChatColor.YELLOW + region.getName() + ChatColor.DARK_AQUA + " ===");
+        player.sendMessage(ChatColor.AQUA + "World: " + ChatColor.YELLOW + region.getWorld() +
+                ChatColor.AQUA + "  Priority: " + ChatColor.YELLOW + region.getPriority());
+        if (region.isPolygon()) {
+            player.sendMessage(ChatColor.AQUA + "Polygon: " + ChatColor.YELLOW + region.getPointCount() + " points" +
+                    ChatColor.AQUA + " within " + ChatColor.YELLOW + region.getMinX() + ", " + region.getMinZ() +
+                    ChatColor.AQUA + " to " + ChatColor.YELLOW + region.getMaxX() + ", " + region.getMaxZ());
+        } else {
+            player.sendMessage(ChatColor.AQUA + "Cuboid: " + ChatColor.YELLOW + region.getMinX() + ", " +
+                    region.getMinY() + ", " + region.getMinZ() + ChatColor.AQUA + " to " + ChatColor.YELLOW +
+                    region.getMaxX() + ", " + region.getMaxY() + ", " + region.getMaxZ());
+        }
+        boolean any = false;
+        for (Material material : limits.getMaterials()) {
+            int limit = region.getLimit(material);
+            if (limit >= 0) {
+                player.sendMessage(ChatColor.AQUA + ContainerTypes.displayName(material) + ": " + ChatColor.YELLOW + limit);
+                any = true;
+            }
+        }
+        if (!any) {
+            player.sendMessage(ChatColor.GRAY + "No limits set; world limits apply.");
+        }
+    }
+
+    private Region findRegion(Player player, String name) {
+        Region region = worldLimitManager.getLimits().getRegion(name.toLowerCase());
+        if (region == null) {
+            Message.sendError(player, "Region not found: " + name);
+        }
+        return region;
+    }
+
+    private static Integer parseNumber(Player player, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            Message.sendError(player, value + " is not a valid number!");
+            return null;
+        }
+    }
+
+    private Selection selectionOf(Player player) {
+        Selection selection = selections.get(player.getUniqueId());
+        if (selection == null || !selection.world.equals(player.getWorld().getName())) {
+            selection = new Selection(player.getWorld().getName());
+            selections.put(player.getUniqueId(), selection);
+        }
+        return selection;
+    }
+
+    /**
+     * Corners and points picked by one admin, in one world
+     */
+    private static class Selection {
+        private final String world;
+        private final List<int[]> points = new ArrayList<>();
+        private int[] pos1;
+        private int[] pos2;
+
+        Selection(String world) {
+            this.world = world;
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package fun.hanyu.hopperLimiter.command;
 
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.Bukkit;
+import org.bukkit.World;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
@@ -29,14 +32,15 @@ public class TabCompleterManager implements TabCompleter {
             "player",
             "world",
             "map",
-            "hotspots"
+            "hotspots",
+            "profile",
+            "storage",
+            "archive",
+            "audit",
+            "region"
     );
-
-    // Block types for future expansion
-    private final List<String> blockTypes = Arrays.asList(
-            "hopper",
-            "chest",
-            "barrel"
+    private final List<String> regionActions = Arrays.asList(
+            "pos1", "pos2", "point", "clear", "create", "delete", "limit", "priority", "list", "info"
     );
 
     public TabCompleterManager(LimiterCommand limiterCommand) {
@@ -80,11 +84,31 @@ public class TabCompleterManager implements TabCompleter {
                 case "set":
                 case "get":
                     if (args.length == 2) {
-                        completions.addAll(
-                                blockTypes.stream()
-                                        .filter(block -> block.startsWith(input))
-                                        .collect(Collectors.toList())
-                        );
+                        completions.addAll(filterCompletions(getBlockTypes(), input));
+                    }
+                    break;
+                case "archive":
+                    if (args.length == 2) {
+                        completions.addAll(filterCompletions(Arrays.asList("player", "chunk"), input));
+                    }
+                    break;
+                case "audit":
+                    if (args.length == 2) {
+                        List<String> options = new ArrayList<>(Arrays.asList("pause", "resume", "stop", "status"));
+                        for (World world : Bukkit.getWorlds()) {
+                            options.add(world.getName());
+                        }
+                        completions.addAll(filterCompletions(options, input));
+                    }
+                    break;
+                case "region":
+                    if (args.length == 2) {
+                        completions.addAll(filterCompletions(regionActions, input));
+                    } else if (args.length == 3 && Arrays.asList("delete", "limit", "priority", "info")
+                            .contains(args[1].toLowerCase())) {
+                        completions.addAll(filterCompletions(limiterCommand.getRegionCommand().getRegionNames(), input));
+                    } else if (args.length == 4 && args[1].equalsIgnoreCase("limit")) {
+                        completions.addAll(filterCompletions(getBlockTypes(), input));
                     }
                     break;
                 default:
@@ -107,7 +131,11 @@ public class TabCompleterManager implements TabCompleter {
      * Get all block types
      */
     public List<String> getBlockTypes() {
-        return new ArrayList<>(blockTypes);
+        List<String> blockTypes = new ArrayList<>();
+        for (int type = 0; type < ContainerTypes.count(); type++) {
+            blockTypes.add(ContainerTypes.configKey(ContainerTypes.material(type)));
+        }
+        return blockTypes;
     }
 
     /**
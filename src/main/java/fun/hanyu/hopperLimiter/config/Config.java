@@ -5,21 +5,12 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 /**
  * Configuration manager for HopperLimiter plugin
+ * Block limits are read by WorldLimitManager.
  */
 public class Config {
     private final JavaPlugin plugin;
     private FileConfiguration config;
 
-    // Limit settings
-    private int hopperLimit;
-    private int chestLimit;
-    private int barrelLimit;
-
-    // Feature flags
-    private boolean enableHopperLimiter;
-    private boolean enableChestLimiter;
-    private boolean enableBarrelLimiter;
-
     // Message settings
     private boolean enableLimitMessage;
     private boolean enablePlacedMessage;
@@ -29,6 +20,49 @@ public class Config {
     private String limitSoundType;
     private String placedSoundType;
 
+    // Storage settings
+    private String storageBackend;
+
+    // Write-behind settings
+    private int writeQueueCapacity;
+    private int writeFlushSize;
+    private long writeFlushIntervalMillis;
+    private String writeBackpressurePolicy;
+    private String writeMode;
+    private String chunkCountMode;
+    private int journalSizeMb;
+    private boolean retentionEnabled;
+    private long statisticsFlushIntervalSeconds;
+    private int retentionHotDays;
+    private int retentionBatchSize;
+    private long retentionCheckIntervalMinutes;
+
+    // Scheduler settings
+    private double schedulerTickBudgetMillis;
+    private long schedulerLagThresholdMillis;
+    private int schedulerWorkerThreads;
+    private int schedulerQueueCapacity;
+
+    // Permission settings
+    private long permissionRefreshSeconds;
+
+    // Audit settings
+    private int auditBatchSize;
+
+    // Transfer throttle settings
+    private boolean throttleEnabled;
+    private int throttleRefillPerSecond;
+    private int throttleBurst;
+
+    // Profiler settings
+    private boolean profilerEnabled;
+    private int profilerWindowSeconds;
+
+    // SQLite settings
+    private int readConnections;
+    private String synchronousMode;
+    private int cacheSizeKb;
+
     // Debug settings
     private boolean debugEnabled;
 
@@ -47,16 +81,6 @@ public class Config {
         plugin.saveDefaultConfig();
         config = plugin.getConfig();
 
-        // Load limits
-        hopperLimit = config.getInt("limits.hopper", 32);
-        chestLimit = config.getInt("limits.chest", 32);
-        barrelLimit = config.getInt("limits.barrel", 32);
-
-        // Load feature flags
-        enableHopperLimiter = config.getBoolean("enabled.hopper", true);
-        enableChestLimiter = config.getBoolean("enabled.chest", true);
-        enableBarrelLimiter = config.getBoolean("enabled.barrel", true);
-
         // Load message settings
         enableLimitMessage = config.getBoolean("messages.enabled", true);
         enablePlacedMessage = config.getBoolean("messages.placement-notification", true);
@@ -66,6 +90,57 @@ public class Config {
         limitSoundType = config.getString("sounds.limit-sound", "ENTITY_ENDERMAN_TELEPORT");
         placedSoundType = config.getString("sounds.placed-sound", "ENTITY_ITEM_PICKUP");
 
+        // Load storage settings
+        storageBackend = config.getString("storage.backend", "sqlite");
+
+        // Load write-behind settings
+        writeQueueCapacity = config.getInt("storage.write-behind.queue-capacity", 10000);
+        writeFlushSize = config.getInt("storage.write-behind.flush-size", 500);
+        writeFlushIntervalMillis = config.getLong("storage.write-behind.flush-interval-ms", 1000);
+        writeBackpressurePolicy = config.getString("storage.write-behind.backpressure", "block");
+
+        // Load journal settings
+        writeMode = config.getString("storage.write-mode", "queue");
+        journalSizeMb = config.getInt("storage.journal.size-mb", 16);
+
+        // Load chunk count storage settings
+        chunkCountMode = config.getString("storage.chunk-counts", "database");
+
+        // Load statistics cache settings
+        statisticsFlushIntervalSeconds = config.getLong("storage.statistics.flush-interval-seconds", 5);
+
+        // Load retention settings
+        retentionEnabled = config.getBoolean("storage.retention.enabled", false);
+        retentionHotDays = config.getInt("storage.retention.hot-days", 90);
+        retentionBatchSize = config.getInt("storage.retention.batch-size", 500);
+        retentionCheckIntervalMinutes = config.getLong("storage.retention.check-interval-minutes", 60);
+
+        // Load scheduler settings
+        schedulerTickBudgetMillis = config.getDouble("scheduler.tick-budget-ms", 2.0);
+        schedulerLagThresholdMillis = config.getLong("scheduler.lag-threshold-ms", 60);
+        schedulerWorkerThreads = config.getInt("scheduler.worker-threads", 2);
+        schedulerQueueCapacity = config.getInt("scheduler.queue-capacity", 1000);
+
+        // Load permission settings
+        permissionRefreshSeconds = config.getLong("permissions.refresh-seconds", 60);
+
+        // Load audit settings
+        auditBatchSize = config.getInt("audit.batch-size", 32);
+
+        // Load transfer throttle settings
+        throttleEnabled = config.getBoolean("throttle.enabled", false);
+        throttleRefillPerSecond = Math.max(0, config.getInt("throttle.refill-per-second", 40));
+        throttleBurst = Math.max(1, Math.min(1_000_000, config.getInt("throttle.burst", 200)));
+
+        // Load profiler settings
+        profilerEnabled = config.getBoolean("profiler.enabled", false);
+        profilerWindowSeconds = Math.max(10, Math.min(300, config.getInt("profiler.window-seconds", 60)));
+
+        // Load SQLite settings
+        readConnections = config.getInt("storage.sqlite.read-connections", 2);
+        synchronousMode = config.getString("storage.sqlite.synchronous", "normal");
+        cacheSizeKb = config.getInt("storage.sqlite.cache-size-kb", 8192);
+
         // Load debug settings
         debugEnabled = config.getBoolean("debug.enabled", false);
 
@@ -82,48 +157,133 @@ public class Config {
     }
 
     // Getters
-    public int getHopperLimit() {
-        return hopperLimit;
+
+    public boolean isLimitMessageEnabled() {
+        return enableLimitMessage;
     }
 
-    public int getChestLimit() {
-        return chestLimit;
+    public boolean isPlacedMessageEnabled() {
+        return enablePlacedMessage;
     }
 
-    public int getBarrelLimit() {
-        return barrelLimit;
+    public boolean isSoundEnabled() {
+        return enableSound;
     }
 
-    public boolean isHopperLimiterEnabled() {
-        return enableHopperLimiter;
+    public String getLimitSoundType() {
+        return limitSoundType;
     }
 
-    public boolean isChestLimiterEnabled() {
-        return enableChestLimiter;
+    public String getPlacedSoundType() {
+        return placedSoundType;
     }
 
-    public boolean isBarrelLimiterEnabled() {
-        return enableBarrelLimiter;
+    public String getStorageBackend() {
+        return storageBackend;
     }
 
-    public boolean isLimitMessageEnabled() {
-        return enableLimitMessage;
+    public int getWriteQueueCapacity() {
+        return writeQueueCapacity;
     }
 
-    public boolean isPlacedMessageEnabled() {
-        return enablePlacedMessage;
+    public int getWriteFlushSize() {
+        return writeFlushSize;
     }
 
-    public boolean isSoundEnabled() {
-        return enableSound;
+    public long getWriteFlushIntervalMillis() {
+        return writeFlushIntervalMillis;
     }
 
-    public String getLimitSoundType() {
-        return limitSoundType;
+    public String getWriteBackpressurePolicy() {
+        return writeBackpressurePolicy;
     }
 
-    public String getPlacedSoundType() {
-        return placedSoundType;
+    public String getWriteMode() {
+        return writeMode;
+    }
+
+    public String getChunkCountMode() {
+        return chunkCountMode;
+    }
+
+    public int getJournalSizeMb() {
+        return journalSizeMb;
+    }
+
+    public long getStatisticsFlushIntervalSeconds() {
+        return statisticsFlushIntervalSeconds;
+    }
+
+    public boolean isRetentionEnabled() {
+        return retentionEnabled;
+    }
+
+    public int getRetentionHotDays() {
+        return retentionHotDays;
+    }
+
+    public int getRetentionBatchSize() {
+        return retentionBatchSize;
+    }
+
+    public long getRetentionCheckIntervalMinutes() {
+        return retentionCheckIntervalMinutes;
+    }
+
+    public double getSchedulerTickBudgetMillis() {
+        return schedulerTickBudgetMillis;
+    }
+
+    public long getSchedulerLagThresholdMillis() {
+        return schedulerLagThresholdMillis;
+    }
+
+    public int getSchedulerWorkerThreads() {
+        return schedulerWorkerThreads;
+    }
+
+    public int getSchedulerQueueCapacity() {
+        return schedulerQueueCapacity;
+    }
+
+    public long getPermissionRefreshSeconds() {
+        return permissionRefreshSeconds;
+    }
+
+    public int getAuditBatchSize() {
+        return auditBatchSize;
+    }
+
+    public boolean isThrottleEnabled() {
+        return throttleEnabled;
+    }
+
+    public int getThrottleRefillPerSecond() {
+        return throttleRefillPerSecond;
+    }
+
+    public int getThrottleBurst() {
+        return throttleBurst;
+    }
+
+    public boolean isProfilerEnabled() {
+        return profilerEnabled;
+    }
+
+    public int getProfilerWindowSeconds() {
+        return profilerWindowSeconds;
+    }
+
+    public int getReadConnections() {
+        return readConnections;
+    }
+
+    public String getSynchronousMode() {
+        return synchronousMode;
+    }
+
+    public int getCacheSizeKb() {
+        return cacheSizeKb;
     }
 
     public boolean isDebugEnabled() {
@@ -145,64 +305,4 @@ public class Config {
     public int getRapidPlacementThreshold() {
         return rapidPlacementThreshold;
     }
-
-    public int getLimit(String blockType) {
-        switch (blockType.toLowerCase()) {
-            case "hopper":
-                return hopperLimit;
-            case "chest":
-                return chestLimit;
-            case "barrel":
-                return barrelLimit;
-            default:
-                return 0;
-        }
-    }
-
-    public boolean isEnabled(String blockType) {
-        switch (blockType.toLowerCase()) {
-            case "hopper":
-                return enableHopperLimiter;
-            case "chest":
-                return enableChestLimiter;
-            case "barrel":
-                return enableBarrelLimiter;
-            default:
-                return false;
-        }
-    }
-
-    /**
-     * Set limit dynamically (in memory, not persisted)
-     */
-    public void setLimit(String blockType, int limit) {
-        switch (blockType.toLowerCase()) {
-            case "hopper":
-                this.hopperLimit = limit;
-                break;
-            case "chest":
-                this.chestLimit = limit;
-                break;
-            case "barrel":
-                this.barrelLimit = limit;
-                break;
-        }
-    }
-
-    /**
-     * Set enabled status dynamically (in memory, not persisted)
-     */
-    public void setEnabled(String blockType, boolean enabled) {
-        switch (blockType.toLowerCase()) {
-            case "hopper":
-                this.enableHopperLimiter = enabled;
-                break;
-            case "chest":
-                this.enableChestLimiter = enabled;
-                break;
-            case "barrel":
-                this.enableBarrelLimiter = enabled;
-                break;
-        }
-    }
 }
@@ -0,0 +1,370 @@
+package fun.hanyu.hopperLimiter.config;
+
+import fun.hanyu.hopperLimiter.storage.ChunkCounterCache;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+/**
+ * Immutable snapshot of every configured limit, world → material → limit
+ * Built from the config on load and reload, and copied with a change by /hoplimit set.
+ * World tables are resolved against the defaults when the snapshot is built, so a
+ * lookup is one map read and one array read indexed by Material.ordinal(), and
+ * never allocates.
+ *
+ * Regions are indexed by chunk: each world maps a chunk key to the regions
+ * overlapping that chunk, highest priority first. A block lookup reads one cell and
+ * tests the few regions in it, however many regions exist elsewhere.
+ */
+public final class LimitTable {
+    private static final Material[] DEFAULT_MATERIALS = {Material.HOPPER, Material.CHEST, Material.BARREL};
+    private static final int DEFAULT_LIMIT = 32;
+
+    private final List<Material> materials;
+    private final int[] defaults;
+    private final boolean[] enabled;
+    /** Limits per 16x16x16 section, -1 where there is none */
+    private final int[] sectionLimits;
+    /** Limits each world sets itself, -1 where it uses the default */
+    private final Map<String, int[]> overrides;
+    private final Map<String, int[]> worlds = new HashMap<>();
+    private final Map<String, Region> regions;
+    private final Map<String, LongObjectHashMap<Region[]>> regionIndex;
+    // Limit on all containers in the (2 * radius + 1) chunk square around a placement, 0 for none
+    private final int windowRadius;
+    private final int windowLimit;
+    // Cost of each block by Material.ordinal() and the cost allowed per chunk, 0 for no budget
+    private final int[] costWeights;
+    private final int costBudget;
+
+    private LimitTable(List<Material> materials, int[] defaults, boolean[] enabled, int[] sectionLimits,
+                       Map<String, int[]> overrides,
+                       Map<String, Region> regions, Map<String, LongObjectHashMap<Region[]>> regionIndex,
+                       int windowRadius, int windowLimit, int[] costWeights, int costBudget) {
+        this.materials = materials;
+        this.defaults = defaults;
+        this.enabled = enabled;
+        this.sectionLimits = sectionLimits;
+        this.overrides = overrides;
+        this.regions = regions;
+        this.regionIndex = regionIndex != null ? regionIndex : indexRegions(regions.values());
+        this.windowRadius = windowRadius;
+        this.windowLimit = windowLimit;
+        this.costWeights = costWeights;
+        this.costBudget = costBudget;
+        for (Map.Entry<String, int[]> entry : overrides.entrySet()) {
+            int[] resolved = defaults.clone();
+            int[] own = entry.getValue();
+            for (int ordinal = 0; ordinal < own.length; ordinal++) {
+                if (own[ordinal] >= 0) {
+                    resolved[ordinal] = own[ordinal];
+                }
+            }
+            worlds.put(entry.getKey(), resolved);
+        }
+    }
+
+    /**
+     * Read the limits, enabled, section-limits, world-limits, regions, neighborhood and
+     * cost-budget sections
+     * Hoppers, chests and barrels are always limited; other blocks are limited when
+     * the limits section names them.
+     */
+    public static LimitTable load(FileConfiguration config, Logger logger) {
+        int materialCount = Material.values().length;
+        int[] defaults = new int[materialCount];
+        boolean[] enabled = new boolean[materialCount];
+        List<Material> materials = new ArrayList<>();
+        for (Material material : DEFAULT_MATERIALS) {
+            defaults[material.ordinal()] = DEFAULT_LIMIT;
+            materials.add(material);
+        }
+        ConfigurationSection limitSection = config.getConfigurationSection("limits");
+        if (limitSection != null) {
+            for (String key : limitSection.getKeys(false)) {
+                Material material = ContainerTypes.parseMaterial(key);
+                if (material == null) {
+                    logger.warning("Ignoring limit for unknown block: " + key);
+                    continue;
+                }
+                defaults[material.ordinal()] = limitSection.getInt(key);
+                if (!materials.contains(material)) {
+                    materials.add(material);
+                }
+            }
+        }
+        for (Material material : materials) {
+            enabled[material.ordinal()] = config.getBoolean("enabled." + ContainerTypes.configKey(material), true);
+        }
+
+        int[] sectionLimits = new int[materialCount];
+        Arrays.fill(sectionLimits, -1);
+        ConfigurationSection perSection = config.getConfigurationSection("section-limits");
+        if (perSection != null) {
+            for (String key : perSection.getKeys(false)) {
+                Material material = ContainerTypes.parseMaterial(key);
+                if (material == null) {
+                    logger.warning("Ignoring section limit for unknown block: " + key);
+                    continue;
+                }
+                sectionLimits[material.ordinal()] = perSection.getInt(key);
+            }
+        }
+
+        Map<String, int[]> overrides = new HashMap<>();
+        ConfigurationSection worldSection = config.getConfigurationSection("world-limits");
+        if (worldSection != null) {
+            for (String world : worldSection.getKeys(false)) {
+                int[] own = new int[materialCount];
+                Arrays.fill(own, -1);
+                ConfigurationSection section = worldSection.getConfigurationSection(world);
+                if (section != null) {
+                    for (String key : section.getKeys(false)) {
+                        Material material = ContainerTypes.parseMaterial(key);
+                        if (material == null) {
+                            logger.warning("Ignoring limit for unknown block in world " + world + ": " + key);
+                            continue;
+                        }
+                        own[material.ordinal()] = section.getInt(key);
+                    }
+                }
+                overrides.put(world, own);
+            }
+        }
+
+        Map<String, Region> regions = new LinkedHashMap<>();
+        ConfigurationSection regionSection = config.getConfigurationSection("regions");
+        if (regionSection != null) {
+            for (String name : regionSection.getKeys(false)) {
+                ConfigurationSection section = regionSection.getConfigurationSection(name);
+                Region region = section != null ? Region.load(name, section, logger) : null;
+                if (region != null) {
+                    regions.put(name, region);
+                }
+            }
+        }
+
+        // An even size is rounded up to the next odd one so the window has a centre
+        int windowRadius = Math.max(0, config.getInt("neighborhood.size", 5) / 2);
+        int windowLimit = Math.max(0, config.getInt("neighborhood.limit", 0));
+
+        // Every block costs 1 unless weighted
+        int[] costWeights = new int[materialCount];
+        Arrays.fill(costWeights, 1);
+        ConfigurationSection weightSection = config.getConfigurationSection("cost-budget.weights");
+        if (weightSection != null) {
+            for (String key : weightSection.getKeys(false)) {
+                Material material = ContainerTypes.parseMaterial(key);
+                if (material == null) {
+                    logger.warning("Ignoring cost weight for unknown block: " + key);
+                    continue;
+                }
+                costWeights[material.ordinal()] = Math.max(0, weightSection.getInt(key));
+            }
+        }
+        int costBudget = Math.max(0, config.getInt("cost-budget.limit", 0));
+
+        return new LimitTable(Collections.unmodifiableList(materials), defaults, enabled, sectionLimits, overrides,
+                regions, null, windowRadius, windowLimit, costWeights, costBudget);
+    }
+
+    /**
+     * Build the chunk grid, each cell sorted by descending priority then name
+     */
+    private static Map<String, LongObjectHashMap<Region[]>> indexRegions(Collection<Region> regions) {
+        Map<String, LongObjectHashMap<Region[]>> index = new HashMap<>();
+        Comparator<Region> order = Comparator.comparingInt(Region::getPriority).reversed()
+                .thenComparing(Region::getName);
+        for (Region region : regions) {
+            LongObjectHashMap<Region[]> cells = index.computeIfAbsent(region.getWorld(), w -> new LongObjectHashMap<>());
+            for (int chunkX = region.getMinX() >> 4; chunkX <= region.getMaxX() >> 4; chunkX++) {
+                for (int chunkZ = region.getMinZ() >> 4; chunkZ <= region.getMaxZ() >> 4; chunkZ++) {
+                    long key = ChunkCounterCache.chunkKey(chunkX, chunkZ);
+                    Region[] cell = cells.get(key);
+                    Region[] grown = cell == null ? new Region[1] : Arrays.copyOf(cell, cell.length + 1);
+                    grown[grown.length - 1] = region;
+                    Arrays.sort(grown, order);
+                    cells.put(key, grown);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Copy of this table with a new default limit for a material
+     * Worlds that set their own limit for it keep theirs.
+     */
+    public LimitTable withDefaultLimit(Material material, int limit) {
+        int[] newDefaults = defaults.clone();
+        newDefaults[material.ordinal()] = limit;
+        return new LimitTable(materials, newDefaults, enabled, sectionLimits, overrides, regions, regionIndex,
+                windowRadius, windowLimit, costWeights, costBudget);
+    }
+
+    /**
+     * Copy of this table with a region added or replaced
+     */
+    public LimitTable withRegion(Region region) {
+        Map<String, Region> newRegions = new LinkedHashMap<>(regions);
+        newRegions.put(region.getName(), region);
+        return new LimitTable(materials, defaults, enabled, sectionLimits, overrides, newRegions, null,
+                windowRadius, windowLimit, costWeights, costBudget);
+    }
+
+    /**
+     * Copy of this table without a region
+     */
+    public LimitTable withoutRegion(String name) {
+        Map<String, Region> newRegions = new LinkedHashMap<>(regions);
+        newRegions.remove(name);
+        return new LimitTable(materials, defaults, enabled, sectionLimits, overrides, newRegions, null,
+                windowRadius, windowLimit, costWeights, costBudget);
+    }
+
+    /**
+     * Get the limit for a block in a world
+     */
+    public int getLimit(String world, Material material) {
+        int[] limits = worlds.get(world);
+        return (limits != null ? limits : defaults)[material.ordinal()];
+    }
+
+    /**
+     * Get the limit for a block at a position
+     * The highest-priority region containing the block that sets a limit for the
+     * material wins; otherwise the world or default limit applies.
+     */
+    public int getLimit(String world, Material material, int x, int y, int z) {
+        Region region = findRegion(world, material, x, y, z);
+        return region != null ? region.getLimit(material) : getLimit(world, material);
+    }
+
+    /**
+     * Get the limit for a block a player places at a position
+     * A region's limit wins; otherwise the world or default limit is raised by the
+     * player's permission tier.
+     *
+     * @param playerLimits the placing player's limits, or null if no player placed it
+     */
+    public int getLimit(String world, Material material, int x, int y, int z, PlayerLimitCache.PlayerLimits playerLimits) {
+        Region region = findRegion(world, material, x, y, z);
+        if (region != null) {
+            return region.getLimit(material);
+        }
+        int limit = getLimit(world, material);
+        return playerLimits != null ? Math.max(limit, playerLimits.getLimit(ContainerTypes.typeIndex(material))) : limit;
+    }
+
+    /**
+     * Get the region whose limit applies to a block, or null if none does
+     */
+    public Region findRegion(String world, Material material, int x, int y, int z) {
+        LongObjectHashMap<Region[]> cells = regionIndex.get(world);
+        Region[] cell = cells == null ? null : cells.get(ChunkCounterCache.chunkKey(x >> 4, z >> 4));
+        if (cell != null) {
+            for (Region region : cell) {
+                if (region.getLimit(material) >= 0 && region.contains(x, y, z)) {
+                    return region;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Get the regions containing a block, highest priority first
+     */
+    public List<Region> getRegionsAt(String world, int x, int y, int z) {
+        List<Region> found = new ArrayList<>();
+        LongObjectHashMap<Region[]> cells = regionIndex.get(world);
+        Region[] cell = cells == null ? null : cells.get(ChunkCounterCache.chunkKey(x >> 4, z >> 4));
+        if (cell != null) {
+            for (Region region : cell) {
+                if (region.contains(x, y, z)) {
+                    found.add(region);
+                }
+            }
+        }
+        return found;
+    }
+
+    public Region getRegion(String name) {
+        return regions.get(name);
+    }
+
+    public Collection<Region> getRegions() {
+        return Collections.unmodifiableCollection(regions.values());
+    }
+
+    /**
+     * Get the neighborhood window radius in chunks
+     */
+    public int getWindowRadius() {
+        return windowRadius;
+    }
+
+    /**
+     * Get the limit on all containers in the neighborhood window, or 0 if there is none
+     */
+    public int getWindowLimit() {
+        return windowLimit;
+    }
+
+    /**
+     * Get the limit per 16x16x16 section for a block, or -1 if there is none
+     */
+    public int getSectionLimit(Material material) {
+        return sectionLimits[material.ordinal()];
+    }
+
+    /**
+     * Get the cost a block adds to its chunk
+     */
+    public int getCostWeight(Material material) {
+        return costWeights[material.ordinal()];
+    }
+
+    /**
+     * Get the cost allowed per chunk, or 0 if there is no budget
+     */
+    public int getCostBudget() {
+        return costBudget;
+    }
+
+    public int getDefaultLimit(Material material) {
+        return defaults[material.ordinal()];
+    }
+
+    public boolean isEnabled(Material material) {
+        return enabled[material.ordinal()];
+    }
+
+    /**
+     * Blocks with a limit, hoppers, chests and barrels first
+     */
+    public List<Material> getMaterials() {
+        return materials;
+    }
+
+    /**
+     * Worlds with limits of their own
+     */
+    public Set<String> getWorlds() {
+        return Collections.unmodifiableSet(worlds.keySet());
+    }
+}
@@ -0,0 +1,128 @@
+package fun.hanyu.hopperLimiter.config;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.Material;
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Per-player limits granted by permission nodes
+ * hoplimit.limit.<block>.<n> raises a player's limit for a block to n, the highest
+ * granted node winning, and hoplimit.bypass lifts all limits. Permissions are
+ * resolved on join, on world change, on reload and every refresh interval, so a
+ * placement check is one map lookup instead of permission queries.
+ *
+ * All methods must be called from the main server thread.
+ */
+public class PlayerLimitCache extends BukkitRunnable {
+    public static final String BYPASS_PERMISSION = "hoplimit.bypass";
+    private static final String LIMIT_PREFIX = "hoplimit.limit.";
+
+    private final HopperLimiter plugin;
+    private final Map<UUID, PlayerLimits> players = new HashMap<>();
+
+    public PlayerLimitCache(HopperLimiter plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Start re-resolving online players every intervalSeconds, or never if it is 0
+     */
+    public void start(long intervalSeconds) {
+        if (intervalSeconds > 0) {
+            long ticks = intervalSeconds * 20L;
+            runTaskTimer(plugin, ticks, ticks);
+        }
+    }
+
+    @Override
+    public void run() {
+        refreshAll();
+    }
+
+    /**
+     * Get the cached limits of a player, resolving them if not cached yet
+     */
+    public PlayerLimits get(Player player) {
+        PlayerLimits limits = players.get(player.getUniqueId());
+        return limits != null ? limits : refresh(player);
+    }
+
+    /**
+     * Resolve a player's permissions again
+     */
+    public PlayerLimits refresh(Player player) {
+        PlayerLimits limits = resolve(player);
+        players.put(player.getUniqueId(), limits);
+        return limits;
+    }
+
+    public void refreshAll() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            refresh(player);
+        }
+    }
+
+    public void remove(UUID playerUuid) {
+        players.remove(playerUuid);
+    }
+
+    private PlayerLimits resolve(Player player) {
+        int[] limits = new int[ContainerTypes.count()];
+        Arrays.fill(limits, -1);
+        for (PermissionAttachmentInfo info : player.getEffectivePermissions()) {
+            String node = info.getPermission();
+            if (!info.getValue() || !node.startsWith(LIMIT_PREFIX)) {
+                continue;
+            }
+            // hoplimit.limit.<block>.<n>
+            int dot = node.lastIndexOf('.');
+            if (dot <= LIMIT_PREFIX.length()) {
+                continue;
+            }
+            Material material = ContainerTypes.parseMaterial(node.substring(LIMIT_PREFIX.length(), dot));
+            int type = material != null ? ContainerTypes.typeIndex(material) : -1;
+            if (type < 0) {
+                continue;
+            }
+            try {
+                limits[type] = Math.max(limits[type], Integer.parseInt(node.substring(dot + 1)));
+            } catch (NumberFormatException e) {
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().warning("Ignoring permission " + node + " of " + player.getName());
+                }
+            }
+        }
+        return new PlayerLimits(limits, player.hasPermission(BYPASS_PERMISSION));
+    }
+
+    /**
+     * Limits one player's permissions grant, indexed by container type
+     */
+    public static final class PlayerLimits {
+        private final int[] limits;
+        private final boolean bypass;
+
+        PlayerLimits(int[] limits, boolean bypass) {
+            this.limits = limits;
+            this.bypass = bypass;
+        }
+
+        /**
+         * Get the limit granted for a type, or -1 if no node grants one
+         */
+        public int getLimit(int type) {
+            return limits[type];
+        }
+
+        // Getters
+        public boolean isBypass() { return bypass; }
+    }
+}
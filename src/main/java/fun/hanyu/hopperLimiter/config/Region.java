@@ -0,0 +1,243 @@
+package fun.hanyu.hopperLimiter.config;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.Material;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * A cuboid or polygonal area with its own per-chunk limits
+ * Polygons are given as x,z corners and extend over a y range. Immutable; changes
+ * build a copy.
+ */
+public final class Region {
+    private final String name;
+    private final String world;
+    private final int priority;
+    // Bounding box, inclusive block coordinates
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+    // Polygon corners, null for a cuboid
+    private final int[] pointsX;
+    private final int[] pointsZ;
+    /** Limits indexed by Material.ordinal(), -1 where the region does not set one */
+    private final int[] limits;
+
+    private Region(String name, String world, int priority, int minX, int minY, int minZ, int maxX, int maxY, int maxZ,
+                   int[] pointsX, int[] pointsZ, int[] limits) {
+        this.name = name;
+        this.world = world;
+        this.priority = priority;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+        this.pointsX = pointsX;
+        this.pointsZ = pointsZ;
+        this.limits = limits;
+    }
+
+    /**
+     * Create a cuboid between two corners, in any order
+     */
+    public static Region cuboid(String name, String world, int priority, int x1, int y1, int z1, int x2, int y2, int z2) {
+        return new Region(name, world, priority, Math.min(x1, x2), Math.min(y1, y2), Math.min(z1, z2),
+                Math.max(x1, x2), Math.max(y1, y2), Math.max(z1, z2), null, null, noLimits());
+    }
+
+    /**
+     * Create a polygon from at least three x,z corners, spanning minY to maxY
+     */
+    public static Region polygon(String name, String world, int priority, int[] pointsX, int[] pointsZ, int minY, int maxY) {
+        if (pointsX.length < 3 || pointsX.length != pointsZ.length) {
+            throw new IllegalArgumentException("A polygon needs at least three corners");
+        }
+        return new Region(name, world, priority, min(pointsX), Math.min(minY, maxY), min(pointsZ),
+                max(pointsX), Math.max(minY, maxY), max(pointsZ), pointsX.clone(), pointsZ.clone(), noLimits());
+    }
+
+    /**
+     * Read a region from its config section, or return null if it is malformed
+     */
+    public static Region load(String name, ConfigurationSection section, Logger logger) {
+        String world = section.getString("world");
+        if (world == null) {
+            logger.warning("Ignoring region " + name + ": no world set");
+            return null;
+        }
+        int priority = section.getInt("priority", 0);
+
+        Region region;
+        List<String> points = section.getStringList("points");
+        if (!points.isEmpty()) {
+            int[] xs = new int[points.size()];
+            int[] zs = new int[points.size()];
+            for (int i = 0; i < points.size(); i++) {
+                String[] parts = points.get(i).split(",");
+                try {
+                    xs[i] = Integer.parseInt(parts[0].trim());
+                    zs[i] = Integer.parseInt(parts[1].trim());
+                } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                    logger.warning("Ignoring region " + name + ": bad point " + points.get(i));
+                    return null;
+                }
+            }
+            if (xs.length < 3) {
+                logger.warning("Ignoring region " + name + ": a polygon needs at least three points");
+                return null;
+            }
+            region = polygon(name, world, priority, xs, zs,
+                    section.getInt("min-y", Integer.MIN_VALUE), section.getInt("max-y", Integer.MAX_VALUE));
+        } else {
+            List<Integer> min = section.getIntegerList("min");
+            List<Integer> max = section.getIntegerList("max");
+            if (min.size() != 3 || max.size() != 3) {
+                logger.warning("Ignoring region " + name + ": set min and max as [x, y, z], or points");
+                return null;
+            }
+            region = cuboid(name, world, priority, min.get(0), min.get(1), min.get(2), max.get(0), max.get(1), max.get(2));
+        }
+
+        ConfigurationSection limitSection = section.getConfigurationSection("limits");
+        if (limitSection != null) {
+            for (String key : limitSection.getKeys(false)) {
+                Material material = ContainerTypes.parseMaterial(key);
+                if (material == null) {
+                    logger.warning("Ignoring limit for unknown block in region " + name + ": " + key);
+                    continue;
+                }
+                region.limits[material.ordinal()] = limitSection.getInt(key);
+            }
+        }
+        return region;
+    }
+
+    /**
+     * Write this region under a config path, replacing what was there
+     */
+    public void save(ConfigurationSection config, String path) {
+        config.set(path, null);
+        config.set(path + ".world", world);
+        config.set(path + ".priority", priority);
+        if (isPolygon()) {
+            List<String> points = new ArrayList<>();
+            for (int i = 0; i < pointsX.length; i++) {
+                points.add(pointsX[i] + "," + pointsZ[i]);
+            }
+            config.set(path + ".points", points);
+            if (minY != Integer.MIN_VALUE) {
+                config.set(path + ".min-y", minY);
+            }
+            if (maxY != Integer.MAX_VALUE) {
+                config.set(path + ".max-y", maxY);
+            }
+        } else {
+            config.set(path + ".min", Arrays.asList(minX, minY, minZ));
+            config.set(path + ".max", Arrays.asList(maxX, maxY, maxZ));
+        }
+        Material[] materials = Material.values();
+        for (int ordinal = 0; ordinal < limits.length; ordinal++) {
+            if (limits[ordinal] >= 0) {
+                config.set(path + ".limits." + ContainerTypes.configKey(materials[ordinal]), limits[ordinal]);
+            }
+        }
+    }
+
+    /**
+     * Copy of this region with a limit set, or cleared when limit is negative
+     */
+    public Region withLimit(Material material, int limit) {
+        int[] newLimits = limits.clone();
+        newLimits[material.ordinal()] = Math.max(-1, limit);
+        return new Region(name, world, priority, minX, minY, minZ, maxX, maxY, maxZ, pointsX, pointsZ, newLimits);
+    }
+
+    public Region withPriority(int priority) {
+        return new Region(name, world, priority, minX, minY, minZ, maxX, maxY, maxZ, pointsX, pointsZ, limits);
+    }
+
+    /**
+     * Check if a block lies inside this region
+     * Blocks on a polygon's edges, including its corner blocks, are inside.
+     */
+    public boolean contains(int x, int y, int z) {
+        if (x < minX || x > maxX || y < minY || y > maxY || z < minZ || z > maxZ) {
+            return false;
+        }
+        if (pointsX == null) {
+            return true;
+        }
+        // Even-odd ray cast along +x
+        boolean inside = false;
+        for (int i = 0, j = pointsX.length - 1; i < pointsX.length; j = i++) {
+            int x1 = pointsX[i];
+            int z1 = pointsZ[i];
+            int x2 = pointsX[j];
+            int z2 = pointsZ[j];
+            if ((long) (x2 - x1) * (z - z1) == (long) (z2 - z1) * (x - x1)
+                    && x >= Math.min(x1, x2) && x <= Math.max(x1, x2)
+                    && z >= Math.min(z1, z2) && z <= Math.max(z1, z2)) {
+                return true;
+            }
+            if ((z1 > z) != (z2 > z)) {
+                double crossX = x1 + (double) (z - z1) * (x2 - x1) / (z2 - z1);
+                if (x < crossX) {
+                    inside = !inside;
+                }
+            }
+        }
+        return inside;
+    }
+
+    /**
+     * Get the limit this region sets for a block, or -1 if it does not set one
+     */
+    public int getLimit(Material material) {
+        return limits[material.ordinal()];
+    }
+
+    private static int[] noLimits() {
+        int[] limits = new int[Material.values().length];
+        Arrays.fill(limits, -1);
+        return limits;
+    }
+
+    private static int min(int[] values) {
+        int min = Integer.MAX_VALUE;
+        for (int value : values) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    private static int max(int[] values) {
+        int max = Integer.MIN_VALUE;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    // Getters
+    public String getName() { return name; }
+    public String getWorld() { return world; }
+    public int getPriority() { return priority; }
+    public boolean isPolygon() { return pointsX != null; }
+    public int getMinX() { return minX; }
+    public int getMinY() { return minY; }
+    public int getMinZ() { return minZ; }
+    public int getMaxX() { return maxX; }
+    public int getMaxY() { return maxY; }
+    public int getMaxZ() { return maxZ; }
+    public int getPointCount() { return pointsX != null ? pointsX.length : 0; }
+}
@@ -1,160 +1,90 @@
 package fun.hanyu.hopperLimiter.config;
 
-import org.bukkit.configuration.file.FileConfiguration;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.Material;
 import org.bukkit.plugin.java.JavaPlugin;
 
-import java.util.HashMap;
-import java.util.Map;
-
 /**
  * Manages per-world and per-region block limits
+ * The limits are one immutable LimitTable behind a volatile reference: reload and
+ * /hoplimit set build a new table and publish it in a single write, so a placement
+ * check always sees one consistent set of limits. Take the table once per check.
  */
 public class WorldLimitManager {
     private final JavaPlugin plugin;
-    private final FileConfiguration config;
-    private final Map<String, WorldLimits> worldLimits;
+    private volatile LimitTable limits;
 
     public WorldLimitManager(JavaPlugin plugin) {
         this.plugin = plugin;
-        this.config = plugin.getConfig();
-        this.worldLimits = new HashMap<>();
-        loadWorldLimits();
+        this.limits = LimitTable.load(plugin.getConfig(), plugin.getLogger());
     }
 
     /**
-     * Load world-specific limits from config
+     * Get the current limits
      */
-    private void loadWorldLimits() {
-        worldLimits.clear();
-
-        if (!config.contains("world-limits")) {
-            return;
-        }
-
-        // Get all world names from config
-        for (String world : config.getConfigurationSection("world-limits").getKeys(false)) {
-            String path = "world-limits." + world;
-
-            int hopperLimit = config.getInt(path + ".hopper", -1);
-            int chestLimit = config.getInt(path + ".chest", -1);
-            int barrelLimit = config.getInt(path + ".barrel", -1);
-
-            worldLimits.put(world, new WorldLimits(world, hopperLimit, chestLimit, barrelLimit));
-        }
+    public LimitTable getLimits() {
+        return limits;
     }
 
     /**
-     * Get limits for a specific world
-     * Returns the world-specific limits, or default if not configured
+     * Get limit for a block in a world
+     * Returns the world-specific limit, or the default if the world does not set one
      */
-    public WorldLimits getWorldLimits(String world, Config defaultConfig) {
-        if (worldLimits.containsKey(world)) {
-            return worldLimits.get(world);
-        }
-
-        // Return default limits if world not configured
-        return new WorldLimits(
-                world,
-                defaultConfig.getHopperLimit(),
-                defaultConfig.getChestLimit(),
-                defaultConfig.getBarrelLimit()
-        );
+    public int getLimit(String world, Material material) {
+        return limits.getLimit(world, material);
     }
 
     /**
-     * Get hopper limit for a world
+     * Check if world has custom limits
      */
-    public int getHopperLimit(String world, Config defaultConfig) {
-        WorldLimits limits = getWorldLimits(world, defaultConfig);
-        return limits.getHopperLimit();
+    public boolean hasCustomLimits(String world) {
+        return limits.getWorlds().contains(world);
     }
 
     /**
-     * Get chest limit for a world
+     * Set the default limit of a block dynamically (in memory, not persisted)
+     * Must be called from the main server thread.
      */
-    public int getChestLimit(String world, Config defaultConfig) {
-        WorldLimits limits = getWorldLimits(world, defaultConfig);
-        return limits.getChestLimit();
+    public void setDefaultLimit(Material material, int limit) {
+        limits = limits.withDefaultLimit(material, limit);
     }
 
     /**
-     * Get barrel limit for a world
+     * Add or replace a region and save it to config.yml
+     * Must be called from the main server thread.
      */
-    public int getBarrelLimit(String world, Config defaultConfig) {
-        WorldLimits limits = getWorldLimits(world, defaultConfig);
-        return limits.getBarrelLimit();
+    public void putRegion(Region region) {
+        limits = limits.withRegion(region);
+        region.save(plugin.getConfig(), "regions." + region.getName());
+        plugin.saveConfig();
     }
 
     /**
-     * Get limit for a specific block type in a world
+     * Delete a region and remove it from config.yml
+     * Must be called from the main server thread.
      */
-    public int getLimit(String world, String blockType, Config defaultConfig) {
-        WorldLimits limits = getWorldLimits(world, defaultConfig);
-        switch (blockType.toLowerCase()) {
-            case "hopper":
-                return limits.getHopperLimit();
-            case "chest":
-                return limits.getChestLimit();
-            case "barrel":
-                return limits.getBarrelLimit();
-            default:
-                return 0;
+    public boolean removeRegion(String name) {
+        if (limits.getRegion(name) == null) {
+            return false;
         }
+        limits = limits.withoutRegion(name);
+        plugin.getConfig().set("regions." + name, null);
+        plugin.saveConfig();
+        return true;
     }
 
     /**
-     * Check if world has custom limits
-     */
-    public boolean hasCustomLimits(String world) {
-        return worldLimits.containsKey(world);
-    }
-
-    /**
-     * Get all configured worlds
-     */
-    public Map<String, WorldLimits> getAllWorldLimits() {
-        return new HashMap<>(worldLimits);
-    }
-
-    /**
-     * Reload world limits from config
+     * Reload limits from config
      */
     public void reload() {
-        loadWorldLimits();
-    }
-
-    // ==================== Data Class ====================
-
-    public static class WorldLimits {
-        private final String world;
-        private final int hopperLimit;
-        private final int chestLimit;
-        private final int barrelLimit;
-
-        public WorldLimits(String world, int hopperLimit, int chestLimit, int barrelLimit) {
-            this.world = world;
-            this.hopperLimit = hopperLimit;
-            this.chestLimit = chestLimit;
-            this.barrelLimit = barrelLimit;
-        }
-
-        // Getters
-        public String getWorld() { return world; }
-        public int getHopperLimit() { return hopperLimit; }
-        public int getChestLimit() { return chestLimit; }
-        public int getBarrelLimit() { return barrelLimit; }
+        LimitTable reloaded = LimitTable.load(plugin.getConfig(), plugin.getLogger());
 
-        public int getLimit(String blockType) {
-            switch (blockType.toLowerCase()) {
-                case "hopper":
-                    return hopperLimit;
-                case "chest":
-                    return chestLimit;
-                case "barrel":
-                    return barrelLimit;
-                default:
-                    return 0;
+        // Counted types are fixed when the plugin enables
+        for (Material material : reloaded.getMaterials()) {
+            if (!ContainerTypes.isTracked(material)) {
+                plugin.getLogger().warning("Restart the server to start counting " + ContainerTypes.configKey(material));
             }
         }
+        limits = reloaded;
     }
 }
@@ -2,10 +2,12 @@ package fun.hanyu.hopperLimiter.listener;
 
 import fun.hanyu.hopperLimiter.HopperLimiter;
 import fun.hanyu.hopperLimiter.storage.StorageManager;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 
@@ -21,26 +23,32 @@ public class BlockBreakListener implements Listener {
         this.storageManager = plugin.getStorageManager();
     }
 
-    @EventHandler
+    // Counters decide limits, so only breaks that actually happen are counted
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onBlockBreak(BlockBreakEvent event) {
         Block block = event.getBlock();
         Material material = block.getType();
         Player player = event.getPlayer();
 
         // Check if the block type is one we're tracking
-        String blockType = getBlockType(material);
-        if (blockType == null) {
+        if (!ContainerTypes.isTracked(material)) {
             return;
         }
+        String blockType = ContainerTypes.typeName(ContainerTypes.typeIndex(material));
 
-        // Record the removal
-        storageManager.recordRemoval(
+        // Record the removal (untracked containers such as generated chests are ignored)
+        boolean tracked = storageManager.recordRemoval(
                 blockType,
-                block.getWorld().getName(),
-                block.getChunk().getX(),
-                block.getChunk().getZ(),
+                block.getWorld(),
+                block.getX(),
+                block.getY(),
+                block.getZ(),
+                player.getUniqueId(),
                 player.getName()
         );
+        if (!tracked) {
+            return;
+        }
 
         // Log the break event (only if debug enabled)
         if (plugin.getConfigManager().isDebugEnabled()) {
@@ -49,20 +57,4 @@ public class BlockBreakListener implements Listener {
                     "," + block.getChunk().getZ() + ")");
         }
     }
-
-    /**
-     * Get the block type name (hopper, chest, or barrel)
-     */
-    private String getBlockType(Material material) {
-        switch (material) {
-            case HOPPER:
-                return "Hopper";
-            case CHEST:
-                return "Chest";
-            case BARREL:
-                return "Barrel";
-            default:
-                return null;
-        }
-    }
 }
@@ -2,10 +2,13 @@ package fun.hanyu.hopperLimiter.listener;
 
 import fun.hanyu.hopperLimiter.HopperLimiter;
 import fun.hanyu.hopperLimiter.config.Config;
+import fun.hanyu.hopperLimiter.config.LimitTable;
+import fun.hanyu.hopperLimiter.config.PlayerLimitCache;
 import fun.hanyu.hopperLimiter.config.WorldLimitManager;
 import fun.hanyu.hopperLimiter.message.Message;
 import fun.hanyu.hopperLimiter.sound.SoundManager;
 import fun.hanyu.hopperLimiter.storage.StorageManager;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
 import org.bukkit.block.Block;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -13,6 +16,8 @@ import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 
+import java.util.Collections;
+
 /**
  * Listener for block placement events to enforce chunk limits
  */
@@ -20,6 +25,7 @@ public class BlockPlacementListener implements Listener {
     private final HopperLimiter plugin;
     private final Config config;
     private final WorldLimitManager worldLimitManager;
+    private final PlayerLimitCache playerLimitCache;
     private final SoundManager soundManager;
     private final StorageManager storageManager;
 
@@ -27,52 +33,37 @@ public class BlockPlacementListener implements Listener {
         this.plugin = plugin;
         this.config = plugin.getConfigManager();
         this.worldLimitManager = plugin.getWorldLimitManager();
+        this.playerLimitCache = plugin.getPlayerLimitCache();
         this.soundManager = plugin.getSoundManager();
         this.storageManager = plugin.getStorageManager();
     }
 
-    @EventHandler
+    @EventHandler(ignoreCancelled = true)
     public void onBlockPlace(BlockPlaceEvent event) {
         Block block = event.getBlock();
         Material material = block.getType();
         Player player = event.getPlayer();
 
         // Check if the block type is one we're limiting
-        String blockType = getBlockType(material);
-        if (blockType == null || !config.isEnabled(blockType)) {
+        // One snapshot for the whole check, so a reload cannot mix old and new limits
+        LimitTable limits = worldLimitManager.getLimits();
+        if (!ContainerTypes.isTracked(material) || !limits.isEnabled(material)) {
             return;
         }
 
-        // Count existing blocks of this type in the chunk (before placement)
-        // Use database count for accuracy (excludes removed blocks)
-        int count = storageManager.getChunkBlockCount(block.getWorld().getName(),
-                block.getChunk().getX(), block.getChunk().getZ());
-
-        // Get the limit for this block type (world-specific or default)
-        String worldName = block.getWorld().getName();
-        int limit = worldLimitManager.getLimit(worldName, blockType, config);
+        // Counts are served from the in-memory counters, which exclude removed blocks,
+        // and are the numbers BEFORE this block is placed
+        PlacementCheck check = PlacementCheck.check(storageManager, limits, playerLimitCache.get(player),
+                block.getWorld().getName(), block.getX(), block.getY(), block.getZ(), material, Collections.emptyList());
+        String blockType = check.getBlockType();
+        int count = check.getCount();
+        int limit = check.getLimit();
 
-        // Check if limit is exceeded (count is the number BEFORE this block is placed)
-        if (count >= limit) {
-            // Limit reached - cancel the event and notify
-            event.setCancelled(true);
-
-            // Send message to player
+        if (!check.isAllowed()) {
             if (config.isLimitMessageEnabled()) {
-                Message.sendLimitExceededMessage(player, blockType, limit);
-            }
-
-            // Play sound if enabled
-            if (config.isSoundEnabled()) {
-                soundManager.playLimitSound(player);
-            }
-
-            // Log the failed placement attempt (only if debug enabled)
-            if (config.isDebugEnabled()) {
-                plugin.getLogger().info("Block placement denied for " + player.getName() +
-                        " at chunk (" + block.getChunk().getX() + "," + block.getChunk().getZ() +
-                        ") - Limit reached for " + blockType);
+                check.sendDenied(player);
             }
+            deny(event, check.getReason());
         } else {
             // Block placed successfully
             // Display the count after placement (count + 1)
@@ -88,11 +79,13 @@ public class BlockPlacementListener implements Listener {
 
             // Record placement in storage
             storageManager.recordPlacement(
+                    player.getUniqueId(),
                     player.getName(),
                     blockType,
-                    worldName,
-                    block.getChunk().getX(),
-                    block.getChunk().getZ()
+                    block.getWorld(),
+                    block.getX(),
+                    block.getY(),
+                    block.getZ()
             );
 
             // Log the successful placement (only if debug enabled)
@@ -105,35 +98,23 @@ public class BlockPlacementListener implements Listener {
     }
 
     /**
-     * Get the block type name (hopper, chest, or barrel)
+     * Cancel a placement that would exceed a limit
      */
-    private String getBlockType(Material material) {
-        switch (material) {
-            case HOPPER:
-                return "Hopper";
-            case CHEST:
-                return "Chest";
-            case BARREL:
-                return "Barrel";
-            default:
-                return null;
+    private void deny(BlockPlaceEvent event, String reason) {
+        Player player = event.getPlayer();
+        Block block = event.getBlock();
+        event.setCancelled(true);
+
+        // Play sound if enabled
+        if (config.isSoundEnabled()) {
+            soundManager.playLimitSound(player);
         }
-    }
 
-    /**
-     * Count blocks of a specific type in the chunk
-     */
-    private int countBlocksInChunk(org.bukkit.Chunk chunk, Material material) {
-        int count = 0;
-        for (int x = 0; x < 16; x++) {
-            for (int z = 0; z < 16; z++) {
-                for (int y = chunk.getWorld().getMinHeight(); y < chunk.getWorld().getMaxHeight(); y++) {
-                    if (chunk.getBlock(x, y, z).getType() == material) {
-                        count++;
-                    }
-                }
-            }
+        // Log the failed placement attempt (only if debug enabled)
+        if (config.isDebugEnabled()) {
+            plugin.getLogger().info("Block placement denied for " + player.getName() +
+                    " at chunk (" + block.getChunk().getX() + "," + block.getChunk().getZ() +
+                    ") - " + reason);
         }
-        return count;
     }
 }
@@ -0,0 +1,37 @@
+package fun.hanyu.hopperLimiter.listener;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.storage.StorageManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+
+/**
+ * Listener for chunk loads and unloads to keep counts and container positions of loaded chunks in memory,
+ * and for world loads to migrate the chunk counts of worlds loaded after startup
+ */
+public class ChunkListener implements Listener {
+    private final StorageManager storageManager;
+
+    public ChunkListener(HopperLimiter plugin) {
+        this.storageManager = plugin.getStorageManager();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onWorldLoad(WorldLoadEvent event) {
+        storageManager.onWorldLoad(event.getWorld());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkLoad(ChunkLoadEvent event) {
+        storageManager.onChunkLoad(event.getChunk());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onChunkUnload(ChunkUnloadEvent event) {
+        storageManager.onChunkUnload(event.getChunk());
+    }
+}
@@ -0,0 +1,164 @@
+package fun.hanyu.hopperLimiter.listener;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.config.LimitTable;
+import fun.hanyu.hopperLimiter.config.PlayerLimitCache;
+import fun.hanyu.hopperLimiter.config.WorldLimitManager;
+import fun.hanyu.hopperLimiter.storage.StorageManager;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.Material;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockMultiPlaceEvent;
+import org.bukkit.event.world.StructureGrowEvent;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Listener for containers that are overwritten by growing structures or are
+ * placed as part of a multi-block placement
+ * Containers placed this way are held to the same limits as player placements:
+ * ones over a limit are left out of a growing structure, and a multi-block
+ * placement is cancelled.
+ */
+public class EnvironmentListener implements Listener {
+    private final HopperLimiter plugin;
+    private final WorldLimitManager worldLimitManager;
+    private final PlayerLimitCache playerLimitCache;
+    private final StorageManager storageManager;
+
+    public EnvironmentListener(HopperLimiter plugin) {
+        this.plugin = plugin;
+        this.worldLimitManager = plugin.getWorldLimitManager();
+        this.playerLimitCache = plugin.getPlayerLimitCache();
+        this.storageManager = plugin.getStorageManager();
+    }
+
+    @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
+    public void onStructureGrowCheck(StructureGrowEvent event) {
+        LimitTable limits = worldLimitManager.getLimits();
+        Player player = event.getPlayer();
+        PlayerLimitCache.PlayerLimits playerLimits = player != null ? playerLimitCache.get(player) : null;
+        String worldName = event.getWorld().getName();
+        List<BlockState> accepted = new ArrayList<>();
+        Iterator<BlockState> blocks = event.getBlocks().iterator();
+        while (blocks.hasNext()) {
+            BlockState state = blocks.next();
+            Material material = state.getType();
+            if (!ContainerTypes.isTracked(material) || !limits.isEnabled(material)
+                    || state.getBlock().getType() == material) {
+                continue;
+            }
+            PlacementCheck check = PlacementCheck.check(storageManager, limits, playerLimits,
+                    worldName, state.getX(), state.getY(), state.getZ(), material, accepted);
+            if (check.isAllowed()) {
+                accepted.add(state);
+                continue;
+            }
+            // Grow the rest of the structure without this container
+            blocks.remove();
+            if (player != null && plugin.getConfigManager().isLimitMessageEnabled()) {
+                check.sendDenied(player);
+            }
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().info("Structure growth container left out at chunk (" + (state.getX() >> 4) +
+                        "," + (state.getZ() >> 4) + ") - " + check.getReason());
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent event) {
+        List<Block> removed = new ArrayList<>();
+        List<BlockState> placed = new ArrayList<>();
+        for (BlockState state : event.getBlocks()) {
+            Block current = state.getBlock();
+            if (current.getType() == state.getType()) {
+                continue;
+            }
+            if (ContainerTypes.isTracked(current.getType())) {
+                removed.add(current);
+            }
+            if (ContainerTypes.isTracked(state.getType())) {
+                placed.add(state);
+            }
+        }
+        if (removed.isEmpty() && placed.isEmpty()) {
+            return;
+        }
+
+        // Bone meal growth is attributed to the player using it
+        Player player = event.getPlayer();
+        int changed = player != null
+                ? storageManager.recordChanges(event.getWorld(), removed, placed, player.getUniqueId(), player.getName())
+                : storageManager.recordChanges(event.getWorld(), removed, placed, "growth");
+
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Structure growth changed " + changed + " containers in " + event.getWorld().getName());
+        }
+    }
+
+    /**
+     * Check the extra containers of a multi-block placement before BlockPlacementListener
+     * checks and records the placed block itself
+     */
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onBlockMultiPlaceCheck(BlockMultiPlaceEvent event) {
+        LimitTable limits = worldLimitManager.getLimits();
+        Block primary = event.getBlock();
+        Player player = event.getPlayer();
+        PlayerLimitCache.PlayerLimits playerLimits = playerLimitCache.get(player);
+        List<BlockState> accepted = new ArrayList<>();
+        if (ContainerTypes.isTracked(primary.getType()) && limits.isEnabled(primary.getType())) {
+            accepted.add(primary.getState());
+        }
+        for (BlockState replaced : event.getReplacedBlockStates()) {
+            Block block = replaced.getBlock();
+            Material material = block.getType();
+            if (block.equals(primary) || !ContainerTypes.isTracked(material) || !limits.isEnabled(material)) {
+                continue;
+            }
+            PlacementCheck check = PlacementCheck.check(storageManager, limits, playerLimits,
+                    block.getWorld().getName(), block.getX(), block.getY(), block.getZ(), material, accepted);
+            if (!check.isAllowed()) {
+                event.setCancelled(true);
+                if (plugin.getConfigManager().isLimitMessageEnabled()) {
+                    check.sendDenied(player);
+                }
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("Multi-block placement denied for " + player.getName() + " at chunk (" +
+                            (block.getX() >> 4) + "," + (block.getZ() >> 4) + ") - " + check.getReason());
+                }
+                return;
+            }
+            accepted.add(block.getState());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockMultiPlace(BlockMultiPlaceEvent event) {
+        // The placed block itself is recorded by BlockPlacementListener
+        Block primary = event.getBlock();
+        List<BlockState> placed = new ArrayList<>();
+        for (BlockState replaced : event.getReplacedBlockStates()) {
+            Block block = replaced.getBlock();
+            if (block.equals(primary) || !ContainerTypes.isTracked(block.getType())) {
+                continue;
+            }
+            placed.add(block.getState());
+        }
+        if (placed.isEmpty()) {
+            return;
+        }
+
+        Player player = event.getPlayer();
+        storageManager.recordChanges(primary.getWorld(), Collections.emptyList(), placed, player.getUniqueId(), player.getName());
+    }
+}
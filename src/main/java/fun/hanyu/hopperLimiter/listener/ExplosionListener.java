@@ -0,0 +1,72 @@
+package fun.hanyu.hopperLimiter.listener;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.storage.StorageManager;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.entity.TNTPrimed;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Listener for explosions to track containers they destroy
+ * All blocks of one explosion are recorded as one batched update.
+ */
+public class ExplosionListener implements Listener {
+    private final HopperLimiter plugin;
+    private final StorageManager storageManager;
+
+    public ExplosionListener(HopperLimiter plugin) {
+        this.plugin = plugin;
+        this.storageManager = plugin.getStorageManager();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        List<Block> blocks = event.blockList();
+        if (blocks.isEmpty()) {
+            return;
+        }
+        World world = blocks.get(0).getWorld();
+        Entity entity = event.getEntity();
+
+        // TNT lit by a player is attributed to that player
+        Entity source = entity instanceof TNTPrimed ? ((TNTPrimed) entity).getSource() : null;
+        int removed;
+        if (source instanceof Player) {
+            Player player = (Player) source;
+            removed = storageManager.recordChanges(world, blocks, Collections.emptyList(),
+                    player.getUniqueId(), player.getName());
+        } else {
+            removed = storageManager.recordChanges(world, blocks, Collections.emptyList(),
+                    entity.getType().name().toLowerCase());
+        }
+        logRemoved(removed, blocks.get(0).getLocation());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        List<Block> blocks = event.blockList();
+        if (blocks.isEmpty()) {
+            return;
+        }
+        int removed = storageManager.recordChanges(blocks.get(0).getWorld(), blocks, Collections.emptyList(), "explosion");
+        logRemoved(removed, blocks.get(0).getLocation());
+    }
+
+    private void logRemoved(int removed, Location location) {
+        if (removed > 0 && plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Explosion removed " + removed + " containers near chunk (" +
+                    (location.getBlockX() >> 4) + "," + (location.getBlockZ() >> 4) + ")");
+        }
+    }
+}
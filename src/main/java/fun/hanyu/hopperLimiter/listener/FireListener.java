@@ -0,0 +1,53 @@
+package fun.hanyu.hopperLimiter.listener;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.storage.StorageManager;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBurnEvent;
+
+import java.util.Collections;
+
+/**
+ * Listener for counted containers destroyed by fire
+ * Hoppers, chests and barrels cannot burn, so this is only registered when a
+ * flammable material is counted as well.
+ */
+public class FireListener implements Listener {
+    private final HopperLimiter plugin;
+    private final StorageManager storageManager;
+
+    public FireListener(HopperLimiter plugin) {
+        this.plugin = plugin;
+        this.storageManager = plugin.getStorageManager();
+    }
+
+    /**
+     * Whether any counted material can burn
+     */
+    public static boolean isNeeded() {
+        for (int type = 0; type < ContainerTypes.count(); type++) {
+            if (ContainerTypes.material(type).isFlammable()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        Block block = event.getBlock();
+        if (!ContainerTypes.isTracked(block.getType())) {
+            return;
+        }
+        storageManager.recordChanges(block.getWorld(), Collections.singletonList(block), Collections.emptyList(), "fire");
+
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Burned container recorded at chunk (" + (block.getX() >> 4) +
+                    "," + (block.getZ() >> 4) + ")");
+        }
+    }
+}
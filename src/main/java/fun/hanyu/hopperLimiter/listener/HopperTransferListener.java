@@ -0,0 +1,50 @@
+package fun.hanyu.hopperLimiter.listener;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.config.Config;
+import fun.hanyu.hopperLimiter.throttle.TransferThrottle;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryType;
+import org.bukkit.inventory.Inventory;
+
+/**
+ * Listener for hopper item transfers to throttle them per chunk
+ * Each transfer made by a hopper or hopper minecart is charged to the chunk the
+ * hopper is in, and cancelled when that chunk's bucket is empty.
+ */
+public class HopperTransferListener implements Listener {
+    private final Config config;
+    private final TransferThrottle throttle;
+
+    public HopperTransferListener(HopperLimiter plugin) {
+        this.config = plugin.getConfigManager();
+        this.throttle = plugin.getTransferThrottle();
+    }
+
+    @EventHandler(priority = EventPriority.LOW, ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        if (!config.isThrottleEnabled()) {
+            return;
+        }
+        Inventory initiator = event.getInitiator();
+        if (initiator.getType() != InventoryType.HOPPER) {
+            return;
+        }
+        // getHolder() would build a BlockState snapshot of the hopper on every transfer
+        Location location = initiator.getLocation();
+        if (location == null) {
+            return;
+        }
+        World world = location.getWorld();
+        int chunkX = location.getBlockX() >> 4;
+        int chunkZ = location.getBlockZ() >> 4;
+        if (world != null && !throttle.tryTransfer(world.getName(), chunkX, chunkZ)) {
+            event.setCancelled(true);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package fun.hanyu.hopperLimiter.listener;
+
+import fun.hanyu.hopperLimiter.config.LimitTable;
+import fun.hanyu.hopperLimiter.config.PlayerLimitCache;
+import fun.hanyu.hopperLimiter.message.Message;
+import fun.hanyu.hopperLimiter.storage.StorageManager;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.Material;
+import org.bukkit.block.BlockState;
+import org.bukkit.entity.Player;
+
+import java.util.List;
+
+/**
+ * Limit checks for a container about to be placed
+ * Shared by player placements and containers placed by structure growth or
+ * multi-block placements. Containers accepted earlier in the same event are
+ * not counted yet, so they are passed in and added to the counts.
+ */
+final class PlacementCheck {
+    enum Outcome {
+        ALLOWED,
+        NEIGHBORHOOD,
+        CHUNK,
+        SECTION,
+        COST
+    }
+
+    private final Outcome outcome;
+    private final LimitTable limits;
+    private final Material material;
+    private final int count;
+    private final int limit;
+    private final int cost;
+
+    private PlacementCheck(Outcome outcome, LimitTable limits, Material material, int count, int limit, int cost) {
+        this.outcome = outcome;
+        this.limits = limits;
+        this.material = material;
+        this.count = count;
+        this.limit = limit;
+        this.cost = cost;
+    }
+
+    /**
+     * Check a tracked, enabled material against every limit (counts are the numbers before it is placed)
+     *
+     * @param playerLimits the placing player's limits, or null if no player placed it
+     * @param accepted     tracked containers already accepted in the same event
+     */
+    static PlacementCheck check(StorageManager storageManager, LimitTable limits, PlayerLimitCache.PlayerLimits playerLimits,
+                                String worldName, int x, int y, int z, Material material, List<BlockState> accepted) {
+        int type = ContainerTypes.typeIndex(material);
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        int radius = limits.getWindowRadius();
+
+        int count = storageManager.getChunkBlockCount(worldName, chunkX, chunkZ, type);
+        int window = 0;
+        int section = 0;
+        int cost = 0;
+        for (BlockState state : accepted) {
+            boolean sameChunk = state.getX() >> 4 == chunkX && state.getZ() >> 4 == chunkZ;
+            boolean sameType = state.getType() == material;
+            if (Math.abs((state.getX() >> 4) - chunkX) <= radius && Math.abs((state.getZ() >> 4) - chunkZ) <= radius) {
+                window++;
+            }
+            if (sameChunk && sameType) {
+                count++;
+                if (state.getY() >> 4 == y >> 4) {
+                    section++;
+                }
+            }
+            if (sameChunk) {
+                cost += limits.getCostWeight(state.getType());
+            }
+        }
+
+        int limit = limits.getLimit(worldName, material, x, y, z, playerLimits);
+        if (playerLimits != null && playerLimits.isBypass()) {
+            return new PlacementCheck(Outcome.ALLOWED, limits, material, count, limit, 0);
+        }
+
+        // Containers of every type in the chunks around this one, from the window tree
+        if (limits.getWindowLimit() > 0
+                && storageManager.getWindowBlockCount(worldName, chunkX, chunkZ, radius) + window >= limits.getWindowLimit()) {
+            return new PlacementCheck(Outcome.NEIGHBORHOOD, limits, material, count, limit, 0);
+        }
+        if (count >= limit) {
+            return new PlacementCheck(Outcome.CHUNK, limits, material, count, limit, 0);
+        }
+
+        // Containers of this type in the block's 16x16x16 section
+        int sectionLimit = limits.getSectionLimit(material);
+        if (sectionLimit >= 0
+                && storageManager.getSectionBlockCount(worldName, x, y, z, type) + section >= sectionLimit) {
+            return new PlacementCheck(Outcome.SECTION, limits, material, count, limit, 0);
+        }
+
+        // Weighted cost of the chunk's containers, kept up to date by the counters
+        int budget = limits.getCostBudget();
+        if (budget > 0) {
+            cost += storageManager.getChunkCost(worldName, chunkX, chunkZ);
+            if (cost + limits.getCostWeight(material) > budget) {
+                return new PlacementCheck(Outcome.COST, limits, material, count, limit, cost);
+            }
+        }
+        return new PlacementCheck(Outcome.ALLOWED, limits, material, count, limit, cost);
+    }
+
+    boolean isAllowed() {
+        return outcome == Outcome.ALLOWED;
+    }
+
+    /**
+     * Tell a player which limit denied the placement
+     */
+    void sendDenied(Player player) {
+        String blockType = getBlockType();
+        switch (outcome) {
+            case NEIGHBORHOOD:
+                Message.sendNeighborhoodLimitMessage(player, blockType, limits.getWindowLimit(), limits.getWindowRadius() * 2 + 1);
+                break;
+            case CHUNK:
+                Message.sendLimitExceededMessage(player, blockType, limit);
+                break;
+            case SECTION:
+                Message.sendSectionLimitMessage(player, blockType, limits.getSectionLimit(material));
+                break;
+            case COST:
+                Message.sendCostBudgetMessage(player, blockType, cost, limits.getCostBudget());
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Get the reason for a denied placement, for debug logs
+     */
+    String getReason() {
+        switch (outcome) {
+            case NEIGHBORHOOD:
+                return "Neighborhood limit reached";
+            case CHUNK:
+                return "Limit reached for " + getBlockType();
+            case SECTION:
+                return "Section limit reached for " + getBlockType();
+            case COST:
+                return "Cost budget reached by " + getBlockType();
+            default:
+                return "Allowed";
+        }
+    }
+
+    String getBlockType() {
+        return ContainerTypes.typeName(ContainerTypes.typeIndex(material));
+    }
+
+    // Getters
+    Outcome getOutcome() { return outcome; }
+    int getCount() { return count; }
+    int getLimit() { return limit; }
+}
@@ -0,0 +1,45 @@
+package fun.hanyu.hopperLimiter.listener;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.config.PlayerLimitCache;
+import fun.hanyu.hopperLimiter.storage.StorageManager;
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+
+/**
+ * Listener for joins and quits to preload and evict cached player statistics
+ * and permission limits
+ */
+public class PlayerSessionListener implements Listener {
+    private final StorageManager storageManager;
+    private final PlayerLimitCache playerLimitCache;
+
+    public PlayerSessionListener(HopperLimiter plugin) {
+        this.storageManager = plugin.getStorageManager();
+        this.playerLimitCache = plugin.getPlayerLimitCache();
+    }
+
+    @EventHandler
+    public void onPlayerJoin(PlayerJoinEvent event) {
+        Player player = event.getPlayer();
+        storageManager.onPlayerJoin(player.getUniqueId(), player.getName());
+        playerLimitCache.refresh(player);
+    }
+
+    @EventHandler
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        // Permission plugins may grant different nodes per world
+        playerLimitCache.refresh(event.getPlayer());
+    }
+
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        Player player = event.getPlayer();
+        storageManager.onPlayerQuit(player.getUniqueId(), player.getName());
+        playerLimitCache.remove(player.getUniqueId());
+    }
+}
@@ -0,0 +1,47 @@
+package fun.hanyu.hopperLimiter.listener;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.profiler.ActivityProfiler;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.event.inventory.InventoryPickupItemEvent;
+import org.bukkit.inventory.Inventory;
+
+/**
+ * Listener for item transfers and pickups to feed the activity profiler
+ * A transfer is counted in the chunk of the block or minecart that made it, and
+ * only once it has gone through, so throttled transfers are left out.
+ */
+public class ProfilerListener implements Listener {
+    private final ActivityProfiler profiler;
+
+    public ProfilerListener(HopperLimiter plugin) {
+        this.profiler = plugin.getActivityProfiler();
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        if (profiler.isActive()) {
+            record(event.getInitiator(), ActivityProfiler.TRANSFER);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryPickupItem(InventoryPickupItemEvent event) {
+        if (profiler.isActive()) {
+            record(event.getInventory(), ActivityProfiler.PICKUP);
+        }
+    }
+
+    private void record(Inventory inventory, int kind) {
+        Location location = inventory.getLocation();
+        World world = location != null ? location.getWorld() : null;
+        if (world != null) {
+            profiler.record(world.getName(), location.getBlockX() >> 4, location.getBlockZ() >> 4, kind);
+        }
+    }
+}
@@ -1,8 +1,12 @@
 package fun.hanyu.hopperLimiter.message;
 
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
 import org.bukkit.ChatColor;
 import org.bukkit.entity.Player;
 
+import java.util.Map;
+import java.util.function.IntUnaryOperator;
+
 /**
  * Message formatting and delivery class
  */
@@ -21,6 +25,36 @@ public class Message {
         player.sendMessage(message);
     }
 
+    /**
+     * Send a neighborhood limit exceeded message
+     */
+    public static void sendNeighborhoodLimitMessage(Player player, String blockType, int limit, int size) {
+        String message = PREFIX + ChatColor.RED + "Cannot place " + ChatColor.YELLOW + blockType +
+                ChatColor.RED + "! Limit of " + ChatColor.YELLOW + limit +
+                ChatColor.RED + " containers per " + size + "x" + size + " chunks reached.";
+        player.sendMessage(message);
+    }
+
+    /**
+     * Send a section limit exceeded message
+     */
+    public static void sendSectionLimitMessage(Player player, String blockType, int limit) {
+        String message = PREFIX + ChatColor.RED + "Cannot place " + ChatColor.YELLOW + blockType +
+                ChatColor.RED + "! Limit of " + ChatColor.YELLOW + limit +
+                ChatColor.RED + " per 16x16x16 section reached.";
+        player.sendMessage(message);
+    }
+
+    /**
+     * Send a cost budget exceeded message
+     */
+    public static void sendCostBudgetMessage(Player player, String blockType, int cost, int budget) {
+        String message = PREFIX + ChatColor.RED + "Cannot place " + ChatColor.YELLOW + blockType +
+                ChatColor.RED + "! This chunk has used " + ChatColor.YELLOW + cost + "/" + budget +
+                ChatColor.RED + " of its container cost budget.";
+        player.sendMessage(message);
+    }
+
     /**
      * Send a block placement notification
      */
@@ -97,6 +131,19 @@ public class Message {
                 ChatColor.GRAY + " [" + statusColor + status + ChatColor.GRAY + "]");
     }
 
+    /**
+     * Send block count lines for counts indexed by ContainerTypes type
+     * Types beyond hoppers, chests and barrels are listed once the chunk has any.
+     */
+    public static void sendBlockCounts(Player player, int[] counts, IntUnaryOperator limitOfType) {
+        for (int type = 0; type < counts.length; type++) {
+            if (type > ContainerTypes.BARREL && counts[type] == 0) {
+                continue;
+            }
+            sendBlockCount(player, ContainerTypes.typeName(type), counts[type], limitOfType.applyAsInt(type));
+        }
+    }
+
     /**
      * Send config reload confirmation
      */
@@ -107,10 +154,10 @@ public class Message {
     /**
      * Send current limits info
      */
-    public static void sendCurrentLimits(Player player, int hopperLimit, int chestLimit, int barrelLimit) {
+    public static void sendCurrentLimits(Player player, Map<String, Integer> limits) {
         player.sendMessage(ChatColor.DARK_AQUA + "=== " + ChatColor.AQUA + "Current Limits" + ChatColor.DARK_AQUA + " ===");
-        player.sendMessage(ChatColor.AQUA + "  Hopper: " + ChatColor.YELLOW + hopperLimit);
-        player.sendMessage(ChatColor.AQUA + "  Chest: " + ChatColor.YELLOW + chestLimit);
-        player.sendMessage(ChatColor.AQUA + "  Barrel: " + ChatColor.YELLOW + barrelLimit);
+        for (Map.Entry<String, Integer> entry : limits.entrySet()) {
+            player.sendMessage(ChatColor.AQUA + "  " + entry.getKey() + ": " + ChatColor.YELLOW + entry.getValue());
+        }
     }
 }
@@ -0,0 +1,162 @@
+package fun.hanyu.hopperLimiter.profiler;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.config.Config;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts hopper transfers and pickups per chunk over a rolling window
+ * Each active chunk keeps one counter pair per second in a ring covering the
+ * last profiler.window-seconds, so a rate over any shorter span is a sum of a
+ * few slots. The profiler records while profiler.enabled is set or a
+ * /hoplimit profile capture is running; otherwise a listener's only cost is
+ * one isActive() check.
+ *
+ * All methods must be called from the main server thread, which is the only
+ * writer, so the counters are plain ints without locks or atomics.
+ */
+public class ActivityProfiler extends BukkitRunnable {
+    public static final int TRANSFER = 0;
+    public static final int PICKUP = 1;
+    private static final int TICKS_PER_SECOND = 20;
+
+    private final HopperLimiter plugin;
+    private final Config config;
+    private final int windowSeconds;
+    private final ActivityWindow window;
+    private int captures;
+    private long tick;
+
+    public ActivityProfiler(HopperLimiter plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+        this.windowSeconds = config.getProfilerWindowSeconds();
+        this.window = new ActivityWindow(windowSeconds);
+    }
+
+    public void start() {
+        runTaskTimer(plugin, 1L, 1L);
+    }
+
+    @Override
+    public void run() {
+        tick++;
+        if (tick % ((long) windowSeconds * TICKS_PER_SECOND) == 0) {
+            if (isActive()) {
+                window.sweep(tick / TICKS_PER_SECOND - windowSeconds - 1);
+            } else if (!window.isEmpty()) {
+                window.clear();
+            }
+        }
+    }
+
+    /**
+     * Check if events should be recorded
+     */
+    public boolean isActive() {
+        return captures > 0 || config.isProfilerEnabled();
+    }
+
+    /**
+     * Record while a /hoplimit profile capture runs, until stopCapture
+     * Each capture only counts the whole seconds after it started, so events
+     * recorded before it, or for another capture, are left out.
+     */
+    public Capture startCapture() {
+        captures++;
+        return new Capture(tick / TICKS_PER_SECOND + 1);
+    }
+
+    /**
+     * End a capture and get the chunks with the most transfers and pickups over its complete seconds
+     *
+     * @return the ranked chunks, empty if no whole second passed since the capture started
+     */
+    public List<ChunkRate> stopCapture(Capture capture, int limit) {
+        if (capture.stopped) {
+            return new ArrayList<>();
+        }
+        capture.stopped = true;
+        captures = Math.max(0, captures - 1);
+        long last = tick / TICKS_PER_SECOND - 1;
+        long first = Math.max(capture.firstSecond, last - windowSeconds + 1);
+        if (first > last) {
+            return new ArrayList<>();
+        }
+        return window.rank(first, last, limit);
+    }
+
+    /**
+     * Count one transfer or pickup in a chunk
+     *
+     * @param kind TRANSFER or PICKUP
+     */
+    public void record(String world, int chunkX, int chunkZ, int kind) {
+        window.record(world, chunkX, chunkZ, kind, tick / TICKS_PER_SECOND);
+    }
+
+    /**
+     * Get the chunks with the most transfers and pickups over the last complete seconds
+     */
+    public List<ChunkRate> getTopChunks(int seconds, int limit) {
+        int span = Math.max(1, Math.min(seconds, windowSeconds));
+        long last = tick / TICKS_PER_SECOND - 1;
+        return window.rank(last - span + 1, last, limit);
+    }
+
+    // Getters
+    public int getWindowSeconds() { return windowSeconds; }
+
+    /**
+     * A running /hoplimit profile capture, from startCapture
+     */
+    public static final class Capture {
+        // The first whole second after the capture started
+        private final long firstSecond;
+        private boolean stopped;
+
+        Capture(long firstSecond) {
+            this.firstSecond = firstSecond;
+        }
+    }
+
+    /**
+     * Transfers and pickups of one chunk over a span of seconds
+     */
+    public static final class ChunkRate {
+        private final String world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final int seconds;
+        private final long transfers;
+        private final long pickups;
+
+        ChunkRate(String world, int chunkX, int chunkZ, int seconds, long transfers, long pickups) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.seconds = seconds;
+            this.transfers = transfers;
+            this.pickups = pickups;
+        }
+
+        public double getTransfersPerSecond() {
+            return (double) transfers / seconds;
+        }
+
+        public double getPickupsPerSecond() {
+            return (double) pickups / seconds;
+        }
+
+        // Getters
+        public String getWorld() { return world; }
+        public int getChunkX() { return chunkX; }
+        public int getChunkZ() { return chunkZ; }
+        public long getTransfers() { return transfers; }
+        public long getPickups() { return pickups; }
+        public long getEvents() { return transfers + pickups; }
+    }
+}
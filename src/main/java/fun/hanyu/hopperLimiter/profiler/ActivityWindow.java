@@ -0,0 +1,143 @@
+package fun.hanyu.hopperLimiter.profiler;
+
+import fun.hanyu.hopperLimiter.storage.ChunkCounterCache;
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Per-chunk event counters for the last seconds, one ring of counter pairs per chunk
+ * The ring also holds the second in progress, which rates leave out.
+ */
+final class ActivityWindow {
+    private static final int KINDS = 2;
+
+    private final int windowSeconds;
+    private final int ringSeconds;
+    private final Map<String, LongObjectHashMap<ChunkActivity>> worlds = new HashMap<>();
+
+    ActivityWindow(int windowSeconds) {
+        this.windowSeconds = windowSeconds;
+        this.ringSeconds = windowSeconds + 1;
+    }
+
+    /**
+     * Count one event of a kind in a chunk during a second
+     */
+    void record(String world, int chunkX, int chunkZ, int kind, long second) {
+        LongObjectHashMap<ChunkActivity> chunks = worlds.get(world);
+        if (chunks == null) {
+            chunks = new LongObjectHashMap<>();
+            worlds.put(world, chunks);
+        }
+        long key = ChunkCounterCache.chunkKey(chunkX, chunkZ);
+        ChunkActivity activity = chunks.get(key);
+        if (activity == null) {
+            activity = new ChunkActivity(new int[ringSeconds * KINDS], second);
+            chunks.put(key, activity);
+        } else if (activity.second != second) {
+            // Clear the slots of the seconds that passed without events
+            long stale = Math.min(second - activity.second, ringSeconds);
+            for (long s = second - stale + 1; s <= second; s++) {
+                int slot = (int) (s % ringSeconds) * KINDS;
+                activity.counts[slot] = 0;
+                activity.counts[slot + 1] = 0;
+            }
+            activity.second = second;
+        }
+        activity.counts[(int) (second % ringSeconds) * KINDS + kind]++;
+    }
+
+    /**
+     * Rank chunks by their events from one second to another, both included
+     */
+    List<ActivityProfiler.ChunkRate> rank(long first, long last, int limit) {
+        int span = (int) (last - first + 1);
+        Comparator<ActivityProfiler.ChunkRate> order = Comparator.comparingLong(ActivityProfiler.ChunkRate::getEvents);
+        PriorityQueue<ActivityProfiler.ChunkRate> top = new PriorityQueue<>(order);
+        for (Map.Entry<String, LongObjectHashMap<ChunkActivity>> entry : worlds.entrySet()) {
+            String world = entry.getKey();
+            entry.getValue().forEach((key, activity) -> {
+                long transfers = 0;
+                long pickups = 0;
+                // Slots past activity.second still hold seconds from a previous lap
+                for (long s = Math.max(first, activity.second - windowSeconds);
+                     s <= Math.min(last, activity.second); s++) {
+                    int slot = (int) (s % ringSeconds) * KINDS;
+                    transfers += activity.counts[slot + ActivityProfiler.TRANSFER];
+                    pickups += activity.counts[slot + ActivityProfiler.PICKUP];
+                }
+                if (transfers + pickups == 0) {
+                    return;
+                }
+                top.add(new ActivityProfiler.ChunkRate(world, ChunkCounterCache.chunkX(key),
+                        ChunkCounterCache.chunkZ(key), span, transfers, pickups));
+                if (top.size() > limit) {
+                    top.poll();
+                }
+            });
+        }
+        List<ActivityProfiler.ChunkRate> ranked = new ArrayList<>(top);
+        ranked.sort(Collections.reverseOrder(order));
+        return ranked;
+    }
+
+    /**
+     * Drop chunks without events since a second
+     */
+    void sweep(long oldestSecond) {
+        for (LongObjectHashMap<ChunkActivity> chunks : worlds.values()) {
+            long[] idle = new long[chunks.size()];
+            int[] count = {0};
+            chunks.forEach((key, activity) -> {
+                if (activity.second < oldestSecond) {
+                    idle[count[0]++] = key;
+                }
+            });
+            for (long key : Arrays.copyOf(idle, count[0])) {
+                chunks.remove(key);
+            }
+        }
+        worlds.values().removeIf(LongObjectHashMap::isEmpty);
+    }
+
+    void clear() {
+        worlds.clear();
+    }
+
+    boolean isEmpty() {
+        return worlds.isEmpty();
+    }
+
+    /**
+     * Get the number of chunks with counters
+     */
+    int size() {
+        int count = 0;
+        for (LongObjectHashMap<ChunkActivity> chunks : worlds.values()) {
+            count += chunks.size();
+        }
+        return count;
+    }
+
+    /**
+     * Counters of one chunk, indexed [(second % ringSeconds) * KINDS + kind]
+     */
+    private static final class ChunkActivity {
+        private final int[] counts;
+        // The latest second counted
+        private long second;
+
+        ChunkActivity(int[] counts, long second) {
+            this.counts = counts;
+            this.second = second;
+        }
+    }
+}
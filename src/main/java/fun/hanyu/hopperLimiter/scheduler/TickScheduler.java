@@ -0,0 +1,260 @@
+package fun.hanyu.hopperLimiter.scheduler;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the plugin's background work within a per-tick time budget
+ * Main-thread work is split into slices that are called once per tick, highest
+ * priority first and round-robin within a priority, until the tick's budget
+ * (measured with System.nanoTime) is spent. When ticks arrive late the budget
+ * is halved, down to an eighth, and low priority slices are held back until it
+ * has recovered. Off-thread work, including the plugin's periodic database
+ * tasks, runs on one shared bounded pool of workers; tasks that find its queue
+ * full wait for a later tick instead of running on the submitting thread.
+ *
+ * schedule, unschedule and scheduleRepeating must be called from the main server thread.
+ */
+public class TickScheduler extends BukkitRunnable {
+    private static final double MIN_SCALE = 0.125;
+    private static final double RECOVERY_PER_TICK = 0.05;
+
+    public enum Priority {
+        /** Work limit checks are waiting on */
+        HIGH,
+        /** Maintenance that should finish soon, such as migrations */
+        NORMAL,
+        /** Admin jobs that can wait out lag, such as audits */
+        LOW
+    }
+
+    /**
+     * A piece of main-thread work done a little at a time
+     */
+    @FunctionalInterface
+    public interface Slice {
+        /**
+         * Do work until System.nanoTime() reaches the deadline
+         *
+         * @return true if work is left for later ticks, false to be unscheduled
+         */
+        boolean run(long deadlineNanos);
+    }
+
+    private final Plugin plugin;
+    private final long budgetNanos;
+    private final long lagThresholdNanos;
+    private final Map<Priority, Deque<Slice>> slices = new EnumMap<>(Priority.class);
+    private final ThreadPoolExecutor executor;
+    // Tasks the full worker queue turned away, handed to it again on later ticks
+    private final Queue<Runnable> deferred = new ConcurrentLinkedQueue<>();
+    private final List<Repeating> repeating = new ArrayList<>();
+    private long tick;
+    private double scale = 1.0;
+    private long lastTick;
+    private long lastUsedNanos;
+
+    public TickScheduler(Plugin plugin, double tickBudgetMillis, long lagThresholdMillis,
+                         int workerThreads, int queueCapacity) {
+        this.plugin = plugin;
+        this.budgetNanos = (long) (tickBudgetMillis * 1_000_000L);
+        this.lagThresholdNanos = lagThresholdMillis * 1_000_000L;
+        for (Priority priority : Priority.values()) {
+            slices.put(priority, new ArrayDeque<>());
+        }
+
+        int threads = Math.max(1, workerThreads);
+        AtomicInteger threadCount = new AtomicInteger();
+        // A full queue defers the task; running it on the submitting thread would block the main thread
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueCapacity)), runnable -> {
+                    Thread thread = new Thread(runnable, "HopperLimiter-Worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, (runnable, pool) -> defer(runnable));
+    }
+
+    /**
+     * Start running slices, once every tick
+     */
+    public void start() {
+        lastTick = System.nanoTime();
+        runTaskTimer(plugin, 1L, 1L);
+    }
+
+    /**
+     * Run a slice every tick until it reports it is done or is unscheduled
+     */
+    public void schedule(Slice slice, Priority priority) {
+        slices.get(priority).add(slice);
+    }
+
+    public void unschedule(Slice slice) {
+        for (Deque<Slice> queue : slices.values()) {
+            queue.remove(slice);
+        }
+    }
+
+    /**
+     * Run a task on the shared worker pool
+     * When the pool's queue is full the task is queued again on a later tick.
+     */
+    public void execute(Runnable task) {
+        executor.execute(task);
+    }
+
+    /**
+     * Run a task on the worker pool every periodTicks, starting after delayTicks
+     * A run is skipped while the previous one is still going.
+     */
+    public Repeating scheduleRepeating(Runnable task, long delayTicks, long periodTicks) {
+        Repeating entry = new Repeating(task, Math.max(1, periodTicks), tick + Math.max(1, delayTicks));
+        repeating.add(entry);
+        return entry;
+    }
+
+    private void defer(Runnable task) {
+        if (executor.isShutdown()) {
+            plugin.getLogger().warning("Worker pool shut down, background task dropped");
+            return;
+        }
+        if (deferred.isEmpty()) {
+            plugin.getLogger().warning("Worker queue full, deferring background tasks to later ticks");
+        }
+        deferred.add(task);
+    }
+
+    @Override
+    public void run() {
+        tick++;
+        // Hand deferred tasks back while there is room; ones turned away again wait another tick
+        for (int i = deferred.size(); i > 0 && executor.getQueue().remainingCapacity() > 0; i--) {
+            Runnable task = deferred.poll();
+            if (task == null) {
+                break;
+            }
+            executor.execute(task);
+        }
+        repeating.removeIf(entry -> entry.cancelled);
+        for (Repeating entry : repeating) {
+            if (tick >= entry.nextTick && entry.running.compareAndSet(false, true)) {
+                entry.nextTick = tick + entry.periodTicks;
+                executor.execute(entry::runOnce);
+            }
+        }
+
+        long start = System.nanoTime();
+        if (start - lastTick > lagThresholdNanos) {
+            scale = Math.max(MIN_SCALE, scale / 2);
+        } else {
+            scale = Math.min(1.0, scale + RECOVERY_PER_TICK);
+        }
+        lastTick = start;
+
+        long deadline = start + (long) (budgetNanos * scale);
+        for (Priority priority : Priority.values()) {
+            if (priority == Priority.LOW && scale < 1.0) {
+                break;
+            }
+            Deque<Slice> queue = slices.get(priority);
+            // Each slice runs at most once per tick; the ones left out go first next tick
+            for (int i = queue.size(); i > 0 && System.nanoTime() < deadline; i--) {
+                Slice slice = queue.poll();
+                if (slice.run(deadline)) {
+                    queue.add(slice);
+                }
+            }
+        }
+        lastUsedNanos = System.nanoTime() - start;
+    }
+
+    /**
+     * Stop running slices and wait briefly for queued worker tasks
+     */
+    public void shutdown() {
+        cancel();
+        for (Deque<Slice> queue : slices.values()) {
+            queue.clear();
+        }
+        for (Repeating entry : repeating) {
+            entry.cancel();
+        }
+        repeating.clear();
+        deferred.clear();
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Number of scheduled slices
+     */
+    public int getSliceCount() {
+        int count = 0;
+        for (Deque<Slice> queue : slices.values()) {
+            count += queue.size();
+        }
+        return count;
+    }
+
+    // Getters
+    public long getBudgetNanos() { return budgetNanos; }
+    public double getScale() { return scale; }
+    public long getLastUsedNanos() { return lastUsedNanos; }
+    public int getQueuedTasks() { return executor.getQueue().size() + deferred.size(); }
+    public int getActiveWorkers() { return executor.getActiveCount(); }
+
+    /**
+     * Handle of a task started with scheduleRepeating
+     */
+    public static final class Repeating {
+        private final Runnable task;
+        private final long periodTicks;
+        private final AtomicBoolean running = new AtomicBoolean();
+        private long nextTick;
+        private volatile boolean cancelled;
+
+        Repeating(Runnable task, long periodTicks, long nextTick) {
+            this.task = task;
+            this.periodTicks = periodTicks;
+            this.nextTick = nextTick;
+        }
+
+        private void runOnce() {
+            try {
+                if (!cancelled) {
+                    task.run();
+                }
+            } finally {
+                running.set(false);
+            }
+        }
+
+        /**
+         * Stop further runs; safe to call from the task itself
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+import org.bukkit.ChunkSnapshot;
+
+/**
+ * The containers found in one chunk snapshot, compared with what was tracked when it was taken
+ * Created on the main thread with the tracked counts and known positions, scanned on a
+ * worker thread and applied by StorageManager.applyAudit back on the main thread.
+ *
+ * Containers counted without a position (recorded by older versions) are matched against
+ * untracked containers of the same type first, so their history is kept as it is.
+ */
+public class ChunkAudit {
+    private final String world;
+    private final int chunkX;
+    private final int chunkZ;
+    private final int[] tracked;
+    private LongObjectHashMap<Integer> known;
+    private final int[] found = new int[ContainerTypes.count()];
+    private final int[] retired = new int[ContainerTypes.count()];
+    private final LongObjectHashMap<Integer> missing = new LongObjectHashMap<>();
+    private final LongObjectHashMap<Integer> untracked = new LongObjectHashMap<>();
+    private boolean failed;
+
+    /**
+     * @param tracked counts indexed by type when the snapshot was taken
+     * @param known   positions known when the snapshot was taken, or null to read them from the backend
+     */
+    ChunkAudit(String world, int chunkX, int chunkZ, int[] tracked, LongObjectHashMap<Integer> known) {
+        this.world = world;
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.tracked = tracked;
+        this.known = known;
+    }
+
+    /**
+     * Find every container in the snapshot and diff them against the tracked ones
+     * Called off the main thread; sections without blocks are skipped.
+     */
+    public void scan(ChunkSnapshot snapshot, int minY, int maxY, StorageBackend backend) throws Exception {
+        if (known == null) {
+            known = backend.getContainerPositions(world, chunkX, chunkZ);
+        }
+
+        LongObjectHashMap<Integer> present = new LongObjectHashMap<>();
+        int sections = (maxY - minY) >> 4;
+        for (int section = 0; section < sections; section++) {
+            if (snapshot.isSectionEmpty(section)) {
+                continue;
+            }
+            int baseY = minY + (section << 4);
+            for (int y = baseY; y < baseY + 16; y++) {
+                for (int x = 0; x < 16; x++) {
+                    for (int z = 0; z < 16; z++) {
+                        int type = ContainerTypes.typeIndex(snapshot.getBlockType(x, y, z));
+                        if (type >= 0) {
+                            present.put(ContainerPositionIndex.blockKey(x, y, z), type);
+                            found[type]++;
+                        }
+                    }
+                }
+            }
+        }
+
+        int[] positioned = new int[ContainerTypes.count()];
+        known.forEach((key, type) -> {
+            positioned[type]++;
+            if (!type.equals(present.get(key))) {
+                missing.put(key, type);
+            }
+        });
+
+        int[] unpositioned = new int[ContainerTypes.count()];
+        for (int type = 0; type < ContainerTypes.count(); type++) {
+            unpositioned[type] = Math.max(0, tracked[type] - positioned[type]);
+        }
+        present.forEach((key, type) -> {
+            if (type.equals(known.get(key))) {
+                return;
+            }
+            if (unpositioned[type] > 0) {
+                // Presumably one of the containers counted without a position
+                unpositioned[type]--;
+            } else {
+                untracked.put(key, type);
+            }
+        });
+        System.arraycopy(unpositioned, 0, retired, 0, retired.length);
+    }
+
+    /**
+     * Mark the chunk as not audited after scanning it failed
+     */
+    public void fail() {
+        failed = true;
+    }
+
+    /**
+     * Whether the tracked containers differ from the ones found
+     */
+    public boolean hasCorrections() {
+        return !missing.isEmpty() || !untracked.isEmpty() || getRetiredTotal() > 0;
+    }
+
+    /**
+     * Number of containers counted without a position that no longer exist
+     */
+    public int getRetiredTotal() {
+        int total = 0;
+        for (int count : retired) {
+            total += count;
+        }
+        return total;
+    }
+
+    // Getters
+    public String getWorld() { return world; }
+    public int getChunkX() { return chunkX; }
+    public int getChunkZ() { return chunkZ; }
+    public int[] getTracked() { return tracked; }
+    public int[] getFound() { return found; }
+    public int[] getRetired() { return retired; }
+    public LongObjectHashMap<Integer> getMissing() { return missing; }
+    public LongObjectHashMap<Integer> getUntracked() { return untracked; }
+    public boolean isFailed() { return failed; }
+}
@@ -0,0 +1,81 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Coalesced chunk_counts changes for events whose history rows were dropped
+ * under backpressure, so the persisted counts stay exact without the rows
+ * Memory is bounded by the number of distinct chunks, not the number of events
+ */
+public class ChunkCountDeltas {
+    private Map<Key, int[]> deltas = new HashMap<>();
+
+    /**
+     * Accumulate the count change of a dropped event
+     */
+    public synchronized void add(StorageEvent event) {
+        Key key = Key.of(event);
+        int delta = event.getKind() == StorageEvent.Kind.PLACEMENT ? 1 : -1;
+        deltas.computeIfAbsent(key, k -> new int[1])[0] += delta;
+    }
+
+    /**
+     * Take all accumulated deltas, leaving this instance empty
+     */
+    public synchronized Map<Key, int[]> drain() {
+        Map<Key, int[]> drained = deltas;
+        deltas = new HashMap<>();
+        return drained;
+    }
+
+    /**
+     * Put deltas back after the transaction that applied them rolled back
+     */
+    public synchronized void restore(Map<Key, int[]> drained) {
+        for (Map.Entry<Key, int[]> entry : drained.entrySet()) {
+            deltas.computeIfAbsent(entry.getKey(), k -> new int[1])[0] += entry.getValue()[0];
+        }
+    }
+
+    public static final class Key {
+        private final int worldId;
+        private final int chunkX;
+        private final int chunkZ;
+        private final int blockTypeId;
+
+        private Key(int worldId, int chunkX, int chunkZ, int blockTypeId) {
+            this.worldId = worldId;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.blockTypeId = blockTypeId;
+        }
+
+        /**
+         * Key of the chunk and block type an event affects
+         */
+        public static Key of(StorageEvent event) {
+            return new Key(event.getWorldId(), event.getChunkX(), event.getChunkZ(), event.getBlockTypeId());
+        }
+
+        public int getWorldId() { return worldId; }
+        public int getChunkX() { return chunkX; }
+        public int getChunkZ() { return chunkZ; }
+        public int getBlockTypeId() { return blockTypeId; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return worldId == other.worldId && chunkX == other.chunkX
+                    && chunkZ == other.chunkZ && blockTypeId == other.blockTypeId;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((worldId * 31 + chunkX) * 31 + chunkZ) * 31 + blockTypeId;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.scheduler.TickScheduler;
+import org.bukkit.World;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * One-time copy of the database chunk counts into the chunks themselves
+ * Loads chunks on the main thread within the tick budget; chunks that load on their own
+ * are migrated by ChunkCountStore.load first and skipped here. Worlds are added as
+ * they load, including while the task runs; a world unloaded before all of its
+ * chunks were copied stays unmigrated and is picked up again on the next start.
+ */
+public class ChunkCountMigrationTask implements TickScheduler.Slice {
+    private final HopperLimiter plugin;
+    private final ChunkCountStore store;
+    private final Deque<PendingChunk> queue = new ArrayDeque<>();
+    private final Set<String> worlds = new HashSet<>();
+    // Worlds with chunks skipped because the world was not loaded
+    private final Set<String> incomplete = new HashSet<>();
+    private int migrated;
+    private boolean finished;
+
+    public ChunkCountMigrationTask(HopperLimiter plugin, ChunkCountStore store) {
+        this.plugin = plugin;
+        this.store = store;
+    }
+
+    /**
+     * Queue the pending chunks of a world
+     */
+    public void add(String world) {
+        int before = queue.size();
+        store.getPending().forEach((name, chunkX, chunkZ, counts) -> {
+            if (name.equals(world)) {
+                queue.add(new PendingChunk(name, chunkX, chunkZ));
+            }
+        });
+        worlds.add(world);
+        plugin.getLogger().info("Copying counts of " + (queue.size() - before) + " chunks in " + world + " into chunk data");
+    }
+
+    /**
+     * Start migrating on the main thread, a slice of every tick's budget at a time
+     */
+    public void start() {
+        plugin.getTickScheduler().schedule(this, TickScheduler.Priority.NORMAL);
+    }
+
+    public int getRemaining() {
+        return queue.size();
+    }
+
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public boolean run(long deadlineNanos) {
+        ChunkCounterCache pending = store.getPending();
+        while (pending != null && !queue.isEmpty() && System.nanoTime() < deadlineNanos) {
+            PendingChunk chunk = queue.poll();
+            if (pending.getCounts(chunk.world, chunk.chunkX, chunk.chunkZ) == null) {
+                // Already migrated when it loaded
+                continue;
+            }
+            World world = plugin.getServer().getWorld(chunk.world);
+            if (world != null) {
+                store.load(world.getChunkAt(chunk.chunkX, chunk.chunkZ));
+                migrated++;
+            } else {
+                incomplete.add(chunk.world);
+            }
+        }
+        if (pending != null && !queue.isEmpty()) {
+            return true;
+        }
+
+        for (String name : worlds) {
+            World world = plugin.getServer().getWorld(name);
+            if (world != null && !incomplete.contains(name)) {
+                store.markMigrated(world);
+            }
+        }
+        if (incomplete.isEmpty()) {
+            store.setPending(null);
+        }
+        finished = true;
+        plugin.getLogger().info("Chunk count migration finished, " + migrated + " chunks loaded to migrate");
+        return false;
+    }
+
+    private static final class PendingChunk {
+        private final String world;
+        private final int chunkX;
+        private final int chunkZ;
+
+        private PendingChunk(String world, int chunkX, int chunkZ) {
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Per-chunk container counts kept in each chunk's PersistentDataContainer (storage.chunk-counts: chunk)
+ * Counts are read when a chunk loads and written through on every change, so they are
+ * saved with the chunk and limit checks never depend on the database.
+ *
+ * Chunks store [generation, hopper, chest, barrel], and [generation, count] under a key of
+ * their own for every other configured material. Each world stores [generation, migrated];
+ * /hoplimit reset bumps the generation so counts left in unloaded chunks read as zero.
+ * Until a world is migrated, chunks without stored counts take theirs from the
+ * counts copied out of the database at startup.
+ *
+ * Must only be used from the main server thread.
+ */
+public class ChunkCountStore {
+    private static final int GENERATION = 0;
+    private static final int MIGRATED = 1;
+    /** Types kept in the chunk's main array, as written by older versions */
+    private static final int BASE_TYPES = 3;
+
+    private final NamespacedKey chunkKey;
+    private final NamespacedKey worldKey;
+    private final NamespacedKey[] typeKeys;
+    private final Map<String, int[]> states = new HashMap<>();
+    private ChunkCounterCache pending;
+
+    public ChunkCountStore(Plugin plugin) {
+        this.chunkKey = new NamespacedKey(plugin, "container_counts");
+        this.worldKey = new NamespacedKey(plugin, "container_counts_state");
+        this.typeKeys = new NamespacedKey[ContainerTypes.count()];
+        for (int type = BASE_TYPES; type < typeKeys.length; type++) {
+            typeKeys[type] = new NamespacedKey(plugin, "container_count_" + ContainerTypes.configKey(ContainerTypes.material(type)));
+        }
+    }
+
+    /**
+     * Whether the database counts of a world were already copied into its chunks
+     */
+    public boolean isMigrated(World world) {
+        return getState(world)[MIGRATED] != 0;
+    }
+
+    /**
+     * Set the database counts still to be copied into chunks of unmigrated worlds
+     */
+    public void setPending(ChunkCounterCache pending) {
+        this.pending = pending;
+    }
+
+    public ChunkCounterCache getPending() {
+        return pending;
+    }
+
+    /**
+     * Record that every chunk of a world now stores its own counts
+     */
+    public void markMigrated(World world) {
+        int[] state = getState(world);
+        state[MIGRATED] = 1;
+        world.getPersistentDataContainer().set(worldKey, PersistentDataType.INTEGER_ARRAY, state);
+    }
+
+    /**
+     * Read the counts of a loaded chunk, migrating them from the database counts if needed
+     *
+     * @return counts indexed by type, or null if the chunk has none
+     */
+    public int[] load(Chunk chunk) {
+        World world = chunk.getWorld();
+        PersistentDataContainer data = chunk.getPersistentDataContainer();
+        int[] stored = data.get(chunkKey, PersistentDataType.INTEGER_ARRAY);
+        if (stored != null && stored.length == BASE_TYPES + 1) {
+            int generation = getState(world)[GENERATION];
+            if (stored[0] != generation) {
+                return null;
+            }
+            int[] counts = Arrays.copyOf(Arrays.copyOfRange(stored, 1, stored.length), typeKeys.length);
+            for (int type = BASE_TYPES; type < typeKeys.length; type++) {
+                int[] extra = data.get(typeKeys[type], PersistentDataType.INTEGER_ARRAY);
+                if (extra != null && extra.length == 2 && extra[0] == generation) {
+                    counts[type] = extra[1];
+                }
+            }
+            return counts;
+        }
+
+        int[] migrated = pending != null ? pending.remove(world.getName(), chunk.getX(), chunk.getZ()) : null;
+        if (migrated != null) {
+            save(chunk, migrated);
+        }
+        return migrated;
+    }
+
+    /**
+     * Write the counts of a loaded chunk, null meaning none
+     */
+    public void save(Chunk chunk, int[] counts) {
+        PersistentDataContainer data = chunk.getPersistentDataContainer();
+        int generation = getState(chunk.getWorld())[GENERATION];
+        int[] stored = new int[BASE_TYPES + 1];
+        stored[0] = generation;
+        if (counts != null) {
+            System.arraycopy(counts, 0, stored, 1, BASE_TYPES);
+        }
+        data.set(chunkKey, PersistentDataType.INTEGER_ARRAY, stored);
+        for (int type = BASE_TYPES; type < typeKeys.length; type++) {
+            if (counts != null && counts[type] > 0) {
+                data.set(typeKeys[type], PersistentDataType.INTEGER_ARRAY, new int[]{generation, counts[type]});
+            } else if (data.has(typeKeys[type], PersistentDataType.INTEGER_ARRAY)) {
+                data.remove(typeKeys[type]);
+            }
+        }
+    }
+
+    /**
+     * Invalidate the counts stored in every chunk of a world, leaving nothing to migrate
+     */
+    public void reset(World world) {
+        int[] state = getState(world);
+        state[GENERATION]++;
+        state[MIGRATED] = 1;
+        world.getPersistentDataContainer().set(worldKey, PersistentDataType.INTEGER_ARRAY, state);
+        pending = null;
+    }
+
+    /**
+     * Get the [generation, migrated] state of a world, cached after the first read
+     */
+    private int[] getState(World world) {
+        return states.computeIfAbsent(world.getName(), name -> {
+            int[] state = world.getPersistentDataContainer().get(worldKey, PersistentDataType.INTEGER_ARRAY);
+            return state != null && state.length == 2 ? state : new int[2];
+        });
+    }
+}
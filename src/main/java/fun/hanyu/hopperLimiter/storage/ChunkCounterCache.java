@@ -0,0 +1,288 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory per-chunk, per-type block counters
+ * Built once from the placement history and kept in sync by StorageManager,
+ * so limit checks can be answered without touching the database. Every change
+ * is mirrored into a per-world ChunkWindowTree for neighborhood totals and into
+ * each chunk's running weighted cost, so neither is ever summed on a check.
+ */
+public class ChunkCounterCache {
+    public static final int HOPPER = ContainerTypes.HOPPER;
+    public static final int CHEST = ContainerTypes.CHEST;
+    public static final int BARREL = ContainerTypes.BARREL;
+
+    private final Map<String, LongObjectHashMap<int[]>> worlds = new HashMap<>();
+    private final Map<String, ChunkWindowTree> windows = new HashMap<>();
+    // Weighted cost of each chunk with a non-zero cost, in a one-element array
+    private final Map<String, LongObjectHashMap<int[]>> costs = new HashMap<>();
+    private int[] weights = new int[0];
+
+    /**
+     * Pack chunk coordinates into a single long key
+     */
+    public static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+
+    public static int chunkX(long chunkKey) {
+        return (int) (chunkKey >> 32);
+    }
+
+    public static int chunkZ(long chunkKey) {
+        return (int) chunkKey;
+    }
+
+    /**
+     * Get the counter index for a block type name, or -1 if it is not tracked
+     */
+    public static int typeIndex(String blockType) {
+        return ContainerTypes.typeIndex(blockType);
+    }
+
+    /**
+     * Get the block type name of a counter index
+     */
+    public static String typeName(int type) {
+        return ContainerTypes.typeName(type);
+    }
+
+    /**
+     * Get the count of one block type in a chunk
+     */
+    public int getCount(String world, int chunkX, int chunkZ, String blockType) {
+        return getCount(world, chunkX, chunkZ, typeIndex(blockType));
+    }
+
+    /**
+     * Get the count of a block type index in a chunk
+     */
+    public int getCount(String world, int chunkX, int chunkZ, int type) {
+        int[] counts = getCounts(world, chunkX, chunkZ);
+        return type < 0 || counts == null ? 0 : counts[type];
+    }
+
+    /**
+     * Get the combined count of all tracked block types in a chunk
+     */
+    public int getTotal(String world, int chunkX, int chunkZ) {
+        return total(getCounts(world, chunkX, chunkZ));
+    }
+
+    /**
+     * Get the combined count of all tracked block types in the chunks within
+     * radius of a chunk, a (2 * radius + 1) square window
+     */
+    public int getWindowTotal(String world, int chunkX, int chunkZ, int radius) {
+        ChunkWindowTree window = windows.get(world);
+        return window == null ? 0 : window.sum(chunkX - radius, chunkZ - radius, chunkX + radius, chunkZ + radius);
+    }
+
+    /**
+     * Get the weighted cost of a chunk's blocks
+     */
+    public int getCost(String world, int chunkX, int chunkZ) {
+        LongObjectHashMap<int[]> chunks = costs.get(world);
+        int[] cost = chunks == null ? null : chunks.get(chunkKey(chunkX, chunkZ));
+        return cost == null ? 0 : cost[0];
+    }
+
+    /**
+     * Set the cost weight of each type index and recompute every chunk's cost
+     * Without weights no costs are kept.
+     */
+    public void setWeights(int[] weights) {
+        this.weights = weights.clone();
+        costs.clear();
+        forEach((world, chunkX, chunkZ, counts) -> adjustCost(world, chunkX, chunkZ, cost(counts)));
+    }
+
+    /**
+     * Increment the counter for a placed block
+     */
+    public void increment(String world, int chunkX, int chunkZ, String blockType) {
+        int type = typeIndex(blockType);
+        if (type < 0) {
+            return;
+        }
+        LongObjectHashMap<int[]> chunks = worlds.computeIfAbsent(world, w -> new LongObjectHashMap<>());
+        long key = chunkKey(chunkX, chunkZ);
+        int[] counts = chunks.get(key);
+        if (counts == null) {
+            counts = new int[ContainerTypes.count()];
+            chunks.put(key, counts);
+        }
+        counts[type]++;
+        changed(world, chunkX, chunkZ, type, 1);
+    }
+
+    /**
+     * Decrement the counter for a removed block, never going below zero
+     */
+    public void decrement(String world, int chunkX, int chunkZ, String blockType) {
+        int type = typeIndex(blockType);
+        LongObjectHashMap<int[]> chunks = worlds.get(world);
+        if (type < 0 || chunks == null) {
+            return;
+        }
+        long key = chunkKey(chunkX, chunkZ);
+        int[] counts = chunks.get(key);
+        if (counts == null || counts[type] == 0) {
+            return;
+        }
+        counts[type]--;
+        if (isEmpty(counts)) {
+            chunks.remove(key);
+        }
+        changed(world, chunkX, chunkZ, type, -1);
+    }
+
+    /**
+     * Add to a counter directly (used when loading from the database)
+     */
+    public void add(String world, int chunkX, int chunkZ, String blockType, int count) {
+        int type = typeIndex(blockType);
+        if (type < 0) {
+            return;
+        }
+        LongObjectHashMap<int[]> chunks = worlds.computeIfAbsent(world, w -> new LongObjectHashMap<>());
+        long key = chunkKey(chunkX, chunkZ);
+        int[] counts = chunks.get(key);
+        if (counts == null) {
+            counts = new int[ContainerTypes.count()];
+            chunks.put(key, counts);
+        }
+        int before = counts[type];
+        counts[type] = Math.max(0, counts[type] + count);
+        changed(world, chunkX, chunkZ, type, counts[type] - before);
+    }
+
+    /**
+     * Replace the counters of a chunk, or drop them when counts is null or all zero
+     */
+    public void set(String world, int chunkX, int chunkZ, int[] counts) {
+        if (counts == null || isEmpty(counts)) {
+            remove(world, chunkX, chunkZ);
+            return;
+        }
+        int[] copy = Arrays.copyOf(counts, ContainerTypes.count());
+        int[] previous = worlds.computeIfAbsent(world, w -> new LongObjectHashMap<>())
+                .put(chunkKey(chunkX, chunkZ), copy);
+        adjustWindow(world, chunkX, chunkZ, total(copy) - total(previous));
+        adjustCost(world, chunkX, chunkZ, cost(copy) - cost(previous));
+    }
+
+    /**
+     * Drop the counters of a chunk, returning them if there were any
+     */
+    public int[] remove(String world, int chunkX, int chunkZ) {
+        LongObjectHashMap<int[]> chunks = worlds.get(world);
+        int[] removed = chunks == null ? null : chunks.remove(chunkKey(chunkX, chunkZ));
+        adjustWindow(world, chunkX, chunkZ, -total(removed));
+        adjustCost(world, chunkX, chunkZ, -cost(removed));
+        return removed;
+    }
+
+    /**
+     * Visit the counters of every chunk
+     */
+    public void forEach(ChunkConsumer consumer) {
+        for (Map.Entry<String, LongObjectHashMap<int[]>> entry : worlds.entrySet()) {
+            String world = entry.getKey();
+            entry.getValue().forEach((key, counts) -> consumer.accept(world, chunkX(key), chunkZ(key), counts));
+        }
+    }
+
+    /**
+     * Remove all counters
+     */
+    public void clear() {
+        worlds.clear();
+        windows.clear();
+        costs.clear();
+    }
+
+    /**
+     * Get the counters of a chunk indexed by type, or null if it has none (do not modify)
+     */
+    public int[] getCounts(String world, int chunkX, int chunkZ) {
+        LongObjectHashMap<int[]> chunks = worlds.get(world);
+        return chunks == null ? null : chunks.get(chunkKey(chunkX, chunkZ));
+    }
+
+    private void changed(String world, int chunkX, int chunkZ, int type, int delta) {
+        adjustWindow(world, chunkX, chunkZ, delta);
+        if (type < weights.length) {
+            adjustCost(world, chunkX, chunkZ, delta * weights[type]);
+        }
+    }
+
+    private void adjustCost(String world, int chunkX, int chunkZ, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        LongObjectHashMap<int[]> chunks = costs.computeIfAbsent(world, w -> new LongObjectHashMap<>());
+        long key = chunkKey(chunkX, chunkZ);
+        int[] cost = chunks.get(key);
+        if (cost == null) {
+            cost = new int[1];
+            chunks.put(key, cost);
+        }
+        cost[0] += delta;
+        if (cost[0] == 0) {
+            chunks.remove(key);
+        }
+    }
+
+    private int cost(int[] counts) {
+        int cost = 0;
+        if (counts != null) {
+            for (int type = 0; type < counts.length && type < weights.length; type++) {
+                cost += counts[type] * weights[type];
+            }
+        }
+        return cost;
+    }
+
+    private void adjustWindow(String world, int chunkX, int chunkZ, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        ChunkWindowTree window = windows.computeIfAbsent(world, w -> new ChunkWindowTree());
+        window.add(chunkX, chunkZ, delta);
+        if (window.isEmpty()) {
+            windows.remove(world);
+        }
+    }
+
+    private static int total(int[] counts) {
+        int total = 0;
+        if (counts != null) {
+            for (int count : counts) {
+                total += count;
+            }
+        }
+        return total;
+    }
+
+    private static boolean isEmpty(int[] counts) {
+        for (int count : counts) {
+            if (count != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(String world, int chunkX, int chunkZ, int[] counts);
+    }
+}
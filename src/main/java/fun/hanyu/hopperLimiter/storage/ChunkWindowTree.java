@@ -0,0 +1,82 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+
+/**
+ * Container totals of one world's chunks for rectangle sums
+ * The unbounded chunk plane is split into 64x64 chunk tiles, each holding a 2D
+ * Fenwick tree, and tiles are created on first use and dropped when empty. An
+ * update or a window sum touches at most four tiles at O(log² 64) each, so an
+ * N×N window costs the same at N = 5 as at N = 33, and never allocates.
+ */
+public class ChunkWindowTree {
+    private static final int TILE_SHIFT = 6;
+    private static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int STRIDE = TILE_SIZE + 1;
+
+    // Fenwick trees indexed [x * STRIDE + z] from 1; slot 0 holds the tile's total
+    private final LongObjectHashMap<int[]> tiles = new LongObjectHashMap<>();
+
+    /**
+     * Add delta to a chunk's total
+     */
+    public void add(int chunkX, int chunkZ, int delta) {
+        if (delta == 0) {
+            return;
+        }
+        long key = ChunkCounterCache.chunkKey(chunkX >> TILE_SHIFT, chunkZ >> TILE_SHIFT);
+        int[] tree = tiles.get(key);
+        if (tree == null) {
+            tree = new int[STRIDE * STRIDE];
+            tiles.put(key, tree);
+        }
+        for (int x = (chunkX & TILE_MASK) + 1; x <= TILE_SIZE; x += x & -x) {
+            for (int z = (chunkZ & TILE_MASK) + 1; z <= TILE_SIZE; z += z & -z) {
+                tree[x * STRIDE + z] += delta;
+            }
+        }
+        tree[0] += delta;
+        if (tree[0] == 0) {
+            tiles.remove(key);
+        }
+    }
+
+    /**
+     * Sum the totals of all chunks in an inclusive rectangle
+     */
+    public int sum(int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        int total = 0;
+        for (int tileX = minChunkX >> TILE_SHIFT; tileX <= maxChunkX >> TILE_SHIFT; tileX++) {
+            for (int tileZ = minChunkZ >> TILE_SHIFT; tileZ <= maxChunkZ >> TILE_SHIFT; tileZ++) {
+                int[] tree = tiles.get(ChunkCounterCache.chunkKey(tileX, tileZ));
+                if (tree == null) {
+                    continue;
+                }
+                // Clamp the rectangle to this tile, as 1-based local coordinates
+                int baseX = tileX << TILE_SHIFT;
+                int baseZ = tileZ << TILE_SHIFT;
+                int x1 = Math.max(minChunkX, baseX) - baseX;
+                int z1 = Math.max(minChunkZ, baseZ) - baseZ;
+                int x2 = Math.min(maxChunkX, baseX + TILE_MASK) - baseX + 1;
+                int z2 = Math.min(maxChunkZ, baseZ + TILE_MASK) - baseZ + 1;
+                total += prefix(tree, x2, z2) - prefix(tree, x1, z2) - prefix(tree, x2, z1) + prefix(tree, x1, z1);
+            }
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return tiles.isEmpty();
+    }
+
+    private static int prefix(int[] tree, int x, int z) {
+        int sum = 0;
+        for (int i = x; i > 0; i -= i & -i) {
+            for (int j = z; j > 0; j -= j & -j) {
+                sum += tree[i * STRIDE + j];
+            }
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,240 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * In-memory set of tracked container positions for loaded chunks
+ * Chunks are indexed when they load and dropped when they unload; until the
+ * persisted positions arrive a chunk is still loading, and placements and
+ * removals made meanwhile are merged over the loaded rows. Each chunk also keeps
+ * its counts per 16x16x16 section in one small array indexed by section Y.
+ *
+ * Must only be used from the main server thread.
+ */
+public class ContainerPositionIndex {
+    /** Returned by remove when the chunk is not indexed (yet), so the position is unknown */
+    public static final int NOT_INDEXED = -2;
+    /** Returned by add and remove when no container was tracked at the position */
+    public static final int ABSENT = -1;
+
+    private final Map<String, LongObjectHashMap<ChunkPositions>> worlds = new HashMap<>();
+
+    /**
+     * Pack a block position into a key unique within its chunk
+     */
+    public static long blockKey(int x, int y, int z) {
+        return ((long) y << 8) | ((x & 15) << 4) | (z & 15);
+    }
+
+    /**
+     * Get the block coordinates of a blockKey in the given chunk
+     */
+    public static int blockX(long key, int chunkX) {
+        return (chunkX << 4) | (int) ((key >> 4) & 15);
+    }
+
+    public static int blockY(long key) {
+        return (int) (key >> 8);
+    }
+
+    public static int blockZ(long key, int chunkZ) {
+        return (chunkZ << 4) | (int) (key & 15);
+    }
+
+    /**
+     * Start indexing a chunk, returning the entry to complete once its positions are read
+     */
+    public ChunkPositions track(String world, int chunkX, int chunkZ) {
+        LongObjectHashMap<ChunkPositions> chunks = worlds.computeIfAbsent(world, w -> new LongObjectHashMap<>());
+        long key = ChunkCounterCache.chunkKey(chunkX, chunkZ);
+        ChunkPositions positions = chunks.get(key);
+        if (positions == null) {
+            positions = new ChunkPositions();
+            chunks.put(key, positions);
+        }
+        return positions;
+    }
+
+    /**
+     * Stop indexing an unloaded chunk
+     */
+    public void untrack(String world, int chunkX, int chunkZ) {
+        LongObjectHashMap<ChunkPositions> chunks = worlds.get(world);
+        if (chunks != null) {
+            chunks.remove(ChunkCounterCache.chunkKey(chunkX, chunkZ));
+        }
+    }
+
+    /**
+     * Stop indexing a chunk whose positions could not be read, unless it was indexed again
+     * since, so the chunk counts as not indexed and its next load retries
+     */
+    public void untrack(String world, int chunkX, int chunkZ, ChunkPositions failed) {
+        if (get(world, chunkX, chunkZ) == failed) {
+            untrack(world, chunkX, chunkZ);
+        }
+    }
+
+    public boolean isTracked(String world, int chunkX, int chunkZ) {
+        return get(world, chunkX, chunkZ) != null;
+    }
+
+    /**
+     * Copy the positions of a chunk, or null if its positions are not (yet) all known
+     */
+    public LongObjectHashMap<Integer> copy(String world, int chunkX, int chunkZ) {
+        ChunkPositions positions = get(world, chunkX, chunkZ);
+        if (positions == null || positions.isLoading()) {
+            return null;
+        }
+        LongObjectHashMap<Integer> copy = new LongObjectHashMap<>(positions.positions.size());
+        positions.positions.forEach(copy::put);
+        return copy;
+    }
+
+    /**
+     * Record a placed container
+     *
+     * @return type index of a container that was tracked at the same position, or ABSENT
+     */
+    public int add(String world, int x, int y, int z, int type) {
+        ChunkPositions positions = get(world, x >> 4, z >> 4);
+        return positions == null ? ABSENT : positions.add(blockKey(x, y, z), type);
+    }
+
+    /**
+     * Record a removed container
+     *
+     * @return type index of the container tracked at the position, ABSENT if the chunk
+     *         is indexed and none was, or NOT_INDEXED if the chunk's positions are unknown
+     */
+    public int remove(String world, int x, int y, int z) {
+        ChunkPositions positions = get(world, x >> 4, z >> 4);
+        return positions == null ? NOT_INDEXED : positions.remove(blockKey(x, y, z));
+    }
+
+    /**
+     * Get the number of indexed containers of one type in a chunk
+     */
+    public int count(String world, int chunkX, int chunkZ, int type) {
+        ChunkPositions positions = get(world, chunkX, chunkZ);
+        return positions == null || type < 0 ? 0 : positions.counts[type];
+    }
+
+    /**
+     * Get the number of indexed containers of one type in the section holding a block
+     */
+    public int sectionCount(String world, int x, int y, int z, int type) {
+        ChunkPositions positions = get(world, x >> 4, z >> 4);
+        return positions == null || type < 0 ? 0 : positions.sectionCount(y >> 4, type);
+    }
+
+    /**
+     * Number of indexed chunks
+     */
+    public int size() {
+        int size = 0;
+        for (LongObjectHashMap<ChunkPositions> chunks : worlds.values()) {
+            size += chunks.size();
+        }
+        return size;
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+
+    private ChunkPositions get(String world, int chunkX, int chunkZ) {
+        LongObjectHashMap<ChunkPositions> chunks = worlds.get(world);
+        return chunks == null ? null : chunks.get(ChunkCounterCache.chunkKey(chunkX, chunkZ));
+    }
+
+    /**
+     * Positions of one chunk, keyed by blockKey with the type index as value
+     */
+    public static final class ChunkPositions {
+        private final LongObjectHashMap<Integer> positions = new LongObjectHashMap<>();
+        private final int[] counts = new int[ContainerTypes.count()];
+        // Counts per section and type at [(sectionY - baseSection) * types + type]
+        private short[] sections = new short[0];
+        private int baseSection;
+        private LongObjectHashMap<Boolean> removedWhileLoading = new LongObjectHashMap<>();
+
+        /**
+         * Merge the persisted positions, skipping those removed since loading started
+         * Pass null for a chunk known to have no persisted positions.
+         */
+        public void complete(LongObjectHashMap<Integer> persisted) {
+            if (removedWhileLoading == null) {
+                return;
+            }
+            LongObjectHashMap<Boolean> removed = removedWhileLoading;
+            removedWhileLoading = null;
+            if (persisted != null) {
+                persisted.forEach((key, type) -> {
+                    if (!removed.containsKey(key) && !positions.containsKey(key)) {
+                        add(key, type);
+                    }
+                });
+            }
+        }
+
+        public boolean isLoading() {
+            return removedWhileLoading != null;
+        }
+
+        private int sectionCount(int sectionY, int type) {
+            int index = (sectionY - baseSection) * counts.length + type;
+            return sectionY < baseSection || index >= sections.length ? 0 : sections[index];
+        }
+
+        private void countSection(long key, int type, int delta) {
+            int sectionY = blockY(key) >> 4;
+            int types = counts.length;
+            if (sections.length == 0) {
+                sections = new short[types];
+                baseSection = sectionY;
+            } else if (sectionY < baseSection) {
+                // Grow downwards, keeping the existing sections at their offset
+                short[] grown = new short[sections.length + (baseSection - sectionY) * types];
+                System.arraycopy(sections, 0, grown, grown.length - sections.length, sections.length);
+                sections = grown;
+                baseSection = sectionY;
+            } else if ((sectionY - baseSection + 1) * types > sections.length) {
+                sections = Arrays.copyOf(sections, (sectionY - baseSection + 1) * types);
+            }
+            sections[(sectionY - baseSection) * types + type] += delta;
+        }
+
+        private int add(long key, int type) {
+            Integer previous = positions.put(key, type);
+            counts[type]++;
+            countSection(key, type, 1);
+            if (previous == null) {
+                return ABSENT;
+            }
+            counts[previous]--;
+            countSection(key, previous, -1);
+            return previous;
+        }
+
+        private int remove(long key) {
+            Integer type = positions.remove(key);
+            if (type != null) {
+                counts[type]--;
+                countSection(key, type, -1);
+                return type;
+            }
+            if (removedWhileLoading != null) {
+                removedWhileLoading.put(key, Boolean.TRUE);
+                return NOT_INDEXED;
+            }
+            return ABSENT;
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-memory mirror of the worlds, players and block_types dictionary tables
+ * Ids are allocated in memory so the placement path never waits on the database;
+ * new or renamed entries are persisted by the writer thread with the next batch.
+ * All methods are synchronized because the main thread, the writer thread and
+ * the legacy history migrator all resolve ids.
+ */
+public class DictionaryCache {
+    public static final int WORLDS = 0;
+    public static final int PLAYERS = 1;
+    public static final int BLOCK_TYPES = 2;
+
+    private final Dictionary worlds = new Dictionary(WORLDS, "worlds", true);
+    private final Dictionary players = new Dictionary(PLAYERS, "players", true);
+    private final Dictionary blockTypes = new Dictionary(BLOCK_TYPES, "block_types", false);
+    private final int[] trackedTypeIds = new int[ContainerTypes.count()];
+
+    /**
+     * Load all dictionary tables into memory
+     */
+    public synchronized void load(Connection connection) throws SQLException {
+        worlds.load(connection);
+        players.load(connection);
+        blockTypes.load(connection);
+        resolveTrackedTypes();
+    }
+
+    /**
+     * Start from empty dictionaries (backends without dictionary tables)
+     */
+    public synchronized void reset() {
+        worlds.reset();
+        players.reset();
+        blockTypes.reset();
+        resolveTrackedTypes();
+    }
+
+    private void resolveTrackedTypes() {
+        for (int type = 0; type < trackedTypeIds.length; type++) {
+            trackedTypeIds[type] = blockTypes.resolveName(ContainerTypes.typeName(type));
+        }
+    }
+
+    /**
+     * Get the id for a world, claiming a legacy name-only row or allocating a new one
+     */
+    public synchronized int worldId(UUID uuid, String name) {
+        return worlds.resolve(uuid, name);
+    }
+
+    /**
+     * Get the id for a player, claiming a legacy name-only row or allocating a new one
+     */
+    public synchronized int playerId(UUID uuid, String name) {
+        return players.resolve(uuid, name);
+    }
+
+    /**
+     * Get the id for a block type name
+     */
+    public synchronized int blockTypeId(String blockType) {
+        int type = ChunkCounterCache.typeIndex(blockType);
+        return type >= 0 ? trackedTypeIds[type] : blockTypes.resolveName(blockType);
+    }
+
+    /**
+     * Get the id for a world known only by name (legacy history rows)
+     */
+    public synchronized int legacyWorldId(String name) {
+        return worlds.resolveName(name);
+    }
+
+    /**
+     * Get the id for a player known only by name (legacy history rows)
+     */
+    public synchronized int legacyPlayerId(String name) {
+        return players.resolveName(name);
+    }
+
+    /**
+     * Find a player's id by name (case-insensitive), or -1 if unknown
+     */
+    public synchronized int findPlayerId(String name) {
+        Entry entry = players.byName.get(name.toLowerCase(Locale.ROOT));
+        return entry != null ? entry.id : -1;
+    }
+
+    public synchronized String worldName(int id) {
+        return worlds.nameOf(id);
+    }
+
+    public synchronized String playerName(int id) {
+        return players.nameOf(id);
+    }
+
+    public synchronized String blockTypeName(int id) {
+        return blockTypes.nameOf(id);
+    }
+
+    /**
+     * Report new or renamed entries as they change (used by the event journal)
+     * Entries that are already waiting to be persisted are reported immediately.
+     */
+    public synchronized void setListener(Listener listener) {
+        for (Dictionary dictionary : new Dictionary[] {worlds, players, blockTypes}) {
+            dictionary.listener = listener;
+            if (listener != null) {
+                for (Entry entry : dictionary.dirty) {
+                    listener.entryChanged(dictionary.kind, entry.id, entry.uuid, entry.name);
+                }
+            }
+        }
+    }
+
+    /**
+     * Restore an entry recovered from the event journal, marking it unsaved
+     */
+    public synchronized void replay(int kind, int id, UUID uuid, String name) {
+        Dictionary dictionary = kind == WORLDS ? worlds : kind == PLAYERS ? players : blockTypes;
+        dictionary.replay(id, uuid, name);
+        if (kind == BLOCK_TYPES) {
+            resolveTrackedTypes();
+        }
+    }
+
+    /**
+     * Persist entries created or renamed since the last call
+     * Must run inside the caller's transaction; on rollback call restorePending
+     */
+    public synchronized PendingEntries writePending(Connection connection) throws SQLException {
+        PendingEntries pending = new PendingEntries(worlds.takeDirty(), players.takeDirty(), blockTypes.takeDirty());
+        worlds.write(connection, pending.worlds);
+        players.write(connection, pending.players);
+        blockTypes.write(connection, pending.blockTypes);
+        return pending;
+    }
+
+    /**
+     * Forget unsaved entries (backends without dictionary tables)
+     */
+    public synchronized void discardPending() {
+        worlds.dirty.clear();
+        players.dirty.clear();
+        blockTypes.dirty.clear();
+    }
+
+    /**
+     * Mark entries as unsaved again after the transaction that wrote them rolled back
+     */
+    public synchronized void restorePending(PendingEntries pending) {
+        worlds.dirty.addAll(pending.worlds);
+        players.dirty.addAll(pending.players);
+        blockTypes.dirty.addAll(pending.blockTypes);
+    }
+
+    // ==================== Data Classes ====================
+
+    private static class Entry {
+        private final int id;
+        private UUID uuid;
+        private String name;
+
+        private Entry(int id, UUID uuid, String name) {
+            this.id = id;
+            this.uuid = uuid;
+            this.name = name;
+        }
+    }
+
+    /**
+     * Entries taken for persistence by writePending
+     */
+    public static class PendingEntries {
+        private final List<Entry> worlds;
+        private final List<Entry> players;
+        private final List<Entry> blockTypes;
+
+        private PendingEntries(List<Entry> worlds, List<Entry> players, List<Entry> blockTypes) {
+            this.worlds = worlds;
+            this.players = players;
+            this.blockTypes = blockTypes;
+        }
+    }
+
+    /**
+     * Receives dictionary changes before any event that uses them is submitted
+     */
+    public interface Listener {
+        void entryChanged(int kind, int id, UUID uuid, String name);
+    }
+
+    /**
+     * One dictionary table: id, optional uuid, name
+     */
+    private static class Dictionary {
+        private final int kind;
+        private final String table;
+        private final boolean hasUuid;
+        private final Map<UUID, Entry> byUuid = new HashMap<>();
+        private final Map<String, Entry> byName = new HashMap<>();
+        private final Map<Integer, Entry> byId = new HashMap<>();
+        private final List<Entry> dirty = new ArrayList<>();
+        private int nextId = 1;
+        private Listener listener;
+
+        private Dictionary(int kind, String table, boolean hasUuid) {
+            this.kind = kind;
+            this.table = table;
+            this.hasUuid = hasUuid;
+        }
+
+        private void reset() {
+            byUuid.clear();
+            byName.clear();
+            byId.clear();
+            dirty.clear();
+            nextId = 1;
+        }
+
+        private void load(Connection connection) throws SQLException {
+            reset();
+
+            String sql = "SELECT id, " + (hasUuid ? "uuid, " : "") + "name FROM " + table + " ORDER BY id";
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    String uuid = hasUuid ? rs.getString("uuid") : null;
+                    Entry entry = new Entry(rs.getInt("id"), uuid != null ? UUID.fromString(uuid) : null,
+                            rs.getString("name"));
+                    index(entry);
+                    nextId = Math.max(nextId, entry.id + 1);
+                }
+            }
+        }
+
+        private int resolve(UUID uuid, String name) {
+            Entry entry = byUuid.get(uuid);
+            if (entry != null) {
+                if (!entry.name.equals(name)) {
+                    // Player renamed (or world recreated under a new name)
+                    entry.name = name;
+                    byName.put(name.toLowerCase(Locale.ROOT), entry);
+                    markDirty(entry);
+                }
+                return entry.id;
+            }
+
+            entry = byName.get(name.toLowerCase(Locale.ROOT));
+            if (entry != null && entry.uuid == null) {
+                // Claim the row created from legacy name-only data
+                entry.uuid = uuid;
+                entry.name = name;
+                byUuid.put(uuid, entry);
+                markDirty(entry);
+                return entry.id;
+            }
+
+            entry = new Entry(nextId++, uuid, name);
+            index(entry);
+            markDirty(entry);
+            return entry.id;
+        }
+
+        private int resolveName(String name) {
+            Entry entry = byName.get(name.toLowerCase(Locale.ROOT));
+            if (entry != null) {
+                return entry.id;
+            }
+            entry = new Entry(nextId++, null, name);
+            index(entry);
+            markDirty(entry);
+            return entry.id;
+        }
+
+        private void replay(int id, UUID uuid, String name) {
+            Entry entry = byId.get(id);
+            if (entry == null) {
+                entry = new Entry(id, uuid, name);
+            } else {
+                entry.uuid = uuid;
+                entry.name = name;
+            }
+            index(entry);
+            if (!dirty.contains(entry)) {
+                dirty.add(entry);
+            }
+            nextId = Math.max(nextId, id + 1);
+        }
+
+        private void markDirty(Entry entry) {
+            dirty.add(entry);
+            if (listener != null) {
+                listener.entryChanged(kind, entry.id, entry.uuid, entry.name);
+            }
+        }
+
+        private String nameOf(int id) {
+            Entry entry = byId.get(id);
+            return entry != null ? entry.name : null;
+        }
+
+        private void index(Entry entry) {
+            byId.put(entry.id, entry);
+            byName.put(entry.name.toLowerCase(Locale.ROOT), entry);
+            if (entry.uuid != null) {
+                byUuid.put(entry.uuid, entry);
+            }
+        }
+
+        private List<Entry> takeDirty() {
+            List<Entry> taken = new ArrayList<>(dirty);
+            dirty.clear();
+            return taken;
+        }
+
+        private void write(Connection connection, List<Entry> entries) throws SQLException {
+            if (entries.isEmpty()) {
+                return;
+            }
+            // Update-then-insert rather than an upsert, so every SQL backend can share it
+            String columns = hasUuid ? "uuid = ?, name = ?" : "name = ?";
+            String values = hasUuid ? "(name, uuid, id) VALUES (?, ?, ?)" : "(name, id) VALUES (?, ?)";
+            try (PreparedStatement update = connection.prepareStatement(
+                         "UPDATE " + table + " SET " + columns + " WHERE id = ?");
+                 PreparedStatement insert = connection.prepareStatement(
+                         "INSERT INTO " + table + " " + values)) {
+                for (Entry entry : entries) {
+                    int index = 1;
+                    if (hasUuid) {
+                        update.setString(index++, entry.uuid != null ? entry.uuid.toString() : null);
+                    }
+                    update.setString(index++, entry.name);
+                    update.setInt(index, entry.id);
+                    if (update.executeUpdate() > 0) {
+                        continue;
+                    }
+
+                    insert.setString(1, entry.name);
+                    if (hasUuid) {
+                        insert.setString(2, entry.uuid != null ? entry.uuid.toString() : null);
+                    }
+                    insert.setInt(hasUuid ? 3 : 2, entry.id);
+                    insert.executeUpdate();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,703 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Memory-mapped ring journal of fixed-size binary records
+ * The main thread appends events, and the dictionary entries they reference, to a
+ * mapped file that survives a crash or kill -9 of the server process. A compactor
+ * thread folds the records into the backend in batches, freeing each batch's slots
+ * only once its transaction has committed; a failed batch stays in the journal and
+ * is retried with a growing backoff. On startup the uncompacted tail is replayed.
+ *
+ * Every record carries a sequence number and a CRC32, so a torn record at the end
+ * is detected and ignored. A crash between a batch commit and the header update
+ * replays that batch once more. When the ring is full the backpressure policy
+ * applies, as for the write-behind queue, including its bounded wait under block.
+ */
+public class EventJournal implements EventSink, DictionaryCache.Listener {
+    private static final int MAGIC = 0x484C4A31; // "HLJ1"
+    private static final int VERSION = 1;
+    private static final int RECORD_SIZE = 64;
+    private static final int HEADER_SIZE = RECORD_SIZE;
+    private static final int CHECKSUM_OFFSET = RECORD_SIZE - 4;
+
+    // Header layout
+    private static final int HEADER_MAGIC = 0;
+    private static final int HEADER_VERSION = 4;
+    private static final int HEADER_RECORD_SIZE = 8;
+    private static final int HEADER_READ_SLOT = 12;
+    private static final int HEADER_COMPACTED = 16;
+    /** Ring size the records were written with, 0 in journals written before the ring */
+    private static final int HEADER_CAPACITY = 24;
+
+    // Record layout: sequence, type, then the payload up to the checksum
+    private static final int SEQUENCE = 0;
+    private static final int TYPE = 8;
+    private static final int PAYLOAD = 12;
+
+    // Events without a block position, as written by older versions
+    private static final int PLACEMENT = 1;
+    private static final int REMOVAL = 2;
+    private static final int DICTIONARY = 3;
+    private static final int NAME_PART = 4;
+    private static final int PLACEMENT_AT = 5;
+    private static final int REMOVAL_AT = 6;
+
+    // Event payload: timestamp, player, block type, world, chunk x/z, block x/y/z
+    private static final int EVENT_BLOCK = PAYLOAD + 28;
+    /** Non-zero when the next event belongs to the same group (submitAll) */
+    private static final int EVENT_GROUP = EVENT_BLOCK + 12;
+
+    // Dictionary payload: kind, id, uuid, name length, first name bytes
+    private static final int DICT_KIND = PAYLOAD;
+    private static final int DICT_ID = PAYLOAD + 4;
+    private static final int DICT_UUID_MSB = PAYLOAD + 8;
+    private static final int DICT_UUID_LSB = PAYLOAD + 16;
+    private static final int DICT_NAME_LENGTH = PAYLOAD + 24;
+    private static final int DICT_NAME = PAYLOAD + 28;
+    private static final int INLINE_NAME_BYTES = CHECKSUM_OFFSET - DICT_NAME;
+    private static final int PART_NAME_BYTES = CHECKSUM_OFFSET - PAYLOAD;
+
+    /** Slots kept free for dictionary entries so they never wait for the compactor */
+    private static final int DICTIONARY_RESERVE = 64;
+
+    private static final long MIN_RETRY_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long MAX_RETRY_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final File file;
+    private final long fileSize;
+    private final BatchWriter writer;
+    private final Consumer<StorageEvent> dropHandler;
+    private final WriteBehindQueue.BackpressurePolicy policy;
+    private final DictionaryCache dictionary;
+    private final Logger logger;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final FlushMetrics metrics = new FlushMetrics();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition workAvailable = lock.newCondition();
+    private final CRC32 crc = new CRC32();
+    private final byte[] scratch = new byte[RECORD_SIZE];
+    private final ByteBuffer record = ByteBuffer.wrap(scratch);
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private Thread thread;
+    private volatile boolean running;
+
+    // Guarded by lock: pending records are the slots from readSlot on, wrapping at capacity
+    private int readSlot;
+    private int writeSlot;
+    private int pending;
+    private long compactedThrough;
+    private long nextSequence;
+    // Set when a blocking append timed out, cleared once records fit again
+    private boolean stalled;
+
+    public EventJournal(File file, long fileSize, BatchWriter writer, Consumer<StorageEvent> dropHandler,
+                        WriteBehindQueue.BackpressurePolicy policy, DictionaryCache dictionary, Logger logger,
+                        int flushSize, long flushIntervalMillis) {
+        this.file = file;
+        this.fileSize = Math.max(HEADER_SIZE + (long) RECORD_SIZE * DICTIONARY_RESERVE * 4, fileSize);
+        this.writer = writer;
+        this.dropHandler = dropHandler;
+        this.policy = policy;
+        this.dictionary = dictionary;
+        this.logger = logger;
+        this.flushSize = Math.max(1, flushSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+    }
+
+    /**
+     * Map the journal file and replay records left over from the last run
+     * Call after the backend is opened and before its counters are loaded.
+     *
+     * @param replayWriter receives the replayed batches (the backend plus anything
+     *                     else that must see events again after a crash)
+     * @return number of events replayed
+     */
+    public int open(BatchWriter replayWriter) throws IOException {
+        channel = FileChannel.open(file.toPath(),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long size = Math.min(Integer.MAX_VALUE, Math.max(fileSize, channel.size()));
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        int mappedCapacity = (int) ((size - HEADER_SIZE) / RECORD_SIZE);
+        capacity = mappedCapacity;
+
+        int replayed = 0;
+        if (buffer.getInt(HEADER_MAGIC) == MAGIC && buffer.getInt(HEADER_VERSION) == VERSION
+                && buffer.getInt(HEADER_RECORD_SIZE) == RECORD_SIZE) {
+            compactedThrough = buffer.getLong(HEADER_COMPACTED);
+            // Pending records wrap at the size they were written with
+            int written = buffer.getInt(HEADER_CAPACITY);
+            if (written > 0 && written <= mappedCapacity) {
+                capacity = written;
+                readSlot = Math.floorMod(buffer.getInt(HEADER_READ_SLOT), capacity);
+            }
+            replayed = replay(replayWriter);
+        } else {
+            compactedThrough = 0;
+        }
+        nextSequence = compactedThrough + pending + 1;
+        if (pending == 0) {
+            // Nothing left to keep in place, so a changed size can take effect
+            capacity = mappedCapacity;
+            readSlot = writeSlot = 0;
+        }
+        writeHeader();
+        buffer.force();
+        return replayed;
+    }
+
+    /**
+     * Restore journaled dictionary entries and hand pending events to the backend
+     * Walks the records from readSlot for as long as their sequences follow on,
+     * skipping those compacted already. Events the backend rejects stay pending
+     * for the compactor.
+     */
+    private int replay(BatchWriter replayWriter) {
+        List<StorageEvent> batch = new ArrayList<>(flushSize);
+        // Positions counted in records from readSlot
+        int firstPending = -1;
+        int batchStart = -1;
+        int replayed = 0;
+        long expected = -1;
+        boolean failed = false;
+
+        int walked = 0;
+        while (walked < capacity) {
+            int slot = slotAt(walked);
+            long sequence = validSequence(slot);
+            if (sequence < 0 || (expected >= 0 && sequence != expected)) {
+                break;
+            }
+            int type = buffer.getInt(offset(slot) + TYPE);
+            int parts = type == DICTIONARY ? nameParts(buffer.getShort(offset(slot) + DICT_NAME_LENGTH)) : 0;
+            if (walked + parts >= capacity || !validParts(walked, sequence, parts)) {
+                // Torn dictionary entry at the end
+                break;
+            }
+
+            if (sequence > compactedThrough) {
+                if (firstPending < 0) {
+                    firstPending = walked;
+                }
+                if (type == DICTIONARY) {
+                    replayDictionary(walked, parts);
+                } else if (isEvent(type) && !failed) {
+                    if (batchStart < 0) {
+                        batchStart = walked;
+                    }
+                    batch.add(readEvent(slot, type));
+                }
+            }
+            walked += parts + 1;
+            expected = sequence + parts + 1;
+
+            if (batch.size() >= flushSize && !batch.get(batch.size() - 1).continuesGroup()) {
+                failed = !replayBatch(replayWriter, batch);
+                if (!failed) {
+                    replayed += batch.size();
+                    batchStart = -1;
+                }
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            failed = !replayBatch(replayWriter, batch);
+            if (!failed) {
+                replayed += batch.size();
+                batchStart = -1;
+            }
+        }
+
+        // Everything before the first batch the backend rejected is done
+        int done = batchStart < 0 ? walked : batchStart;
+        if (firstPending >= 0) {
+            compactedThrough += done - firstPending;
+        }
+        writeSlot = slotAt(walked);
+        readSlot = slotAt(done);
+        pending = walked - done;
+        return replayed;
+    }
+
+    private boolean replayBatch(BatchWriter replayWriter, List<StorageEvent> batch) {
+        try {
+            replayWriter.writeBatch(batch);
+            return true;
+        } catch (Exception e) {
+            logger.log(Level.WARNING, "Failed to replay " + batch.size() + " journaled events, will retry", e);
+            return false;
+        }
+    }
+
+    private void replayDictionary(int walked, int parts) {
+        int base = offset(slotAt(walked));
+        int length = buffer.getShort(base + DICT_NAME_LENGTH);
+        byte[] name = new byte[length];
+        int copied = Math.min(length, INLINE_NAME_BYTES);
+        buffer.get(base + DICT_NAME, name, 0, copied);
+        for (int part = 1; part <= parts; part++) {
+            int chunk = Math.min(length - copied, PART_NAME_BYTES);
+            buffer.get(offset(slotAt(walked + part)) + PAYLOAD, name, copied, chunk);
+            copied += chunk;
+        }
+
+        long msb = buffer.getLong(base + DICT_UUID_MSB);
+        long lsb = buffer.getLong(base + DICT_UUID_LSB);
+        UUID uuid = msb == 0 && lsb == 0 ? null : new UUID(msb, lsb);
+        dictionary.replay(buffer.getInt(base + DICT_KIND), buffer.getInt(base + DICT_ID), uuid,
+                new String(name, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Start the compactor thread and begin journaling dictionary changes
+     */
+    public void start() {
+        running = true;
+        dictionary.setListener(this);
+        thread = new Thread(this::runCompactor, "HopperLimiter-Journal");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Append an event, applying the backpressure policy when the journal is full
+     */
+    @Override
+    public void submit(StorageEvent event) {
+        if (!running) {
+            // Compactor already stopped, persist on the caller thread instead of losing the event
+            List<StorageEvent> single = new ArrayList<>(1);
+            single.add(event);
+            flush(single);
+            return;
+        }
+
+        lock.lock();
+        try {
+            if (!reserve(1)) {
+                drop(event);
+                return;
+            }
+            appendEvent(event);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Append a group of events, compacted into the backend in the same batch
+     * With drop-history the whole group is dropped when it does not fit.
+     */
+    @Override
+    public void submitAll(List<StorageEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            flush(new ArrayList<>(events));
+            return;
+        }
+
+        int last = events.size() - 1;
+        // A group that could never fit is journaled as separate events
+        boolean grouped = events.size() <= (capacity - DICTIONARY_RESERVE) / 2;
+        lock.lock();
+        try {
+            if (grouped && !reserve(events.size())) {
+                for (StorageEvent event : events) {
+                    drop(event);
+                }
+                return;
+            }
+            for (int i = 0; i <= last; i++) {
+                if (!grouped && !reserve(1)) {
+                    drop(events.get(i));
+                    continue;
+                }
+                appendEvent(grouped ? events.get(i).withContinuesGroup(i < last) : events.get(i));
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Make room for the given number of records (called with the lock held)
+     * With block this waits for the compactor to free slots, for at most
+     * WriteBehindQueue.MAX_BLOCK_MILLIS and not at all while it is stalled;
+     * with drop-history it returns false at once.
+     */
+    private boolean reserve(int records) {
+        if (pending + records <= capacity - DICTIONARY_RESERVE) {
+            stalled = false;
+            return true;
+        }
+        if (policy == WriteBehindQueue.BackpressurePolicy.DROP_HISTORY || stalled) {
+            return false;
+        }
+        long remaining = TimeUnit.MILLISECONDS.toNanos(WriteBehindQueue.MAX_BLOCK_MILLIS);
+        while (pending + records > capacity - DICTIONARY_RESERVE) {
+            if (remaining <= 0) {
+                stalled = true;
+                logger.warning("Event journal still full after " + WriteBehindQueue.MAX_BLOCK_MILLIS +
+                        "ms, dropping history rows until the compactor catches up");
+                return false;
+            }
+            workAvailable.signal();
+            try {
+                remaining = notFull.awaitNanos(remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void drop(StorageEvent event) {
+        metrics.recordDropped();
+        dropHandler.accept(event);
+    }
+
+    /**
+     * Journal one event (called with the lock held)
+     */
+    private void appendEvent(StorageEvent event) {
+        boolean placement = event.getKind() == StorageEvent.Kind.PLACEMENT;
+        if (event.hasPosition()) {
+            clearRecord(placement ? PLACEMENT_AT : REMOVAL_AT);
+            record.putInt(EVENT_BLOCK, event.getX());
+            record.putInt(EVENT_BLOCK + 4, event.getY());
+            record.putInt(EVENT_BLOCK + 8, event.getZ());
+        } else {
+            clearRecord(placement ? PLACEMENT : REMOVAL);
+        }
+        record.putLong(PAYLOAD, event.getTimestamp());
+        record.putInt(PAYLOAD + 8, event.getPlayerId());
+        record.putInt(PAYLOAD + 12, event.getBlockTypeId());
+        record.putInt(PAYLOAD + 16, event.getWorldId());
+        record.putInt(PAYLOAD + 20, event.getChunkX());
+        record.putInt(PAYLOAD + 24, event.getChunkZ());
+        record.putInt(EVENT_GROUP, event.continuesGroup() ? 1 : 0);
+        append();
+        if (pending >= flushSize) {
+            workAvailable.signal();
+        }
+    }
+
+    /**
+     * Journal a new or renamed dictionary entry (called with the dictionary locked)
+     * Never waits for the compactor, which needs the dictionary to write batches.
+     */
+    @Override
+    public void entryChanged(int kind, int id, UUID uuid, String name) {
+        byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(bytes.length, Short.MAX_VALUE);
+        int parts = nameParts(length);
+
+        lock.lock();
+        try {
+            if (pending + parts + 1 > capacity) {
+                logger.warning("Event journal full, dictionary entry '" + name + "' not journaled");
+                return;
+            }
+            clearRecord(DICTIONARY);
+            record.putInt(DICT_KIND, kind);
+            record.putInt(DICT_ID, id);
+            record.putLong(DICT_UUID_MSB, uuid != null ? uuid.getMostSignificantBits() : 0);
+            record.putLong(DICT_UUID_LSB, uuid != null ? uuid.getLeastSignificantBits() : 0);
+            record.putShort(DICT_NAME_LENGTH, (short) length);
+            int copied = Math.min(length, INLINE_NAME_BYTES);
+            System.arraycopy(bytes, 0, scratch, DICT_NAME, copied);
+            append();
+
+            while (copied < length) {
+                int chunk = Math.min(length - copied, PART_NAME_BYTES);
+                clearRecord(NAME_PART);
+                System.arraycopy(bytes, copied, scratch, PAYLOAD, chunk);
+                append();
+                copied += chunk;
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void clearRecord(int type) {
+        Arrays.fill(scratch, (byte) 0);
+        record.putInt(TYPE, type);
+    }
+
+    /**
+     * Stamp the scratch record with the next sequence and checksum and copy it to the map
+     */
+    private void append() {
+        record.putLong(SEQUENCE, nextSequence++);
+        crc.reset();
+        crc.update(scratch, 0, CHECKSUM_OFFSET);
+        record.putInt(CHECKSUM_OFFSET, (int) crc.getValue());
+        buffer.put(offset(writeSlot), scratch);
+        writeSlot = (writeSlot + 1) % capacity;
+        pending++;
+    }
+
+    /**
+     * Stop the compactor after it has folded every pending record into the backend
+     */
+    @Override
+    public void shutdown() {
+        if (thread == null) {
+            close();
+            return;
+        }
+        dictionary.setListener(null);
+        running = false;
+        lock.lock();
+        try {
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning("Event journal did not compact in time, pending events will be replayed on next start");
+        }
+        close();
+    }
+
+    private void close() {
+        try {
+            if (buffer != null) {
+                buffer.force();
+            }
+            if (channel != null) {
+                channel.close();
+            }
+        } catch (IOException e) {
+            logger.log(Level.WARNING, "Failed to close event journal", e);
+        }
+    }
+
+    private void runCompactor() {
+        long retryNanos = 0;
+        while (running) {
+            lock.lock();
+            try {
+                // After a failed batch only shutdown cuts the wait short
+                long deadline = System.nanoTime() + (retryNanos > 0 ? retryNanos : flushIntervalNanos);
+                while (running && (retryNanos > 0 || pending < flushSize)) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        break;
+                    }
+                    workAvailable.awaitNanos(remaining);
+                }
+            } catch (InterruptedException e) {
+                // Woken up by shutdown, compact what is left
+            } finally {
+                lock.unlock();
+            }
+            retryNanos = compact() ? 0 : Math.min(MAX_RETRY_NANOS, Math.max(MIN_RETRY_NANOS, retryNanos * 2));
+        }
+        if (!compact()) {
+            logger.warning("Event journal could not compact, pending events will be replayed on next start");
+        }
+    }
+
+    /**
+     * Fold the pending records into the backend, one batch per transaction
+     *
+     * @return false if a batch failed; it and everything after it stay pending
+     */
+    private boolean compact() {
+        int slot;
+        int count;
+        lock.lock();
+        try {
+            slot = readSlot;
+            count = pending;
+        } finally {
+            lock.unlock();
+        }
+
+        List<StorageEvent> batch = new ArrayList<>(flushSize);
+        while (count > 0) {
+            // A batch never ends in the middle of a group
+            int records = 0;
+            while (records < count && (batch.size() < flushSize || batch.get(batch.size() - 1).continuesGroup())) {
+                int type = buffer.getInt(offset(slot) + TYPE);
+                if (isEvent(type)) {
+                    batch.add(readEvent(slot, type));
+                }
+                slot = (slot + 1) % capacity;
+                records++;
+            }
+            if (!batch.isEmpty()) {
+                if (!flush(batch)) {
+                    return false;
+                }
+                batch.clear();
+            }
+            markCompacted(records);
+            count -= records;
+        }
+        return true;
+    }
+
+    private boolean flush(List<StorageEvent> batch) {
+        long start = System.nanoTime();
+        boolean success = true;
+        try {
+            writer.writeBatch(batch);
+        } catch (Exception e) {
+            success = false;
+            logger.log(Level.WARNING, "Failed to persist batch of " + batch.size() + " events", e);
+        }
+        metrics.recordFlush(batch.size(), System.nanoTime() - start, success);
+        return success;
+    }
+
+    /**
+     * Free the slots of records whose batch has committed
+     */
+    private void markCompacted(int records) {
+        lock.lock();
+        try {
+            compactedThrough += records;
+            readSlot = (readSlot + records) % capacity;
+            pending -= records;
+            writeHeader();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void writeHeader() {
+        buffer.putInt(HEADER_MAGIC, MAGIC);
+        buffer.putInt(HEADER_VERSION, VERSION);
+        buffer.putInt(HEADER_RECORD_SIZE, RECORD_SIZE);
+        buffer.putInt(HEADER_CAPACITY, capacity);
+        // Replay skips records up to compactedThrough, so a crash between these two writes is harmless
+        buffer.putLong(HEADER_COMPACTED, compactedThrough);
+        buffer.putInt(HEADER_READ_SLOT, readSlot);
+    }
+
+    private StorageEvent readEvent(int slot, int type) {
+        int base = offset(slot);
+        StorageEvent.Kind kind = type == PLACEMENT || type == PLACEMENT_AT
+                ? StorageEvent.Kind.PLACEMENT : StorageEvent.Kind.REMOVAL;
+        boolean continuesGroup = buffer.getInt(base + EVENT_GROUP) != 0;
+        if (type == PLACEMENT_AT || type == REMOVAL_AT) {
+            return new StorageEvent(kind,
+                    buffer.getLong(base + PAYLOAD),
+                    buffer.getInt(base + PAYLOAD + 8),
+                    buffer.getInt(base + PAYLOAD + 12),
+                    buffer.getInt(base + PAYLOAD + 16),
+                    buffer.getInt(base + EVENT_BLOCK),
+                    buffer.getInt(base + EVENT_BLOCK + 4),
+                    buffer.getInt(base + EVENT_BLOCK + 8)).withContinuesGroup(continuesGroup);
+        }
+        return new StorageEvent(kind,
+                buffer.getLong(base + PAYLOAD),
+                buffer.getInt(base + PAYLOAD + 8),
+                buffer.getInt(base + PAYLOAD + 12),
+                buffer.getInt(base + PAYLOAD + 16),
+                buffer.getInt(base + PAYLOAD + 20),
+                buffer.getInt(base + PAYLOAD + 24)).withContinuesGroup(continuesGroup);
+    }
+
+    private static boolean isEvent(int type) {
+        return type == PLACEMENT || type == REMOVAL || type == PLACEMENT_AT || type == REMOVAL_AT;
+    }
+
+    /**
+     * Get the sequence of a record, or -1 if its checksum does not match
+     */
+    private long validSequence(int slot) {
+        int base = offset(slot);
+        byte[] bytes = new byte[CHECKSUM_OFFSET];
+        buffer.get(base, bytes);
+        CRC32 check = new CRC32();
+        check.update(bytes);
+        if ((int) check.getValue() != buffer.getInt(base + CHECKSUM_OFFSET)) {
+            return -1;
+        }
+        return buffer.getLong(base + SEQUENCE);
+    }
+
+    private boolean validParts(int walked, long sequence, int parts) {
+        for (int part = 1; part <= parts; part++) {
+            int slot = slotAt(walked + part);
+            if (validSequence(slot) != sequence + part || buffer.getInt(offset(slot) + TYPE) != NAME_PART) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int nameParts(int length) {
+        return length <= INLINE_NAME_BYTES ? 0 : (length - INLINE_NAME_BYTES + PART_NAME_BYTES - 1) / PART_NAME_BYTES;
+    }
+
+    /**
+     * Get the slot a number of records after readSlot
+     */
+    private int slotAt(int records) {
+        return (int) (((long) readSlot + records) % capacity);
+    }
+
+    private static int offset(int slot) {
+        return HEADER_SIZE + slot * RECORD_SIZE;
+    }
+
+    // ==================== Metrics ====================
+
+    @Override
+    public String getDescription() {
+        return "journal (" + file.getName() + ")";
+    }
+
+    @Override
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return pending;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override public int getCapacity() { return capacity - DICTIONARY_RESERVE; }
+    @Override public int getFlushSize() { return flushSize; }
+    @Override public long getFlushIntervalMillis() { return TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos); }
+    @Override public FlushMetrics getMetrics() { return metrics; }
+}
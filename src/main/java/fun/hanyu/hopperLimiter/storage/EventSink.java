@@ -0,0 +1,46 @@
+package fun.hanyu.hopperLimiter.storage;
+
+/**
+ * Path placements and removals take from the main thread to the storage backend,
+ * selected with storage.write-mode in config.yml
+ */
+public interface EventSink {
+
+    /**
+     * Hand an event over for persistence, returning quickly on the main thread
+     */
+    void submit(StorageEvent event);
+
+    /**
+     * Hand over events that are persisted together in one transaction
+     */
+    void submitAll(java.util.List<StorageEvent> events);
+
+    /**
+     * Persist everything still pending and stop the background thread
+     */
+    void shutdown();
+
+    /**
+     * Short description shown in /hoplimit storage
+     */
+    String getDescription();
+
+    int getQueueDepth();
+
+    int getCapacity();
+
+    int getFlushSize();
+
+    long getFlushIntervalMillis();
+
+    FlushMetrics getMetrics();
+
+    /**
+     * Persists a batch of events, expected to use a single transaction
+     */
+    @FunctionalInterface
+    interface BatchWriter {
+        void writeBatch(java.util.List<StorageEvent> batch) throws Exception;
+    }
+}
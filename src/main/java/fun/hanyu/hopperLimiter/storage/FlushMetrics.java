@@ -0,0 +1,47 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flush counters of a write path (written by its flushing thread, read by commands)
+ */
+public class FlushMetrics {
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong writtenEvents = new AtomicLong();
+    private final AtomicLong droppedEvents = new AtomicLong();
+    private final AtomicLong failedEvents = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long maxFlushNanos;
+    private volatile long totalFlushNanos;
+
+    /**
+     * Record one batch handed to the backend
+     */
+    public void recordFlush(int events, long elapsedNanos, boolean success) {
+        if (success) {
+            writtenEvents.addAndGet(events);
+        } else {
+            failedEvents.addAndGet(events);
+        }
+        lastFlushNanos = elapsedNanos;
+        maxFlushNanos = Math.max(maxFlushNanos, elapsedNanos);
+        totalFlushNanos += elapsedNanos;
+        flushedBatches.incrementAndGet();
+    }
+
+    public void recordDropped() {
+        droppedEvents.incrementAndGet();
+    }
+
+    public long getFlushedBatches() { return flushedBatches.get(); }
+    public long getWrittenEvents() { return writtenEvents.get(); }
+    public long getDroppedEvents() { return droppedEvents.get(); }
+    public long getFailedEvents() { return failedEvents.get(); }
+    public double getLastFlushMillis() { return lastFlushNanos / 1_000_000.0; }
+    public double getMaxFlushMillis() { return maxFlushNanos / 1_000_000.0; }
+
+    public double getAverageFlushMillis() {
+        long batches = flushedBatches.get();
+        return batches == 0 ? 0 : (totalFlushNanos / (double) batches) / 1_000_000.0;
+    }
+}
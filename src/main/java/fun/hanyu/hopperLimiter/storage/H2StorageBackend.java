@@ -0,0 +1,239 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import org.h2.jdbcx.JdbcConnectionPool;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+
+/**
+ * H2 backend (MVStore), an alternative embedded engine to benchmark against SQLite
+ * Uses the same dictionary-encoded schema, created in one step; the only upgrade is
+ * moving the per-type statistics columns of older databases into player_block_statistics.
+ * Queries use H2's own connection pool; MVStore readers see committed data without
+ * blocking the writer.
+ */
+public class H2StorageBackend extends JdbcStorageBackend {
+    private final File dbFile;
+    private JdbcConnectionPool readPool;
+
+    public H2StorageBackend(HopperLimiter plugin, DictionaryCache dictionary) {
+        super(plugin, dictionary);
+        this.dbFile = new File(plugin.getDataFolder(), "hopperlimiter-h2");
+    }
+
+    @Override
+    public String getName() {
+        return "h2";
+    }
+
+    @Override
+    public void open() throws SQLException {
+        // The plugin closes the database itself on disable
+        String url = "jdbc:h2:file:" + dbFile.getAbsolutePath() + ";DB_CLOSE_ON_EXIT=FALSE";
+
+        writeLock.lock();
+        try {
+            writeConnection = DriverManager.getConnection(url);
+            writeConnection.setAutoCommit(true);
+            createTables();
+            dictionary.load(writer());
+            upgradeStatistics();
+        } finally {
+            writeLock.unlock();
+        }
+
+        readPool = JdbcConnectionPool.create(url, "", "");
+        readPool.setMaxConnections(Math.max(1, plugin.getConfigManager().getReadConnections()));
+
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("H2 database initialized successfully!");
+        }
+    }
+
+    private void createTables() throws SQLException {
+        try (Statement stmt = writer().createStatement()) {
+            stmt.execute("CREATE TABLE IF NOT EXISTS worlds (" +
+                    "id INT PRIMARY KEY, uuid VARCHAR(36) UNIQUE, name VARCHAR(255) NOT NULL)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS players (" +
+                    "id INT PRIMARY KEY, uuid VARCHAR(36) UNIQUE, name VARCHAR(255) NOT NULL)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_players_name ON players (name)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS block_types (" +
+                    "id INT PRIMARY KEY, name VARCHAR(64) UNIQUE NOT NULL)");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS placement_history (" +
+                    "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+                    "timestamp BIGINT NOT NULL, " +
+                    "player_id INT NOT NULL, " +
+                    "block_type_id INT NOT NULL, " +
+                    "world_id INT NOT NULL, " +
+                    "chunk_x INT NOT NULL, " +
+                    "chunk_z INT NOT NULL, " +
+                    "is_removed INT DEFAULT 0 NOT NULL, " +
+                    "removed_at BIGINT, " +
+                    "removed_by_id INT, " +
+                    "created_at BIGINT DEFAULT (DATEDIFF('MILLISECOND', TIMESTAMP '1970-01-01 00:00:00', CURRENT_TIMESTAMP)))");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_placement_chunk ON placement_history " +
+                    "(world_id, chunk_x, chunk_z, block_type_id, is_removed, timestamp)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_placement_player ON placement_history (player_id, timestamp)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_placement_retention ON placement_history (is_removed, timestamp)");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS player_statistics (" +
+                    "player_id INT PRIMARY KEY, " +
+                    "last_placement BIGINT, " +
+                    "updated_at BIGINT)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_statistics_updated ON player_statistics (updated_at)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS player_block_statistics (" +
+                    "player_id INT NOT NULL, " +
+                    "block_type_id INT NOT NULL, " +
+                    "placed_count INT DEFAULT 0 NOT NULL, " +
+                    "removed_count INT DEFAULT 0 NOT NULL, " +
+                    "PRIMARY KEY (player_id, block_type_id))");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS chunk_counts (" +
+                    "world_id INT NOT NULL, " +
+                    "chunk_x INT NOT NULL, " +
+                    "chunk_z INT NOT NULL, " +
+                    "block_type_id INT NOT NULL, " +
+                    "count INT NOT NULL, " +
+                    "PRIMARY KEY (world_id, chunk_x, chunk_z, block_type_id))");
+
+            stmt.execute("CREATE TABLE IF NOT EXISTS container_positions (" +
+                    "world_id INT NOT NULL, " +
+                    "x INT NOT NULL, " +
+                    "y INT NOT NULL, " +
+                    "z INT NOT NULL, " +
+                    "chunk_x INT NOT NULL, " +
+                    "chunk_z INT NOT NULL, " +
+                    "block_type_id INT NOT NULL, " +
+                    "history_id BIGINT NOT NULL, " +
+                    "PRIMARY KEY (world_id, x, y, z))");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_positions_chunk ON container_positions " +
+                    "(world_id, chunk_x, chunk_z)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_positions_history ON container_positions (history_id)");
+
+            stmt.execute("CREATE OR REPLACE VIEW placement_history_view AS " +
+                    "SELECT h.id, h.timestamp, p.name AS player_name, b.name AS block_type, w.name AS world, " +
+                    "h.chunk_x, h.chunk_z, h.is_removed, h.removed_at " +
+                    "FROM placement_history h " +
+                    "JOIN players p ON p.id = h.player_id " +
+                    "JOIN block_types b ON b.id = h.block_type_id " +
+                    "JOIN worlds w ON w.id = h.world_id");
+        }
+    }
+
+    @Override
+    protected <T> T read(ReadConnectionPool.Query<T> query) throws SQLException {
+        if (readPool == null) {
+            throw new SQLException("Database is not initialized");
+        }
+        try (Connection connection = readPool.getConnection()) {
+            connection.setReadOnly(true);
+            return query.run(connection);
+        }
+    }
+
+    /**
+     * Move the hopper, chest and barrel columns of databases created before
+     * player_block_statistics into it, then drop them
+     * MERGE keeps the copy safe to repeat if the server stopped before the columns were dropped.
+     */
+    private void upgradeStatistics() throws SQLException {
+        Connection connection = writer();
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM INFORMATION_SCHEMA.COLUMNS " +
+                    "WHERE TABLE_NAME = 'PLAYER_STATISTICS' AND COLUMN_NAME = 'HOPPER_COUNT'")) {
+                if (!rs.next() || rs.getInt(1) == 0) {
+                    return;
+                }
+            }
+
+            String[] names = {"Hopper", "Chest", "Barrel"};
+            int[] ids = new int[names.length];
+            for (int i = 0; i < names.length; i++) {
+                ids[i] = dictionary.blockTypeId(names[i]);
+            }
+            dictionary.writePending(connection);
+            for (int i = 0; i < names.length; i++) {
+                String column = names[i].toLowerCase(Locale.ROOT);
+                stmt.execute("MERGE INTO player_block_statistics (player_id, block_type_id, placed_count, removed_count) " +
+                        "KEY (player_id, block_type_id) " +
+                        "SELECT player_id, " + ids[i] + ", " + column + "_count, " + column + "_removed " +
+                        "FROM player_statistics WHERE " + column + "_count <> 0 OR " + column + "_removed <> 0");
+            }
+            for (String name : names) {
+                String column = name.toLowerCase(Locale.ROOT);
+                stmt.execute("ALTER TABLE player_statistics DROP COLUMN IF EXISTS " + column + "_count");
+                stmt.execute("ALTER TABLE player_statistics DROP COLUMN IF EXISTS " + column + "_removed");
+            }
+        }
+    }
+
+    @Override
+    protected String upsertStatisticsSql() {
+        return "MERGE INTO player_statistics t USING (VALUES (CAST(? AS INT), CAST(? AS BIGINT), CAST(? AS BIGINT))) " +
+                "AS s(player_id, last_placement, updated_at) " +
+                "ON t.player_id = s.player_id " +
+                "WHEN MATCHED THEN UPDATE SET " +
+                "last_placement = COALESCE(GREATEST(t.last_placement, s.last_placement), t.last_placement, " +
+                "s.last_placement), updated_at = s.updated_at " +
+                "WHEN NOT MATCHED THEN INSERT (player_id, last_placement, updated_at) " +
+                "VALUES (s.player_id, s.last_placement, s.updated_at)";
+    }
+
+    @Override
+    protected String upsertBlockStatisticsSql() {
+        return "MERGE INTO player_block_statistics t USING (VALUES (CAST(? AS INT), CAST(? AS INT), CAST(? AS INT), " +
+                "CAST(? AS INT))) AS s(player_id, block_type_id, placed_count, removed_count) " +
+                "ON t.player_id = s.player_id AND t.block_type_id = s.block_type_id " +
+                "WHEN MATCHED THEN UPDATE SET placed_count = t.placed_count + s.placed_count, " +
+                "removed_count = t.removed_count + s.removed_count " +
+                "WHEN NOT MATCHED THEN INSERT (player_id, block_type_id, placed_count, removed_count) " +
+                "VALUES (s.player_id, s.block_type_id, s.placed_count, s.removed_count)";
+    }
+
+    @Override
+    protected String upsertPositionSql() {
+        return "MERGE INTO container_positions (world_id, x, y, z, chunk_x, chunk_z, block_type_id, history_id) " +
+                "KEY (world_id, x, y, z) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    protected String adjustCountSql() {
+        return "MERGE INTO chunk_counts t USING (VALUES (CAST(? AS INT), CAST(? AS INT), CAST(? AS INT), " +
+                "CAST(? AS INT), CAST(? AS INT))) AS s(world_id, chunk_x, chunk_z, block_type_id, delta) " +
+                "ON t.world_id = s.world_id AND t.chunk_x = s.chunk_x AND t.chunk_z = s.chunk_z " +
+                "AND t.block_type_id = s.block_type_id " +
+                "WHEN MATCHED THEN UPDATE SET count = GREATEST(0, t.count + s.delta) " +
+                "WHEN NOT MATCHED THEN INSERT (world_id, chunk_x, chunk_z, block_type_id, count) " +
+                "VALUES (s.world_id, s.chunk_x, s.chunk_z, s.block_type_id, GREATEST(0, s.delta))";
+    }
+
+    @Override
+    public void checkpoint() throws SQLException {
+        writeLock.lock();
+        try (Statement stmt = writer().createStatement()) {
+            stmt.execute("CHECKPOINT");
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (readPool != null) {
+            readPool.dispose();
+        }
+        writeLock.lock();
+        try {
+            closeWriter();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
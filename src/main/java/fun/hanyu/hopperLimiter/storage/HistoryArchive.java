@@ -0,0 +1,194 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+/**
+ * Gzip-compressed monthly archive of pruned placement history (archive/history-YYYY-MM.tsv.gz)
+ * Each prune batch is appended as its own gzip member, so files are never rewritten.
+ * Rows are tab-separated: id, timestamp, player, block type, world, chunk x, chunk z,
+ * removed at, removed by. Queries scan the files on demand and skip rows archived
+ * twice by a batch that was interrupted before its delete committed.
+ */
+public class HistoryArchive {
+    private static final String PREFIX = "history-";
+    private static final String SUFFIX = ".tsv.gz";
+
+    private final File directory;
+
+    public HistoryArchive(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Append records to the file of the month they were placed in
+     */
+    public synchronized void append(List<ArchivedRecord> records) throws IOException {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (!directory.exists()) {
+            directory.mkdirs();
+        }
+
+        Map<YearMonth, List<ArchivedRecord>> byMonth = new LinkedHashMap<>();
+        for (ArchivedRecord record : records) {
+            byMonth.computeIfAbsent(monthOf(record.getTimestamp()), month -> new ArrayList<>()).add(record);
+        }
+
+        for (Map.Entry<YearMonth, List<ArchivedRecord>> entry : byMonth.entrySet()) {
+            File file = new File(directory, PREFIX + entry.getKey() + SUFFIX);
+            try (Writer writer = new BufferedWriter(new OutputStreamWriter(
+                    new GZIPOutputStream(new FileOutputStream(file, true)), StandardCharsets.UTF_8))) {
+                for (ArchivedRecord record : entry.getValue()) {
+                    writer.write(record.toLine());
+                    writer.write('\n');
+                }
+            }
+        }
+    }
+
+    /**
+     * Get archived placements by a player, newest first
+     */
+    public List<ArchivedRecord> getPlayerRecords(String playerName) throws IOException {
+        return query(record -> record.getPlayerName().equalsIgnoreCase(playerName));
+    }
+
+    /**
+     * Get archived placements in a chunk, newest first
+     */
+    public List<ArchivedRecord> getChunkRecords(String world, int chunkX, int chunkZ) throws IOException {
+        return query(record -> record.getWorld().equals(world)
+                && record.getChunkX() == chunkX && record.getChunkZ() == chunkZ);
+    }
+
+    /**
+     * Scan every monthly file for matching records, newest first
+     */
+    public List<ArchivedRecord> query(Predicate<ArchivedRecord> filter) throws IOException {
+        List<ArchivedRecord> records = new ArrayList<>();
+        Set<Long> seen = new HashSet<>();
+        for (File file : getFiles()) {
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new GZIPInputStream(new FileInputStream(file)), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    ArchivedRecord record = ArchivedRecord.fromLine(line);
+                    if (record != null && filter.test(record) && seen.add(record.getId())) {
+                        records.add(record);
+                    }
+                }
+            } catch (EOFException | ZipException e) {
+                // Member cut short by a crash while appending, keep what was readable
+            }
+        }
+        records.sort(Comparator.comparingLong(ArchivedRecord::getTimestamp).reversed());
+        return records;
+    }
+
+    /**
+     * Get the monthly archive files, oldest first
+     */
+    public List<File> getFiles() {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null) {
+            return new ArrayList<>();
+        }
+        Arrays.sort(files, Comparator.comparing(File::getName));
+        return Arrays.asList(files);
+    }
+
+    private static YearMonth monthOf(long epochMillis) {
+        return YearMonth.from(Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()));
+    }
+
+    /**
+     * A removed placement moved out of placement_history
+     */
+    public static class ArchivedRecord {
+        private final long id;
+        private final long timestamp;
+        private final String playerName;
+        private final String blockType;
+        private final String world;
+        private final int chunkX;
+        private final int chunkZ;
+        private final long removedAt;
+        private final String removedBy;
+
+        public ArchivedRecord(long id, long timestamp, String playerName, String blockType, String world,
+                              int chunkX, int chunkZ, long removedAt, String removedBy) {
+            this.id = id;
+            this.timestamp = timestamp;
+            this.playerName = playerName;
+            this.blockType = blockType;
+            this.world = world;
+            this.chunkX = chunkX;
+            this.chunkZ = chunkZ;
+            this.removedAt = removedAt;
+            this.removedBy = removedBy;
+        }
+
+        private String toLine() {
+            return id + "\t" + timestamp + "\t" + clean(playerName) + "\t" + clean(blockType) + "\t" +
+                    clean(world) + "\t" + chunkX + "\t" + chunkZ + "\t" + removedAt + "\t" + clean(removedBy);
+        }
+
+        private static String clean(String value) {
+            return value == null ? "" : value.replace('\t', ' ').replace('\n', ' ');
+        }
+
+        /**
+         * Parse an archive line, or null if it is damaged
+         */
+        private static ArchivedRecord fromLine(String line) {
+            String[] fields = line.split("\t", -1);
+            if (fields.length != 9) {
+                return null;
+            }
+            try {
+                return new ArchivedRecord(Long.parseLong(fields[0]), Long.parseLong(fields[1]), fields[2], fields[3],
+                        fields[4], Integer.parseInt(fields[5]), Integer.parseInt(fields[6]),
+                        Long.parseLong(fields[7]), fields[8].isEmpty() ? null : fields[8]);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+
+        // Getters
+        public long getId() { return id; }
+        public long getTimestamp() { return timestamp; }
+        public String getPlayerName() { return playerName; }
+        public String getBlockType() { return blockType; }
+        public String getWorld() { return world; }
+        public int getChunkX() { return chunkX; }
+        public int getChunkZ() { return chunkZ; }
+        public long getRemovedAt() { return removedAt; }
+        public String getRemovedBy() { return removedBy; }
+    }
+}
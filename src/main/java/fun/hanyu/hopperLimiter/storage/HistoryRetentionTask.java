@@ -0,0 +1,78 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.scheduler.TickScheduler;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves removed placement history older than the hot window into the monthly archive
+ * Runs one small batch per run so the write lock is never held for long; once a batch
+ * comes back short, waits for the next check interval before looking again.
+ */
+public class HistoryRetentionTask implements Runnable {
+    private static final long PERIOD_TICKS = 10L;
+
+    private final HopperLimiter plugin;
+    private final StorageBackend backend;
+    private final HistoryArchive archive;
+    private final long hotMillis;
+    private final int batchSize;
+    private final long checkIntervalMillis;
+    private volatile long nextCheckMillis;
+    private volatile long archivedRows;
+    private TickScheduler.Repeating handle;
+
+    public HistoryRetentionTask(HopperLimiter plugin, StorageBackend backend, HistoryArchive archive,
+                                int hotDays, int batchSize, long checkIntervalMinutes) {
+        this.plugin = plugin;
+        this.backend = backend;
+        this.archive = archive;
+        this.hotMillis = TimeUnit.DAYS.toMillis(Math.max(1, hotDays));
+        this.batchSize = Math.max(1, batchSize);
+        this.checkIntervalMillis = TimeUnit.MINUTES.toMillis(Math.max(1, checkIntervalMinutes));
+    }
+
+    /**
+     * Start pruning in the background
+     */
+    public void start() {
+        handle = plugin.getTickScheduler().scheduleRepeating(this, 20L * 60, PERIOD_TICKS);
+    }
+
+    /**
+     * Stop further runs
+     */
+    public void cancel() {
+        if (handle != null) {
+            handle.cancel();
+        }
+    }
+
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        if (now < nextCheckMillis) {
+            return;
+        }
+
+        try {
+            int archived = backend.archiveHistoryBatch(now - hotMillis, batchSize, archive);
+            archivedRows += archived;
+            if (archived < batchSize) {
+                nextCheckMillis = now + checkIntervalMillis;
+                if (archived > 0 && plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("History retention caught up, " + archivedRows + " rows archived so far");
+                }
+            }
+        } catch (Exception e) {
+            nextCheckMillis = now + checkIntervalMillis;
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().warning("History retention batch failed, will retry: " + e.getMessage());
+            }
+        }
+    }
+
+    public long getHotDays() { return TimeUnit.MILLISECONDS.toDays(hotMillis); }
+    public long getArchivedRows() { return archivedRows; }
+}
@@ -0,0 +1,812 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Shared implementation for embedded SQL engines using the dictionary-encoded schema
+ * (worlds, players, block_types, placement_history, player_statistics,
+ * player_block_statistics, chunk_counts, container_positions and a
+ * placement_history_view resolving names)
+ *
+ * Writes use a single writer connection that is only touched while holding writeLock;
+ * writer() throws IllegalStateException when the lock is not held. Queries run through
+ * read(), which subclasses back with connections separate from the writer.
+ */
+public abstract class JdbcStorageBackend implements StorageBackend {
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    protected final HopperLimiter plugin;
+    protected final DictionaryCache dictionary;
+    protected final ReentrantLock writeLock = new ReentrantLock();
+    protected Connection writeConnection;
+    private final ChunkCountDeltas droppedDeltas = new ChunkCountDeltas();
+
+    protected JdbcStorageBackend(HopperLimiter plugin, DictionaryCache dictionary) {
+        this.plugin = plugin;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Run a query on a connection other than the writer
+     */
+    protected abstract <T> T read(ReadConnectionPool.Query<T> query) throws SQLException;
+
+    /**
+     * Upsert of (player_id, last_placement, updated_at) into player_statistics, keeping the later last_placement
+     */
+    protected abstract String upsertStatisticsSql();
+
+    /**
+     * Upsert adding (player_id, block_type_id, placed, removed) to player_block_statistics
+     */
+    protected abstract String upsertBlockStatisticsSql();
+
+    /**
+     * Insert or replace (world_id, x, y, z, chunk_x, chunk_z, block_type_id, history_id) in container_positions
+     */
+    protected abstract String upsertPositionSql();
+
+    /**
+     * Upsert adding (world_id, chunk_x, chunk_z, block_type_id, delta) to chunk_counts, never below zero
+     */
+    protected abstract String adjustCountSql();
+
+    /**
+     * Query returning the id of the row just inserted on the writer connection,
+     * or null to read it from the statement's generated keys
+     */
+    protected String lastInsertIdSql() {
+        return null;
+    }
+
+    /**
+     * Mark a removal the current table had no row for, returning the number of rows updated
+     */
+    protected int markRemovedFallback(StorageEvent event) throws SQLException {
+        return 0;
+    }
+
+    /**
+     * The writer connection, only available while holding writeLock
+     */
+    protected Connection writer() {
+        if (!writeLock.isHeldByCurrentThread()) {
+            throw new IllegalStateException("Writer connection used without holding the write lock");
+        }
+        return writeConnection;
+    }
+
+    @Override
+    public void loadChunkCounters(ChunkCounterCache cache) throws SQLException {
+        String sql = "SELECT w.name AS world, c.chunk_x, c.chunk_z, b.name AS block_type, c.count " +
+                "FROM chunk_counts c " +
+                "JOIN worlds w ON w.id = c.world_id " +
+                "JOIN block_types b ON b.id = c.block_type_id";
+        int chunks = 0;
+        writeLock.lock();
+        try (Statement stmt = writer().createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            while (rs.next()) {
+                cache.add(
+                        rs.getString("world"),
+                        rs.getInt("chunk_x"),
+                        rs.getInt("chunk_z"),
+                        rs.getString("block_type"),
+                        rs.getInt("count")
+                );
+                chunks++;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        if (plugin.getConfigManager().isDebugEnabled()) {
+            plugin.getLogger().info("Loaded " + chunks + " chunk counters from " + getName());
+        }
+    }
+
+    @Override
+    public void countDropped(StorageEvent event) {
+        droppedDeltas.add(event);
+    }
+
+    /**
+     * Persist a batch of queued events in a single transaction (called by the writer thread)
+     */
+    @Override
+    public void writeBatch(List<StorageEvent> batch) throws SQLException {
+        writeLock.lock();
+        try {
+            writeBatchLocked(batch);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void writeBatchLocked(List<StorageEvent> batch) throws SQLException {
+        Connection connection = writer();
+        if (connection == null || connection.isClosed()) {
+            throw new SQLException("Database connection is not open");
+        }
+
+        connection.setAutoCommit(false);
+        DictionaryCache.PendingEntries pending = null;
+        Map<ChunkCountDeltas.Key, int[]> deltas = droppedDeltas.drain();
+        try (HistoryStatements historyStatements = new HistoryStatements(connection, upsertPositionSql(), lastInsertIdSql());
+             ChunkCountStatements countStatements = new ChunkCountStatements(connection, adjustCountSql())) {
+            // Dictionary rows first, history rows reference them
+            pending = dictionary.writePending(connection);
+
+            for (StorageEvent event : batch) {
+                if (event.getKind() == StorageEvent.Kind.PLACEMENT) {
+                    writePlacement(event, historyStatements, countStatements);
+                } else {
+                    writeRemoval(event, historyStatements, countStatements);
+                }
+            }
+
+            // Counts of events whose history rows were dropped under backpressure
+            for (Map.Entry<ChunkCountDeltas.Key, int[]> entry : deltas.entrySet()) {
+                ChunkCountDeltas.Key key = entry.getKey();
+                countStatements.adjust(key.getWorldId(), key.getChunkX(), key.getChunkZ(),
+                        key.getBlockTypeId(), entry.getValue()[0]);
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            if (pending != null) {
+                dictionary.restorePending(pending);
+            }
+            droppedDeltas.restore(deltas);
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Insert the history row, point the block's position at it and count the placement in its chunk
+     */
+    private void writePlacement(StorageEvent event, HistoryStatements statements,
+                                ChunkCountStatements countStatements) throws SQLException {
+        if (event.hasPosition()) {
+            // A container still recorded here was replaced without a break event
+            long[] previous = statements.findPosition(event);
+            if (previous != null && statements.markRemoved(previous[0], event.getTimestamp(), null) > 0) {
+                countStatements.adjust(event.getWorldId(), event.getChunkX(), event.getChunkZ(), (int) previous[1], -1);
+            }
+        }
+
+        long historyId = statements.insertHistory(event);
+        if (event.hasPosition()) {
+            statements.upsertPosition(event, historyId);
+        }
+        countStatements.adjust(event.getWorldId(), event.getChunkX(), event.getChunkZ(), event.getBlockTypeId(), 1);
+    }
+
+    /**
+     * Mark the placement at the block's position as removed, or for placements recorded
+     * without a position, the most recent unpositioned one of this type in the chunk
+     * The chunk count is decremented even without a matching row (never below zero).
+     */
+    private void writeRemoval(StorageEvent event, HistoryStatements statements,
+                              ChunkCountStatements countStatements) throws SQLException {
+        if (event.hasPosition()) {
+            long[] placed = statements.findPosition(event);
+            if (placed != null) {
+                statements.deletePosition(event);
+                if (statements.markRemoved(placed[0], event.getTimestamp(), event.getPlayerId()) > 0) {
+                    countStatements.adjust(event.getWorldId(), event.getChunkX(), event.getChunkZ(), (int) placed[1], -1);
+                }
+                return;
+            }
+        }
+
+        // Legacy rows are not counted in chunk_counts until they are moved, so marking one needs no adjust.
+        // With no row at all the placement's history was dropped under backpressure, but its count was kept.
+        if (statements.markLatestRemoved(event) > 0 || markRemovedFallback(event) == 0) {
+            countStatements.adjust(event.getWorldId(), event.getChunkX(), event.getChunkZ(), event.getBlockTypeId(), -1);
+        }
+    }
+
+    @Override
+    public LongObjectHashMap<Integer> getContainerPositions(String world, int chunkX, int chunkZ) throws SQLException {
+        String sql = "SELECT c.x, c.y, c.z, b.name AS block_type FROM container_positions c " +
+                "JOIN worlds w ON w.id = c.world_id " +
+                "JOIN block_types b ON b.id = c.block_type_id " +
+                "WHERE w.name = ? AND c.chunk_x = ? AND c.chunk_z = ?";
+        return read(connection -> {
+            LongObjectHashMap<Integer> positions = new LongObjectHashMap<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, world);
+                pstmt.setInt(2, chunkX);
+                pstmt.setInt(3, chunkZ);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int type = ChunkCounterCache.typeIndex(rs.getString("block_type"));
+                        if (type >= 0) {
+                            positions.put(ContainerPositionIndex.blockKey(rs.getInt("x"), rs.getInt("y"), rs.getInt("z")), type);
+                        }
+                    }
+                }
+            }
+            return positions;
+        });
+    }
+
+    @Override
+    public PlayerStatisticsCache.PlayerCounts loadPlayerCounts(int playerId) throws SQLException {
+        String sql = "SELECT last_placement FROM player_statistics WHERE player_id = ?";
+        String typesSql = "SELECT b.name AS block_type, c.placed_count, c.removed_count " +
+                "FROM player_block_statistics c JOIN block_types b ON b.id = c.block_type_id WHERE c.player_id = ?";
+        return read(connection -> {
+            long lastPlacement;
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setInt(1, playerId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    lastPlacement = rs.getLong("last_placement");
+                }
+            }
+
+            // Types that are no longer counted keep their rows but are left out
+            int[] placed = new int[ContainerTypes.count()];
+            int[] removed = new int[ContainerTypes.count()];
+            try (PreparedStatement pstmt = connection.prepareStatement(typesSql)) {
+                pstmt.setInt(1, playerId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    while (rs.next()) {
+                        int type = ChunkCounterCache.typeIndex(rs.getString("block_type"));
+                        if (type >= 0) {
+                            placed[type] = rs.getInt("placed_count");
+                            removed[type] = rs.getInt("removed_count");
+                        }
+                    }
+                }
+            }
+            return new PlayerStatisticsCache.PlayerCounts(playerId, placed, removed, lastPlacement);
+        });
+    }
+
+    /**
+     * Add statistics deltas in one transaction, one upsert per player and one per type it changed
+     */
+    @Override
+    public void writePlayerCounts(List<PlayerStatisticsCache.PlayerCounts> deltas) throws SQLException {
+        writeLock.lock();
+        try {
+            Connection connection = writer();
+            if (connection == null || connection.isClosed()) {
+                throw new SQLException("Database connection is not open");
+            }
+
+            connection.setAutoCommit(false);
+            DictionaryCache.PendingEntries pending = null;
+            long now = System.currentTimeMillis();
+            try (PreparedStatement upsert = connection.prepareStatement(upsertStatisticsSql());
+                 PreparedStatement upsertType = connection.prepareStatement(upsertBlockStatisticsSql())) {
+                int[] typeIds = new int[ContainerTypes.count()];
+                for (int type = 0; type < typeIds.length; type++) {
+                    typeIds[type] = dictionary.blockTypeId(ContainerTypes.typeName(type));
+                }
+                // Players and types may not have reached the dictionary tables yet
+                pending = dictionary.writePending(connection);
+                for (PlayerStatisticsCache.PlayerCounts delta : deltas) {
+                    upsert.setInt(1, delta.getPlayerId());
+                    if (delta.getLastPlacement() > 0) {
+                        upsert.setLong(2, delta.getLastPlacement());
+                    } else {
+                        upsert.setNull(2, Types.BIGINT);
+                    }
+                    upsert.setLong(3, now);
+                    upsert.addBatch();
+
+                    for (int type = 0; type < typeIds.length; type++) {
+                        if (delta.getPlaced(type) == 0 && delta.getRemoved(type) == 0) {
+                            continue;
+                        }
+                        upsertType.setInt(1, delta.getPlayerId());
+                        upsertType.setInt(2, typeIds[type]);
+                        upsertType.setInt(3, delta.getPlaced(type));
+                        upsertType.setInt(4, delta.getRemoved(type));
+                        upsertType.addBatch();
+                    }
+                }
+                upsert.executeBatch();
+                upsertType.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                if (pending != null) {
+                    dictionary.restorePending(pending);
+                }
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Format an epoch-millisecond column for display, or null if it is NULL
+     */
+    protected static String formatTimestamp(ResultSet rs, String column) throws SQLException {
+        long epochMillis = rs.getLong(column);
+        return rs.wasNull() ? null : formatEpochMillis(epochMillis);
+    }
+
+    /**
+     * Format epoch milliseconds in the server's time zone
+     */
+    static String formatEpochMillis(long epochMillis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneId.systemDefault()).format(DATE_FORMATTER);
+    }
+
+    @Override
+    public List<StorageManager.BlockPlacementRecord> getPlayerRecords(String playerName) throws SQLException {
+        String sql = "SELECT id, timestamp, player_name, block_type, world, chunk_x, chunk_z " +
+                "FROM placement_history_view WHERE player_name = ? ORDER BY timestamp DESC";
+        return read(connection -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, playerName);
+                return readRecords(pstmt);
+            }
+        });
+    }
+
+    @Override
+    public List<StorageManager.BlockPlacementRecord> getChunkRecords(String world, int chunkX, int chunkZ) throws SQLException {
+        String sql = "SELECT id, timestamp, player_name, block_type, world, chunk_x, chunk_z " +
+                "FROM placement_history_view WHERE world = ? AND chunk_x = ? AND chunk_z = ? ORDER BY timestamp DESC";
+        return read(connection -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, world);
+                pstmt.setInt(2, chunkX);
+                pstmt.setInt(3, chunkZ);
+                return readRecords(pstmt);
+            }
+        });
+    }
+
+    private static List<StorageManager.BlockPlacementRecord> readRecords(PreparedStatement pstmt) throws SQLException {
+        List<StorageManager.BlockPlacementRecord> records = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                records.add(new StorageManager.BlockPlacementRecord(
+                        rs.getInt("id"),
+                        rs.getLong("timestamp"),
+                        rs.getString("player_name"),
+                        rs.getString("block_type"),
+                        rs.getString("world"),
+                        rs.getInt("chunk_x"),
+                        rs.getInt("chunk_z")
+                ));
+            }
+        }
+        return records;
+    }
+
+    @Override
+    public StorageManager.PlayerStatistics getPlayerStatistics(String playerName) throws SQLException {
+        int playerId = dictionary.findPlayerId(playerName);
+        if (playerId < 0) {
+            return null;
+        }
+        String sql = "SELECT p.name AS player_name, last_placement " +
+                "FROM player_statistics s JOIN players p ON p.id = s.player_id WHERE s.player_id = ?";
+        String typesSql = "SELECT c.player_id, b.name AS block_type, c.placed_count " +
+                "FROM player_block_statistics c JOIN block_types b ON b.id = c.block_type_id " +
+                "WHERE c.player_id = ? AND c.placed_count <> 0 ORDER BY c.block_type_id";
+        return read(connection -> {
+            String name;
+            String lastPlacement;
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setInt(1, playerId);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    name = rs.getString("player_name");
+                    lastPlacement = formatTimestamp(rs, "last_placement");
+                }
+            }
+            Map<Integer, Map<String, Integer>> blockCounts = new HashMap<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(typesSql)) {
+                pstmt.setInt(1, playerId);
+                readBlockStatistics(pstmt, blockCounts);
+            }
+            return new StorageManager.PlayerStatistics(name,
+                    blockCounts.getOrDefault(playerId, new LinkedHashMap<>()), lastPlacement);
+        });
+    }
+
+    @Override
+    public Map<String, StorageManager.PlayerStatistics> getAllPlayerStatistics() throws SQLException {
+        String sql = "SELECT s.player_id, p.name AS player_name, last_placement " +
+                "FROM player_statistics s JOIN players p ON p.id = s.player_id ORDER BY s.updated_at DESC";
+        String typesSql = "SELECT c.player_id, b.name AS block_type, c.placed_count " +
+                "FROM player_block_statistics c JOIN block_types b ON b.id = c.block_type_id " +
+                "WHERE c.placed_count <> 0 ORDER BY c.player_id, c.block_type_id";
+        return read(connection -> {
+            Map<Integer, Map<String, Integer>> blockCounts = new HashMap<>();
+            try (PreparedStatement pstmt = connection.prepareStatement(typesSql)) {
+                readBlockStatistics(pstmt, blockCounts);
+            }
+            Map<String, StorageManager.PlayerStatistics> stats = new HashMap<>();
+            try (Statement stmt = connection.createStatement();
+                 ResultSet rs = stmt.executeQuery(sql)) {
+                while (rs.next()) {
+                    StorageManager.PlayerStatistics stat = new StorageManager.PlayerStatistics(
+                            rs.getString("player_name"),
+                            blockCounts.getOrDefault(rs.getInt("player_id"), new LinkedHashMap<>()),
+                            formatTimestamp(rs, "last_placement")
+                    );
+                    stats.put(rs.getString("player_name"), stat);
+                }
+            }
+            return stats;
+        });
+    }
+
+    /**
+     * Read (player_id, block_type, placed_count) rows into placements by type name per player id
+     */
+    private static void readBlockStatistics(PreparedStatement pstmt, Map<Integer, Map<String, Integer>> blockCounts)
+            throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                blockCounts.computeIfAbsent(rs.getInt("player_id"), id -> new LinkedHashMap<>())
+                        .put(rs.getString("block_type"), rs.getInt("placed_count"));
+            }
+        }
+    }
+
+    @Override
+    public StorageManager.GlobalStatistics getGlobalStatistics() throws SQLException {
+        return read(this::readGlobalStatistics);
+    }
+
+    private StorageManager.GlobalStatistics readGlobalStatistics(Connection connection) throws SQLException {
+        // Summed from player statistics, which still count history rows moved to the archive
+        String playersSql = "SELECT COUNT(*) AS players FROM player_statistics";
+        String typesSql = "SELECT b.name AS block_type, SUM(c.placed_count) AS placed " +
+                "FROM player_block_statistics c JOIN block_types b ON b.id = c.block_type_id " +
+                "GROUP BY c.block_type_id, b.name HAVING SUM(c.placed_count) <> 0 ORDER BY c.block_type_id";
+        int totalPlayers = 0;
+        Map<String, Integer> blockCounts = new LinkedHashMap<>();
+        try (Statement stmt = connection.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery(playersSql)) {
+                if (rs.next()) {
+                    totalPlayers = rs.getInt("players");
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery(typesSql)) {
+                while (rs.next()) {
+                    blockCounts.put(rs.getString("block_type"), rs.getInt("placed"));
+                }
+            }
+        }
+
+        int totalPlacements = blockCounts.values().stream().mapToInt(Integer::intValue).sum();
+        return new StorageManager.GlobalStatistics(totalPlacements, totalPlayers, blockCounts);
+    }
+
+    @Override
+    public Map<String, Integer> getChunkBlockCounts(String world) throws SQLException {
+        String sql = "SELECT c.chunk_x, c.chunk_z, SUM(c.count) as count FROM chunk_counts c " +
+                "JOIN worlds w ON w.id = c.world_id WHERE w.name = ? GROUP BY c.chunk_x, c.chunk_z";
+        Map<String, Integer> chunkCounts = new HashMap<>();
+        read(connection -> {
+            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
+                pstmt.setString(1, world);
+                readChunkCounts(pstmt, chunkCounts);
+            }
+            return null;
+        });
+        return chunkCounts;
+    }
+
+    /**
+     * Add (chunk_x, chunk_z, count) rows to a heatmap keyed "x_z"
+     */
+    protected static void readChunkCounts(PreparedStatement pstmt, Map<String, Integer> chunkCounts) throws SQLException {
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                String key = rs.getInt("chunk_x") + "_" + rs.getInt("chunk_z");
+                chunkCounts.merge(key, rs.getInt("count"), Integer::sum);
+            }
+        }
+    }
+
+    /**
+     * Archive one batch of old removed rows, holding the write lock only for that batch
+     * The archive is appended before the delete commits; if the commit fails the rows
+     * are archived again by a later batch and skipped as duplicates when queried.
+     */
+    @Override
+    public int archiveHistoryBatch(long cutoff, int limit, HistoryArchive archive) throws SQLException, IOException {
+        String selectSql = "SELECT h.id, h.timestamp, p.name AS player_name, b.name AS block_type, w.name AS world, " +
+                "h.chunk_x, h.chunk_z, h.removed_at, r.name AS removed_by " +
+                "FROM placement_history h " +
+                "JOIN players p ON p.id = h.player_id " +
+                "JOIN block_types b ON b.id = h.block_type_id " +
+                "JOIN worlds w ON w.id = h.world_id " +
+                "LEFT JOIN players r ON r.id = h.removed_by_id " +
+                "WHERE h.is_removed = 1 AND h.timestamp < ? ORDER BY h.timestamp LIMIT ?";
+
+        writeLock.lock();
+        try {
+            Connection connection = writer();
+            if (connection == null || connection.isClosed()) {
+                throw new SQLException("Database connection is not open");
+            }
+
+            List<HistoryArchive.ArchivedRecord> records = new ArrayList<>();
+            try (PreparedStatement select = connection.prepareStatement(selectSql)) {
+                select.setLong(1, cutoff);
+                select.setInt(2, limit);
+                try (ResultSet rs = select.executeQuery()) {
+                    while (rs.next()) {
+                        records.add(new HistoryArchive.ArchivedRecord(
+                                rs.getLong("id"),
+                                rs.getLong("timestamp"),
+                                rs.getString("player_name"),
+                                rs.getString("block_type"),
+                                rs.getString("world"),
+                                rs.getInt("chunk_x"),
+                                rs.getInt("chunk_z"),
+                                rs.getLong("removed_at"),
+                                rs.getString("removed_by")
+                        ));
+                    }
+                }
+            }
+            if (records.isEmpty()) {
+                return 0;
+            }
+
+            archive.append(records);
+
+            connection.setAutoCommit(false);
+            try (PreparedStatement delete = connection.prepareStatement("DELETE FROM placement_history WHERE id = ?")) {
+                for (HistoryArchive.ArchivedRecord record : records) {
+                    delete.setLong(1, record.getId());
+                    delete.addBatch();
+                }
+                delete.executeBatch();
+                connection.commit();
+            } catch (SQLException e) {
+                connection.rollback();
+                throw e;
+            } finally {
+                connection.setAutoCommit(true);
+            }
+            return records.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void clearAllRecords() throws SQLException {
+        writeLock.lock();
+        try (Statement stmt = writer().createStatement()) {
+            stmt.executeUpdate("DELETE FROM placement_history");
+            stmt.executeUpdate("DELETE FROM player_statistics");
+            stmt.executeUpdate("DELETE FROM player_block_statistics");
+            stmt.executeUpdate("DELETE FROM chunk_counts");
+            stmt.executeUpdate("DELETE FROM container_positions");
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Close the writer connection (caller holds writeLock)
+     */
+    protected void closeWriter() {
+        try {
+            Connection connection = writer();
+            if (connection != null && !connection.isClosed()) {
+                connection.close();
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().info("Database connection closed!");
+                }
+            }
+        } catch (SQLException e) {
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().warning("Failed to close database: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Statements writing placement_history rows and the container positions pointing at them
+     */
+    private static final class HistoryStatements implements AutoCloseable {
+        private final PreparedStatement insertHistory;
+        private final PreparedStatement lastInsertId;
+        private final PreparedStatement findPosition;
+        private final PreparedStatement upsertPosition;
+        private final PreparedStatement deletePosition;
+        private final PreparedStatement markRemoved;
+        private final PreparedStatement markLatestRemoved;
+
+        HistoryStatements(Connection connection, String upsertPositionSql, String lastInsertIdSql) throws SQLException {
+            String insertSql = "INSERT INTO placement_history (timestamp, player_id, block_type_id, world_id, chunk_x, chunk_z) " +
+                    "VALUES (?, ?, ?, ?, ?, ?)";
+            if (lastInsertIdSql != null) {
+                this.insertHistory = connection.prepareStatement(insertSql);
+                this.lastInsertId = connection.prepareStatement(lastInsertIdSql);
+            } else {
+                this.insertHistory = connection.prepareStatement(insertSql, Statement.RETURN_GENERATED_KEYS);
+                this.lastInsertId = null;
+            }
+            this.findPosition = connection.prepareStatement(
+                    "SELECT history_id, block_type_id FROM container_positions " +
+                    "WHERE world_id = ? AND x = ? AND y = ? AND z = ?");
+            this.upsertPosition = connection.prepareStatement(upsertPositionSql);
+            this.deletePosition = connection.prepareStatement(
+                    "DELETE FROM container_positions WHERE world_id = ? AND x = ? AND y = ? AND z = ?");
+            this.markRemoved = connection.prepareStatement(
+                    "UPDATE placement_history SET is_removed = 1, removed_at = ?, removed_by_id = ? " +
+                    "WHERE id = ? AND is_removed = 0");
+            // Rows with a position are only ever removed through it
+            this.markLatestRemoved = connection.prepareStatement(
+                    "UPDATE placement_history SET is_removed = 1, removed_at = ?, removed_by_id = ? WHERE id = " +
+                    "(SELECT h.id FROM placement_history h WHERE h.world_id = ? AND h.chunk_x = ? AND h.chunk_z = ? " +
+                    "AND h.block_type_id = ? AND h.is_removed = 0 " +
+                    "AND NOT EXISTS (SELECT 1 FROM container_positions c WHERE c.history_id = h.id) " +
+                    "ORDER BY h.timestamp DESC LIMIT 1)");
+        }
+
+        long insertHistory(StorageEvent event) throws SQLException {
+            insertHistory.setLong(1, event.getTimestamp());
+            insertHistory.setInt(2, event.getPlayerId());
+            insertHistory.setInt(3, event.getBlockTypeId());
+            insertHistory.setInt(4, event.getWorldId());
+            insertHistory.setInt(5, event.getChunkX());
+            insertHistory.setInt(6, event.getChunkZ());
+            insertHistory.executeUpdate();
+            try (ResultSet keys = lastInsertId != null ? lastInsertId.executeQuery() : insertHistory.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("No id generated for placement_history row");
+                }
+                return keys.getLong(1);
+            }
+        }
+
+        /**
+         * Get (history_id, block_type_id) of the container recorded at the event's position, or null
+         */
+        long[] findPosition(StorageEvent event) throws SQLException {
+            setPosition(findPosition, event);
+            try (ResultSet rs = findPosition.executeQuery()) {
+                return rs.next() ? new long[]{rs.getLong("history_id"), rs.getInt("block_type_id")} : null;
+            }
+        }
+
+        void upsertPosition(StorageEvent event, long historyId) throws SQLException {
+            setPosition(upsertPosition, event);
+            upsertPosition.setInt(5, event.getChunkX());
+            upsertPosition.setInt(6, event.getChunkZ());
+            upsertPosition.setInt(7, event.getBlockTypeId());
+            upsertPosition.setLong(8, historyId);
+            upsertPosition.executeUpdate();
+        }
+
+        void deletePosition(StorageEvent event) throws SQLException {
+            setPosition(deletePosition, event);
+            deletePosition.executeUpdate();
+        }
+
+        /**
+         * Mark one placement row as removed, with a null remover when it was replaced
+         */
+        int markRemoved(long historyId, long removedAt, Integer removedById) throws SQLException {
+            markRemoved.setLong(1, removedAt);
+            if (removedById != null) {
+                markRemoved.setInt(2, removedById);
+            } else {
+                markRemoved.setNull(2, Types.INTEGER);
+            }
+            markRemoved.setLong(3, historyId);
+            return markRemoved.executeUpdate();
+        }
+
+        int markLatestRemoved(StorageEvent event) throws SQLException {
+            markLatestRemoved.setLong(1, event.getTimestamp());
+            markLatestRemoved.setInt(2, event.getPlayerId());
+            markLatestRemoved.setInt(3, event.getWorldId());
+            markLatestRemoved.setInt(4, event.getChunkX());
+            markLatestRemoved.setInt(5, event.getChunkZ());
+            markLatestRemoved.setInt(6, event.getBlockTypeId());
+            return markLatestRemoved.executeUpdate();
+        }
+
+        private static void setPosition(PreparedStatement pstmt, StorageEvent event) throws SQLException {
+            pstmt.setInt(1, event.getWorldId());
+            pstmt.setInt(2, event.getX());
+            pstmt.setInt(3, event.getY());
+            pstmt.setInt(4, event.getZ());
+        }
+
+        @Override
+        public void close() throws SQLException {
+            for (PreparedStatement statement : new PreparedStatement[]{insertHistory, lastInsertId, findPosition,
+                    upsertPosition, deletePosition, markRemoved, markLatestRemoved}) {
+                if (statement != null) {
+                    statement.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * Statements keeping chunk_counts in step with placement_history inside the same transaction
+     */
+    private static final class ChunkCountStatements implements AutoCloseable {
+        private final PreparedStatement adjust;
+        private final PreparedStatement deleteEmpty;
+
+        ChunkCountStatements(Connection connection, String adjustSql) throws SQLException {
+            this.adjust = connection.prepareStatement(adjustSql);
+            this.deleteEmpty = connection.prepareStatement(
+                    "DELETE FROM chunk_counts WHERE world_id = ? AND chunk_x = ? AND chunk_z = ? " +
+                    "AND block_type_id = ? AND count = 0");
+        }
+
+        void adjust(int worldId, int chunkX, int chunkZ, int blockTypeId, int delta) throws SQLException {
+            if (delta == 0) {
+                return;
+            }
+            adjust.setInt(1, worldId);
+            adjust.setInt(2, chunkX);
+            adjust.setInt(3, chunkZ);
+            adjust.setInt(4, blockTypeId);
+            adjust.setInt(5, delta);
+            adjust.executeUpdate();
+
+            if (delta < 0) {
+                deleteEmpty.setInt(1, worldId);
+                deleteEmpty.setInt(2, chunkX);
+                deleteEmpty.setInt(3, chunkZ);
+                deleteEmpty.setInt(4, blockTypeId);
+                deleteEmpty.executeUpdate();
+            }
+        }
+
+        @Override
+        public void close() throws SQLException {
+            try {
+                adjust.close();
+            } finally {
+                deleteEmpty.close();
+            }
+        }
+    }
+}
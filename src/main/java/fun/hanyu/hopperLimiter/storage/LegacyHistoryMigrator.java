@@ -0,0 +1,56 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.scheduler.TickScheduler;
+
+import java.sql.SQLException;
+
+/**
+ * Moves name-based history rows left over from older schema versions into the
+ * dictionary-encoded placement_history table, a small batch at a time
+ */
+public class LegacyHistoryMigrator implements Runnable {
+    private static final int BATCH_SIZE = 2000;
+    private static final long PERIOD_TICKS = 2L;
+
+    private final HopperLimiter plugin;
+    private final SQLiteStorageBackend backend;
+    private long batches;
+    private TickScheduler.Repeating handle;
+
+    public LegacyHistoryMigrator(HopperLimiter plugin, SQLiteStorageBackend backend) {
+        this.plugin = plugin;
+        this.backend = backend;
+    }
+
+    /**
+     * Start moving rows in the background
+     */
+    public void start() {
+        plugin.getLogger().info("Migrating existing placement history in the background...");
+        handle = plugin.getTickScheduler().scheduleRepeating(this, 20L, PERIOD_TICKS);
+    }
+
+    /**
+     * Stop further runs
+     */
+    public void cancel() {
+        if (handle != null) {
+            handle.cancel();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            if (backend.migrateLegacyHistoryBatch(BATCH_SIZE)) {
+                plugin.getLogger().info("Placement history migration finished (" + batches + " batches)");
+                cancel();
+                return;
+            }
+            batches++;
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Placement history migration failed, will retry: " + e.getMessage());
+        }
+    }
+}
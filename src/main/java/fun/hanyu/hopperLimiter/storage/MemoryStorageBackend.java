@@ -0,0 +1,180 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory backend for tests and servers that don't need placement history
+ * Keeps player statistics, per-chunk counts and global totals only; nothing
+ * survives a restart and history and position queries return no records.
+ * All methods are synchronized: the writer thread applies batches while
+ * command queries read from other threads.
+ */
+public class MemoryStorageBackend implements StorageBackend {
+    private final DictionaryCache dictionary;
+    private final Map<Integer, PlayerStatisticsCache.PlayerCounts> players = new HashMap<>();
+    private final Map<ChunkCountDeltas.Key, int[]> chunkCounts = new HashMap<>();
+    private final int[] placementsByType = new int[ContainerTypes.count()];
+    private int totalPlacements;
+
+    public MemoryStorageBackend(DictionaryCache dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public String getName() {
+        return "memory";
+    }
+
+    @Override
+    public synchronized void open() {
+        dictionary.reset();
+    }
+
+    @Override
+    public void loadChunkCounters(ChunkCounterCache cache) {
+        // Nothing persisted, counters start empty
+    }
+
+    @Override
+    public synchronized void writeBatch(List<StorageEvent> batch) {
+        // Dictionary entries only live in memory
+        dictionary.discardPending();
+
+        for (StorageEvent event : batch) {
+            adjust(event, event.getKind() == StorageEvent.Kind.PLACEMENT ? 1 : -1);
+        }
+    }
+
+    @Override
+    public synchronized void countDropped(StorageEvent event) {
+        adjust(event, event.getKind() == StorageEvent.Kind.PLACEMENT ? 1 : -1);
+    }
+
+    @Override
+    public synchronized PlayerStatisticsCache.PlayerCounts loadPlayerCounts(int playerId) {
+        PlayerStatisticsCache.PlayerCounts counts = players.get(playerId);
+        if (counts == null) {
+            return null;
+        }
+        PlayerStatisticsCache.PlayerCounts copy = new PlayerStatisticsCache.PlayerCounts(playerId);
+        copy.merge(counts);
+        return copy;
+    }
+
+    @Override
+    public synchronized void writePlayerCounts(List<PlayerStatisticsCache.PlayerCounts> deltas) {
+        for (PlayerStatisticsCache.PlayerCounts delta : deltas) {
+            players.computeIfAbsent(delta.getPlayerId(), PlayerStatisticsCache.PlayerCounts::new).merge(delta);
+            for (int type = 0; type < ContainerTypes.count(); type++) {
+                placementsByType[type] += delta.getPlaced(type);
+                totalPlacements += delta.getPlaced(type);
+            }
+        }
+    }
+
+    /**
+     * Apply a delta to a chunk count, dropping counts that reach zero
+     */
+    private void adjust(StorageEvent event, int delta) {
+        ChunkCountDeltas.Key key = ChunkCountDeltas.Key.of(event);
+        int[] count = chunkCounts.computeIfAbsent(key, k -> new int[1]);
+        count[0] += delta;
+        if (count[0] <= 0) {
+            chunkCounts.remove(key);
+        }
+    }
+
+    @Override
+    public List<StorageManager.BlockPlacementRecord> getPlayerRecords(String playerName) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public List<StorageManager.BlockPlacementRecord> getChunkRecords(String world, int chunkX, int chunkZ) {
+        return new ArrayList<>();
+    }
+
+    @Override
+    public synchronized StorageManager.PlayerStatistics getPlayerStatistics(String playerName) {
+        int playerId = dictionary.findPlayerId(playerName);
+        PlayerStatisticsCache.PlayerCounts counts = playerId < 0 ? null : players.get(playerId);
+        return counts != null ? toStatistics(dictionary.playerName(playerId), counts) : null;
+    }
+
+    @Override
+    public synchronized Map<String, StorageManager.PlayerStatistics> getAllPlayerStatistics() {
+        Map<String, StorageManager.PlayerStatistics> stats = new HashMap<>();
+        for (Map.Entry<Integer, PlayerStatisticsCache.PlayerCounts> entry : players.entrySet()) {
+            String name = dictionary.playerName(entry.getKey());
+            stats.put(name, toStatistics(name, entry.getValue()));
+        }
+        return stats;
+    }
+
+    @Override
+    public synchronized StorageManager.GlobalStatistics getGlobalStatistics() {
+        Map<String, Integer> blockCounts = new LinkedHashMap<>();
+        for (int type = 0; type < placementsByType.length; type++) {
+            if (placementsByType[type] != 0) {
+                blockCounts.put(ContainerTypes.typeName(type), placementsByType[type]);
+            }
+        }
+        return new StorageManager.GlobalStatistics(totalPlacements, players.size(), blockCounts);
+    }
+
+    @Override
+    public synchronized Map<String, Integer> getChunkBlockCounts(String world) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (Map.Entry<ChunkCountDeltas.Key, int[]> entry : chunkCounts.entrySet()) {
+            ChunkCountDeltas.Key key = entry.getKey();
+            if (world.equals(dictionary.worldName(key.getWorldId()))) {
+                counts.merge(key.getChunkX() + "_" + key.getChunkZ(), entry.getValue()[0], Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    @Override
+    public LongObjectHashMap<Integer> getContainerPositions(String world, int chunkX, int chunkZ) {
+        // Positions are only known while their chunk stays loaded
+        return new LongObjectHashMap<>();
+    }
+
+    @Override
+    public int archiveHistoryBatch(long cutoff, int limit, HistoryArchive archive) {
+        // No history to prune
+        return 0;
+    }
+
+    @Override
+    public synchronized void clearAllRecords() {
+        players.clear();
+        chunkCounts.clear();
+        Arrays.fill(placementsByType, 0);
+        totalPlacements = 0;
+    }
+
+    @Override
+    public void checkpoint() {
+        // Nothing to flush
+    }
+
+    @Override
+    public void close() {
+        // Nothing to close
+    }
+
+    private static StorageManager.PlayerStatistics toStatistics(String playerName,
+                                                                PlayerStatisticsCache.PlayerCounts counts) {
+        return new StorageManager.PlayerStatistics(playerName, counts.getPlacedByType(),
+                JdbcStorageBackend.formatEpochMillis(counts.getLastPlacement()));
+    }
+}
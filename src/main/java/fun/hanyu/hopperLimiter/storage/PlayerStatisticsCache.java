@@ -0,0 +1,249 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-back cache of per-player statistics
+ * Placements and removals accumulate as deltas per player and are flushed together,
+ * one upsert per player, by a periodic task. Online players are preloaded on join so
+ * their statistics are served from memory; entries are evicted once the player has
+ * quit and their deltas are persisted.
+ *
+ * Entry state is guarded by this object's monitor. Preload reads and flushes also
+ * hold ioLock, so a preloaded row never misses or double counts a flush.
+ */
+public class PlayerStatisticsCache {
+    private final StorageBackend backend;
+    private final DictionaryCache dictionary;
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final ReentrantLock ioLock = new ReentrantLock();
+
+    public PlayerStatisticsCache(StorageBackend backend, DictionaryCache dictionary) {
+        this.backend = backend;
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Track a player who joined; call preload off the main thread afterwards
+     */
+    public synchronized void join(int playerId) {
+        entries.computeIfAbsent(playerId, Entry::new).online = true;
+    }
+
+    /**
+     * Mark a player as gone so the entry is evicted after its next flush
+     */
+    public synchronized void quit(int playerId) {
+        Entry entry = entries.get(playerId);
+        if (entry != null) {
+            entry.online = false;
+        }
+    }
+
+    /**
+     * Load the persisted statistics of a tracked player (any thread)
+     */
+    public void preload(int playerId) throws Exception {
+        ioLock.lock();
+        try {
+            synchronized (this) {
+                Entry entry = entries.get(playerId);
+                if (entry == null || entry.base != null) {
+                    return;
+                }
+            }
+            PlayerCounts persisted = backend.loadPlayerCounts(playerId);
+            synchronized (this) {
+                Entry entry = entries.get(playerId);
+                if (entry != null) {
+                    entry.base = persisted != null ? persisted : new PlayerCounts(playerId);
+                }
+            }
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    /**
+     * Count a placement or removal towards its player
+     */
+    public synchronized void add(StorageEvent event) {
+        int type = ChunkCounterCache.typeIndex(dictionary.blockTypeName(event.getBlockTypeId()));
+        if (type < 0) {
+            return;
+        }
+        entries.computeIfAbsent(event.getPlayerId(), Entry::new).pending.add(event, type);
+    }
+
+    public synchronized void addAll(List<StorageEvent> events) {
+        for (StorageEvent event : events) {
+            add(event);
+        }
+    }
+
+    /**
+     * Get statistics of a preloaded player, or null if the player is not cached
+     * or has no placements
+     */
+    public synchronized StorageManager.PlayerStatistics get(int playerId) {
+        Entry entry = entries.get(playerId);
+        if (entry == null || entry.base == null) {
+            return null;
+        }
+        PlayerCounts total = new PlayerCounts(playerId);
+        total.merge(entry.base);
+        total.merge(entry.inflight);
+        total.merge(entry.pending);
+        if (total.lastPlacement == 0) {
+            return null;
+        }
+        return new StorageManager.PlayerStatistics(dictionary.playerName(playerId), total.getPlacedByType(),
+                JdbcStorageBackend.formatEpochMillis(total.lastPlacement));
+    }
+
+    /**
+     * Persist accumulated deltas, one upsert per player in a single transaction
+     * On failure the deltas are kept for the next flush.
+     *
+     * @return number of players written
+     */
+    public int flush() throws Exception {
+        ioLock.lock();
+        try {
+            List<PlayerCounts> deltas = new ArrayList<>();
+            synchronized (this) {
+                for (Entry entry : entries.values()) {
+                    if (!entry.pending.isEmpty()) {
+                        entry.inflight = entry.pending;
+                        entry.pending = new PlayerCounts(entry.playerId);
+                        deltas.add(entry.inflight);
+                    }
+                }
+            }
+
+            boolean written = false;
+            try {
+                if (!deltas.isEmpty()) {
+                    backend.writePlayerCounts(deltas);
+                }
+                written = true;
+            } finally {
+                synchronized (this) {
+                    Iterator<Entry> iterator = entries.values().iterator();
+                    while (iterator.hasNext()) {
+                        Entry entry = iterator.next();
+                        if (!entry.inflight.isEmpty()) {
+                            if (written && entry.base != null) {
+                                entry.base.merge(entry.inflight);
+                            } else if (!written) {
+                                entry.pending.merge(entry.inflight);
+                            }
+                            entry.inflight = new PlayerCounts(entry.playerId);
+                        }
+                        if (written && !entry.online && entry.pending.isEmpty()) {
+                            iterator.remove();
+                        }
+                    }
+                }
+            }
+            return deltas.size();
+        } finally {
+            ioLock.unlock();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    private static final class Entry {
+        private final int playerId;
+        private PlayerCounts base;
+        private PlayerCounts inflight;
+        private PlayerCounts pending;
+        private boolean online;
+
+        private Entry(int playerId) {
+            this.playerId = playerId;
+            this.inflight = new PlayerCounts(playerId);
+            this.pending = new PlayerCounts(playerId);
+        }
+    }
+
+    /**
+     * Placed and removed counts per tracked type, either absolute or a delta
+     */
+    public static class PlayerCounts {
+        private final int playerId;
+        private final int[] placed = new int[ContainerTypes.count()];
+        private final int[] removed = new int[ContainerTypes.count()];
+        private long lastPlacement;
+
+        public PlayerCounts(int playerId) {
+            this.playerId = playerId;
+        }
+
+        public PlayerCounts(int playerId, int[] placed, int[] removed, long lastPlacement) {
+            this(playerId);
+            System.arraycopy(placed, 0, this.placed, 0, Math.min(placed.length, this.placed.length));
+            System.arraycopy(removed, 0, this.removed, 0, Math.min(removed.length, this.removed.length));
+            this.lastPlacement = lastPlacement;
+        }
+
+        private void add(StorageEvent event, int type) {
+            if (event.getKind() == StorageEvent.Kind.PLACEMENT) {
+                placed[type]++;
+                lastPlacement = Math.max(lastPlacement, event.getTimestamp());
+            } else {
+                removed[type]++;
+            }
+        }
+
+        void merge(PlayerCounts other) {
+            for (int type = 0; type < placed.length; type++) {
+                placed[type] += other.placed[type];
+                removed[type] += other.removed[type];
+            }
+            lastPlacement = Math.max(lastPlacement, other.lastPlacement);
+        }
+
+        boolean isEmpty() {
+            for (int type = 0; type < placed.length; type++) {
+                if (placed[type] != 0 || removed[type] != 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Get the placements of each type placed at least once, by type name in type order
+         */
+        public Map<String, Integer> getPlacedByType() {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            for (int type = 0; type < placed.length; type++) {
+                if (placed[type] != 0) {
+                    counts.put(ContainerTypes.typeName(type), placed[type]);
+                }
+            }
+            return counts;
+        }
+
+        // Getters
+        public int getPlayerId() { return playerId; }
+        public int getPlaced(int type) { return placed[type]; }
+        public int getRemoved(int type) { return removed[type]; }
+        public long getLastPlacement() { return lastPlacement; }
+    }
+}
@@ -0,0 +1,122 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import org.sqlite.SQLiteConfig;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fixed-size pool of read-only SQLite connections
+ * In WAL mode readers see the last committed snapshot and never block the writer
+ * Each connection is prepared by the initializer (temp views, pragmas) and prepared
+ * again after invalidate() when the schema it depends on has changed
+ */
+public class ReadConnectionPool {
+    private final BlockingQueue<PooledConnection> idle;
+    private final List<PooledConnection> all = new ArrayList<>();
+    private final Initializer initializer;
+    private final AtomicInteger generation = new AtomicInteger();
+    private volatile boolean closed;
+
+    public ReadConnectionPool(String url, int size, int busyTimeoutMillis, Initializer initializer) throws SQLException {
+        this.idle = new ArrayBlockingQueue<>(Math.max(1, size));
+        this.initializer = initializer;
+
+        SQLiteConfig config = new SQLiteConfig();
+        config.setReadOnly(true);
+        config.setBusyTimeout(busyTimeoutMillis);
+        for (int i = 0; i < Math.max(1, size); i++) {
+            PooledConnection pooled = new PooledConnection(config.createConnection(url));
+            all.add(pooled);
+            idle.add(pooled);
+        }
+    }
+
+    /**
+     * Run a query on a borrowed connection, waiting for one to become free
+     */
+    public <T> T query(Query<T> query) throws SQLException {
+        if (closed) {
+            throw new SQLException("Read connection pool is closed");
+        }
+
+        PooledConnection pooled;
+        try {
+            pooled = idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a read connection", e);
+        }
+
+        try {
+            int current = generation.get();
+            if (pooled.generation != current) {
+                initializer.initialize(pooled.connection);
+                pooled.generation = current;
+            }
+            return query.run(pooled.connection);
+        } finally {
+            idle.add(pooled);
+        }
+    }
+
+    /**
+     * Re-run the initializer on every connection before its next use
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+    }
+
+    public int getSize() {
+        return all.size();
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    /**
+     * Close all connections, waiting for borrowed ones to be returned
+     */
+    public void close() {
+        closed = true;
+        for (int i = 0; i < all.size(); i++) {
+            try {
+                idle.take().connection.close();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (SQLException ignored) {
+                // Closing a read-only connection cannot lose data
+            }
+        }
+    }
+
+    /**
+     * Work done with a borrowed connection
+     */
+    public interface Query<T> {
+        T run(Connection connection) throws SQLException;
+    }
+
+    /**
+     * Prepares a connection before it is handed out
+     */
+    public interface Initializer {
+        void initialize(Connection connection) throws SQLException;
+    }
+
+    private static final class PooledConnection {
+        private final Connection connection;
+        private int generation = -1;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+    }
+}
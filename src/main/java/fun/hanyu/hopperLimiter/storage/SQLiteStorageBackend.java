@@ -0,0 +1,421 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.config.Config;
+import fun.hanyu.hopperLimiter.storage.migration.SchemaMigrator;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.Map;
+
+/**
+ * SQLite backend (default)
+ * Runs in WAL mode with one writer connection and a pool of read-only connections,
+ * so queries never wait for writes. Also moves history rows left by schema
+ * versions before dictionary encoding out of placement_history_legacy.
+ */
+public class SQLiteStorageBackend extends JdbcStorageBackend {
+    private static final int BUSY_TIMEOUT_MILLIS = 5000;
+
+    private final File dbFile;
+    private ReadConnectionPool readPool;
+    private volatile boolean legacyHistoryPresent;
+
+    public SQLiteStorageBackend(HopperLimiter plugin, DictionaryCache dictionary) {
+        super(plugin, dictionary);
+        this.dbFile = new File(plugin.getDataFolder(), "hopperlimiter.db");
+    }
+
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    /**
+     * Initialize database and bring the schema up to date
+     */
+    @Override
+    public void open() throws SQLException {
+        Config config = plugin.getConfigManager();
+        String url = "jdbc:sqlite:" + dbFile.getAbsolutePath();
+        int version;
+
+        writeLock.lock();
+        try {
+            writeConnection = DriverManager.getConnection(url);
+            writeConnection.setAutoCommit(true);
+            configureWriter(config);
+
+            // Create or upgrade tables
+            SchemaMigrator migrator = new SchemaMigrator(writer(), plugin.getLogger());
+            version = migrator.migrate();
+
+            dictionary.load(writer());
+            legacyHistoryPresent = tableExists("placement_history_legacy");
+            if (legacyHistoryPresent && !hasLegacyRows()) {
+                dropLegacyHistory();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+
+        readPool = new ReadConnectionPool(url, config.getReadConnections(), BUSY_TIMEOUT_MILLIS, this::prepareReader);
+
+        if (legacyHistoryPresent) {
+            new LegacyHistoryMigrator(plugin, this).start();
+        }
+
+        if (config.isDebugEnabled()) {
+            plugin.getLogger().info("SQLite database initialized successfully! (schema version " + version + ")");
+        }
+    }
+
+    /**
+     * Switch to WAL so readers never block the writer, and apply the tuning pragmas
+     */
+    private void configureWriter(Config config) throws SQLException {
+        try (Statement stmt = writer().createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("PRAGMA journal_mode = WAL")) {
+                if (rs.next() && !"wal".equalsIgnoreCase(rs.getString(1)) && config.isDebugEnabled()) {
+                    plugin.getLogger().warning("WAL journal mode is unavailable, using " + rs.getString(1));
+                }
+            }
+            stmt.execute("PRAGMA synchronous = " + synchronousMode(config.getSynchronousMode()));
+            stmt.execute("PRAGMA cache_size = -" + Math.max(0, config.getCacheSizeKb()));
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MILLIS);
+            stmt.execute("PRAGMA temp_store = MEMORY");
+        }
+    }
+
+    private static String synchronousMode(String value) {
+        switch (value.toLowerCase()) {
+            case "off":
+                return "OFF";
+            case "full":
+                return "FULL";
+            default:
+                return "NORMAL";
+        }
+    }
+
+    /**
+     * Prepare a pooled read connection (also called again after invalidation)
+     */
+    private void prepareReader(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("PRAGMA cache_size = -" + Math.max(0, plugin.getConfigManager().getCacheSizeKb()));
+        }
+        createHistoryView(connection);
+    }
+
+    /**
+     * Create a temporary view exposing history rows with names resolved
+     * While legacy rows are still being moved, the view also includes them
+     */
+    private void createHistoryView(Connection connection) throws SQLException {
+        String sql = "CREATE TEMP VIEW placement_history_view AS " +
+                "SELECT h.id, h.timestamp, p.name AS player_name, b.name AS block_type, w.name AS world, " +
+                "h.chunk_x, h.chunk_z, h.is_removed, h.removed_at " +
+                "FROM placement_history h " +
+                "JOIN players p ON p.id = h.player_id " +
+                "JOIN block_types b ON b.id = h.block_type_id " +
+                "JOIN worlds w ON w.id = h.world_id";
+        if (legacyHistoryPresent) {
+            sql += " UNION ALL SELECT id, timestamp, player_name, block_type, world, chunk_x, chunk_z, " +
+                    "is_removed, removed_at FROM placement_history_legacy";
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate("DROP VIEW IF EXISTS placement_history_view");
+            stmt.executeUpdate(sql);
+        }
+    }
+
+    @Override
+    protected <T> T read(ReadConnectionPool.Query<T> query) throws SQLException {
+        if (readPool == null) {
+            throw new SQLException("Database is not initialized");
+        }
+        return readPool.query(query);
+    }
+
+    @Override
+    protected String upsertStatisticsSql() {
+        return "INSERT INTO player_statistics (player_id, last_placement, updated_at) " +
+                "VALUES (?, ?, ?) ON CONFLICT(player_id) DO UPDATE SET " +
+                "last_placement = COALESCE(MAX(last_placement, excluded.last_placement), last_placement, " +
+                "excluded.last_placement), updated_at = excluded.updated_at";
+    }
+
+    @Override
+    protected String upsertBlockStatisticsSql() {
+        return "INSERT INTO player_block_statistics (player_id, block_type_id, placed_count, removed_count) " +
+                "VALUES (?, ?, ?, ?) ON CONFLICT(player_id, block_type_id) DO UPDATE SET " +
+                "placed_count = placed_count + excluded.placed_count, " +
+                "removed_count = removed_count + excluded.removed_count";
+    }
+
+    @Override
+    protected String lastInsertIdSql() {
+        // The driver does not implement getGeneratedKeys
+        return "SELECT last_insert_rowid()";
+    }
+
+    @Override
+    protected String upsertPositionSql() {
+        return "INSERT OR REPLACE INTO container_positions " +
+                "(world_id, x, y, z, chunk_x, chunk_z, block_type_id, history_id) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+    }
+
+    @Override
+    protected String adjustCountSql() {
+        return "INSERT INTO chunk_counts (world_id, chunk_x, chunk_z, block_type_id, count) " +
+                "VALUES (?1, ?2, ?3, ?4, MAX(0, ?5)) " +
+                "ON CONFLICT(world_id, chunk_x, chunk_z, block_type_id) DO UPDATE SET count = MAX(0, count + ?5)";
+    }
+
+    private boolean tableExists(String table) throws SQLException {
+        try (PreparedStatement pstmt = writer().prepareStatement(
+                "SELECT 1 FROM sqlite_master WHERE type = 'table' AND name = ?")) {
+            pstmt.setString(1, table);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    private boolean hasLegacyRows() throws SQLException {
+        try (Statement stmt = writer().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT 1 FROM placement_history_legacy LIMIT 1")) {
+            return rs.next();
+        }
+    }
+
+    private void dropLegacyHistory() throws SQLException {
+        try (Statement stmt = writer().createStatement()) {
+            stmt.executeUpdate("DROP TABLE placement_history_legacy");
+        }
+        legacyHistoryPresent = false;
+    }
+
+    /**
+     * Add counts of rows not yet moved out of the legacy table
+     */
+    @Override
+    public void loadChunkCounters(ChunkCounterCache cache) throws SQLException {
+        super.loadChunkCounters(cache);
+        if (!legacyHistoryPresent) {
+            return;
+        }
+
+        writeLock.lock();
+        try (Statement stmt = writer().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT world, chunk_x, chunk_z, block_type, COUNT(*) AS count " +
+                     "FROM placement_history_legacy WHERE is_removed = 0 GROUP BY world, chunk_x, chunk_z, block_type")) {
+            while (rs.next()) {
+                cache.add(
+                        rs.getString("world"),
+                        rs.getInt("chunk_x"),
+                        rs.getInt("chunk_z"),
+                        rs.getString("block_type"),
+                        rs.getInt("count")
+                );
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * The block may still be one of the rows waiting to be moved out of the legacy table,
+     * those are only added to chunk_counts when they are moved
+     */
+    @Override
+    protected int markRemovedFallback(StorageEvent event) throws SQLException {
+        if (!legacyHistoryPresent) {
+            return 0;
+        }
+        try (PreparedStatement pstmt = writer().prepareStatement(
+                "UPDATE placement_history_legacy SET is_removed = 1, removed_at = ?, removed_by = ? WHERE id = " +
+                "(SELECT id FROM placement_history_legacy WHERE world = ? AND chunk_x = ? AND chunk_z = ? " +
+                "AND block_type = ? AND is_removed = 0 ORDER BY timestamp DESC LIMIT 1)")) {
+            pstmt.setLong(1, event.getTimestamp());
+            pstmt.setString(2, dictionary.playerName(event.getPlayerId()));
+            pstmt.setString(3, dictionary.worldName(event.getWorldId()));
+            pstmt.setInt(4, event.getChunkX());
+            pstmt.setInt(5, event.getChunkZ());
+            pstmt.setString(6, dictionary.blockTypeName(event.getBlockTypeId()));
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Move one batch of legacy name-based history rows into the dictionary-encoded table
+     * Returns true once the legacy table is empty and has been dropped
+     */
+    public boolean migrateLegacyHistoryBatch(int batchSize) throws SQLException {
+        writeLock.lock();
+        try {
+            return migrateLegacyHistoryBatchLocked(batchSize);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean migrateLegacyHistoryBatchLocked(int batchSize) throws SQLException {
+        if (!legacyHistoryPresent) {
+            return true;
+        }
+
+        Connection connection = writer();
+        connection.setAutoCommit(false);
+        DictionaryCache.PendingEntries pending = null;
+        try (PreparedStatement select = connection.prepareStatement(
+                     "SELECT id, timestamp, player_name, block_type, world, chunk_x, chunk_z, is_removed, " +
+                     "removed_at, removed_by, created_at FROM placement_history_legacy ORDER BY id LIMIT ?");
+             PreparedStatement insert = connection.prepareStatement(
+                     "INSERT INTO placement_history (id, timestamp, player_id, block_type_id, world_id, chunk_x, " +
+                     "chunk_z, is_removed, removed_at, removed_by_id, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+             PreparedStatement delete = connection.prepareStatement(
+                     "DELETE FROM placement_history_legacy WHERE id <= ?");
+             PreparedStatement addCounts = connection.prepareStatement(
+                     "INSERT INTO chunk_counts (world_id, chunk_x, chunk_z, block_type_id, count) " +
+                     "SELECT world_id, chunk_x, chunk_z, block_type_id, COUNT(*) FROM placement_history " +
+                     "WHERE id BETWEEN ? AND ? AND is_removed = 0 GROUP BY world_id, chunk_x, chunk_z, block_type_id " +
+                     "ON CONFLICT(world_id, chunk_x, chunk_z, block_type_id) DO UPDATE SET count = count + excluded.count")) {
+            int moved = 0;
+            long firstId = -1;
+            long lastId = 0;
+            select.setInt(1, batchSize);
+            try (ResultSet rs = select.executeQuery()) {
+                while (rs.next()) {
+                    lastId = rs.getLong("id");
+                    if (firstId < 0) {
+                        firstId = lastId;
+                    }
+                    insert.setLong(1, lastId);
+                    insert.setLong(2, rs.getLong("timestamp"));
+                    insert.setInt(3, dictionary.legacyPlayerId(rs.getString("player_name")));
+                    insert.setInt(4, dictionary.blockTypeId(rs.getString("block_type")));
+                    insert.setInt(5, dictionary.legacyWorldId(rs.getString("world")));
+                    insert.setInt(6, rs.getInt("chunk_x"));
+                    insert.setInt(7, rs.getInt("chunk_z"));
+                    insert.setInt(8, rs.getInt("is_removed"));
+                    long removedAt = rs.getLong("removed_at");
+                    if (rs.wasNull()) {
+                        insert.setNull(9, Types.INTEGER);
+                    } else {
+                        insert.setLong(9, removedAt);
+                    }
+                    String removedBy = rs.getString("removed_by");
+                    if (removedBy == null) {
+                        insert.setNull(10, Types.INTEGER);
+                    } else {
+                        insert.setInt(10, dictionary.legacyPlayerId(removedBy));
+                    }
+                    insert.setLong(11, rs.getLong("created_at"));
+                    insert.addBatch();
+                    moved++;
+                }
+            }
+
+            if (moved == 0) {
+                dropLegacyHistory();
+                connection.commit();
+                // Readers rebuild their history view without the legacy table
+                readPool.invalidate();
+                return true;
+            }
+
+            pending = dictionary.writePending(connection);
+            insert.executeBatch();
+            addCounts.setLong(1, firstId);
+            addCounts.setLong(2, lastId);
+            addCounts.executeUpdate();
+            delete.setLong(1, lastId);
+            delete.executeUpdate();
+            connection.commit();
+            return false;
+        } catch (SQLException e) {
+            connection.rollback();
+            if (pending != null) {
+                dictionary.restorePending(pending);
+            }
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Merge counts of rows not yet moved out of the legacy table
+     */
+    @Override
+    public Map<String, Integer> getChunkBlockCounts(String world) throws SQLException {
+        Map<String, Integer> chunkCounts = super.getChunkBlockCounts(world);
+        if (legacyHistoryPresent) {
+            read(connection -> {
+                try (PreparedStatement pstmt = connection.prepareStatement(
+                        "SELECT chunk_x, chunk_z, COUNT(*) AS count FROM placement_history_legacy " +
+                        "WHERE world = ? AND is_removed = 0 GROUP BY chunk_x, chunk_z")) {
+                    pstmt.setString(1, world);
+                    readChunkCounts(pstmt, chunkCounts);
+                }
+                return null;
+            });
+        }
+        return chunkCounts;
+    }
+
+    @Override
+    public void clearAllRecords() throws SQLException {
+        writeLock.lock();
+        try {
+            super.clearAllRecords();
+            if (legacyHistoryPresent) {
+                try (Statement stmt = writer().createStatement()) {
+                    stmt.executeUpdate("DELETE FROM placement_history_legacy");
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Fold the WAL back into the database file without waiting on readers
+     */
+    @Override
+    public void checkpoint() throws SQLException {
+        writeLock.lock();
+        try {
+            Connection connection = writer();
+            if (connection != null && !connection.isClosed()) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("PRAGMA optimize;");
+                    stmt.execute("PRAGMA wal_checkpoint(PASSIVE);");
+                }
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void close() {
+        if (readPool != null) {
+            readPool.close();
+        }
+        writeLock.lock();
+        try {
+            closeWriter();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
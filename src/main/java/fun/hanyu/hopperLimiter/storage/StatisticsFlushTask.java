@@ -0,0 +1,46 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.scheduler.TickScheduler;
+
+/**
+ * Periodically persists the deltas accumulated in the player statistics cache
+ */
+public class StatisticsFlushTask implements Runnable {
+    private final HopperLimiter plugin;
+    private final PlayerStatisticsCache statistics;
+    private TickScheduler.Repeating handle;
+
+    public StatisticsFlushTask(HopperLimiter plugin, PlayerStatisticsCache statistics) {
+        this.plugin = plugin;
+        this.statistics = statistics;
+    }
+
+    /**
+     * Start flushing in the background every intervalSeconds
+     */
+    public void start(long intervalSeconds) {
+        long ticks = Math.max(1, intervalSeconds) * 20L;
+        handle = plugin.getTickScheduler().scheduleRepeating(this, ticks, ticks);
+    }
+
+    /**
+     * Stop further runs
+     */
+    public void cancel() {
+        if (handle != null) {
+            handle.cancel();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            statistics.flush();
+        } catch (Exception e) {
+            if (plugin.getConfigManager().isDebugEnabled()) {
+                plugin.getLogger().warning("Failed to flush player statistics, will retry: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistence engine behind StorageManager, selected with storage.backend in config.yml
+ *
+ * Thread-safety contract:
+ * - open, loadChunkCounters and close are called once by StorageManager
+ * - writeBatch is only called by one thread at a time: the write-behind writer,
+ *   or the journal compactor (and journal replay during startup)
+ * - loadPlayerCounts and writePlayerCounts are serialized by PlayerStatisticsCache
+ * - countDropped may be called from any thread that submits events
+ * - query methods may be called from any thread, concurrently with writes
+ */
+public interface StorageBackend {
+
+    /**
+     * Short name shown in /hoplimit storage
+     */
+    String getName();
+
+    /**
+     * Create or upgrade the schema and load the dictionaries
+     */
+    void open() throws Exception;
+
+    /**
+     * Add the persisted per-chunk counts to the in-memory counters
+     */
+    void loadChunkCounters(ChunkCounterCache cache) throws Exception;
+
+    /**
+     * Persist a batch of placement and removal events atomically
+     */
+    void writeBatch(List<StorageEvent> batch) throws Exception;
+
+    /**
+     * Keep aggregate counts for an event whose history row was dropped under backpressure
+     */
+    void countDropped(StorageEvent event);
+
+    /**
+     * Get the persisted statistics of a player, or null if the player has none
+     */
+    PlayerStatisticsCache.PlayerCounts loadPlayerCounts(int playerId) throws Exception;
+
+    /**
+     * Add per-player statistics deltas atomically, one upsert per player
+     */
+    void writePlayerCounts(List<PlayerStatisticsCache.PlayerCounts> deltas) throws Exception;
+
+    List<StorageManager.BlockPlacementRecord> getPlayerRecords(String playerName) throws Exception;
+
+    List<StorageManager.BlockPlacementRecord> getChunkRecords(String world, int chunkX, int chunkZ) throws Exception;
+
+    /**
+     * Get statistics for a player, or null if the player has none
+     */
+    StorageManager.PlayerStatistics getPlayerStatistics(String playerName) throws Exception;
+
+    Map<String, StorageManager.PlayerStatistics> getAllPlayerStatistics() throws Exception;
+
+    StorageManager.GlobalStatistics getGlobalStatistics() throws Exception;
+
+    /**
+     * Get total tracked blocks per chunk of a world, keyed "x_z"
+     */
+    Map<String, Integer> getChunkBlockCounts(String world) throws Exception;
+
+    /**
+     * Get the persisted container positions of a chunk, keyed by ContainerPositionIndex.blockKey
+     * with the block type's counter index as value
+     */
+    LongObjectHashMap<Integer> getContainerPositions(String world, int chunkX, int chunkZ) throws Exception;
+
+    /**
+     * Move up to limit removed history rows placed before cutoff (epoch millis) into the archive
+     *
+     * @return number of rows archived; fewer than limit means nothing is left to prune
+     */
+    int archiveHistoryBatch(long cutoff, int limit, HistoryArchive archive) throws Exception;
+
+    void clearAllRecords() throws Exception;
+
+    /**
+     * Flush engine caches to disk (called on auto-save and shutdown)
+     */
+    void checkpoint() throws Exception;
+
+    void close();
+}
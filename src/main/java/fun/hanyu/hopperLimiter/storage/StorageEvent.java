@@ -0,0 +1,107 @@
+package fun.hanyu.hopperLimiter.storage;
+
+/**
+ * A placement or removal waiting to be persisted by the write path
+ * Worlds, players and block types are referenced by their dictionary ids
+ */
+public class StorageEvent {
+    /** Block y of events recorded without an exact position (journals written by older versions) */
+    public static final int NO_POSITION = Integer.MIN_VALUE;
+
+    public enum Kind {
+        PLACEMENT,
+        REMOVAL
+    }
+
+    private final Kind kind;
+    private final long timestamp;
+    private final int playerId;
+    private final int blockTypeId;
+    private final int worldId;
+    private final int chunkX;
+    private final int chunkZ;
+    private final int x;
+    private final int y;
+    private final int z;
+    private final boolean continuesGroup;
+
+    public StorageEvent(Kind kind, long timestamp, int playerId, int blockTypeId,
+                        int worldId, int chunkX, int chunkZ) {
+        this.kind = kind;
+        this.timestamp = timestamp;
+        this.playerId = playerId;
+        this.blockTypeId = blockTypeId;
+        this.worldId = worldId;
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.x = chunkX << 4;
+        this.y = NO_POSITION;
+        this.z = chunkZ << 4;
+        this.continuesGroup = false;
+    }
+
+    public StorageEvent(Kind kind, long timestamp, int playerId, int blockTypeId,
+                        int worldId, int x, int y, int z) {
+        this.kind = kind;
+        this.timestamp = timestamp;
+        this.playerId = playerId;
+        this.blockTypeId = blockTypeId;
+        this.worldId = worldId;
+        this.chunkX = x >> 4;
+        this.chunkZ = z >> 4;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.continuesGroup = false;
+    }
+
+    private StorageEvent(StorageEvent event, boolean continuesGroup) {
+        this.kind = event.kind;
+        this.timestamp = event.timestamp;
+        this.playerId = event.playerId;
+        this.blockTypeId = event.blockTypeId;
+        this.worldId = event.worldId;
+        this.chunkX = event.chunkX;
+        this.chunkZ = event.chunkZ;
+        this.x = event.x;
+        this.y = event.y;
+        this.z = event.z;
+        this.continuesGroup = continuesGroup;
+    }
+
+    public static StorageEvent placement(int playerId, int blockTypeId, int worldId, int x, int y, int z) {
+        return new StorageEvent(Kind.PLACEMENT, System.currentTimeMillis(), playerId, blockTypeId, worldId, x, y, z);
+    }
+
+    public static StorageEvent removal(int removedById, int blockTypeId, int worldId, int x, int y, int z) {
+        return new StorageEvent(Kind.REMOVAL, System.currentTimeMillis(), removedById, blockTypeId, worldId, x, y, z);
+    }
+
+    /**
+     * Whether the exact block position is known
+     */
+    public boolean hasPosition() {
+        return y != NO_POSITION;
+    }
+
+    /**
+     * Copy of this event, marked as followed by more events of a group that is
+     * persisted in one transaction (or not)
+     */
+    public StorageEvent withContinuesGroup(boolean continuesGroup) {
+        return continuesGroup == this.continuesGroup ? this : new StorageEvent(this, continuesGroup);
+    }
+
+    // Getters
+    public Kind getKind() { return kind; }
+    public long getTimestamp() { return timestamp; }
+    public int getPlayerId() { return playerId; }
+    public int getBlockTypeId() { return blockTypeId; }
+    public int getWorldId() { return worldId; }
+    public int getChunkX() { return chunkX; }
+    public int getChunkZ() { return chunkZ; }
+    public int getX() { return x; }
+    public int getY() { return y; }
+    public int getZ() { return z; }
+    public boolean continuesGroup() { return continuesGroup; }
+}
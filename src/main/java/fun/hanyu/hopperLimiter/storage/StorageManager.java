@@ -1,209 +1,597 @@
 package fun.hanyu.hopperLimiter.storage;
 
 import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.config.Config;
+import fun.hanyu.hopperLimiter.config.LimitTable;
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+import org.bukkit.Chunk;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.entity.Player;
 
 import java.io.File;
-import java.sql.*;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
 /**
- * Manages data storage and persistence using SQLite
+ * Manages data storage and persistence through the configured StorageBackend
+ * Placements and removals update the in-memory counters immediately and are
+ * persisted in batches by a write-behind queue or the event journal; counters
+ * come from the database or, with storage.chunk-counts: chunk, from chunk data
+ *
+ * Thread-safety contract:
+ * - recordPlacement, recordRemoval, recordChanges, onChunkLoad/onChunkUnload, the audit
+ *   methods, applyCostWeights and the getChunkBlockCount, getChunkCost,
+ *   getWindowBlockCount and getSectionBlockCount lookups use the in-memory counters
+ *   and position index and must be called from the main server thread
+ * - query methods may be called from any thread, concurrently with each other
+ *   and with writes (see StorageBackend)
  */
 public class StorageManager {
+    /** Player recorded for placements and removals corrected by an audit */
+    private static final UUID AUDIT_PLAYER_UUID = new UUID(0L, 0L);
+    private static final String AUDIT_PLAYER_NAME = "[audit]";
+
     private final HopperLimiter plugin;
-    private final File dbFile;
-    private Connection connection;
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private final ChunkCounterCache counterCache = new ChunkCounterCache();
+    private final ContainerPositionIndex positions = new ContainerPositionIndex();
+    private final DictionaryCache dictionary = new DictionaryCache();
+    private final StorageBackend backend;
+    private final EventSink eventSink;
+    private final HistoryArchive archive;
+    private final PlayerStatisticsCache statistics;
+    private final StatisticsFlushTask statisticsTask;
+    private HistoryRetentionTask retentionTask;
+    private ChunkCountStore chunkStore;
+    private ChunkCountMigrationTask migrationTask;
+    // Worlds already checked for counts to migrate into their chunks
+    private final Set<String> checkedWorlds = new HashSet<>();
+    private WorldAudit audit;
 
     public StorageManager(HopperLimiter plugin) {
         this.plugin = plugin;
-        this.dbFile = new File(plugin.getDataFolder(), "hopperlimiter.db");
 
         if (!plugin.getDataFolder().exists()) {
             plugin.getDataFolder().mkdirs();
         }
 
+        Config config = plugin.getConfigManager();
+        this.archive = new HistoryArchive(new File(plugin.getDataFolder(), "archive"));
+        this.backend = createBackend(config.getStorageBackend());
+        this.statistics = new PlayerStatisticsCache(backend, dictionary);
+        applyCostWeights(plugin.getWorldLimitManager().getLimits());
+        EventJournal journal = null;
         try {
-            initializeDatabase();
+            backend.open();
+            journal = openJournal(config);
+            loadChunkCounts(config);
         } catch (Exception e) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Failed to initialize storage: " + e.getMessage());
+            plugin.getLogger().severe("Failed to initialize " + backend.getName() + " storage: " + e.getMessage());
+            if (config.isDebugEnabled()) {
+                e.printStackTrace();
             }
         }
+
+        statisticsTask = new StatisticsFlushTask(plugin, statistics);
+        statisticsTask.start(config.getStatisticsFlushIntervalSeconds());
+
+        if (config.isRetentionEnabled()) {
+            retentionTask = new HistoryRetentionTask(plugin, backend, archive, config.getRetentionHotDays(),
+                    config.getRetentionBatchSize(), config.getRetentionCheckIntervalMinutes());
+            retentionTask.start();
+        }
+
+        if (journal != null) {
+            journal.start();
+            this.eventSink = journal;
+            return;
+        }
+        this.eventSink = new WriteBehindQueue(
+                backend::writeBatch,
+                backend::countDropped,
+                plugin.getLogger(),
+                config.getWriteQueueCapacity(),
+                config.getWriteFlushSize(),
+                config.getWriteFlushIntervalMillis(),
+                WriteBehindQueue.BackpressurePolicy.fromConfig(config.getWriteBackpressurePolicy())
+        );
     }
 
     /**
-     * Initialize database and create tables if needed
+     * Load every chunk's counts from the database; with storage.chunk-counts: chunk
+     * these only stand in for chunks not loaded yet, so neighborhood windows and costs
+     * cover them, and each chunk's own data replaces its counts as it loads.
      */
-    private void initializeDatabase() {
-        try {
-            connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile.getAbsolutePath());
-            connection.setAutoCommit(true);
-
-            // Create tables
-            try (Statement stmt = connection.createStatement()) {
-                // Placement history table
-                stmt.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS placement_history (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "timestamp LONG NOT NULL," +
-                    "player_name TEXT NOT NULL," +
-                    "block_type TEXT NOT NULL," +
-                    "world TEXT NOT NULL," +
-                    "chunk_x INTEGER NOT NULL," +
-                    "chunk_z INTEGER NOT NULL," +
-                    "is_removed INTEGER DEFAULT 0," +
-                    "removed_at DATETIME," +
-                    "removed_by TEXT," +
-                    "created_at DATETIME DEFAULT CURRENT_TIMESTAMP" +
-                    ")");
-
-                // Player statistics table
-                stmt.executeUpdate(
-                    "CREATE TABLE IF NOT EXISTS player_statistics (" +
-                    "id INTEGER PRIMARY KEY AUTOINCREMENT," +
-                    "player_name TEXT UNIQUE NOT NULL," +
-                    "hopper_count INTEGER DEFAULT 0," +
-                    "chest_count INTEGER DEFAULT 0," +
-                    "barrel_count INTEGER DEFAULT 0," +
-                    "hopper_removed INTEGER DEFAULT 0," +
-                    "chest_removed INTEGER DEFAULT 0," +
-                    "barrel_removed INTEGER DEFAULT 0," +
-                    "last_placement TEXT," +
-                    "created_at DATETIME DEFAULT CURRENT_TIMESTAMP," +
-                    "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP" +
-                    ")");
-            }
+    private void loadChunkCounts(Config config) throws Exception {
+        backend.loadChunkCounters(counterCache);
+        if (!config.getChunkCountMode().equalsIgnoreCase("chunk")) {
+            return;
+        }
 
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().info("SQLite database initialized successfully!");
-            }
-        } catch (SQLException e) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().severe("Failed to initialize database: " + e.getMessage());
+        chunkStore = new ChunkCountStore(plugin);
+        for (World world : plugin.getServer().getWorlds()) {
+            onWorldLoad(world);
+        }
+    }
+
+    /**
+     * Copy the database counts of a world into its chunks if it was not migrated yet
+     * (storage.chunk-counts: chunk); called for every world at startup, and for worlds
+     * loaded later when they load or when their first chunk does, whichever comes first
+     */
+    public void onWorldLoad(World world) {
+        String name = world.getName();
+        if (chunkStore == null || !checkedWorlds.add(name) || chunkStore.isMigrated(world)) {
+            return;
+        }
+        ChunkCounterCache pending = chunkStore.getPending();
+        if (pending == null) {
+            pending = new ChunkCounterCache();
+            chunkStore.setPending(pending);
+        }
+        boolean[] found = {false};
+        ChunkCounterCache target = pending;
+        counterCache.forEach((worldName, chunkX, chunkZ, counts) -> {
+            if (worldName.equals(name)) {
+                target.set(worldName, chunkX, chunkZ, counts);
+                found[0] = true;
+            }
+        });
+        if (!found[0]) {
+            chunkStore.markMigrated(world);
+            return;
+        }
+
+        boolean idle = migrationTask == null || migrationTask.isFinished();
+        if (idle) {
+            migrationTask = new ChunkCountMigrationTask(plugin, chunkStore);
+        }
+        migrationTask.add(name);
+        if (idle) {
+            migrationTask.start();
+        }
+    }
+
+    /**
+     * Open the event journal when storage.write-mode is journal, replaying its pending tail
+     */
+    private EventJournal openJournal(Config config) {
+        if (!config.getWriteMode().equalsIgnoreCase("journal")) {
+            return null;
+        }
+
+        EventJournal journal = new EventJournal(
+                new File(plugin.getDataFolder(), "hopperlimiter.journal"),
+                config.getJournalSizeMb() * 1024L * 1024L,
+                backend::writeBatch,
+                backend::countDropped,
+                WriteBehindQueue.BackpressurePolicy.fromConfig(config.getWriteBackpressurePolicy()),
+                dictionary,
+                plugin.getLogger(),
+                config.getWriteFlushSize(),
+                config.getWriteFlushIntervalMillis()
+        );
+        try {
+            // Replayed events were never counted in the statistics cache either
+            int replayed = journal.open(batch -> {
+                statistics.addAll(batch);
+                backend.writeBatch(batch);
+            });
+            if (replayed > 0) {
+                plugin.getLogger().info("Replayed " + replayed + " events from the event journal");
+            }
+            return journal;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to open event journal, using the write-behind queue: " + e.getMessage());
+            if (config.isDebugEnabled()) {
                 e.printStackTrace();
             }
+            return null;
+        }
+    }
+
+    /**
+     * Create the backend named by storage.backend, falling back to SQLite
+     */
+    private StorageBackend createBackend(String name) {
+        switch (name.toLowerCase()) {
+            case "memory":
+                return new MemoryStorageBackend(dictionary);
+            case "h2":
+                return new H2StorageBackend(plugin, dictionary);
+            case "sqlite":
+                return new SQLiteStorageBackend(plugin, dictionary);
+            default:
+                plugin.getLogger().warning("Unknown storage backend '" + name + "', using sqlite");
+                return new SQLiteStorageBackend(plugin, dictionary);
         }
     }
 
     /**
      * Record a block placement event
      */
-    public void recordPlacement(String playerName, String blockType, String world, int chunkX, int chunkZ) {
-        try {
-            // Insert into placement history
-            String insertHistorySql = "INSERT INTO placement_history (timestamp, player_name, block_type, world, chunk_x, chunk_z) " +
-                    "VALUES (?, ?, ?, ?, ?, ?)";
-            try (PreparedStatement pstmt = connection.prepareStatement(insertHistorySql)) {
-                pstmt.setLong(1, System.currentTimeMillis());
-                pstmt.setString(2, playerName);
-                pstmt.setString(3, blockType);
-                pstmt.setString(4, world);
-                pstmt.setInt(5, chunkX);
-                pstmt.setInt(6, chunkZ);
-                pstmt.executeUpdate();
-            }
+    public void recordPlacement(UUID playerUuid, String playerName, String blockType, World world, int x, int y, int z) {
+        StorageEvent event = placeContainer(dictionary.playerId(playerUuid, playerName), blockType, world, x, y, z);
+        saveChunkCounts(world, x >> 4, z >> 4);
+        submit(event);
+    }
 
-            // Update player statistics
-            updatePlayerStatistics(playerName, blockType);
-        } catch (SQLException e) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Failed to record placement: " + e.getMessage());
-            }
+    /**
+     * Record a block removal event
+     * Containers that were never placed by a player (generated structures) are ignored
+     * once their chunk's positions are known.
+     *
+     * @return true if the removed block was a tracked container
+     */
+    public boolean recordRemoval(String blockType, World world, int x, int y, int z, UUID removedByUuid, String removedByName) {
+        StorageEvent event = removeContainer(dictionary.playerId(removedByUuid, removedByName), blockType, world, x, y, z);
+        if (event == null) {
+            return false;
         }
+        saveChunkCounts(world, x >> 4, z >> 4);
+        submit(event);
+        return true;
     }
 
     /**
-     * Update player statistics
+     * Record the containers removed and placed by one multi-block change (an explosion,
+     * a growing structure) as one batched update, persisted in one transaction
+     * Blocks that are not limited containers are skipped; removed blocks are read
+     * before the change, placed states describe the blocks after it.
+     *
+     * @return number of tracked containers removed or placed
      */
-    private void updatePlayerStatistics(String playerName, String blockType) {
-        try {
-            // Check if player exists
-            String checkSql = "SELECT id FROM player_statistics WHERE player_name = ?";
-            boolean exists = false;
-            try (PreparedStatement pstmt = connection.prepareStatement(checkSql)) {
-                pstmt.setString(1, playerName);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    exists = rs.next();
-                }
+    public int recordChanges(World world, List<Block> removed, List<BlockState> placed, UUID playerUuid, String playerName) {
+        int playerId = -1;
+        List<StorageEvent> events = new ArrayList<>();
+        LongObjectHashMap<Boolean> changedChunks = new LongObjectHashMap<>();
+        for (Block block : removed) {
+            int type = ContainerTypes.typeIndex(block.getType());
+            if (type < 0) {
+                continue;
+            }
+            if (playerId < 0) {
+                playerId = dictionary.playerId(playerUuid, playerName);
+            }
+            StorageEvent event = removeContainer(playerId, ChunkCounterCache.typeName(type), world,
+                    block.getX(), block.getY(), block.getZ());
+            if (event != null) {
+                events.add(event);
+                changedChunks.put(ChunkCounterCache.chunkKey(event.getChunkX(), event.getChunkZ()), Boolean.TRUE);
             }
+        }
+        for (BlockState state : placed) {
+            int type = ContainerTypes.typeIndex(state.getType());
+            if (type < 0) {
+                continue;
+            }
+            if (playerId < 0) {
+                playerId = dictionary.playerId(playerUuid, playerName);
+            }
+            StorageEvent event = placeContainer(playerId, ChunkCounterCache.typeName(type), world,
+                    state.getX(), state.getY(), state.getZ());
+            events.add(event);
+            changedChunks.put(ChunkCounterCache.chunkKey(event.getChunkX(), event.getChunkZ()), Boolean.TRUE);
+        }
+        if (events.isEmpty()) {
+            return 0;
+        }
 
-            if (!exists) {
-                // Insert new player
-                String insertSql = "INSERT INTO player_statistics (player_name, last_placement) VALUES (?, ?)";
-                try (PreparedStatement pstmt = connection.prepareStatement(insertSql)) {
-                    pstmt.setString(1, playerName);
-                    pstmt.setString(2, LocalDateTime.now().format(DATE_FORMATTER));
-                    pstmt.executeUpdate();
-                }
-            }
+        // One chunk data write per chunk and one transaction for the whole change
+        changedChunks.forEach((key, changed) ->
+                saveChunkCounts(world, ChunkCounterCache.chunkX(key), ChunkCounterCache.chunkZ(key)));
+        statistics.addAll(events);
+        eventSink.submitAll(events);
+        return events.size();
+    }
 
-            // Update count
-            String blockColumn = blockType.toLowerCase() + "_count";
-            String updateSql = "UPDATE player_statistics SET " + blockColumn + " = " + blockColumn + " + 1, " +
-                    "last_placement = ?, updated_at = CURRENT_TIMESTAMP WHERE player_name = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(updateSql)) {
-                pstmt.setString(1, LocalDateTime.now().format(DATE_FORMATTER));
-                pstmt.setString(2, playerName);
-                pstmt.executeUpdate();
-            }
-        } catch (SQLException e) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Failed to update player statistics: " + e.getMessage());
+    /**
+     * Record a multi-block change that no player made, attributed to the pseudo-player [cause]
+     */
+    public int recordChanges(World world, List<Block> removed, List<BlockState> placed, String cause) {
+        String name = "[" + cause + "]";
+        UUID uuid = UUID.nameUUIDFromBytes(("HopperLimiter:" + name).getBytes(StandardCharsets.UTF_8));
+        return recordChanges(world, removed, placed, uuid, name);
+    }
+
+    /**
+     * Count a placed container in memory, returning its event for the write path
+     */
+    private StorageEvent placeContainer(int playerId, String blockType, World world, int x, int y, int z) {
+        String worldName = world.getName();
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        if (!positions.isTracked(worldName, chunkX, chunkZ) && counterCache.getTotal(worldName, chunkX, chunkZ) == 0) {
+            // First container in the chunk, so every position in it is known
+            positions.track(worldName, chunkX, chunkZ).complete(null);
+        }
+        int replaced = positions.add(worldName, x, y, z, ChunkCounterCache.typeIndex(blockType));
+        if (replaced >= 0) {
+            counterCache.decrement(worldName, chunkX, chunkZ, ChunkCounterCache.typeName(replaced));
+        }
+        counterCache.increment(worldName, chunkX, chunkZ, blockType);
+        return StorageEvent.placement(
+                playerId,
+                dictionary.blockTypeId(blockType),
+                dictionary.worldId(world.getUID(), worldName),
+                x, y, z);
+    }
+
+    /**
+     * Uncount a removed container in memory, returning its event for the write path
+     *
+     * @return the removal, or null if the block was not a tracked container
+     */
+    private StorageEvent removeContainer(int removedById, String blockType, World world, int x, int y, int z) {
+        String worldName = world.getName();
+        int chunkX = x >> 4;
+        int chunkZ = z >> 4;
+        int counted = counterCache.getCount(worldName, chunkX, chunkZ, blockType);
+        int tracked = positions.remove(worldName, x, y, z);
+        if (counted == 0) {
+            return null;
+        }
+        if (tracked == ContainerPositionIndex.ABSENT
+                && counted <= positions.count(worldName, chunkX, chunkZ, ChunkCounterCache.typeIndex(blockType))) {
+            // Every counted container of this type has a known position elsewhere
+            return null;
+        }
+
+        counterCache.decrement(worldName, chunkX, chunkZ, blockType);
+        return StorageEvent.removal(
+                removedById,
+                dictionary.blockTypeId(blockType),
+                dictionary.worldId(world.getUID(), worldName),
+                x, y, z);
+    }
+
+    /**
+     * Write a chunk's counters through to its chunk data (storage.chunk-counts: chunk)
+     */
+    private void saveChunkCounts(World world, int chunkX, int chunkZ) {
+        if (chunkStore != null && world.isChunkLoaded(chunkX, chunkZ)) {
+            chunkStore.save(world.getChunkAt(chunkX, chunkZ), counterCache.getCounts(world.getName(), chunkX, chunkZ));
+        }
+    }
+
+    /**
+     * Read the counts of a loaded chunk from its chunk data, and index its container
+     * positions off the main thread; chunks without tracked containers are indexed immediately
+     */
+    public void onChunkLoad(Chunk chunk) {
+        String world = chunk.getWorld().getName();
+        int chunkX = chunk.getX();
+        int chunkZ = chunk.getZ();
+        if (chunkStore != null) {
+            // Chunks near spawn can load before the world's load event
+            onWorldLoad(chunk.getWorld());
+            counterCache.set(world, chunkX, chunkZ, chunkStore.load(chunk));
+        }
+
+        if (positions.isTracked(world, chunkX, chunkZ)) {
+            return;
+        }
+        ContainerPositionIndex.ChunkPositions tracked = positions.track(world, chunkX, chunkZ);
+        if (counterCache.getTotal(world, chunkX, chunkZ) == 0) {
+            tracked.complete(null);
+            return;
+        }
+        plugin.getTickScheduler().execute(() -> {
+            try {
+                LongObjectHashMap<Integer> persisted = backend.getContainerPositions(world, chunkX, chunkZ);
+                plugin.getServer().getScheduler().runTask(plugin, () -> tracked.complete(persisted));
+            } catch (Exception e) {
+                plugin.getLogger().warning("Failed to load container positions of chunk (" +
+                        chunkX + "," + chunkZ + ") in " + world + ", retrying when it loads again: " + e.getMessage());
+                plugin.getServer().getScheduler().runTask(plugin, () -> positions.untrack(world, chunkX, chunkZ, tracked));
+            }
+        });
+    }
+
+    /**
+     * Drop the container positions of an unloaded chunk
+     * Its counts stay cached so they still count towards the windows and costs of its
+     * neighbors; with chunk data counts they are read again when the chunk loads.
+     */
+    public void onChunkUnload(Chunk chunk) {
+        positions.untrack(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
+    }
+
+    /**
+     * Get the chunk data count store, or null when counts are kept in the database
+     */
+    public ChunkCountStore getChunkCountStore() {
+        return chunkStore;
+    }
+
+    /**
+     * Get the chunk count migration task, or null if no migration is running
+     */
+    public ChunkCountMigrationTask getMigrationTask() {
+        return migrationTask;
+    }
+
+    /**
+     * Start auditing a world unless an audit is already running
+     *
+     * @return the started audit, or null if another one is still running
+     */
+    public WorldAudit startAudit(World world, Player requester) {
+        if (audit != null && !audit.isDone()) {
+            return null;
+        }
+        audit = new WorldAudit(plugin, this, world, requester, plugin.getConfigManager().getAuditBatchSize());
+        audit.start();
+        return audit;
+    }
+
+    /**
+     * Get the running or last finished audit, or null if none was started
+     */
+    public WorldAudit getAudit() {
+        return audit;
+    }
+
+    /**
+     * Capture what is tracked in a chunk before its snapshot is taken for an audit
+     */
+    public ChunkAudit prepareAudit(World world, int chunkX, int chunkZ) {
+        String worldName = world.getName();
+        int[] counts = counterCache.getCounts(worldName, chunkX, chunkZ);
+        return new ChunkAudit(worldName, chunkX, chunkZ,
+                counts != null ? counts.clone() : new int[ContainerTypes.count()],
+                positions.copy(worldName, chunkX, chunkZ));
+    }
+
+    /**
+     * Correct a chunk to the containers an audit found in it
+     * Counters are set to the found counts and the differences are submitted as placements
+     * and removals by the audit player, queued behind the events recorded before the
+     * snapshot. Player statistics are left as they are.
+     *
+     * @return false if the chunk changed since its snapshot and was left alone
+     */
+    public boolean applyAudit(World world, ChunkAudit audit) {
+        String worldName = world.getName();
+        int chunkX = audit.getChunkX();
+        int chunkZ = audit.getChunkZ();
+        if (chunkStore != null && !world.isChunkLoaded(chunkX, chunkZ)) {
+            return false;
+        }
+        int[] counts = counterCache.getCounts(worldName, chunkX, chunkZ);
+        if (!Arrays.equals(counts != null ? counts : new int[ContainerTypes.count()], audit.getTracked())) {
+            return false;
+        }
+        if (!audit.hasCorrections()) {
+            return true;
+        }
+
+        int playerId = dictionary.playerId(AUDIT_PLAYER_UUID, AUDIT_PLAYER_NAME);
+        int worldId = dictionary.worldId(world.getUID(), worldName);
+        audit.getMissing().forEach((key, type) -> {
+            int x = ContainerPositionIndex.blockX(key, chunkX);
+            int y = ContainerPositionIndex.blockY(key);
+            int z = ContainerPositionIndex.blockZ(key, chunkZ);
+            positions.remove(worldName, x, y, z);
+            eventSink.submit(StorageEvent.removal(playerId, auditTypeId(type), worldId, x, y, z));
+        });
+        int[] retired = audit.getRetired();
+        for (int type = 0; type < retired.length; type++) {
+            for (int i = 0; i < retired[type]; i++) {
+                // Counted without a position, so the latest unpositioned placement is retired
+                eventSink.submit(new StorageEvent(StorageEvent.Kind.REMOVAL, System.currentTimeMillis(),
+                        playerId, auditTypeId(type), worldId, chunkX, chunkZ));
             }
         }
+        audit.getUntracked().forEach((key, type) -> {
+            int x = ContainerPositionIndex.blockX(key, chunkX);
+            int y = ContainerPositionIndex.blockY(key);
+            int z = ContainerPositionIndex.blockZ(key, chunkZ);
+            positions.add(worldName, x, y, z, type);
+            eventSink.submit(StorageEvent.placement(playerId, auditTypeId(type), worldId, x, y, z));
+        });
+
+        counterCache.set(worldName, chunkX, chunkZ, audit.getFound());
+        saveChunkCounts(world, chunkX, chunkZ);
+        return true;
+    }
+
+    private int auditTypeId(int type) {
+        return dictionary.blockTypeId(ChunkCounterCache.typeName(type));
+    }
+
+    private void submit(StorageEvent event) {
+        statistics.add(event);
+        eventSink.submit(event);
     }
 
     /**
-     * Record a block removal event
+     * Start caching a player's statistics and preload them off the main thread
      */
-    public void recordRemoval(String blockType, String world, int chunkX, int chunkZ, String removedBy) {
-        try {
-            // Mark the most recent placement of this type in this chunk as removed
-            String updateSql = "UPDATE placement_history SET is_removed = 1, removed_at = ?, removed_by = ? " +
-                    "WHERE block_type = ? AND world = ? AND chunk_x = ? AND chunk_z = ? AND is_removed = 0 " +
-                    "ORDER BY timestamp DESC LIMIT 1";
-            try (PreparedStatement pstmt = connection.prepareStatement(updateSql)) {
-                pstmt.setString(1, LocalDateTime.now().format(DATE_FORMATTER));
-                pstmt.setString(2, removedBy);
-                pstmt.setString(3, blockType);
-                pstmt.setString(4, world);
-                pstmt.setInt(5, chunkX);
-                pstmt.setInt(6, chunkZ);
-                int updatedRows = pstmt.executeUpdate();
-
-                // If a record was found and updated, decrement player statistics
-                if (updatedRows > 0) {
-                    updatePlayerRemovalStatistics(blockType);
+    public void onPlayerJoin(UUID playerUuid, String playerName) {
+        int playerId = dictionary.playerId(playerUuid, playerName);
+        statistics.join(playerId);
+        plugin.getTickScheduler().execute(() -> {
+            try {
+                statistics.preload(playerId);
+            } catch (Exception e) {
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().warning("Failed to preload statistics of " + playerName + ": " + e.getMessage());
                 }
             }
-        } catch (SQLException e) {
+        });
+    }
+
+    /**
+     * Evict a player's cached statistics once their deltas are flushed
+     */
+    public void onPlayerQuit(UUID playerUuid, String playerName) {
+        statistics.quit(dictionary.playerId(playerUuid, playerName));
+    }
+
+    /**
+     * Get the in-memory container position index
+     */
+    public ContainerPositionIndex getPositionIndex() {
+        return positions;
+    }
+
+    /**
+     * Get the player statistics cache
+     */
+    public PlayerStatisticsCache getStatisticsCache() {
+        return statistics;
+    }
+
+    /**
+     * Get the active backend
+     */
+    public StorageBackend getBackend() {
+        return backend;
+    }
+
+    /**
+     * Get the active write path (for metrics)
+     */
+    public EventSink getEventSink() {
+        return eventSink;
+    }
+
+    /**
+     * Get the history retention task, or null if retention is disabled
+     */
+    public HistoryRetentionTask getRetentionTask() {
+        return retentionTask;
+    }
+
+    /**
+     * Get archived (pruned) placement records for a player, newest first
+     */
+    public List<HistoryArchive.ArchivedRecord> getArchivedPlayerRecords(String playerName) {
+        try {
+            return archive.getPlayerRecords(playerName);
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Failed to record removal: " + e.getMessage());
+                plugin.getLogger().warning("Failed to read history archive: " + e.getMessage());
             }
+            return new ArrayList<>();
         }
     }
 
     /**
-     * Update player statistics for block removal
+     * Get archived (pruned) placement records for a chunk, newest first
      */
-    private void updatePlayerRemovalStatistics(String blockType) {
+    public List<HistoryArchive.ArchivedRecord> getArchivedChunkRecords(String world, int chunkX, int chunkZ) {
         try {
-            String blockColumn = blockType.toLowerCase() + "_removed";
-            String updateSql = "UPDATE player_statistics SET " + blockColumn + " = " + blockColumn + " + 1, " +
-                    "updated_at = CURRENT_TIMESTAMP WHERE player_name = " +
-                    "(SELECT removed_by FROM placement_history WHERE block_type = ? AND is_removed = 1 " +
-                    "ORDER BY removed_at DESC LIMIT 1)";
-            try (PreparedStatement pstmt = connection.prepareStatement(updateSql)) {
-                pstmt.setString(1, blockType);
-                pstmt.executeUpdate();
-            }
-        } catch (SQLException e) {
+            return archive.getChunkRecords(world, chunkX, chunkZ);
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Failed to update removal statistics: " + e.getMessage());
+                plugin.getLogger().warning("Failed to read history archive: " + e.getMessage());
             }
+            return new ArrayList<>();
         }
     }
 
@@ -211,90 +599,44 @@ public class StorageManager {
      * Get all placement records for a specific player
      */
     public List<BlockPlacementRecord> getPlayerRecords(String playerName) {
-        List<BlockPlacementRecord> records = new ArrayList<>();
         try {
-            String sql = "SELECT id, timestamp, player_name, block_type, world, chunk_x, chunk_z " +
-                    "FROM placement_history WHERE player_name = ? ORDER BY timestamp DESC";
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, playerName);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        records.add(new BlockPlacementRecord(
-                                rs.getInt("id"),
-                                rs.getLong("timestamp"),
-                                rs.getString("player_name"),
-                                rs.getString("block_type"),
-                                rs.getString("world"),
-                                rs.getInt("chunk_x"),
-                                rs.getInt("chunk_z")
-                        ));
-                    }
-                }
-            }
-        } catch (SQLException e) {
+            return backend.getPlayerRecords(playerName);
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().warning("Failed to get player records: " + e.getMessage());
             }
         }
-        return records;
+        return new ArrayList<>();
     }
 
     /**
      * Get all placement records in a specific chunk
      */
     public List<BlockPlacementRecord> getChunkRecords(String world, int chunkX, int chunkZ) {
-        List<BlockPlacementRecord> records = new ArrayList<>();
         try {
-            String sql = "SELECT id, timestamp, player_name, block_type, world, chunk_x, chunk_z " +
-                    "FROM placement_history WHERE world = ? AND chunk_x = ? AND chunk_z = ? ORDER BY timestamp DESC";
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, world);
-                pstmt.setInt(2, chunkX);
-                pstmt.setInt(3, chunkZ);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        records.add(new BlockPlacementRecord(
-                                rs.getInt("id"),
-                                rs.getLong("timestamp"),
-                                rs.getString("player_name"),
-                                rs.getString("block_type"),
-                                rs.getString("world"),
-                                rs.getInt("chunk_x"),
-                                rs.getInt("chunk_z")
-                        ));
-                    }
-                }
-            }
-        } catch (SQLException e) {
+            return backend.getChunkRecords(world, chunkX, chunkZ);
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().warning("Failed to get chunk records: " + e.getMessage());
             }
         }
-        return records;
+        return new ArrayList<>();
     }
 
     /**
      * Get statistics for a specific player
      */
     public PlayerStatistics getPlayerStatistics(String playerName) {
+        // Online players are served from the cache
+        int playerId = dictionary.findPlayerId(playerName);
+        PlayerStatistics cached = playerId >= 0 ? statistics.get(playerId) : null;
+        if (cached != null) {
+            return cached;
+        }
+
         try {
-            String sql = "SELECT player_name, hopper_count, chest_count, barrel_count, last_placement " +
-                    "FROM player_statistics WHERE player_name = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, playerName);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        return new PlayerStatistics(
-                                rs.getString("player_name"),
-                                rs.getInt("hopper_count"),
-                                rs.getInt("chest_count"),
-                                rs.getInt("barrel_count"),
-                                rs.getString("last_placement")
-                        );
-                    }
-                }
-            }
-        } catch (SQLException e) {
+            return backend.getPlayerStatistics(playerName);
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().warning("Failed to get player statistics: " + e.getMessage());
             }
@@ -306,29 +648,14 @@ public class StorageManager {
      * Get all player statistics
      */
     public Map<String, PlayerStatistics> getAllPlayerStatistics() {
-        Map<String, PlayerStatistics> stats = new HashMap<>();
         try {
-            String sql = "SELECT player_name, hopper_count, chest_count, barrel_count, last_placement " +
-                    "FROM player_statistics ORDER BY updated_at DESC";
-            try (Statement stmt = connection.createStatement();
-                 ResultSet rs = stmt.executeQuery(sql)) {
-                while (rs.next()) {
-                    PlayerStatistics stat = new PlayerStatistics(
-                            rs.getString("player_name"),
-                            rs.getInt("hopper_count"),
-                            rs.getInt("chest_count"),
-                            rs.getInt("barrel_count"),
-                            rs.getString("last_placement")
-                    );
-                    stats.put(rs.getString("player_name"), stat);
-                }
-            }
-        } catch (SQLException e) {
+            return backend.getAllPlayerStatistics();
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().warning("Failed to get all player statistics: " + e.getMessage());
             }
         }
-        return stats;
+        return new HashMap<>();
     }
 
     /**
@@ -336,42 +663,8 @@ public class StorageManager {
      */
     public GlobalStatistics getGlobalStatistics() {
         try {
-            // Get total placements
-            int totalPlacements = 0;
-            String placementSql = "SELECT COUNT(*) as count FROM placement_history";
-            try (Statement stmt = connection.createStatement();
-                 ResultSet rs = stmt.executeQuery(placementSql)) {
-                if (rs.next()) {
-                    totalPlacements = rs.getInt("count");
-                }
-            }
-
-            // Get total players
-            int totalPlayers = 0;
-            String playerSql = "SELECT COUNT(*) as count FROM player_statistics";
-            try (Statement stmt = connection.createStatement();
-                 ResultSet rs = stmt.executeQuery(playerSql)) {
-                if (rs.next()) {
-                    totalPlayers = rs.getInt("count");
-                }
-            }
-
-            // Get block counts
-            Map<String, Integer> blockCounts = new HashMap<>();
-            blockCounts.put("hopper", 0);
-            blockCounts.put("chest", 0);
-            blockCounts.put("barrel", 0);
-
-            String blockSql = "SELECT block_type, COUNT(*) as count FROM placement_history GROUP BY block_type";
-            try (Statement stmt = connection.createStatement();
-                 ResultSet rs = stmt.executeQuery(blockSql)) {
-                while (rs.next()) {
-                    blockCounts.put(rs.getString("block_type").toLowerCase(), rs.getInt("count"));
-                }
-            }
-
-            return new GlobalStatistics(totalPlacements, totalPlayers, blockCounts);
-        } catch (SQLException e) {
+            return backend.getGlobalStatistics();
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().warning("Failed to get global statistics: " + e.getMessage());
             }
@@ -380,66 +673,83 @@ public class StorageManager {
     }
 
     /**
-     * Get block count in a specific chunk
+     * Get block count of all tracked types in a specific chunk (served from memory)
      */
     public int getChunkBlockCount(String world, int chunkX, int chunkZ) {
-        try {
-            String sql = "SELECT COUNT(*) as count FROM placement_history WHERE world = ? AND chunk_x = ? AND chunk_z = ? AND is_removed = 0";
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, world);
-                pstmt.setInt(2, chunkX);
-                pstmt.setInt(3, chunkZ);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    if (rs.next()) {
-                        return rs.getInt("count");
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Failed to get chunk block count: " + e.getMessage());
-            }
+        return counterCache.getTotal(world, chunkX, chunkZ);
+    }
+
+    /**
+     * Get the weighted cost of a chunk's blocks (served from memory)
+     */
+    public int getChunkCost(String world, int chunkX, int chunkZ) {
+        return counterCache.getCost(world, chunkX, chunkZ);
+    }
+
+    /**
+     * Take the cost weights of a limit table, recomputing every chunk's cost
+     * Must be called from the main server thread.
+     */
+    public void applyCostWeights(LimitTable limits) {
+        int[] weights = new int[ContainerTypes.count()];
+        for (int type = 0; type < weights.length; type++) {
+            weights[type] = limits.getCostWeight(ContainerTypes.material(type));
         }
-        return 0;
+        counterCache.setWeights(weights);
+    }
+
+    /**
+     * Get the total block count of the chunks within radius of a chunk (served from memory)
+     */
+    public int getWindowBlockCount(String world, int chunkX, int chunkZ, int radius) {
+        return counterCache.getWindowTotal(world, chunkX, chunkZ, radius);
+    }
+
+    /**
+     * Get the count of a type index in the 16x16x16 section holding a block (served from memory)
+     * Only containers with a known position are counted: ones placed before the plugin
+     * was installed are missing until an audit finds them, and while the chunk's
+     * positions are loading only those known so far count.
+     */
+    public int getSectionBlockCount(String world, int x, int y, int z, int type) {
+        return positions.sectionCount(world, x, y, z, type);
+    }
+
+    /**
+     * Get block count of a single type in a specific chunk (served from memory)
+     */
+    public int getChunkBlockCount(String world, int chunkX, int chunkZ, String blockType) {
+        return counterCache.getCount(world, chunkX, chunkZ, blockType);
+    }
+
+    /**
+     * Get block count of a type index in a specific chunk (served from memory)
+     */
+    public int getChunkBlockCount(String world, int chunkX, int chunkZ, int type) {
+        return counterCache.getCount(world, chunkX, chunkZ, type);
     }
 
     /**
      * Get chunk block counts for a world (for heatmap)
      */
     public Map<String, Integer> getChunkBlockCounts(String world) {
-        Map<String, Integer> chunkCounts = new HashMap<>();
         try {
-            String sql = "SELECT chunk_x, chunk_z, COUNT(*) as count FROM placement_history WHERE world = ? AND is_removed = 0 GROUP BY chunk_x, chunk_z";
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, world);
-                try (ResultSet rs = pstmt.executeQuery()) {
-                    while (rs.next()) {
-                        String key = rs.getInt("chunk_x") + "_" + rs.getInt("chunk_z");
-                        chunkCounts.put(key, rs.getInt("count"));
-                    }
-                }
-            }
-        } catch (SQLException e) {
+            return backend.getChunkBlockCounts(world);
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().warning("Failed to get chunk block counts: " + e.getMessage());
             }
         }
-        return chunkCounts;
+        return new HashMap<>();
     }
 
     /**
      * Save data (for consistency with JSON version)
      */
     public void saveData() {
-        // SQLite auto-commits, so nothing to do here
-        // But we can add explicit checkpoint if needed
         try {
-            if (connection != null && !connection.isClosed()) {
-                try (Statement stmt = connection.createStatement()) {
-                    stmt.execute("PRAGMA optimize;");
-                }
-            }
-        } catch (SQLException e) {
+            backend.checkpoint();
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().warning("Failed to optimize database: " + e.getMessage());
             }
@@ -450,15 +760,24 @@ public class StorageManager {
      * Clear all records (for admin reset)
      */
     public void clearAllRecords() {
+        if (audit != null) {
+            audit.stop();
+        }
         try {
-            try (Statement stmt = connection.createStatement()) {
-                stmt.executeUpdate("DELETE FROM placement_history");
-                stmt.executeUpdate("DELETE FROM player_statistics");
+            backend.clearAllRecords();
+            if (chunkStore != null) {
+                // Counts left in unloaded chunks become stale
+                for (World world : plugin.getServer().getWorlds()) {
+                    chunkStore.reset(world);
+                }
             }
+            counterCache.clear();
+            positions.clear();
+            statistics.clear();
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().info("All records cleared successfully!");
             }
-        } catch (SQLException e) {
+        } catch (Exception e) {
             if (plugin.getConfigManager().isDebugEnabled()) {
                 plugin.getLogger().warning("Failed to clear records: " + e.getMessage());
             }
@@ -466,21 +785,26 @@ public class StorageManager {
     }
 
     /**
-     * Close database connection
+     * Drain the write path, flush player statistics and close the backend
      */
     public void close() {
+        if (retentionTask != null) {
+            retentionTask.cancel();
+        }
+        if (migrationTask != null && !migrationTask.isFinished()) {
+            plugin.getTickScheduler().unschedule(migrationTask);
+        }
+        if (audit != null) {
+            audit.stop();
+        }
+        statisticsTask.cancel();
+        eventSink.shutdown();
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                if (plugin.getConfigManager().isDebugEnabled()) {
-                    plugin.getLogger().info("Database connection closed!");
-                }
-            }
-        } catch (SQLException e) {
-            if (plugin.getConfigManager().isDebugEnabled()) {
-                plugin.getLogger().warning("Failed to close database: " + e.getMessage());
-            }
+            statistics.flush();
+        } catch (Exception e) {
+            plugin.getLogger().warning("Failed to save player statistics: " + e.getMessage());
         }
+        backend.close();
     }
 
     // ==================== Data Classes ====================
@@ -517,28 +841,25 @@ public class StorageManager {
 
     public static class PlayerStatistics {
         private final String playerName;
-        private final int hopperCount;
-        private final int chestCount;
-        private final int barrelCount;
+        private final Map<String, Integer> blockCounts;
         private final String lastPlacement;
 
-        public PlayerStatistics(String playerName, int hopperCount, int chestCount, int barrelCount, String lastPlacement) {
+        /**
+         * @param blockCounts placements by block type name, such as "Hopper", in type order
+         */
+        public PlayerStatistics(String playerName, Map<String, Integer> blockCounts, String lastPlacement) {
             this.playerName = playerName;
-            this.hopperCount = hopperCount;
-            this.chestCount = chestCount;
-            this.barrelCount = barrelCount;
+            this.blockCounts = blockCounts;
             this.lastPlacement = lastPlacement != null ? lastPlacement : "Never";
         }
 
         public PlayerStatistics(String playerName) {
-            this(playerName, 0, 0, 0, "Never");
+            this(playerName, new LinkedHashMap<>(), "Never");
         }
 
         // Getters
         public String getPlayerName() { return playerName; }
-        public int getHopperCount() { return hopperCount; }
-        public int getChestCount() { return chestCount; }
-        public int getBarrelCount() { return barrelCount; }
+        public Map<String, Integer> getBlockCounts() { return blockCounts; }
         public String getLastPlacement() { return lastPlacement; }
     }
 
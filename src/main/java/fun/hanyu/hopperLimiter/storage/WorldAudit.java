@@ -0,0 +1,224 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.scheduler.TickScheduler;
+import org.bukkit.ChatColor;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Recounts the containers actually present in the loaded chunks of a world
+ * and corrects the stored counts and placement history to match
+ * Runs as a low priority slice of the tick budget, first applying finished chunks in
+ * a batch, then taking ChunkSnapshots; snapshots are scanned and diffed on the
+ * scheduler's workers. Only chunks loaded when the audit starts are queued, and
+ * ones unloaded before their turn are skipped, so an audit never loads or
+ * generates a chunk on the main thread.
+ */
+public class WorldAudit implements TickScheduler.Slice {
+    private static final int MAX_IN_FLIGHT = 64;
+    private static final long PROGRESS_INTERVAL_MILLIS = 10000;
+
+    public enum State {
+        RUNNING,
+        PAUSED,
+        FINISHED,
+        STOPPED
+    }
+
+    private final HopperLimiter plugin;
+    private final StorageManager storageManager;
+    private final World world;
+    private final Player requester;
+    private final int batchSize;
+    private final Deque<Long> chunks = new ArrayDeque<>();
+    private final Queue<ChunkAudit> results = new ConcurrentLinkedQueue<>();
+    private final long startedAt = System.currentTimeMillis();
+    private volatile State state = State.RUNNING;
+    private int totalChunks;
+    private int inFlight;
+    private int audited;
+    private int corrected;
+    private int skipped;
+    private int unloaded;
+    private int failed;
+    private int added;
+    private int removed;
+    private long lastProgress = startedAt;
+
+    public WorldAudit(HopperLimiter plugin, StorageManager storageManager, World world, Player requester, int batchSize) {
+        this.plugin = plugin;
+        this.storageManager = storageManager;
+        this.world = world;
+        this.requester = requester;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Queue the world's loaded chunks and start auditing
+     */
+    public void start() {
+        for (Chunk chunk : world.getLoadedChunks()) {
+            chunks.add(ChunkCounterCache.chunkKey(chunk.getX(), chunk.getZ()));
+        }
+        totalChunks = chunks.size();
+
+        plugin.getLogger().info("Auditing world " + world.getName() + ": " + totalChunks + " loaded chunks");
+        plugin.getTickScheduler().schedule(this, TickScheduler.Priority.LOW);
+    }
+
+    @Override
+    public boolean run(long deadlineNanos) {
+        if (state != State.RUNNING) {
+            return !isDone();
+        }
+
+        // Apply finished chunks first to keep the number in flight down
+        ChunkAudit result;
+        for (int i = 0; i < batchSize && System.nanoTime() < deadlineNanos && (result = results.poll()) != null; i++) {
+            inFlight--;
+            apply(result);
+        }
+
+        while (inFlight < MAX_IN_FLIGHT && System.nanoTime() < deadlineNanos && next()) {
+            // Snapshot chunks until the budget is spent
+        }
+
+        if (inFlight == 0 && chunks.isEmpty()) {
+            finish(State.FINISHED);
+            return false;
+        }
+        if (System.currentTimeMillis() - lastProgress >= PROGRESS_INTERVAL_MILLIS) {
+            lastProgress = System.currentTimeMillis();
+            notifyRequester(ChatColor.AQUA + "Audit of " + world.getName() + ": " + ChatColor.YELLOW + getProgress());
+        }
+        return true;
+    }
+
+    /**
+     * Take the snapshot of the next queued chunk
+     *
+     * @return false once nothing is left to queue
+     */
+    private boolean next() {
+        Long key = chunks.poll();
+        if (key == null) {
+            return false;
+        }
+
+        int chunkX = ChunkCounterCache.chunkX(key);
+        int chunkZ = ChunkCounterCache.chunkZ(key);
+        if (!world.isChunkLoaded(chunkX, chunkZ)) {
+            unloaded++;
+            return true;
+        }
+        Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+
+        ChunkAudit audit = storageManager.prepareAudit(world, chunkX, chunkZ);
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot(false, false, false);
+        int minY = world.getMinHeight();
+        int maxY = world.getMaxHeight();
+        StorageBackend backend = storageManager.getBackend();
+        inFlight++;
+        plugin.getTickScheduler().execute(() -> {
+            if (isDone()) {
+                return;
+            }
+            try {
+                audit.scan(snapshot, minY, maxY, backend);
+            } catch (Exception e) {
+                audit.fail();
+                if (plugin.getConfigManager().isDebugEnabled()) {
+                    plugin.getLogger().warning("Failed to audit chunk (" + chunkX + "," + chunkZ + "): " + e.getMessage());
+                }
+            }
+            results.add(audit);
+        });
+        return true;
+    }
+
+    /**
+     * Apply one scanned chunk on the main thread
+     */
+    private void apply(ChunkAudit audit) {
+        if (audit.isFailed()) {
+            failed++;
+        } else if (!storageManager.applyAudit(world, audit)) {
+            skipped++;
+        } else {
+            audited++;
+            if (audit.hasCorrections()) {
+                corrected++;
+                added += audit.getUntracked().size();
+                removed += audit.getMissing().size() + audit.getRetiredTotal();
+            }
+        }
+    }
+
+    /**
+     * Stop taking snapshots; chunks already being scanned are applied after resuming
+     */
+    public void pause() {
+        if (state == State.RUNNING) {
+            state = State.PAUSED;
+        }
+    }
+
+    public void resume() {
+        if (state == State.PAUSED) {
+            state = State.RUNNING;
+        }
+    }
+
+    /**
+     * Abandon the audit, keeping the corrections applied so far
+     */
+    public void stop() {
+        if (!isDone()) {
+            plugin.getTickScheduler().unschedule(this);
+            finish(State.STOPPED);
+        }
+    }
+
+    private void finish(State finalState) {
+        state = finalState;
+        results.clear();
+
+        String summary = "Audit of " + world.getName() + " " + (finalState == State.FINISHED ? "finished" : "stopped") +
+                " after " + (System.currentTimeMillis() - startedAt) / 1000 + "s: " + getProgress();
+        plugin.getLogger().info(summary);
+        notifyRequester(ChatColor.GREEN + summary);
+    }
+
+    private void notifyRequester(String message) {
+        if (requester.isOnline()) {
+            requester.sendMessage(message);
+        }
+    }
+
+    /**
+     * One-line progress summary
+     */
+    public String getProgress() {
+        return audited + " chunks audited, " + corrected + " corrected (+" + added + "/-" + removed + " containers), " +
+                skipped + " changed meanwhile, " + unloaded + " unloaded, " + failed + " failed, " +
+                (totalChunks - chunks.size()) + "/" + totalChunks + " chunks";
+    }
+
+    public boolean isDone() {
+        return state == State.FINISHED || state == State.STOPPED;
+    }
+
+    // Getters
+    public World getWorld() { return world; }
+    public State getState() { return state; }
+    public int getQueuedChunks() { return chunks.size(); }
+    public int getInFlight() { return inFlight; }
+}
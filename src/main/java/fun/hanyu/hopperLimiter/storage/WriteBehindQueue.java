@@ -0,0 +1,279 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded queue drained by a single writer thread
+ * Events are grouped into batches so each batch is persisted in one transaction;
+ * events submitted together with submitAll never span two batches. A batch that
+ * fails is retried with a growing backoff until it commits or the plugin shuts down.
+ * Under block a full queue holds the caller for at most MAX_BLOCK_MILLIS, so a
+ * failing backend cannot hang the main thread; history rows are then dropped, with
+ * counters kept exact, until the writer catches up.
+ */
+public class WriteBehindQueue implements EventSink {
+    private static final long MIN_RETRY_MILLIS = 1000;
+    private static final long MAX_RETRY_MILLIS = 60000;
+    /** Longest a submit waits for room under block before dropping the history row */
+    static final long MAX_BLOCK_MILLIS = 250;
+
+    private final BlockingQueue<StorageEvent> queue;
+    private final BatchWriter writer;
+    private final Consumer<StorageEvent> dropHandler;
+    private final Logger logger;
+    private final int flushSize;
+    private final long flushIntervalNanos;
+    private final BackpressurePolicy policy;
+    private final Thread thread;
+    private volatile boolean running = true;
+    // Set when a blocking submit timed out, cleared once an event fits again
+    private volatile boolean stalled;
+    private final FlushMetrics metrics = new FlushMetrics();
+
+    public WriteBehindQueue(BatchWriter writer, Consumer<StorageEvent> dropHandler, Logger logger, int capacity,
+                            int flushSize, long flushIntervalMillis, BackpressurePolicy policy) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.writer = writer;
+        this.dropHandler = dropHandler;
+        this.logger = logger;
+        this.flushSize = Math.max(1, flushSize);
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, flushIntervalMillis));
+        this.policy = policy;
+        this.thread = new Thread(this::runWriter, "HopperLimiter-Writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queue an event for persistence, applying the backpressure policy when full
+     */
+    @Override
+    public void submit(StorageEvent event) {
+        if (!running) {
+            // Writer already stopped, persist on the caller thread instead of losing the event
+            List<StorageEvent> single = new ArrayList<>(1);
+            single.add(event);
+            flush(single);
+            return;
+        }
+
+        if (!enqueue(event)) {
+            drop(event);
+        }
+    }
+
+    /**
+     * Queue a group of events that the writer persists in the same batch
+     * With drop-history the whole group is dropped when it does not fit.
+     */
+    @Override
+    public void submitAll(List<StorageEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        if (!running) {
+            flush(new ArrayList<>(events));
+            return;
+        }
+        if (policy == BackpressurePolicy.DROP_HISTORY && queue.remainingCapacity() < events.size()) {
+            for (StorageEvent event : events) {
+                drop(event);
+            }
+            return;
+        }
+
+        int last = events.size() - 1;
+        for (int i = 0; i <= last; i++) {
+            if (!enqueue(events.get(i).withContinuesGroup(i < last))) {
+                for (; i <= last; i++) {
+                    drop(events.get(i));
+                }
+                return;
+            }
+        }
+    }
+
+    /**
+     * Queue an event, waiting for room under block for at most MAX_BLOCK_MILLIS
+     * After one wait times out later events are not waited for until one fits
+     * again, so a stalled writer costs the main thread a single wait.
+     *
+     * @return false if the event did not fit and its history row must be dropped
+     */
+    private boolean enqueue(StorageEvent event) {
+        if (queue.offer(event)) {
+            stalled = false;
+            return true;
+        }
+        if (policy == BackpressurePolicy.DROP_HISTORY || stalled) {
+            return false;
+        }
+        try {
+            if (queue.offer(event, MAX_BLOCK_MILLIS, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        stalled = true;
+        logger.warning("Write-behind queue still full after " + MAX_BLOCK_MILLIS +
+                "ms, dropping history rows until the writer catches up");
+        return false;
+    }
+
+    private void drop(StorageEvent event) {
+        metrics.recordDropped();
+        dropHandler.accept(event);
+    }
+
+    /**
+     * Stop accepting new work, drain everything queued and wait for the writer to finish
+     */
+    @Override
+    public void shutdown() {
+        running = false;
+        thread.interrupt();
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning("Write-behind queue did not drain in time, " + queue.size() + " events lost");
+        }
+    }
+
+    private void runWriter() {
+        List<StorageEvent> batch = new ArrayList<>(flushSize);
+        while (true) {
+            try {
+                StorageEvent first = running ? queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS) : queue.poll();
+                if (first == null) {
+                    if (!running) {
+                        break;
+                    }
+                    continue;
+                }
+                batch.add(first);
+            } catch (InterruptedException e) {
+                // Woken up by shutdown, drain without waiting
+                continue;
+            }
+            fillBatch(batch);
+            persist(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Collect more events until the batch is full or the flush interval has passed,
+     * then wait for the rest of a group the batch ends in the middle of
+     */
+    private void fillBatch(List<StorageEvent> batch) {
+        long deadline = System.nanoTime() + flushIntervalNanos;
+        try {
+            while (batch.size() < flushSize && running) {
+                queue.drainTo(batch, flushSize - batch.size());
+                long remaining = deadline - System.nanoTime();
+                if (batch.size() >= flushSize || remaining <= 0) {
+                    break;
+                }
+                StorageEvent next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                if (next == null) {
+                    break;
+                }
+                batch.add(next);
+            }
+        } catch (InterruptedException e) {
+            // Woken up by shutdown, still finish the group below
+        }
+
+        // submitAll queues a whole group before returning, so its tail is on the way
+        while (batch.get(batch.size() - 1).continuesGroup()) {
+            StorageEvent next;
+            try {
+                next = running ? queue.poll(flushIntervalNanos, TimeUnit.NANOSECONDS) : queue.poll();
+            } catch (InterruptedException e) {
+                continue;
+            }
+            if (next != null) {
+                batch.add(next);
+            } else if (!running) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write a batch, retrying with a growing backoff until it commits
+     * The chunk counters already include these events, so the batch is only given
+     * up when the plugin shuts down with the backend still failing.
+     */
+    private void persist(List<StorageEvent> batch) {
+        long retryMillis = MIN_RETRY_MILLIS;
+        while (!flush(batch)) {
+            if (!running) {
+                logger.severe("Backend still failing at shutdown, " + batch.size() + " events lost");
+                return;
+            }
+            try {
+                Thread.sleep(retryMillis);
+            } catch (InterruptedException e) {
+                // Woken up by shutdown, make one last attempt
+            }
+            retryMillis = Math.min(MAX_RETRY_MILLIS, retryMillis * 2);
+        }
+    }
+
+    private boolean flush(List<StorageEvent> batch) {
+        long start = System.nanoTime();
+        boolean success = true;
+        try {
+            writer.writeBatch(batch);
+        } catch (Exception e) {
+            success = false;
+            logger.log(Level.WARNING, "Failed to persist batch of " + batch.size() + " events", e);
+        }
+        metrics.recordFlush(batch.size(), System.nanoTime() - start, success);
+        return success;
+    }
+
+    // ==================== Metrics ====================
+
+    @Override
+    public String getDescription() {
+        return "write-behind queue (" + policy.name().toLowerCase().replace('_', '-') + ")";
+    }
+
+    @Override public int getQueueDepth() { return queue.size(); }
+    @Override public int getCapacity() { return queue.size() + queue.remainingCapacity(); }
+    @Override public int getFlushSize() { return flushSize; }
+    @Override public long getFlushIntervalMillis() { return TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos); }
+    @Override public FlushMetrics getMetrics() { return metrics; }
+    public BackpressurePolicy getPolicy() { return policy; }
+
+    /**
+     * What to do when the queue is full
+     */
+    public enum BackpressurePolicy {
+        /** Block the submitting thread until the writer catches up, for at most MAX_BLOCK_MILLIS */
+        BLOCK,
+        /** Keep counters exact but drop the history row */
+        DROP_HISTORY;
+
+        public static BackpressurePolicy fromConfig(String value) {
+            if (value != null && value.replace('-', '_').equalsIgnoreCase("drop_history")) {
+                return DROP_HISTORY;
+            }
+            return BLOCK;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package fun.hanyu.hopperLimiter.storage.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * A single ordered schema change, applied once and recorded in schema_version
+ */
+public class Migration {
+    private final int version;
+    private final String description;
+    private final Step step;
+
+    public Migration(int version, String description, Step step) {
+        this.version = version;
+        this.description = description;
+        this.step = step;
+    }
+
+    // Getters
+    public int getVersion() { return version; }
+    public String getDescription() { return description; }
+
+    /**
+     * Apply this migration on the given connection (already inside a transaction)
+     */
+    public void apply(Connection connection) throws SQLException {
+        step.apply(connection);
+    }
+
+    @FunctionalInterface
+    public interface Step {
+        void apply(Connection connection) throws SQLException;
+    }
+}
@@ -0,0 +1,335 @@
+package fun.hanyu.hopperLimiter.storage.migration;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ordered list of schema migrations
+ * Never edit a released migration, add a new one with the next version instead
+ */
+public final class Migrations {
+    /** Current time as epoch milliseconds, usable as a column default */
+    private static final String NOW_MILLIS = "(CAST(strftime('%s', 'now') AS INTEGER) * 1000)";
+
+    private Migrations() {
+    }
+
+    public static List<Migration> all() {
+        return Arrays.asList(
+                new Migration(1, "Create base tables", Migrations::createBaseTables),
+                new Migration(2, "Store timestamps as epoch milliseconds", Migrations::convertTimestampsToEpoch),
+                new Migration(3, "Add covering indexes", Migrations::addCoveringIndexes),
+                new Migration(4, "Dictionary-encode worlds, players and block types", Migrations::addDictionaries),
+                new Migration(5, "Add materialized chunk_counts aggregate", Migrations::addChunkCounts),
+                new Migration(6, "Index removed history rows for retention", Migrations::addRetentionIndex),
+                new Migration(7, "Track container block positions", Migrations::addContainerPositions),
+                new Migration(8, "Store player statistics per block type", Migrations::addBlockStatistics)
+        );
+    }
+
+    /**
+     * Tables as created by versions before migrations existed
+     */
+    private static void createBaseTables(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS placement_history (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "timestamp LONG NOT NULL," +
+                "player_name TEXT NOT NULL," +
+                "block_type TEXT NOT NULL," +
+                "world TEXT NOT NULL," +
+                "chunk_x INTEGER NOT NULL," +
+                "chunk_z INTEGER NOT NULL," +
+                "is_removed INTEGER DEFAULT 0," +
+                "removed_at DATETIME," +
+                "removed_by TEXT," +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP" +
+                ")");
+
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS player_statistics (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "player_name TEXT UNIQUE NOT NULL," +
+                "hopper_count INTEGER DEFAULT 0," +
+                "chest_count INTEGER DEFAULT 0," +
+                "barrel_count INTEGER DEFAULT 0," +
+                "hopper_removed INTEGER DEFAULT 0," +
+                "chest_removed INTEGER DEFAULT 0," +
+                "barrel_removed INTEGER DEFAULT 0," +
+                "last_placement TEXT," +
+                "created_at DATETIME DEFAULT CURRENT_TIMESTAMP," +
+                "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP" +
+                ")");
+        }
+    }
+
+    /**
+     * Rebuild both tables with INTEGER epoch-millisecond columns instead of date strings
+     * removed_at and last_placement were written in server local time,
+     * created_at and updated_at by SQLite in UTC
+     */
+    private static void convertTimestampsToEpoch(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE placement_history_new (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "timestamp INTEGER NOT NULL," +
+                "player_name TEXT NOT NULL," +
+                "block_type TEXT NOT NULL," +
+                "world TEXT NOT NULL," +
+                "chunk_x INTEGER NOT NULL," +
+                "chunk_z INTEGER NOT NULL," +
+                "is_removed INTEGER NOT NULL DEFAULT 0," +
+                "removed_at INTEGER," +
+                "removed_by TEXT," +
+                "created_at INTEGER NOT NULL DEFAULT " + NOW_MILLIS +
+                ")");
+            stmt.executeUpdate(
+                "INSERT INTO placement_history_new (id, timestamp, player_name, block_type, world, chunk_x, chunk_z, " +
+                "is_removed, removed_at, removed_by, created_at) " +
+                "SELECT id, timestamp, player_name, block_type, world, chunk_x, chunk_z, COALESCE(is_removed, 0), " +
+                "CAST(strftime('%s', removed_at, 'utc') AS INTEGER) * 1000, removed_by, " +
+                "COALESCE(CAST(strftime('%s', created_at) AS INTEGER) * 1000, timestamp) " +
+                "FROM placement_history");
+            stmt.executeUpdate("DROP TABLE placement_history");
+            stmt.executeUpdate("ALTER TABLE placement_history_new RENAME TO placement_history");
+
+            stmt.executeUpdate(
+                "CREATE TABLE player_statistics_new (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "player_name TEXT UNIQUE NOT NULL," +
+                "hopper_count INTEGER NOT NULL DEFAULT 0," +
+                "chest_count INTEGER NOT NULL DEFAULT 0," +
+                "barrel_count INTEGER NOT NULL DEFAULT 0," +
+                "hopper_removed INTEGER NOT NULL DEFAULT 0," +
+                "chest_removed INTEGER NOT NULL DEFAULT 0," +
+                "barrel_removed INTEGER NOT NULL DEFAULT 0," +
+                "last_placement INTEGER," +
+                "created_at INTEGER NOT NULL DEFAULT " + NOW_MILLIS + "," +
+                "updated_at INTEGER NOT NULL DEFAULT " + NOW_MILLIS +
+                ")");
+            stmt.executeUpdate(
+                "INSERT INTO player_statistics_new (id, player_name, hopper_count, chest_count, barrel_count, " +
+                "hopper_removed, chest_removed, barrel_removed, last_placement, created_at, updated_at) " +
+                "SELECT id, player_name, COALESCE(hopper_count, 0), COALESCE(chest_count, 0), " +
+                "COALESCE(barrel_count, 0), COALESCE(hopper_removed, 0), COALESCE(chest_removed, 0), " +
+                "COALESCE(barrel_removed, 0), CAST(strftime('%s', last_placement, 'utc') AS INTEGER) * 1000, " +
+                "COALESCE(CAST(strftime('%s', created_at) AS INTEGER) * 1000, " + NOW_MILLIS + "), " +
+                "COALESCE(CAST(strftime('%s', updated_at) AS INTEGER) * 1000, " + NOW_MILLIS + ") " +
+                "FROM player_statistics");
+            stmt.executeUpdate("DROP TABLE player_statistics");
+            stmt.executeUpdate("ALTER TABLE player_statistics_new RENAME TO player_statistics");
+        }
+    }
+
+    /**
+     * Move names into worlds/players/block_types dictionaries referenced by integer ids
+     * Only the small tables are converted here; existing history rows stay in
+     * placement_history_legacy and are moved in the background by LegacyHistoryMigrator
+     */
+    private static void addDictionaries(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE worlds (" +
+                "id INTEGER PRIMARY KEY," +
+                "uuid TEXT UNIQUE," +
+                "name TEXT NOT NULL" +
+                ")");
+            stmt.executeUpdate(
+                "CREATE TABLE players (" +
+                "id INTEGER PRIMARY KEY," +
+                "uuid TEXT UNIQUE," +
+                "name TEXT NOT NULL" +
+                ")");
+            stmt.executeUpdate("CREATE INDEX idx_players_name ON players (name COLLATE NOCASE)");
+            stmt.executeUpdate(
+                "CREATE TABLE block_types (" +
+                "id INTEGER PRIMARY KEY," +
+                "name TEXT UNIQUE NOT NULL" +
+                ")");
+            stmt.executeUpdate("INSERT INTO block_types (id, name) VALUES (1, 'Hopper'), (2, 'Chest'), (3, 'Barrel')");
+
+            // Keep the old rows (and their indexes) readable until the background move finishes
+            stmt.executeUpdate("ALTER TABLE placement_history RENAME TO placement_history_legacy");
+            stmt.executeUpdate(
+                "CREATE TABLE placement_history (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "timestamp INTEGER NOT NULL," +
+                "player_id INTEGER NOT NULL REFERENCES players(id)," +
+                "block_type_id INTEGER NOT NULL REFERENCES block_types(id)," +
+                "world_id INTEGER NOT NULL REFERENCES worlds(id)," +
+                "chunk_x INTEGER NOT NULL," +
+                "chunk_z INTEGER NOT NULL," +
+                "is_removed INTEGER NOT NULL DEFAULT 0," +
+                "removed_at INTEGER," +
+                "removed_by_id INTEGER REFERENCES players(id)," +
+                "created_at INTEGER NOT NULL DEFAULT " + NOW_MILLIS +
+                ")");
+            // New rows must not reuse ids of legacy rows that are still waiting to be moved
+            stmt.executeUpdate(
+                "INSERT INTO sqlite_sequence (name, seq) " +
+                "SELECT 'placement_history', COALESCE(MAX(id), 0) FROM placement_history_legacy");
+            stmt.executeUpdate(
+                "CREATE INDEX idx_placement_chunk ON placement_history " +
+                "(world_id, chunk_x, chunk_z, block_type_id, is_removed, timestamp)");
+            stmt.executeUpdate(
+                "CREATE INDEX idx_placement_world_active ON placement_history " +
+                "(world_id, is_removed, chunk_x, chunk_z)");
+            stmt.executeUpdate("CREATE INDEX idx_placement_player ON placement_history (player_id, timestamp)");
+
+            // Statistics are keyed by player id so they survive name changes
+            stmt.executeUpdate("INSERT INTO players (name) SELECT player_name FROM player_statistics ORDER BY id");
+            stmt.executeUpdate(
+                "CREATE TABLE player_statistics_new (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "player_id INTEGER UNIQUE NOT NULL REFERENCES players(id)," +
+                "hopper_count INTEGER NOT NULL DEFAULT 0," +
+                "chest_count INTEGER NOT NULL DEFAULT 0," +
+                "barrel_count INTEGER NOT NULL DEFAULT 0," +
+                "hopper_removed INTEGER NOT NULL DEFAULT 0," +
+                "chest_removed INTEGER NOT NULL DEFAULT 0," +
+                "barrel_removed INTEGER NOT NULL DEFAULT 0," +
+                "last_placement INTEGER," +
+                "created_at INTEGER NOT NULL DEFAULT " + NOW_MILLIS + "," +
+                "updated_at INTEGER NOT NULL DEFAULT " + NOW_MILLIS +
+                ")");
+            stmt.executeUpdate(
+                "INSERT INTO player_statistics_new (id, player_id, hopper_count, chest_count, barrel_count, " +
+                "hopper_removed, chest_removed, barrel_removed, last_placement, created_at, updated_at) " +
+                "SELECT s.id, p.id, s.hopper_count, s.chest_count, s.barrel_count, s.hopper_removed, " +
+                "s.chest_removed, s.barrel_removed, s.last_placement, s.created_at, s.updated_at " +
+                "FROM player_statistics s JOIN players p ON p.name = s.player_name");
+            stmt.executeUpdate("DROP TABLE player_statistics");
+            stmt.executeUpdate("ALTER TABLE player_statistics_new RENAME TO player_statistics");
+            stmt.executeUpdate("CREATE INDEX idx_statistics_updated ON player_statistics (updated_at)");
+        }
+    }
+
+    /**
+     * Per-chunk, per-type count of unremoved placements, maintained on every write
+     * Rows still in placement_history_legacy are added when the background move reaches them
+     */
+    private static void addChunkCounts(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE chunk_counts (" +
+                "world_id INTEGER NOT NULL," +
+                "chunk_x INTEGER NOT NULL," +
+                "chunk_z INTEGER NOT NULL," +
+                "block_type_id INTEGER NOT NULL," +
+                "count INTEGER NOT NULL," +
+                "PRIMARY KEY (world_id, chunk_x, chunk_z, block_type_id)" +
+                ") WITHOUT ROWID");
+            stmt.executeUpdate(
+                "INSERT INTO chunk_counts (world_id, chunk_x, chunk_z, block_type_id, count) " +
+                "SELECT world_id, chunk_x, chunk_z, block_type_id, COUNT(*) FROM placement_history " +
+                "WHERE is_removed = 0 GROUP BY world_id, chunk_x, chunk_z, block_type_id");
+        }
+    }
+
+    /**
+     * Partial index over removed rows, so each retention batch reads only the oldest of them
+     */
+    private static void addRetentionIndex(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_placement_retention ON placement_history (timestamp) " +
+                "WHERE is_removed = 1");
+        }
+    }
+
+    /**
+     * Exact position of every tracked container, pointing at its placement row
+     * Placements recorded before this version have no position and are matched per chunk.
+     */
+    private static void addContainerPositions(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE container_positions (" +
+                "world_id INTEGER NOT NULL," +
+                "x INTEGER NOT NULL," +
+                "y INTEGER NOT NULL," +
+                "z INTEGER NOT NULL," +
+                "chunk_x INTEGER NOT NULL," +
+                "chunk_z INTEGER NOT NULL," +
+                "block_type_id INTEGER NOT NULL," +
+                "history_id INTEGER NOT NULL," +
+                "PRIMARY KEY (world_id, x, y, z)" +
+                ") WITHOUT ROWID");
+            stmt.executeUpdate(
+                "CREATE INDEX idx_positions_chunk ON container_positions (world_id, chunk_x, chunk_z)");
+            // Lets per-chunk removal matching skip rows that have a position
+            stmt.executeUpdate(
+                "CREATE INDEX idx_positions_history ON container_positions (history_id)");
+        }
+    }
+
+    /**
+     * Move the per-type statistics columns into one row per player and block type,
+     * so every configured container type is counted
+     */
+    private static void addBlockStatistics(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE player_block_statistics (" +
+                "player_id INTEGER NOT NULL REFERENCES players(id)," +
+                "block_type_id INTEGER NOT NULL REFERENCES block_types(id)," +
+                "placed_count INTEGER NOT NULL DEFAULT 0," +
+                "removed_count INTEGER NOT NULL DEFAULT 0," +
+                "PRIMARY KEY (player_id, block_type_id)" +
+                ") WITHOUT ROWID");
+            for (String type : new String[]{"hopper", "chest", "barrel"}) {
+                stmt.executeUpdate(
+                    "INSERT INTO player_block_statistics (player_id, block_type_id, placed_count, removed_count) " +
+                    "SELECT s.player_id, b.id, s." + type + "_count, s." + type + "_removed " +
+                    "FROM player_statistics s JOIN block_types b ON b.name = '" +
+                    Character.toUpperCase(type.charAt(0)) + type.substring(1) + "' " +
+                    "WHERE s." + type + "_count <> 0 OR s." + type + "_removed <> 0");
+            }
+
+            stmt.executeUpdate(
+                "CREATE TABLE player_statistics_new (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT," +
+                "player_id INTEGER UNIQUE NOT NULL REFERENCES players(id)," +
+                "last_placement INTEGER," +
+                "created_at INTEGER NOT NULL DEFAULT " + NOW_MILLIS + "," +
+                "updated_at INTEGER NOT NULL DEFAULT " + NOW_MILLIS +
+                ")");
+            stmt.executeUpdate(
+                "INSERT INTO player_statistics_new (id, player_id, last_placement, created_at, updated_at) " +
+                "SELECT id, player_id, last_placement, created_at, updated_at FROM player_statistics");
+            stmt.executeUpdate("DROP TABLE player_statistics");
+            stmt.executeUpdate("ALTER TABLE player_statistics_new RENAME TO player_statistics");
+            stmt.executeUpdate("CREATE INDEX idx_statistics_updated ON player_statistics (updated_at)");
+        }
+    }
+
+    /**
+     * Indexes for the chunk count, removal, player history and statistics queries
+     */
+    private static void addCoveringIndexes(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            // Chunk counts and "latest unremoved block of this type in this chunk"
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_history_chunk ON placement_history " +
+                "(world, chunk_x, chunk_z, block_type, is_removed, timestamp)");
+            // Per-world heatmap aggregation over unremoved rows
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_history_world_active ON placement_history " +
+                "(world, is_removed, chunk_x, chunk_z)");
+            // Player history, newest first
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_history_player ON placement_history (player_name, timestamp)");
+            // Most recent removal of a block type
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_history_removed ON placement_history (block_type, is_removed, removed_at)");
+            // Statistics listing, most recently updated first
+            stmt.executeUpdate(
+                "CREATE INDEX IF NOT EXISTS idx_statistics_updated ON player_statistics (updated_at)");
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package fun.hanyu.hopperLimiter.storage.migration;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Upgrades the database schema in place by applying ordered migrations
+ * Each migration runs in its own transaction and is recorded in schema_version
+ */
+public class SchemaMigrator {
+    private final Connection connection;
+    private final Logger logger;
+    private final List<Migration> migrations;
+
+    public SchemaMigrator(Connection connection, Logger logger) {
+        this.connection = connection;
+        this.logger = logger;
+        this.migrations = new ArrayList<>(Migrations.all());
+        this.migrations.sort(Comparator.comparingInt(Migration::getVersion));
+    }
+
+    /**
+     * Apply every migration newer than the current schema version
+     * Returns the resulting schema version
+     */
+    public int migrate() throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate(
+                "CREATE TABLE IF NOT EXISTS schema_version (" +
+                "version INTEGER PRIMARY KEY," +
+                "description TEXT NOT NULL," +
+                "applied_at INTEGER NOT NULL" +
+                ")");
+        }
+
+        int current = getCurrentVersion();
+        for (Migration migration : migrations) {
+            if (migration.getVersion() <= current) {
+                continue;
+            }
+
+            logger.info("Migrating database to schema version " + migration.getVersion() +
+                    ": " + migration.getDescription());
+            applyMigration(migration);
+            current = migration.getVersion();
+        }
+        return current;
+    }
+
+    /**
+     * Get the highest applied schema version (0 for a database that predates migrations)
+     */
+    public int getCurrentVersion() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) as version FROM schema_version")) {
+            return rs.next() ? rs.getInt("version") : 0;
+        }
+    }
+
+    /**
+     * Get the newest schema version this build knows about
+     */
+    public int getLatestVersion() {
+        return migrations.isEmpty() ? 0 : migrations.get(migrations.size() - 1).getVersion();
+    }
+
+    private void applyMigration(Migration migration) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            migration.apply(connection);
+            try (PreparedStatement pstmt = connection.prepareStatement(
+                    "INSERT INTO schema_version (version, description, applied_at) VALUES (?, ?, ?)")) {
+                pstmt.setInt(1, migration.getVersion());
+                pstmt.setString(2, migration.getDescription());
+                pstmt.setLong(3, System.currentTimeMillis());
+                pstmt.executeUpdate();
+            }
+            connection.commit();
+        } catch (SQLException e) {
+            connection.rollback();
+            throw new SQLException("Migration to schema version " + migration.getVersion() + " failed: " +
+                    e.getMessage(), e);
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package fun.hanyu.hopperLimiter.throttle;
+
+import fun.hanyu.hopperLimiter.storage.ChunkCounterCache;
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Token buckets of every chunk, refilled lazily from the tick they were last charged
+ * Limits are passed in on every call so a reload applies to existing buckets.
+ */
+final class TokenBuckets {
+    // Tokens are kept in units of 1/20 transfer, so a rate per second refills that many units per tick
+    private static final long UNITS_PER_TRANSFER = 20;
+
+    private final Map<String, LongObjectHashMap<Bucket>> worlds = new HashMap<>();
+
+    /**
+     * Take one transfer from a chunk's bucket, creating it full on the chunk's first transfer
+     *
+     * @return true if the transfer may go ahead, false if the bucket is empty
+     */
+    boolean take(String world, int chunkX, int chunkZ, long tick, int burst, int refillPerSecond) {
+        long capacity = burst * UNITS_PER_TRANSFER;
+        LongObjectHashMap<Bucket> chunks = worlds.get(world);
+        if (chunks == null) {
+            chunks = new LongObjectHashMap<>();
+            worlds.put(world, chunks);
+        }
+        long key = ChunkCounterCache.chunkKey(chunkX, chunkZ);
+        Bucket bucket = chunks.get(key);
+        if (bucket == null) {
+            bucket = new Bucket(capacity, tick);
+            chunks.put(key, bucket);
+        } else {
+            // Clamping every time also applies a smaller burst after a reload
+            long refill = (tick - bucket.lastTick) * refillPerSecond;
+            bucket.tokens = Math.min(capacity, bucket.tokens + refill);
+            bucket.lastTick = tick;
+        }
+
+        if (bucket.tokens < UNITS_PER_TRANSFER) {
+            return false;
+        }
+        bucket.tokens -= UNITS_PER_TRANSFER;
+        return true;
+    }
+
+    /**
+     * Drop the buckets that have refilled to full since their last transfer,
+     * which a chunk's first transfer would create again unchanged
+     */
+    void sweep(long tick, int burst, int refillPerSecond) {
+        long capacity = burst * UNITS_PER_TRANSFER;
+        for (LongObjectHashMap<Bucket> chunks : worlds.values()) {
+            long[] full = new long[chunks.size()];
+            int[] count = {0};
+            chunks.forEach((key, bucket) -> {
+                if (bucket.tokens + (tick - bucket.lastTick) * refillPerSecond >= capacity) {
+                    full[count[0]++] = key;
+                }
+            });
+            for (long key : Arrays.copyOf(full, count[0])) {
+                chunks.remove(key);
+            }
+        }
+        worlds.values().removeIf(LongObjectHashMap::isEmpty);
+    }
+
+    /**
+     * Get the number of chunks with a bucket
+     */
+    int size() {
+        int count = 0;
+        for (LongObjectHashMap<Bucket> chunks : worlds.values()) {
+            count += chunks.size();
+        }
+        return count;
+    }
+
+    /**
+     * Tokens left in one chunk's bucket as of lastTick
+     */
+    private static final class Bucket {
+        private long tokens;
+        private long lastTick;
+
+        Bucket(long tokens, long lastTick) {
+            this.tokens = tokens;
+            this.lastTick = lastTick;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package fun.hanyu.hopperLimiter.throttle;
+
+import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.config.Config;
+import org.bukkit.scheduler.BukkitRunnable;
+
+/**
+ * Per-chunk token buckets for hopper item transfers
+ * Each chunk's bucket holds up to throttle.burst transfers and refills at
+ * throttle.refill-per-second, counted in server ticks so lag slows the refill
+ * along with the hoppers. Buckets are created full on a chunk's first transfer
+ * and refilled lazily when charged, so a transfer is one map lookup and a few
+ * arithmetic operations, and never allocates once the chunk has a bucket.
+ * Buckets outlive chunk unloads, so unloading a chunk cannot refill it early;
+ * a bucket is dropped only once it would have refilled completely anyway.
+ *
+ * All methods must be called from the main server thread.
+ */
+public class TransferThrottle extends BukkitRunnable {
+    private static final long SWEEP_PERIOD_TICKS = 20L * 60;
+
+    private final HopperLimiter plugin;
+    private final Config config;
+    private final TokenBuckets buckets = new TokenBuckets();
+    private long tick;
+    private long deniedTransfers;
+
+    public TransferThrottle(HopperLimiter plugin) {
+        this.plugin = plugin;
+        this.config = plugin.getConfigManager();
+    }
+
+    public void start() {
+        runTaskTimer(plugin, 1L, 1L);
+    }
+
+    @Override
+    public void run() {
+        tick++;
+        if (tick % SWEEP_PERIOD_TICKS == 0) {
+            buckets.sweep(tick, config.getThrottleBurst(), config.getThrottleRefillPerSecond());
+        }
+    }
+
+    /**
+     * Take one transfer from a chunk's bucket
+     *
+     * @return true if the transfer may go ahead, false if the bucket is empty
+     */
+    public boolean tryTransfer(String world, int chunkX, int chunkZ) {
+        if (buckets.take(world, chunkX, chunkZ, tick, config.getThrottleBurst(), config.getThrottleRefillPerSecond())) {
+            return true;
+        }
+        deniedTransfers++;
+        return false;
+    }
+
+    /**
+     * Get the number of chunks with a bucket
+     */
+    public int getBucketCount() {
+        return buckets.size();
+    }
+
+    // Getters
+    public long getDeniedTransfers() { return deniedTransfers; }
+}
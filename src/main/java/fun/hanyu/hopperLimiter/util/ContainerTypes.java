@@ -0,0 +1,152 @@
+package fun.hanyu.hopperLimiter.util;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Registry of the container materials that are counted and limited
+ * Every counted material has a type index: hoppers, chests and barrels are always
+ * 0, 1 and 2, and the materials added in the limits section follow in config order.
+ * Lookups are indexed by Material.ordinal(), and a bitset of the counted materials
+ * lets listeners drop every other block after a single array read.
+ *
+ * The types are registered once when the plugin enables; materials added to the
+ * config afterwards are counted after a restart.
+ */
+public final class ContainerTypes {
+    public static final int HOPPER = 0;
+    public static final int CHEST = 1;
+    public static final int BARREL = 2;
+
+    private static final Material[] BUILT_IN = {Material.HOPPER, Material.CHEST, Material.BARREL};
+    private static final int MATERIAL_COUNT = Material.values().length;
+
+    private static volatile Table table = new Table(Arrays.asList(BUILT_IN));
+
+    private ContainerTypes() {
+    }
+
+    /**
+     * Register the counted materials, after the built-in hopper, chest and barrel
+     * Materials that are not blocks are ignored.
+     */
+    public static void register(Collection<Material> materials) {
+        Set<Material> ordered = new LinkedHashSet<>(Arrays.asList(BUILT_IN));
+        for (Material material : materials) {
+            if (material.isBlock() && !material.isLegacy()) {
+                ordered.add(material);
+            }
+        }
+        table = new Table(ordered);
+    }
+
+    /**
+     * Number of counted types
+     */
+    public static int count() {
+        return table.materials.length;
+    }
+
+    /**
+     * Whether a material is counted (one array read)
+     */
+    public static boolean isTracked(Material material) {
+        int ordinal = material.ordinal();
+        return (table.tracked[ordinal >>> 6] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Get the type index of a material, or -1 if it is not counted
+     */
+    public static int typeIndex(Material material) {
+        return table.typeByOrdinal[material.ordinal()];
+    }
+
+    /**
+     * Get the type index of a type name or material name (any case, spaces or
+     * underscores), or -1 if it is not counted
+     */
+    public static int typeIndex(String name) {
+        Integer type = table.typeByKey.get(key(name));
+        return type != null ? type : -1;
+    }
+
+    /**
+     * Get the display name of a type, such as "Hopper" or "Trapped Chest"
+     * These are also the block type names stored in the database.
+     */
+    public static String typeName(int type) {
+        return table.names[type];
+    }
+
+    public static Material material(int type) {
+        return table.materials[type];
+    }
+
+    /**
+     * Resolve a config key or command argument such as "trapped_chest" to a block material
+     */
+    public static Material parseMaterial(String name) {
+        Material material = Material.matchMaterial(key(name));
+        return material != null && material.isBlock() && !material.isLegacy() ? material : null;
+    }
+
+    /**
+     * Get the config key of a material, such as "trapped_chest"
+     */
+    public static String configKey(Material material) {
+        return material.name().toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(String name) {
+        String key = name.trim().toLowerCase(Locale.ROOT).replace(' ', '_');
+        return key.startsWith("minecraft:") ? key.substring("minecraft:".length()) : key;
+    }
+
+    /**
+     * Get the display name of any material, such as "Trapped Chest"
+     */
+    public static String displayName(Material material) {
+        StringBuilder name = new StringBuilder();
+        for (String word : material.name().toLowerCase(Locale.ROOT).split("_")) {
+            if (name.length() > 0) {
+                name.append(' ');
+            }
+            name.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+        }
+        return name.toString();
+    }
+
+    /**
+     * Immutable lookup tables, replaced as a whole by register
+     */
+    private static final class Table {
+        private final Material[] materials;
+        private final String[] names;
+        private final int[] typeByOrdinal = new int[MATERIAL_COUNT];
+        private final long[] tracked = new long[(MATERIAL_COUNT + 63) >>> 6];
+        private final Map<String, Integer> typeByKey = new HashMap<>();
+
+        private Table(Collection<Material> materials) {
+            this.materials = materials.toArray(new Material[0]);
+            this.names = new String[this.materials.length];
+            Arrays.fill(typeByOrdinal, -1);
+            for (int type = 0; type < this.materials.length; type++) {
+                Material material = this.materials[type];
+                int ordinal = material.ordinal();
+                names[type] = displayName(material);
+                typeByOrdinal[ordinal] = type;
+                tracked[ordinal >>> 6] |= 1L << ordinal;
+                typeByKey.put(configKey(material), type);
+                typeByKey.put(key(names[type]), type);
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package fun.hanyu.hopperLimiter.util;
+
+import org.bukkit.Chunk;
+import org.bukkit.block.BlockState;
+
+/**
+ * Counts the limited container types actually present in a loaded chunk
+ * Every limited container is a tile entity, so one pass over the chunk's
+ * tile entities replaces scanning every block of every column per material.
+ * Must be called from the main server thread.
+ */
+public final class TileEntityCounter {
+    private TileEntityCounter() {
+    }
+
+    /**
+     * Count every limited type in one pass
+     *
+     * @return counts indexed by ContainerTypes type
+     */
+    public static int[] count(Chunk chunk) {
+        int[] counts = new int[ContainerTypes.count()];
+        for (BlockState state : chunk.getTileEntities()) {
+            int type = ContainerTypes.typeIndex(state.getType());
+            if (type >= 0) {
+                counts[type]++;
+            }
+        }
+        return counts;
+    }
+}
@@ -1,7 +1,9 @@
 package fun.hanyu.hopperLimiter.visualization;
 
 import fun.hanyu.hopperLimiter.HopperLimiter;
+import fun.hanyu.hopperLimiter.config.LimitTable;
 import fun.hanyu.hopperLimiter.storage.StorageManager;
+import org.bukkit.Material;
 import org.bukkit.entity.Player;
 
 import java.util.*;
@@ -53,15 +55,21 @@ public class ChunkVisualizationManager {
         int playerChunkX = player.getLocation().getChunk().getX();
         int playerChunkZ = player.getLocation().getChunk().getZ();
 
-        // Use average of all limits for visualization
-        int avgLimit = (plugin.getConfigManager().getHopperLimit() +
-                       plugin.getConfigManager().getChestLimit() +
-                       plugin.getConfigManager().getBarrelLimit()) / 3;
+        // Show budget usage when there is a cost budget, otherwise counts against the average limit
+        LimitTable limits = plugin.getWorldLimitManager().getLimits();
+        boolean useBudget = limits.getCostBudget() > 0;
+        List<Material> materials = limits.getMaterials();
+        int limitSum = 0;
+        for (Material material : materials) {
+            limitSum += limits.getDefaultLimit(material);
+        }
+        int avgLimit = useBudget ? limits.getCostBudget() : limitSum / materials.size();
 
         for (int x = playerChunkX - radius; x <= playerChunkX + radius; x++) {
             StringBuilder line = new StringBuilder("§r");
             for (int z = playerChunkZ - radius; z <= playerChunkZ + radius; z++) {
-                int count = storageManager.getChunkBlockCount(player.getWorld().getName(), x, z);
+                int count = useBudget ? storageManager.getChunkCost(player.getWorld().getName(), x, z)
+                        : storageManager.getChunkBlockCount(player.getWorld().getName(), x, z);
 
                 char indicator = getChunkIndicator(count, avgLimit);
                 String color = getChunkColor(count, avgLimit);
@@ -76,6 +84,9 @@ public class ChunkVisualizationManager {
         }
 
         player.sendMessage("§r");
+        if (useBudget) {
+            player.sendMessage("§6Showing cost budget usage (budget: " + limits.getCostBudget() + ")");
+        }
         player.sendMessage("§6Legend: §a□=Empty §a◐=Low §e◑=Medium §6◕=High §c●=Full §e[]=You");
     }
 
@@ -0,0 +1,58 @@
+package fun.hanyu.hopperLimiter.config;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.bukkit.Material;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LimitTableTest {
+    private static final Logger LOGGER = Logger.getLogger("LimitTableTest");
+
+    private static LimitTable load() {
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("limits.hopper", 8);
+        config.set("limits.chest", 16);
+        config.set("world-limits.nether.hopper", 4);
+        return LimitTable.load(config, LOGGER)
+                .withRegion(Region.cuboid("spawn", "world", 0, 0, 0, 0, 31, 255, 31).withLimit(Material.HOPPER, 2));
+    }
+
+    private static PlayerLimitCache.PlayerLimits tier(int hopperLimit) {
+        int[] limits = new int[ContainerTypes.count()];
+        Arrays.fill(limits, -1);
+        limits[ContainerTypes.HOPPER] = hopperLimit;
+        return new PlayerLimitCache.PlayerLimits(limits, false);
+    }
+
+    @Test
+    void regionLimitWinsOverThePlayerTier() {
+        LimitTable limits = load();
+        assertEquals(2, limits.getLimit("world", Material.HOPPER, 5, 64, 5, tier(100)));
+        // The region sets no chest limit, so the default applies inside it
+        assertEquals(16, limits.getLimit("world", Material.CHEST, 5, 64, 5, tier(100)));
+    }
+
+    @Test
+    void playerTierRaisesButNeverLowersTheWorldLimit() {
+        LimitTable limits = load();
+        assertEquals(100, limits.getLimit("world", Material.HOPPER, 100, 64, 100, tier(100)));
+        assertEquals(8, limits.getLimit("world", Material.HOPPER, 100, 64, 100, tier(3)));
+        assertEquals(6, limits.getLimit("nether", Material.HOPPER, 0, 64, 0, tier(6)));
+        assertEquals(4, limits.getLimit("nether", Material.HOPPER, 0, 64, 0, tier(-1)));
+    }
+
+    @Test
+    void withoutAPlayerTheWorldOrDefaultLimitApplies() {
+        LimitTable limits = load();
+        assertEquals(8, limits.getLimit("world", Material.HOPPER, 100, 64, 100, null));
+        assertEquals(4, limits.getLimit("nether", Material.HOPPER, 5, 64, 5, null));
+        assertEquals(32, limits.getLimit("world", Material.BARREL, 100, 64, 100, null));
+        assertEquals(2, limits.getLimit("world", Material.HOPPER, 31, 255, 31, null));
+        assertEquals(8, limits.getLimit("world", Material.HOPPER, 32, 64, 31, null));
+    }
+}
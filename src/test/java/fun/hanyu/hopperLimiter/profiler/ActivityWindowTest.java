@@ -0,0 +1,69 @@
+package fun.hanyu.hopperLimiter.profiler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static fun.hanyu.hopperLimiter.profiler.ActivityProfiler.PICKUP;
+import static fun.hanyu.hopperLimiter.profiler.ActivityProfiler.TRANSFER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActivityWindowTest {
+    private static void record(ActivityWindow window, String world, int chunkX, int chunkZ, int kind, long second, int times) {
+        for (int i = 0; i < times; i++) {
+            window.record(world, chunkX, chunkZ, kind, second);
+        }
+    }
+
+    @Test
+    void rankKeepsTheBusiestChunksInOrder() {
+        ActivityWindow window = new ActivityWindow(5);
+        record(window, "world", 0, 0, TRANSFER, 1, 1);
+        record(window, "world", -3, 7, TRANSFER, 1, 4);
+        record(window, "world", -3, 7, PICKUP, 2, 6);
+        record(window, "nether", 2, -2, PICKUP, 2, 3);
+
+        List<ActivityProfiler.ChunkRate> top = window.rank(1, 2, 2);
+        assertEquals(2, top.size());
+        assertEquals("world", top.get(0).getWorld());
+        assertEquals(-3, top.get(0).getChunkX());
+        assertEquals(7, top.get(0).getChunkZ());
+        assertEquals(4, top.get(0).getTransfers());
+        assertEquals(6, top.get(0).getPickups());
+        assertTrue(top.get(0).getPickupsPerSecond() == 3.0, "6 pickups over 2 seconds");
+        assertEquals("nether", top.get(1).getWorld());
+
+        // Only the seconds asked for are counted
+        assertEquals(0, window.rank(1, 1, 10).get(0).getPickups());
+        assertEquals(2, window.rank(1, 1, 10).size());
+    }
+
+    @Test
+    void slotsFromAPreviousLapAreNotCounted() {
+        ActivityWindow window = new ActivityWindow(5);
+        // Seconds 0 and 6 share a slot in a ring of six
+        record(window, "world", 0, 0, TRANSFER, 0, 4);
+        record(window, "world", 0, 0, TRANSFER, 6, 1);
+        assertEquals(1, window.rank(1, 6, 10).get(0).getTransfers());
+
+        // A chunk idle since second 0 has nothing in seconds 6 to 8, though its slot 0 still holds second 0
+        record(window, "world", 9, 9, TRANSFER, 0, 2);
+        List<ActivityProfiler.ChunkRate> top = window.rank(6, 8, 10);
+        assertEquals(1, top.size());
+        assertEquals(0, top.get(0).getChunkX());
+    }
+
+    @Test
+    void sweepDropsChunksIdleSinceASecond() {
+        ActivityWindow window = new ActivityWindow(5);
+        record(window, "world", 0, 0, TRANSFER, 3, 1);
+        record(window, "world", 1, 0, TRANSFER, 8, 1);
+        record(window, "nether", 0, 0, PICKUP, 2, 1);
+
+        window.sweep(4);
+        assertEquals(1, window.size());
+        window.sweep(9);
+        assertTrue(window.isEmpty());
+    }
+}
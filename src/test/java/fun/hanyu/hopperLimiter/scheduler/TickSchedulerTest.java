@@ -0,0 +1,145 @@
+package fun.hanyu.hopperLimiter.scheduler;
+
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickSchedulerTest {
+    private static final Logger LOGGER = Logger.getLogger("TickSchedulerTest");
+    private static final Plugin PLUGIN = (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(),
+            new Class<?>[]{Plugin.class}, (self, method, args) -> {
+                if (method.getName().equals("getLogger")) {
+                    return LOGGER;
+                }
+                throw new UnsupportedOperationException(method.getName());
+            });
+
+    /**
+     * A slice that logs its name and stays scheduled for a number of runs
+     */
+    private static TickScheduler.Slice slice(List<String> log, String name, int runs) {
+        int[] left = {runs};
+        return deadline -> {
+            log.add(name);
+            return --left[0] > 0;
+        };
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue(latch.await(5, TimeUnit.SECONDS), "timed out waiting for a worker task");
+    }
+
+    @Test
+    void slicesRunByPriorityThenRoundRobin() {
+        TickScheduler scheduler = new TickScheduler(PLUGIN, 1000, 1000, 1, 1);
+        List<String> log = new ArrayList<>();
+        scheduler.schedule(slice(log, "low", 100), TickScheduler.Priority.LOW);
+        scheduler.schedule(slice(log, "normal", 1), TickScheduler.Priority.NORMAL);
+        scheduler.schedule(slice(log, "high-a", 100), TickScheduler.Priority.HIGH);
+        scheduler.schedule(slice(log, "high-b", 100), TickScheduler.Priority.HIGH);
+
+        // The first tick looks late because the scheduler was never started, which holds back low priority
+        scheduler.run();
+        assertEquals(List.of("high-a", "high-b", "normal"), log);
+        assertEquals(3, scheduler.getSliceCount());
+        assertTrue(scheduler.getScale() == 0.5, "budget not halved after a late tick");
+
+        for (int i = 0; i < 20 && scheduler.getScale() < 1.0; i++) {
+            scheduler.run();
+        }
+        assertTrue(scheduler.getScale() == 1.0, "budget not recovered");
+        log.clear();
+        scheduler.run();
+        assertEquals(List.of("high-a", "high-b", "low"), log);
+    }
+
+    @Test
+    void lateTicksShrinkTheBudgetToAnEighth() {
+        // Every tick is late with no lag threshold
+        TickScheduler scheduler = new TickScheduler(PLUGIN, 1000, 0, 1, 1);
+        for (int i = 0; i < 10; i++) {
+            scheduler.run();
+        }
+        assertTrue(scheduler.getScale() == 0.125, "scale " + scheduler.getScale());
+    }
+
+    @Test
+    void repeatingTaskIsSkippedWhileItIsStillRunning() throws InterruptedException {
+        TickScheduler scheduler = new TickScheduler(PLUGIN, 1000, 1000, 2, 4);
+        AtomicInteger runs = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch finished = new CountDownLatch(2);
+        TickScheduler.Repeating repeating = scheduler.scheduleRepeating(() -> {
+            if (runs.incrementAndGet() == 1) {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            finished.countDown();
+        }, 1, 1);
+
+        scheduler.run();
+        await(started);
+        for (int i = 0; i < 5; i++) {
+            scheduler.run();
+        }
+        assertEquals(1, runs.get());
+        release.countDown();
+
+        // The next tick after the first run ends starts it again
+        while (finished.getCount() > 0) {
+            scheduler.run();
+            Thread.yield();
+        }
+        repeating.cancel();
+        int total = runs.get();
+        scheduler.run();
+        scheduler.run();
+        Thread.sleep(50);
+        assertEquals(total, runs.get());
+    }
+
+    @Test
+    void tasksTurnedAwayByAFullQueueRunOnALaterTick() throws InterruptedException {
+        TickScheduler scheduler = new TickScheduler(PLUGIN, 1000, 1000, 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(2);
+        scheduler.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        // The worker is busy: the first task waits in the queue, the second is deferred
+        while (scheduler.getActiveWorkers() == 0) {
+            Thread.yield();
+        }
+        scheduler.execute(done::countDown);
+        scheduler.execute(done::countDown);
+        assertEquals(2, scheduler.getQueuedTasks());
+
+        release.countDown();
+        while (done.getCount() > 1) {
+            Thread.yield();
+        }
+        assertEquals(1, done.getCount());
+        scheduler.run();
+        await(done);
+        assertEquals(0, scheduler.getQueuedTasks());
+    }
+}
@@ -0,0 +1,89 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static fun.hanyu.hopperLimiter.util.ContainerTypes.BARREL;
+import static fun.hanyu.hopperLimiter.util.ContainerTypes.CHEST;
+import static fun.hanyu.hopperLimiter.util.ContainerTypes.HOPPER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkAuditTest {
+    private static final int MIN_Y = -64;
+    private static final int MAX_Y = 320;
+
+    /**
+     * A snapshot holding the given blocks, keyed by ContainerPositionIndex.blockKey, and air elsewhere
+     */
+    private static ChunkSnapshot snapshot(Map<Long, Material> blocks) {
+        return (ChunkSnapshot) Proxy.newProxyInstance(ChunkSnapshot.class.getClassLoader(),
+                new Class<?>[]{ChunkSnapshot.class}, (self, method, args) -> {
+                    switch (method.getName()) {
+                        case "getBlockType":
+                            long key = ContainerPositionIndex.blockKey((int) args[0], (int) args[1], (int) args[2]);
+                            return blocks.getOrDefault(key, Material.AIR);
+                        case "isSectionEmpty":
+                            int section = (int) args[0];
+                            return blocks.keySet().stream().noneMatch(block -> {
+                                int y = ContainerPositionIndex.blockY(block);
+                                return (y - MIN_Y) >> 4 == section;
+                            });
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    @Test
+    void diffsFoundContainersAgainstTrackedOnes() throws Exception {
+        LongObjectHashMap<Integer> known = new LongObjectHashMap<>();
+        known.put(ContainerPositionIndex.blockKey(1, 64, 1), HOPPER);
+        known.put(ContainerPositionIndex.blockKey(2, 64, 2), CHEST);
+        Map<Long, Material> blocks = new HashMap<>();
+        blocks.put(ContainerPositionIndex.blockKey(1, 64, 1), Material.HOPPER);
+        blocks.put(ContainerPositionIndex.blockKey(3, -60, 3), Material.BARREL);
+        blocks.put(ContainerPositionIndex.blockKey(4, 100, 4), Material.HOPPER);
+        blocks.put(ContainerPositionIndex.blockKey(5, 100, 5), Material.STONE);
+
+        // Two barrels were counted by an older version without their positions
+        ChunkAudit audit = new ChunkAudit("world", 0, 0, new int[]{1, 1, 2}, known);
+        audit.scan(snapshot(blocks), MIN_Y, MAX_Y, null);
+
+        assertEquals(2, audit.getFound()[HOPPER]);
+        assertEquals(0, audit.getFound()[CHEST]);
+        assertEquals(1, audit.getFound()[BARREL]);
+        assertEquals(1, audit.getMissing().size());
+        assertEquals(CHEST, (int) audit.getMissing().get(ContainerPositionIndex.blockKey(2, 64, 2)));
+        assertEquals(1, audit.getUntracked().size());
+        assertEquals(HOPPER, (int) audit.getUntracked().get(ContainerPositionIndex.blockKey(4, 100, 4)));
+        // One of the unpositioned barrels was found, the other is gone
+        assertEquals(1, audit.getRetired()[BARREL]);
+        assertEquals(1, audit.getRetiredTotal());
+        assertTrue(audit.hasCorrections());
+    }
+
+    @Test
+    void chunkMatchingItsTrackedContainersNeedsNoCorrections() throws Exception {
+        LongObjectHashMap<Integer> known = new LongObjectHashMap<>();
+        known.put(ContainerPositionIndex.blockKey(15, 319, 0), BARREL);
+        Map<Long, Material> blocks = new HashMap<>();
+        blocks.put(ContainerPositionIndex.blockKey(15, 319, 0), Material.BARREL);
+        blocks.put(ContainerPositionIndex.blockKey(0, -64, 15), Material.CHEST);
+
+        ChunkAudit audit = new ChunkAudit("world", -2, 7, new int[]{0, 1, 1}, known);
+        audit.scan(snapshot(blocks), MIN_Y, MAX_Y, null);
+
+        assertFalse(audit.hasCorrections());
+        assertEquals(1, audit.getFound()[CHEST]);
+        assertEquals(1, audit.getFound()[BARREL]);
+        assertFalse(audit.isFailed());
+    }
+}
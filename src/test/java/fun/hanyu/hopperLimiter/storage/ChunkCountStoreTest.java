@@ -0,0 +1,109 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import org.bukkit.Chunk;
+import org.bukkit.NamespacedKey;
+import org.bukkit.World;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkCountStoreTest {
+    private static final Plugin PLUGIN = proxy(Plugin.class, Map.of("getName", "HopperLimiter"));
+
+    @SuppressWarnings("unchecked")
+    private static <T> T proxy(Class<T> type, Map<String, Object> answers) {
+        return (T) Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (self, method, args) -> {
+            switch (method.getName()) {
+                case "hashCode":
+                    return System.identityHashCode(self);
+                case "equals":
+                    return self == args[0];
+                default:
+                    return answers.get(method.getName());
+            }
+        });
+    }
+
+    /**
+     * A container backed by a map, ignoring the data type
+     */
+    private static PersistentDataContainer container() {
+        Map<NamespacedKey, Object> values = new HashMap<>();
+        return (PersistentDataContainer) Proxy.newProxyInstance(PersistentDataContainer.class.getClassLoader(),
+                new Class<?>[]{PersistentDataContainer.class}, (self, method, args) -> {
+                    switch (method.getName()) {
+                        case "get":
+                            return values.get(args[0]);
+                        case "set":
+                            values.put((NamespacedKey) args[0], args[2]);
+                            return null;
+                        case "has":
+                            return values.containsKey(args[0]);
+                        case "remove":
+                            values.remove(args[0]);
+                            return null;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    private static World world(String name) {
+        return proxy(World.class, Map.of("getName", name, "getPersistentDataContainer", container()));
+    }
+
+    private static Chunk chunk(World world, int x, int z) {
+        return proxy(Chunk.class, Map.of("getWorld", world, "getX", x, "getZ", z,
+                "getPersistentDataContainer", container()));
+    }
+
+    @Test
+    void savedCountsAreReadBackUntilTheWorldIsReset() {
+        ChunkCountStore store = new ChunkCountStore(PLUGIN);
+        World world = world("world");
+        Chunk chunk = chunk(world, 3, -4);
+        assertTrue(store.load(chunk) == null, "counts in a fresh chunk");
+
+        store.save(chunk, new int[]{4, 0, 2});
+        int[] counts = store.load(chunk);
+        assertEquals(4, counts[ChunkCounterCache.HOPPER]);
+        assertEquals(0, counts[ChunkCounterCache.CHEST]);
+        assertEquals(2, counts[ChunkCounterCache.BARREL]);
+
+        store.reset(world);
+        assertTrue(store.load(chunk) == null, "counts from before the reset");
+        assertTrue(store.isMigrated(world));
+        // The generation is kept in the world, so a new store sees the reset too
+        assertTrue(new ChunkCountStore(PLUGIN).load(chunk) == null, "counts from before the reset");
+    }
+
+    @Test
+    void unmigratedChunkTakesItsCountsFromTheDatabaseOnce() {
+        ChunkCountStore store = new ChunkCountStore(PLUGIN);
+        World world = world("world");
+        ChunkCounterCache pending = new ChunkCounterCache();
+        pending.set("world", 0, 0, new int[]{1, 5, 0});
+        store.setPending(pending);
+        assertFalse(store.isMigrated(world));
+
+        Chunk chunk = chunk(world, 0, 0);
+        assertEquals(5, store.load(chunk)[ChunkCounterCache.CHEST]);
+        assertTrue(pending.getCounts("world", 0, 0) == null, "pending counts left after migrating the chunk");
+
+        // Later loads read the copy written into the chunk
+        store.save(chunk, new int[]{1, 6, 0});
+        assertEquals(6, store.load(chunk)[ChunkCounterCache.CHEST]);
+        assertTrue(store.load(chunk(world, 1, 0)) == null, "counts for a chunk the database had none for");
+
+        store.markMigrated(world);
+        assertTrue(new ChunkCountStore(PLUGIN).isMigrated(world));
+    }
+}
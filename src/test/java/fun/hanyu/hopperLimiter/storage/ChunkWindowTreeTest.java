@@ -0,0 +1,70 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkWindowTreeTest {
+    @Test
+    void sumsAcrossTileEdgesAroundTheOrigin() {
+        ChunkWindowTree tree = new ChunkWindowTree();
+        // One chunk on each side of the tile edges at 0 and -64
+        tree.add(-1, -1, 1);
+        tree.add(0, 0, 2);
+        tree.add(-1, 0, 4);
+        tree.add(0, -1, 8);
+        tree.add(-64, -64, 16);
+        tree.add(-65, -65, 32);
+
+        assertEquals(15, tree.sum(-1, -1, 0, 0));
+        assertEquals(1, tree.sum(-1, -1, -1, -1));
+        assertEquals(48, tree.sum(-65, -65, -64, -64));
+        assertEquals(16, tree.sum(-64, -64, -2, -2));
+        assertEquals(63, tree.sum(-100, -100, 100, 100));
+        assertEquals(0, tree.sum(1, 1, 63, 63));
+    }
+
+    @Test
+    void matchesBruteForceOverNegativeCoordinates() {
+        ChunkWindowTree tree = new ChunkWindowTree();
+        Map<Long, Integer> counts = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            int x = random.nextInt(300) - 150;
+            int z = random.nextInt(300) - 150;
+            int delta = random.nextInt(5) + 1;
+            tree.add(x, z, delta);
+            counts.merge(ChunkCounterCache.chunkKey(x, z), delta, Integer::sum);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            int x = random.nextInt(300) - 150;
+            int z = random.nextInt(300) - 150;
+            int radius = random.nextInt(20);
+            int expected = 0;
+            for (int dx = -radius; dx <= radius; dx++) {
+                for (int dz = -radius; dz <= radius; dz++) {
+                    expected += counts.getOrDefault(ChunkCounterCache.chunkKey(x + dx, z + dz), 0);
+                }
+            }
+            assertEquals(expected, tree.sum(x - radius, z - radius, x + radius, z + radius),
+                    "window " + radius + " around " + x + ", " + z);
+        }
+    }
+
+    @Test
+    void emptyTilesAreDropped() {
+        ChunkWindowTree tree = new ChunkWindowTree();
+        tree.add(-64, 63, 3);
+        tree.add(-1, 64, 1);
+        tree.add(-64, 63, -3);
+        tree.add(-1, 64, -1);
+        assertTrue(tree.isEmpty());
+        assertEquals(0, tree.sum(-128, 0, 0, 128));
+    }
+}
@@ -0,0 +1,76 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.LongObjectHashMap;
+import org.junit.jupiter.api.Test;
+
+import static fun.hanyu.hopperLimiter.util.ContainerTypes.BARREL;
+import static fun.hanyu.hopperLimiter.util.ContainerTypes.CHEST;
+import static fun.hanyu.hopperLimiter.util.ContainerTypes.HOPPER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContainerPositionIndexTest {
+    @Test
+    void persistedPositionsMergeOverChangesWhileLoading() {
+        ContainerPositionIndex index = new ContainerPositionIndex();
+        ContainerPositionIndex.ChunkPositions chunk = index.track("world", -1, 0);
+        assertEquals(ContainerPositionIndex.ABSENT, index.add("world", -5, 64, 1, HOPPER));
+        // Removed before the persisted rows arrive: position unknown, so it is remembered
+        assertEquals(ContainerPositionIndex.NOT_INDEXED, index.remove("world", -6, 64, 2));
+        assertTrue(index.copy("world", -1, 0) == null, "no copy while loading");
+
+        LongObjectHashMap<Integer> persisted = new LongObjectHashMap<>();
+        persisted.put(ContainerPositionIndex.blockKey(-6, 64, 2), CHEST);
+        persisted.put(ContainerPositionIndex.blockKey(-7, 70, 3), HOPPER);
+        persisted.put(ContainerPositionIndex.blockKey(-5, 64, 1), BARREL);
+        chunk.complete(persisted);
+
+        assertFalse(chunk.isLoading());
+        assertEquals(2, index.count("world", -1, 0, HOPPER));
+        assertEquals(0, index.count("world", -1, 0, CHEST));
+        assertEquals(0, index.count("world", -1, 0, BARREL));
+        assertEquals(2, index.copy("world", -1, 0).size());
+        assertEquals(HOPPER, index.remove("world", -7, 70, 3));
+        assertEquals(ContainerPositionIndex.ABSENT, index.remove("world", -7, 70, 3));
+    }
+
+    @Test
+    void sectionCountsFollowPlacementsAboveAndBelow() {
+        ContainerPositionIndex index = new ContainerPositionIndex();
+        index.track("world", 0, 0).complete(null);
+        index.add("world", 1, 64, 1, HOPPER);
+        index.add("world", 2, 79, 1, HOPPER);
+        index.add("world", 3, -60, 1, HOPPER);
+        index.add("world", 4, 200, 1, CHEST);
+
+        assertEquals(2, index.sectionCount("world", 0, 70, 0, HOPPER));
+        assertEquals(1, index.sectionCount("world", 0, -64, 0, HOPPER));
+        assertEquals(1, index.sectionCount("world", 0, 192, 0, CHEST));
+        assertEquals(0, index.sectionCount("world", 0, 100, 0, HOPPER));
+
+        // Replacing a container moves the count to the new type
+        assertEquals(HOPPER, index.add("world", 1, 64, 1, BARREL));
+        assertEquals(1, index.sectionCount("world", 0, 64, 0, HOPPER));
+        assertEquals(1, index.sectionCount("world", 0, 64, 0, BARREL));
+        assertEquals(HOPPER, index.remove("world", 3, -60, 1));
+        assertEquals(0, index.sectionCount("world", 0, -60, 0, HOPPER));
+    }
+
+    @Test
+    void failedLoadIsUntrackedUnlessTrackedAgain() {
+        ContainerPositionIndex index = new ContainerPositionIndex();
+        assertEquals(ContainerPositionIndex.NOT_INDEXED, index.remove("world", 0, 64, 0));
+
+        ContainerPositionIndex.ChunkPositions failed = index.track("world", 0, 0);
+        index.untrack("world", 0, 0, failed);
+        assertFalse(index.isTracked("world", 0, 0));
+
+        // Unloaded and loaded again before the failure was handled
+        ContainerPositionIndex.ChunkPositions reloaded = index.track("world", 0, 0);
+        index.untrack("world", 0, 0, failed);
+        assertTrue(index.isTracked("world", 0, 0), "newer entry kept");
+        index.untrack("world", 0, 0, reloaded);
+        assertEquals(0, index.size());
+    }
+}
@@ -0,0 +1,165 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EventJournalTest {
+    // Layout written by EventJournal: a 64-byte header, then one 64-byte record per slot
+    private static final int RECORD_SIZE = 64;
+    private static final int HEADER_READ_SLOT = 12;
+    private static final int HEADER_COMPACTED = 16;
+
+    private static final Logger LOGGER = Logger.getLogger("EventJournalTest");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void tornRecordAtTheEndIsNotReplayed() throws IOException {
+        File file = dir.resolve("journal.dat").toFile();
+        // The backend is down, so every event stays in the journal
+        EventJournal crashed = journal(file, batch -> {
+            throw new IllegalStateException("backend down");
+        });
+        crashed.open(batch -> {
+        });
+        crashed.start();
+        try {
+            for (int i = 0; i < 10; i++) {
+                crashed.submit(event(i));
+            }
+
+            // The process dies while the last record is half written
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(RECORD_SIZE + 9L * RECORD_SIZE + 20);
+                raf.writeInt(0xDEADBEEF);
+            }
+
+            List<StorageEvent> replayed = new ArrayList<>();
+            EventJournal reopened = journal(file, batch -> {
+            });
+            assertEquals(9, reopened.open(replayed::addAll));
+            for (int i = 0; i < 9; i++) {
+                assertEquals(i, replayed.get(i).getTimestamp());
+            }
+            assertEquals(0, reopened.getQueueDepth());
+            reopened.shutdown();
+        } finally {
+            // Its backend is still down, so this stops the compactor without compacting anything
+            crashed.shutdown();
+        }
+    }
+
+    @Test
+    void fullJournalStopsWaitingWhenTheCompactorIsStalled() throws IOException {
+        File file = dir.resolve("journal.dat").toFile();
+        List<StorageEvent> dropped = new ArrayList<>();
+        EventJournal journal = new EventJournal(file, 0, batch -> {
+            throw new IllegalStateException("backend down");
+        }, dropped::add, WriteBehindQueue.BackpressurePolicy.BLOCK, new DictionaryCache(), LOGGER, 1000, 60_000);
+        journal.open(batch -> {
+        });
+        journal.start();
+        try {
+            int capacity = journal.getCapacity();
+            long start = System.nanoTime();
+            for (int i = 0; i < capacity + 100; i++) {
+                journal.submit(event(i));
+            }
+            long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            // One bounded wait for the whole stall, not one per event
+            assertTrue(elapsedMillis < WriteBehindQueue.MAX_BLOCK_MILLIS * 3, "submits took " + elapsedMillis + "ms");
+            assertEquals(100, dropped.size());
+            assertEquals(100, journal.getMetrics().getDroppedEvents());
+            assertEquals(capacity, journal.getQueueDepth());
+        } finally {
+            journal.shutdown();
+        }
+    }
+
+    @Test
+    void batchCommittedBeforeHeaderUpdateIsReplayedOnce() throws IOException {
+        File file = dir.resolve("journal.dat").toFile();
+        List<StorageEvent> written = new ArrayList<>();
+        EventJournal journal = journal(file, written::addAll);
+        journal.open(batch -> {
+        });
+        journal.start();
+        for (int i = 0; i < 5; i++) {
+            journal.submit(event(i));
+        }
+        journal.shutdown();
+        assertEquals(5, written.size());
+
+        // The batch committed, but the process died before the header recorded it
+        writeHeader(file, 0, 0);
+
+        List<StorageEvent> replayed = new ArrayList<>();
+        EventJournal reopened = journal(file, batch -> {
+        });
+        assertEquals(5, reopened.open(replayed::addAll));
+        assertEquals(4, replayed.get(4).getTimestamp());
+        reopened.shutdown();
+
+        EventJournal again = journal(file, batch -> {
+        });
+        assertEquals(0, again.open(batch -> {
+            throw new AssertionError("replayed twice");
+        }));
+        again.shutdown();
+    }
+
+    @Test
+    void recordsUpToCompactedSequenceAreSkipped() throws IOException {
+        File file = dir.resolve("journal.dat").toFile();
+        EventJournal journal = journal(file, batch -> {
+        });
+        journal.open(batch -> {
+        });
+        journal.start();
+        for (int i = 0; i < 5; i++) {
+            journal.submit(event(i));
+        }
+        journal.shutdown();
+
+        // The compacted sequence is written first, so only the read slot can be stale
+        writeHeader(file, 5, 0);
+
+        EventJournal reopened = journal(file, batch -> {
+        });
+        assertEquals(0, reopened.open(batch -> {
+            throw new AssertionError("compacted records replayed");
+        }));
+        reopened.shutdown();
+    }
+
+    private static EventJournal journal(File file, EventSink.BatchWriter writer) {
+        return new EventJournal(file, 64 * 1024, writer, event -> {
+        }, WriteBehindQueue.BackpressurePolicy.BLOCK, new DictionaryCache(), LOGGER, 1000, 60_000);
+    }
+
+    private static StorageEvent event(int i) {
+        return new StorageEvent(StorageEvent.Kind.PLACEMENT, i, 1, 1, 1, i, 64, -i);
+    }
+
+    private static void writeHeader(File file, long compactedThrough, int readSlot) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(HEADER_COMPACTED);
+            raf.writeLong(compactedThrough);
+            raf.seek(HEADER_READ_SLOT);
+            raf.writeInt(readSlot);
+        }
+    }
+}
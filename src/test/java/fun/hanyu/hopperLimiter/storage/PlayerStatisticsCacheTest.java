@@ -0,0 +1,108 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import fun.hanyu.hopperLimiter.util.ContainerTypes;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerStatisticsCacheTest {
+    private final DictionaryCache dictionary = new DictionaryCache();
+
+    PlayerStatisticsCacheTest() {
+        dictionary.reset();
+    }
+
+    private StorageEvent placement(int playerId, int type) {
+        return StorageEvent.placement(playerId, dictionary.blockTypeId(ContainerTypes.typeName(type)), 1, 0, 64, 0);
+    }
+
+    private static int placed(PlayerStatisticsCache cache, int playerId, int type) {
+        Integer count = cache.get(playerId).getBlockCounts().get(ContainerTypes.typeName(type));
+        return count != null ? count : 0;
+    }
+
+    @Test
+    void preloadedCountsAndDeltasAreCountedOnce() throws Exception {
+        MemoryStorageBackend backend = new MemoryStorageBackend(dictionary);
+        int steve = dictionary.playerId(UUID.randomUUID(), "Steve");
+        int[] persisted = new int[ContainerTypes.count()];
+        persisted[ContainerTypes.HOPPER] = 2;
+        backend.writePlayerCounts(Collections.singletonList(new PlayerStatisticsCache.PlayerCounts(
+                steve, persisted, new int[ContainerTypes.count()], 1000)));
+
+        PlayerStatisticsCache cache = new PlayerStatisticsCache(backend, dictionary);
+        cache.join(steve);
+        cache.preload(steve);
+        cache.add(placement(steve, ContainerTypes.HOPPER));
+        cache.add(placement(steve, ContainerTypes.CHEST));
+        assertEquals("Steve", cache.get(steve).getPlayerName());
+        assertEquals(3, placed(cache, steve, ContainerTypes.HOPPER));
+        assertEquals(1, placed(cache, steve, ContainerTypes.CHEST));
+
+        assertEquals(1, cache.flush());
+        assertEquals(0, cache.flush());
+        assertEquals(3, placed(cache, steve, ContainerTypes.HOPPER));
+        assertEquals(3, backend.loadPlayerCounts(steve).getPlaced(ContainerTypes.HOPPER));
+        assertEquals(1, backend.loadPlayerCounts(steve).getPlaced(ContainerTypes.CHEST));
+    }
+
+    @Test
+    void failedFlushKeepsTheDeltasForTheNextOne() throws Exception {
+        boolean[] down = {true};
+        MemoryStorageBackend backend = new MemoryStorageBackend(dictionary) {
+            @Override
+            public synchronized void writePlayerCounts(List<PlayerStatisticsCache.PlayerCounts> deltas) {
+                if (down[0]) {
+                    throw new IllegalStateException("backend down");
+                }
+                super.writePlayerCounts(deltas);
+            }
+        };
+        int alex = dictionary.playerId(UUID.randomUUID(), "Alex");
+        PlayerStatisticsCache cache = new PlayerStatisticsCache(backend, dictionary);
+        cache.join(alex);
+        cache.preload(alex);
+        cache.add(placement(alex, ContainerTypes.BARREL));
+
+        boolean failed = false;
+        try {
+            cache.flush();
+        } catch (IllegalStateException e) {
+            failed = true;
+        }
+        assertTrue(failed, "flush hid the backend failure");
+        cache.add(placement(alex, ContainerTypes.BARREL));
+        assertEquals(2, placed(cache, alex, ContainerTypes.BARREL));
+
+        down[0] = false;
+        assertEquals(1, cache.flush());
+        assertEquals(2, backend.loadPlayerCounts(alex).getPlaced(ContainerTypes.BARREL));
+        assertEquals(2, placed(cache, alex, ContainerTypes.BARREL));
+    }
+
+    @Test
+    void playerWhoQuitIsEvictedOnceTheirDeltasArePersisted() throws Exception {
+        MemoryStorageBackend backend = new MemoryStorageBackend(dictionary);
+        int steve = dictionary.playerId(UUID.randomUUID(), "Steve");
+        int alex = dictionary.playerId(UUID.randomUUID(), "Alex");
+        PlayerStatisticsCache cache = new PlayerStatisticsCache(backend, dictionary);
+        cache.join(steve);
+        cache.preload(steve);
+        // Not joined: deltas are still collected, but statistics are not served from memory
+        cache.add(placement(alex, ContainerTypes.HOPPER));
+        assertTrue(cache.get(alex) == null, "statistics of a player never preloaded");
+        assertTrue(cache.get(steve) == null, "statistics without any placement");
+
+        cache.add(placement(steve, ContainerTypes.HOPPER));
+        cache.quit(steve);
+        assertEquals(2, cache.size());
+        assertEquals(2, cache.flush());
+        assertEquals(0, cache.size());
+        assertEquals(1, backend.loadPlayerCounts(alex).getPlaced(ContainerTypes.HOPPER));
+    }
+}
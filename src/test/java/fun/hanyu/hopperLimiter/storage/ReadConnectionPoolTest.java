@@ -0,0 +1,94 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReadConnectionPoolTest {
+    @TempDir
+    Path dir;
+
+    private static int count(ReadConnectionPool pool) throws SQLException {
+        return pool.query(connection -> {
+            try (Statement statement = connection.createStatement();
+                 ResultSet result = statement.executeQuery("SELECT COUNT(*) FROM t")) {
+                result.next();
+                return result.getInt(1);
+            }
+        });
+    }
+
+    @Test
+    void readersSeeTheLastCommitWhileTheWriterHoldsATransaction() throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("read.db");
+        try (Connection writer = DriverManager.getConnection(url);
+             Statement statement = writer.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("CREATE TABLE t (v INTEGER)");
+            statement.execute("INSERT INTO t VALUES (1)");
+
+            ReadConnectionPool pool = new ReadConnectionPool(url, 2, 1000, connection -> {
+            });
+            try {
+                writer.setAutoCommit(false);
+                statement.execute("INSERT INTO t VALUES (2)");
+                assertEquals(1, count(pool));
+                writer.commit();
+                assertEquals(2, count(pool));
+
+                boolean rejected = false;
+                try {
+                    pool.query(connection -> {
+                        try (Statement delete = connection.createStatement()) {
+                            return delete.executeUpdate("DELETE FROM t");
+                        }
+                    });
+                } catch (SQLException e) {
+                    rejected = true;
+                }
+                assertTrue(rejected, "read-only connection accepted a write");
+                assertEquals(2, pool.getIdleCount());
+            } finally {
+                pool.close();
+            }
+        }
+    }
+
+    @Test
+    void invalidatePreparesEachConnectionAgainBeforeItsNextUse() throws SQLException {
+        String url = "jdbc:sqlite:" + dir.resolve("init.db");
+        try (Connection writer = DriverManager.getConnection(url);
+             Statement statement = writer.createStatement()) {
+            statement.execute("CREATE TABLE t (v INTEGER)");
+        }
+
+        AtomicInteger prepared = new AtomicInteger();
+        ReadConnectionPool pool = new ReadConnectionPool(url, 1, 1000, connection -> prepared.incrementAndGet());
+        count(pool);
+        count(pool);
+        assertEquals(1, prepared.get());
+        pool.invalidate();
+        count(pool);
+        count(pool);
+        assertEquals(2, prepared.get());
+
+        pool.close();
+        boolean rejected = false;
+        try {
+            count(pool);
+        } catch (SQLException e) {
+            rejected = true;
+        }
+        assertTrue(rejected, "closed pool ran a query");
+    }
+}
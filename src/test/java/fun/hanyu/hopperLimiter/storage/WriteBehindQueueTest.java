@@ -0,0 +1,80 @@
+package fun.hanyu.hopperLimiter.storage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WriteBehindQueueTest {
+    private static final Logger LOGGER = Logger.getLogger("WriteBehindQueueTest");
+
+    @Test
+    void blockingSubmitStopsWaitingWhenTheWriterIsStalled() throws InterruptedException {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        List<StorageEvent> dropped = new CopyOnWriteArrayList<>();
+        List<StorageEvent> written = new CopyOnWriteArrayList<>();
+        WriteBehindQueue queue = new WriteBehindQueue(batch -> {
+            if (failing.get()) {
+                throw new IllegalStateException("backend down");
+            }
+            written.addAll(batch);
+        }, dropped::add, LOGGER, 4, 1, 10, WriteBehindQueue.BackpressurePolicy.BLOCK);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 20; i++) {
+            queue.submit(event(i));
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        // One bounded wait for the whole stall, not one per event
+        assertTrue(elapsedMillis < WriteBehindQueue.MAX_BLOCK_MILLIS * 3, "submits took " + elapsedMillis + "ms");
+        assertTrue(!dropped.isEmpty(), "history rows dropped");
+        assertEquals(dropped.size(), queue.getMetrics().getDroppedEvents());
+        assertEquals(20, dropped.size() + queue.getQueueDepth() + 1);
+
+        // Once the backend recovers the queue drains and events are queued again
+        failing.set(false);
+        for (int i = 0; i < 100 && queue.getQueueDepth() > 0; i++) {
+            Thread.sleep(50);
+        }
+        queue.submit(event(100));
+        queue.shutdown();
+        assertEquals(20 - dropped.size() + 1, written.size());
+        assertEquals(100, written.get(written.size() - 1).getTimestamp());
+    }
+
+    @Test
+    void dropHistoryDropsAGroupThatDoesNotFit() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        List<StorageEvent> dropped = new ArrayList<>();
+        WriteBehindQueue queue = new WriteBehindQueue(batch -> release.await(), dropped::add, LOGGER,
+                2, 1, 10, WriteBehindQueue.BackpressurePolicy.DROP_HISTORY);
+        queue.submit(event(0));
+        // Wait for the writer to take the first event and hold it
+        for (int i = 0; i < 100 && queue.getQueueDepth() > 0; i++) {
+            Thread.sleep(10);
+        }
+
+        queue.submitAll(Arrays.asList(event(1), event(2), event(3)));
+        assertEquals(3, dropped.size());
+        assertEquals(3, queue.getMetrics().getDroppedEvents());
+        assertEquals(0, queue.getQueueDepth());
+
+        queue.submitAll(Arrays.asList(event(4), event(5)));
+        assertEquals(3, dropped.size());
+        release.countDown();
+        queue.shutdown();
+    }
+
+    private static StorageEvent event(int i) {
+        return new StorageEvent(StorageEvent.Kind.PLACEMENT, i, 1, 1, 1, i, 64, 0);
+    }
+}
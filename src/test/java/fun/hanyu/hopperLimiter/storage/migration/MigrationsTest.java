@@ -0,0 +1,115 @@
+package fun.hanyu.hopperLimiter.storage.migration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MigrationsTest {
+    private static final Logger LOGGER = Logger.getLogger("MigrationsTest");
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void migratesEmptyDatabaseToLatestVersion() throws SQLException {
+        try (Connection connection = open()) {
+            SchemaMigrator migrator = new SchemaMigrator(connection, LOGGER);
+            assertEquals(migrator.getLatestVersion(), migrator.migrate());
+            assertEquals(migrator.getLatestVersion(), migrator.getCurrentVersion());
+
+            for (String table : new String[]{"placement_history", "placement_history_legacy", "player_statistics",
+                    "player_block_statistics", "chunk_counts", "container_positions", "worlds", "players", "block_types"}) {
+                assertTrue(hasTable(connection, table), table);
+            }
+            assertEquals(3, queryInt(connection, "SELECT COUNT(*) FROM block_types"));
+            assertEquals(0, queryInt(connection, "SELECT COUNT(*) FROM player_statistics"));
+
+            // Nothing left to apply on the next start
+            assertEquals(migrator.getLatestVersion(), migrator.migrate());
+            assertEquals(migrator.getLatestVersion(), queryInt(connection, "SELECT COUNT(*) FROM schema_version"));
+        }
+    }
+
+    @Test
+    void migratesLegacyDatabase() throws SQLException {
+        try (Connection connection = open()) {
+            try (Statement stmt = connection.createStatement()) {
+                // Tables as created before schema versions existed
+                stmt.executeUpdate("CREATE TABLE placement_history (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "timestamp LONG NOT NULL, player_name TEXT NOT NULL, block_type TEXT NOT NULL, " +
+                        "world TEXT NOT NULL, chunk_x INTEGER NOT NULL, chunk_z INTEGER NOT NULL, " +
+                        "is_removed INTEGER DEFAULT 0, removed_at DATETIME, removed_by TEXT, " +
+                        "created_at DATETIME DEFAULT CURRENT_TIMESTAMP)");
+                stmt.executeUpdate("CREATE TABLE player_statistics (id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                        "player_name TEXT UNIQUE NOT NULL, hopper_count INTEGER DEFAULT 0, " +
+                        "chest_count INTEGER DEFAULT 0, barrel_count INTEGER DEFAULT 0, " +
+                        "hopper_removed INTEGER DEFAULT 0, chest_removed INTEGER DEFAULT 0, " +
+                        "barrel_removed INTEGER DEFAULT 0, last_placement TEXT, " +
+                        "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, updated_at DATETIME DEFAULT CURRENT_TIMESTAMP)");
+                stmt.executeUpdate("INSERT INTO placement_history (timestamp, player_name, block_type, world, chunk_x, chunk_z) " +
+                        "VALUES (1000, 'bob', 'Hopper', 'world', 3, -2), (2000, 'bob', 'Chest', 'world', 3, -2)");
+                stmt.executeUpdate("INSERT INTO placement_history (timestamp, player_name, block_type, world, chunk_x, chunk_z, " +
+                        "is_removed, removed_at, removed_by) VALUES (3000, 'bob', 'Barrel', 'world', 0, 0, 1, " +
+                        "'2025-10-26 12:00:00', 'al')");
+                stmt.executeUpdate("INSERT INTO player_statistics (player_name, hopper_count, chest_count, barrel_count, " +
+                        "barrel_removed, last_placement) VALUES ('bob', 1, 1, 1, 1, '2025-10-26 11:00:00')");
+            }
+
+            SchemaMigrator migrator = new SchemaMigrator(connection, LOGGER);
+            assertEquals(migrator.getLatestVersion(), migrator.migrate());
+
+            // History rows wait in the legacy table for the background move, ids reserved
+            assertEquals(3, queryInt(connection, "SELECT COUNT(*) FROM placement_history_legacy"));
+            assertEquals(0, queryInt(connection, "SELECT COUNT(*) FROM placement_history"));
+            assertEquals(3, queryInt(connection, "SELECT seq FROM sqlite_sequence WHERE name = 'placement_history'"));
+            assertEquals(0, queryInt(connection, "SELECT COUNT(*) FROM placement_history_legacy WHERE removed_at IS NOT NULL " +
+                    "AND typeof(removed_at) <> 'integer'"));
+
+            // Statistics are keyed by player id, one row per block type
+            assertEquals(1, queryInt(connection, "SELECT COUNT(*) FROM players WHERE name = 'bob'"));
+            assertEquals(3, queryInt(connection, "SELECT SUM(c.placed_count) FROM player_block_statistics c " +
+                    "JOIN players p ON p.id = c.player_id WHERE p.name = 'bob'"));
+            assertEquals(1, queryInt(connection, "SELECT c.removed_count FROM player_block_statistics c " +
+                    "JOIN block_types b ON b.id = c.block_type_id WHERE b.name = 'Barrel'"));
+            assertEquals(1, queryInt(connection, "SELECT COUNT(*) FROM player_statistics WHERE last_placement > 0"));
+            assertFalse(hasColumn(connection, "player_statistics", "hopper_count"));
+        }
+    }
+
+    private Connection open() throws SQLException {
+        return DriverManager.getConnection("jdbc:sqlite:" + dir.resolve("test.db"));
+    }
+
+    private static boolean hasTable(Connection connection, String table) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM sqlite_master WHERE type = 'table' AND name = '" + table + "'")) {
+            return rs.next() && rs.getInt(1) == 1;
+        }
+    }
+
+    private static boolean hasColumn(Connection connection, String table, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM pragma_table_info('" + table + "') WHERE name = '" + column + "'")) {
+            return rs.next() && rs.getInt(1) == 1;
+        }
+    }
+
+    private static int queryInt(Connection connection, String sql) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            assertTrue(rs.next(), sql);
+            return rs.getInt(1);
+        }
+    }
+}
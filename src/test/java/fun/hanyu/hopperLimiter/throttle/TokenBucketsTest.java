@@ -0,0 +1,59 @@
+package fun.hanyu.hopperLimiter.throttle;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketsTest {
+    @Test
+    void bucketAllowsABurstThenRefillsPerTick() {
+        TokenBuckets buckets = new TokenBuckets();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(buckets.take("world", 0, 0, 0, 3, 10), "burst transfer " + i);
+        }
+        assertFalse(buckets.take("world", 0, 0, 0, 3, 10));
+        // Another chunk has its own bucket
+        assertTrue(buckets.take("world", -1, 0, 0, 3, 10));
+
+        // 10 transfers per second is one every other tick
+        assertFalse(buckets.take("world", 0, 0, 1, 3, 10));
+        assertTrue(buckets.take("world", 0, 0, 2, 3, 10));
+        assertFalse(buckets.take("world", 0, 0, 2, 3, 10));
+
+        // A long pause refills no more than the burst
+        int allowed = 0;
+        while (buckets.take("world", 0, 0, 1000, 3, 10)) {
+            allowed++;
+        }
+        assertEquals(3, allowed);
+    }
+
+    @Test
+    void smallerBurstAppliesToAFullBucket() {
+        TokenBuckets buckets = new TokenBuckets();
+        assertTrue(buckets.take("world", 0, 0, 0, 100, 0));
+        int allowed = 0;
+        while (buckets.take("world", 0, 0, 1, 2, 0)) {
+            allowed++;
+        }
+        assertEquals(2, allowed);
+    }
+
+    @Test
+    void sweepDropsOnlyRefilledBuckets() {
+        TokenBuckets buckets = new TokenBuckets();
+        buckets.take("world", 0, 0, 0, 2, 20);
+        buckets.take("world", 5, 5, 10, 2, 20);
+        buckets.take("world", 5, 5, 10, 2, 20);
+        buckets.take("nether", 0, 0, 10, 2, 20);
+        assertEquals(3, buckets.size());
+
+        // At 20 per second a transfer refills in a tick: the first bucket is full again, the others are not
+        buckets.sweep(10, 2, 20);
+        assertEquals(2, buckets.size());
+        buckets.sweep(12, 2, 20);
+        assertEquals(0, buckets.size());
+    }
+}
@@ -0,0 +1,52 @@
+package fun.hanyu.hopperLimiter.util;
+
+import org.bukkit.Material;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ContainerTypesTest {
+    @Test
+    void registeredMaterialsFollowTheBuiltInTypes() {
+        try {
+            ContainerTypes.register(Arrays.asList(Material.TRAPPED_CHEST, Material.HOPPER, Material.SHULKER_BOX));
+            assertEquals(5, ContainerTypes.count());
+            assertEquals(ContainerTypes.HOPPER, ContainerTypes.typeIndex(Material.HOPPER));
+            assertEquals(ContainerTypes.BARREL, ContainerTypes.typeIndex(Material.BARREL));
+            assertEquals(3, ContainerTypes.typeIndex(Material.TRAPPED_CHEST));
+            assertEquals(4, ContainerTypes.typeIndex(Material.SHULKER_BOX));
+            assertEquals(Material.SHULKER_BOX, ContainerTypes.material(4));
+            assertTrue(ContainerTypes.isTracked(Material.SHULKER_BOX));
+            assertFalse(ContainerTypes.isTracked(Material.DROPPER));
+            assertEquals(-1, ContainerTypes.typeIndex(Material.DROPPER));
+        } finally {
+            ContainerTypes.register(Collections.emptyList());
+        }
+        assertEquals(3, ContainerTypes.count());
+        assertFalse(ContainerTypes.isTracked(Material.SHULKER_BOX));
+    }
+
+    @Test
+    void namesResolveInAnyCaseWithSpacesOrUnderscores() {
+        try {
+            ContainerTypes.register(Collections.singletonList(Material.TRAPPED_CHEST));
+            assertEquals("Trapped Chest", ContainerTypes.typeName(3));
+            assertEquals(3, ContainerTypes.typeIndex("Trapped Chest"));
+            assertEquals(3, ContainerTypes.typeIndex("trapped_chest"));
+            assertEquals(3, ContainerTypes.typeIndex(" TRAPPED CHEST "));
+            assertEquals(3, ContainerTypes.typeIndex("minecraft:trapped_chest"));
+            assertEquals(ContainerTypes.HOPPER, ContainerTypes.typeIndex("Hopper"));
+            assertEquals(-1, ContainerTypes.typeIndex("furnace"));
+            assertEquals(Material.FURNACE, ContainerTypes.parseMaterial("Furnace"));
+            assertTrue(ContainerTypes.parseMaterial("no_such_block") == null, "unknown block resolved");
+            assertEquals("trapped_chest", ContainerTypes.configKey(Material.TRAPPED_CHEST));
+        } finally {
+            ContainerTypes.register(Collections.emptyList());
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package fun.hanyu.hopperLimiter.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongObjectHashMapTest {
+    @Test
+    void removalKeepsTheRestOfAProbeChainReachable() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>(4);
+        // Small map: these keys share few home slots, so removals shift later entries back
+        for (long key = 0; key < 6; key++) {
+            map.put(key, "v" + key);
+        }
+        assertEquals("v2", map.remove(2));
+        assertEquals("v0", map.remove(0));
+        assertTrue(map.remove(0) == null, "already removed");
+
+        assertEquals(4, map.size());
+        assertFalse(map.containsKey(0));
+        assertFalse(map.containsKey(2));
+        for (long key : new long[] {1, 3, 4, 5}) {
+            assertEquals("v" + key, map.get(key));
+        }
+    }
+
+    @Test
+    void growingKeepsEveryEntry() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        for (long key = -1000; key < 1000; key++) {
+            map.put(key << 32 | (key & 0xFFFFFFFFL), key);
+        }
+        assertEquals(2000, map.size());
+        for (long key = -1000; key < 1000; key++) {
+            assertEquals(Long.valueOf(key), map.get(key << 32 | (key & 0xFFFFFFFFL)));
+        }
+
+        long[] visited = new long[1];
+        map.forEach((key, value) -> visited[0]++);
+        assertEquals(2000, visited[0]);
+    }
+
+    @Test
+    void randomOperationsMatchHashMap() {
+        Random random = new Random(42);
+        LongObjectHashMap<Integer> map = new LongObjectHashMap<>(2);
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Narrow key range so puts and removes keep hitting the same chains
+            long key = random.nextInt(512) - 256;
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), map.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), map.put(key, i));
+            }
+            if (i % 1000 == 0) {
+                assertEquals(expected.size(), map.size());
+            }
+        }
+        for (long key = -256; key < 256; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertFalse(map.containsKey(0));
+    }
+}